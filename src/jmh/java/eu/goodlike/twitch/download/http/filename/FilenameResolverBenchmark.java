@@ -0,0 +1,26 @@
+package eu.goodlike.twitch.download.http.filename;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures replacement of characters which cannot be used in file names, for typical formatted VoD names
+ */
+@State(Scope.Benchmark)
+public class FilenameResolverBenchmark {
+
+    @Param({
+            "Streamer - 2017-10-01 - Speedrunning Any% (World Record attempts!)",
+            "Streamer | Ranked grind w/ friends :: \"chat decides\" <3 ? 2017/10/01",
+            "配信者 - 初見プレイ！ 最終回 ★ 2017-10-01 ✔ ♥♥♥"
+    })
+    public String name;
+
+    @Benchmark
+    public String replaceForbiddenCharacters() {
+        return FilenameResolver.replaceForbiddenCharacters(name);
+    }
+
+}
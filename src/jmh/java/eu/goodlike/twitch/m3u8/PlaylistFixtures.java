@@ -0,0 +1,134 @@
+package eu.goodlike.twitch.m3u8;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.io.log.CustomizedLoggers;
+import eu.goodlike.twitch.download.configurations.policy.ParserEngine;
+import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
+import eu.goodlike.twitch.m3u8.media.AppendableStreamPart;
+import eu.goodlike.twitch.m3u8.media.SimpleStreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+/**
+ * <pre>
+ * Generates playlists which look like the ones twitch serves, for benchmarks
+ *
+ * Ranged playlists point into large files using start/end offsets, a few segments per file, like older VoDs; whole
+ * playlists point to a separate file for every segment, like newer VoDs; durations vary slightly, the same way they do
+ * in real playlists, so that BigDecimal parsing and addition are not trivial
+ * </pre>
+ */
+public final class PlaylistFixtures {
+
+    /**
+     * Logger which ignores everything, so that benchmarks do not measure logging
+     */
+    public static final CustomizedLogger NO_LOGGER = CustomizedLoggers.combine(Collections.emptyList());
+
+    /**
+     * @return media playlist file contents with given amount of segments
+     */
+    public static byte[] mediaPlaylist(int segmentCount, boolean ranged) {
+        StringBuilder builder = new StringBuilder(segmentCount * 80);
+        builder.append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-TARGETDURATION:11\n")
+                .append("#ID3-EQUIV-TDTG:2017-10-01T12:00:00\n")
+                .append("#EXT-X-PLAYLIST-TYPE:EVENT\n")
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-TWITCH-ELAPSED-SECS:0.000\n")
+                .append("#EXT-X-TWITCH-TOTAL-SECS:").append(segmentCount * 10).append(".000\n");
+
+        for (int i = 0; i < segmentCount; i++) {
+            builder.append("#EXTINF:").append(duration(i)).append(",\n");
+            if (ranged) {
+                int rangeIndex = i % SEGMENTS_PER_FILE;
+                builder.append(fileName(i / SEGMENTS_PER_FILE))
+                        .append("?start_offset=").append(rangeIndex * SEGMENT_SIZE)
+                        .append("&end_offset=").append((rangeIndex + 1) * SEGMENT_SIZE - 1)
+                        .append('\n');
+            }
+            else
+                builder.append(i).append(".ts\n");
+        }
+        builder.append("#EXT-X-ENDLIST\n");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return master playlist file contents with the usual set of qualities
+     */
+    public static byte[] masterPlaylist() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("#EXTM3U\n")
+                .append("#EXT-X-TWITCH-INFO:ORIGIN=\"s3\",B=\"false\",REGION=\"EU\",USER-IP=\"127.0.0.1\"\n");
+        for (String quality : QUALITIES)
+            builder.append("#EXT-X-MEDIA:TYPE=VIDEO,GROUP-ID=\"").append(quality).append("\",NAME=\"")
+                    .append(quality).append("\",AUTOSELECT=YES,DEFAULT=YES\n")
+                    .append("#EXT-X-STREAM-INF:PROGRAM-ID=1,BANDWIDTH=3000000,CODECS=\"avc1.4D4029,mp4a.40.2\",")
+                    .append("VIDEO=\"").append(quality).append("\"\n")
+                    .append("https://vod.edgecast.hls.ttvnw.net/v1/AUTH_system/vods_1234/streamer_123_456/")
+                    .append(quality).append("/index-dvr.m3u8\n");
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return stream parts equivalent to parsing a ranged or whole media playlist without combining
+     */
+    public static List<StreamPart> streamParts(int segmentCount, boolean ranged) {
+        List<StreamPart> parts = new ArrayList<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++) {
+            BigDecimal duration = new BigDecimal(duration(i));
+            if (ranged) {
+                int rangeIndex = i % SEGMENTS_PER_FILE;
+                parts.add(new AppendableStreamPart(duration, fileName(i / SEGMENTS_PER_FILE),
+                        rangeIndex * SEGMENT_SIZE, (rangeIndex + 1) * SEGMENT_SIZE - 1, "", null));
+            }
+            else
+                parts.add(new SimpleStreamPart(duration, i + ".ts", "", null));
+        }
+        return parts;
+    }
+
+    /**
+     * @return playlist policy with the defaults, except for combining parts and parser engine
+     */
+    public static PlaylistPolicy playlistPolicy(boolean combinePlaylistPartsEnabled, ParserEngine parserEngine) {
+        return new PlaylistPolicy(false, combinePlaylistPartsEnabled, OptionalLong.empty(), OptionalInt.empty(),
+                false, "source", parserEngine, false);
+    }
+
+    /**
+     * Location prefix of a typical VoD, which is prepended to every part before downloading
+     */
+    public static final String LOCATION_PREFIX =
+            "https://vod.edgecast.hls.ttvnw.net/v1/AUTH_system/vods_1234/streamer_123_456/chunked/";
+
+    // PRIVATE
+
+    private PlaylistFixtures() {
+        throw new AssertionError("Do not instantiate, use static methods!");
+    }
+
+    private static final int SEGMENTS_PER_FILE = 4;
+    private static final int SEGMENT_SIZE = 1_500_000;
+    private static final String[] QUALITIES = {"chunked", "1080p60", "720p60", "720p30", "480p30", "360p30",
+            "160p30", "audio_only"};
+
+    private static String duration(int index) {
+        return index % 7 == 6 ? "9.967" : "10.000";
+    }
+
+    private static String fileName(int fileIndex) {
+        return String.format("index-%010d-AbCd.ts", fileIndex);
+    }
+
+}
@@ -0,0 +1,60 @@
+package eu.goodlike.twitch.m3u8;
+
+import eu.goodlike.twitch.download.configurations.policy.ParserEngine;
+import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+
+/**
+ * Measures parsing of whole playlists, from bytes to playlist objects, including combining of ranged parts
+ */
+@State(Scope.Benchmark)
+public class TwitchM3U8ParserBenchmark {
+
+    @Param({"5000", "50000"})
+    public int segmentCount;
+
+    @Param({"true", "false"})
+    public boolean ranged;
+
+    @Param({"true", "false"})
+    public boolean combine;
+
+    @Param({"STREAMING", "SCANNER"})
+    public ParserEngine engine;
+
+    private byte[] mediaPlaylist;
+    private byte[] masterPlaylist;
+    private TwitchM3U8ParserFactory parserFactory;
+
+    @Setup
+    public void setUp() {
+        mediaPlaylist = PlaylistFixtures.mediaPlaylist(segmentCount, ranged);
+        masterPlaylist = PlaylistFixtures.masterPlaylist();
+        parserFactory = new TwitchM3U8ParserFactory(PlaylistFixtures.NO_LOGGER,
+                PlaylistFixtures.playlistPolicy(combine, engine));
+    }
+
+    @Benchmark
+    public MediaPlaylist parseMediaPlaylist() throws Exception {
+        try (TwitchM3U8Parser parser = parserFactory.newInstance(new ByteArrayInputStream(mediaPlaylist))) {
+            return parser.parseMediaPlaylist()
+                    .orElseThrow(() -> new IllegalStateException("Benchmark media playlist could not be parsed"));
+        }
+    }
+
+    @Benchmark
+    public MasterPlaylist parseMasterPlaylist() throws Exception {
+        try (TwitchM3U8Parser parser = parserFactory.newInstance(new ByteArrayInputStream(masterPlaylist))) {
+            return parser.parseMasterPlaylist()
+                    .orElseThrow(() -> new IllegalStateException("Benchmark master playlist could not be parsed"));
+        }
+    }
+
+}
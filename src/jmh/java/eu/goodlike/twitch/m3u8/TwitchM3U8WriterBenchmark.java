@@ -0,0 +1,63 @@
+package eu.goodlike.twitch.m3u8;
+
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Measures writing of prefixed media playlists into a file, like when it is kept, and into memory, which shows the
+ * cost of rendering alone
+ */
+@State(Scope.Benchmark)
+public class TwitchM3U8WriterBenchmark {
+
+    @Param({"5000", "50000"})
+    public int segmentCount;
+
+    @Param({"true", "false"})
+    public boolean ranged;
+
+    private TwitchM3U8Writer writer;
+    private Path directory;
+    private Path file;
+    private StringBuilder builder;
+
+    @Setup
+    public void setUp() throws IOException {
+        MediaPlaylist mediaPlaylist = new MediaPlaylist(PlaylistFixtures.streamParts(segmentCount, ranged))
+                .prependLocationPrefix(PlaylistFixtures.LOCATION_PREFIX);
+        writer = new TwitchM3U8Writer(mediaPlaylist, PlaylistFixtures.NO_LOGGER);
+        directory = Files.createTempDirectory("twitch-m3u8-writer-benchmark");
+        file = directory.resolve("playlist.m3u8");
+        builder = new StringBuilder();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public File writeMediaPlaylist() {
+        return writer.writeMediaPlaylist(file)
+                .orElseThrow(() -> new IllegalStateException("Benchmark media playlist could not be written"));
+    }
+
+    @Benchmark
+    public int writeMediaPlaylistToAppendable() throws IOException {
+        builder.setLength(0);
+        writer.writeMediaPlaylist(builder);
+        return builder.length();
+    }
+
+}
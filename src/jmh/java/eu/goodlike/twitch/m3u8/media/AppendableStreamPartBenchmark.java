@@ -0,0 +1,63 @@
+package eu.goodlike.twitch.m3u8.media;
+
+import eu.goodlike.twitch.m3u8.PlaylistFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * Measures combining of ranged parts, which point into the same file, into bigger parts
+ *
+ * Repeated StreamPart::appendTo creates an intermediate part for every step; the coalescer, which the parser uses,
+ * only creates the final parts, so both are measured to keep the difference visible
+ * </pre>
+ */
+@State(Scope.Benchmark)
+public class AppendableStreamPartBenchmark {
+
+    @Param({"5000", "50000"})
+    public int segmentCount;
+
+    private List<StreamPart> parts;
+
+    @Setup
+    public void setUp() {
+        parts = PlaylistFixtures.streamParts(segmentCount, true);
+    }
+
+    @Benchmark
+    public List<StreamPart> appendTo() {
+        List<StreamPart> combined = new ArrayList<>();
+        StreamPart current = null;
+        for (StreamPart part : parts) {
+            if (current != null && part.canBeAppendedTo(current))
+                current = part.appendTo(current);
+            else {
+                if (current != null)
+                    combined.add(current);
+                current = part;
+            }
+        }
+        if (current != null)
+            combined.add(current);
+
+        return combined;
+    }
+
+    @Benchmark
+    public List<StreamPart> coalesce() {
+        StreamPartCoalescer coalescer = new StreamPartCoalescer(Long.MAX_VALUE, BigDecimal.valueOf(Integer.MAX_VALUE));
+        for (StreamPart part : parts)
+            coalescer.add(part);
+
+        return coalescer.getStreamParts();
+    }
+
+}
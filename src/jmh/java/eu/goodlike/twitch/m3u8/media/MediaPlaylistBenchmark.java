@@ -0,0 +1,38 @@
+package eu.goodlike.twitch.m3u8.media;
+
+import eu.goodlike.twitch.m3u8.PlaylistFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigInteger;
+
+/**
+ * Measures operations which go over every part of a media playlist
+ */
+@State(Scope.Benchmark)
+public class MediaPlaylistBenchmark {
+
+    @Param({"5000", "50000"})
+    public int segmentCount;
+
+    private MediaPlaylist mediaPlaylist;
+
+    @Setup
+    public void setUp() {
+        mediaPlaylist = new MediaPlaylist(PlaylistFixtures.streamParts(segmentCount, false));
+    }
+
+    @Benchmark
+    public MediaPlaylist prependLocationPrefix() {
+        return mediaPlaylist.prependLocationPrefix(PlaylistFixtures.LOCATION_PREFIX);
+    }
+
+    @Benchmark
+    public BigInteger getTargetDuration() {
+        return mediaPlaylist.getTargetDuration();
+    }
+
+}
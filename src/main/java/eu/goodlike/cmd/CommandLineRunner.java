@@ -1,6 +1,9 @@
 package eu.goodlike.cmd;
 
 import com.google.common.collect.ImmutableList;
+import eu.goodlike.concurrent.AdmissionQueue;
+import eu.goodlike.concurrent.TaskExecutors;
+import eu.goodlike.functional.Futures;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.misc.SpecialUtils;
 import eu.goodlike.neat.Null;
@@ -10,11 +13,10 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -23,83 +25,144 @@ import java.util.stream.Collectors;
 public final class CommandLineRunner implements AutoCloseable {
 
     /**
-     * @return process launched using the input, Optional::empty if this launch failed
+     * @return process launched using the input, which completes once the process finishes; if the launch fails,
+     * the future completes exceptionally
      * @throws NullPointerException if input is or contains null
      */
-    public Optional<Process> execute(String... input) {
+    public CompletableFuture<Process> execute(String... input) {
         Null.checkArray(input).ifAny("Input cannot be or contain null");
         return execute(ImmutableList.copyOf(input));
     }
 
     /**
-     * @return process launched using the input, Optional::empty if this launch failed
+     * The command is queued until it fits into the concurrency limit; the calling thread is never blocked
+     * @return process launched using the input, which completes once the process finishes; if the launch fails,
+     * the future completes exceptionally
      * @throws NullPointerException if input is or contains null
      */
-    public Optional<Process> execute(List<String> input) {
-        Null.checkList(input).ifAny("Input cannot be or contain null");
+    public CompletableFuture<Process> execute(List<String> input) {
+        return execute(input, process -> {});
+    }
 
-        String commandString = input.stream().collect(Collectors.joining(" "));
-        ProcessBuilder processBuilder = new ProcessBuilder()
-                .command(input)
-                .redirectErrorStream(true);
+    /**
+     * <pre>
+     * The command is queued until it fits into the concurrency limit; the calling thread is never blocked
+     *
+     * Once the process is launched, it is passed to onLaunch before its output is read; this allows the caller to
+     * write into the input of the process; if onLaunch throws, the process is destroyed
+     * </pre>
+     * @return process launched using the input, which completes once the process finishes; if the launch fails,
+     * the future completes exceptionally
+     * @throws NullPointerException if input is or contains null, or onLaunch is null
+     */
+    public CompletableFuture<Process> execute(List<String> input, Consumer<Process> onLaunch) {
+        return execute(input, onLaunch, line -> {});
+    }
 
-        try {
-            parallelExecutionLimiter.acquire();
-        } catch (InterruptedException e) {
-            debugLogger.logMessage("Unexpected interruption while waiting for execution of: " + commandString);
-            return Optional.empty();
-        }
+    /**
+     * <pre>
+     * The command is queued until it fits into the concurrency limit; the calling thread is never blocked
+     *
+     * Once the process is launched, it is passed to onLaunch before its output is read; this allows the caller to
+     * write into the input of the process; if onLaunch throws, the process is destroyed
+     *
+     * Every line of output is passed to outputListener after it is logged; the listener is called by the thread which
+     * reads the output, so it should return quickly
+     * </pre>
+     * @return process launched using the input, which completes once the process finishes; if the launch fails,
+     * the future completes exceptionally
+     * @throws NullPointerException if input is or contains null, or onLaunch or outputListener is null
+     */
+    public CompletableFuture<Process> execute(List<String> input, Consumer<Process> onLaunch,
+                                              Consumer<String> outputListener) {
+        Null.checkList(input).ifAny("Input cannot be or contain null");
+        Null.check(onLaunch, outputListener).ifAny("Launch callback and output listener cannot be null");
 
-        debugLogger.logMessage("Running: " + commandString);
-        Process process;
-        try {
-            process = processBuilder.start();
-        } catch (IOException e) {
-            debugLogger.logMessage("Executing command on runtime failed: " + commandString);
-            return Optional.empty();
-        }
-        SpecialUtils.runOnExit(() -> ensureMutualShutdown(process));
+        List<String> command = ImmutableList.copyOf(input);
+        return executionQueue.submit(() -> launch(command, onLaunch, outputListener));
+    }
 
-        executor.submit(() -> handleProcessExecution(process));
-        return Optional.of(process);
+    /**
+     * Runs given writer of process input on a thread of its own, so that it can block while the process reads its
+     * input at its own pace; there is such a thread for every process which can run at the same time, and they are
+     * separate from the threads which read the output, so a process never waits for its input behind another's output
+     * @return CompletableFuture which completes once the writer is done; if the writer throws, it fails
+     * @throws NullPointerException if writer is null
+     */
+    public CompletableFuture<Void> writeInput(Runnable inputWriter) {
+        Null.check(inputWriter).ifAny("Input writer cannot be null");
+        return CompletableFuture.runAsync(inputWriter, inputExecutor);
     }
 
     @Override
     public void close() throws Exception {
         executor.shutdown();
+        inputExecutor.shutdown();
     }
 
     // CONSTRUCTORS
 
     public CommandLineRunner(ConcurrencyPolicy concurrencyPolicy, CustomizedLogger debugLogger, CustomizedLogger processLogger) {
-        int maxNumberOfThreads = concurrencyPolicy.getMaxConcurrentThreads();
-        this.parallelExecutionLimiter = new Semaphore(maxNumberOfThreads);
-        this.executor = Executors.newFixedThreadPool(maxNumberOfThreads);
+        int maxNumberOfProcesses = concurrencyPolicy.getMaxProcesses();
+        this.executionQueue = new AdmissionQueue(maxNumberOfProcesses);
+        this.executor = TaskExecutors.newInstance(concurrencyPolicy.isVirtualThreadsEnabled(), maxNumberOfProcesses);
+        this.inputExecutor = TaskExecutors.newInstance(concurrencyPolicy.isVirtualThreadsEnabled(), maxNumberOfProcesses);
         this.debugLogger = debugLogger;
         this.processLogger = processLogger;
     }
 
     // PRIVATE
 
-    private final Semaphore parallelExecutionLimiter;
+    private final AdmissionQueue executionQueue;
     private final ExecutorService executor;
+    private final ExecutorService inputExecutor;
     private final CustomizedLogger debugLogger;
     private final CustomizedLogger processLogger;
 
+    private CompletableFuture<Process> launch(List<String> command, Consumer<Process> onLaunch,
+                                              Consumer<String> outputListener) {
+        String commandString = command.stream().collect(Collectors.joining(" "));
+        ProcessBuilder processBuilder = new ProcessBuilder()
+                .command(command)
+                .redirectErrorStream(true);
+
+        debugLogger.logMessage("Running: " + commandString);
+        Process process;
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            debugLogger.logMessage("Executing command on runtime failed: " + commandString);
+            return Futures.failedFuture(e);
+        }
+        SpecialUtils.runOnExit(() -> ensureMutualShutdown(process));
+
+        try {
+            onLaunch.accept(process);
+        } catch (RuntimeException e) {
+            debugLogger.logMessage("Launch of process failed, destroying it: " + commandString);
+            process.destroyForcibly();
+            return Futures.failedFuture(e);
+        }
+
+        return CompletableFuture.supplyAsync(() -> handleProcessExecution(process, outputListener), executor);
+    }
+
     private void ensureMutualShutdown(Process process) {
         if (process.isAlive())
             process.destroyForcibly();
     }
 
-    private void handleProcessExecution(Process process) {
+    private Process handleProcessExecution(Process process, Consumer<String> outputListener) {
         int processNumber = PROCESS_COUNT.incrementAndGet();
         String processPrefix = "P" + processNumber + "  --- ";
 
         BufferedReader input = new BufferedReader(new InputStreamReader(process.getInputStream()));
         String line;
         try {
-            while ((line = input.readLine()) != null)
+            while ((line = input.readLine()) != null) {
                 processLogger.logMessage(processPrefix + line);
+                outputListener.accept(line);
+            }
         } catch (IOException e) {
             debugLogger.logMessage("Unable to continue reading output from process P" + processNumber);
         }
@@ -111,7 +174,7 @@ public final class CommandLineRunner implements AutoCloseable {
         }
 
         debugLogger.logMessage("Process finished with exit code " + process.exitValue());
-        parallelExecutionLimiter.release();
+        return process;
     }
 
     private static final AtomicInteger PROCESS_COUNT = new AtomicInteger(0);
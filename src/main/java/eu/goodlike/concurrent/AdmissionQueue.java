@@ -0,0 +1,171 @@
+package eu.goodlike.concurrent;
+
+import eu.goodlike.functional.Futures;
+import eu.goodlike.neat.Null;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * Limits the amount of concurrently running asynchronous tasks without blocking any threads
+ *
+ * Every submitted task is queued and started as soon as a permit is available; the permit is held until the future
+ * returned by the task completes, at which point the next queued task is started in the completing thread
+ *
+ * Tasks are started in the order they were submitted; if the queue is fair, tasks are grouped instead, and groups take
+ * turns starting their tasks, so a group which submitted many tasks at once cannot delay the tasks of other groups
+ * until all of its own are started
+ * </pre>
+ */
+public final class AdmissionQueue {
+
+    /**
+     * @return future which completes with the result of the task once it is started and done; this future is returned
+     * immediately, regardless of available permits
+     * @throws NullPointerException if task is null
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+        return submit(DEFAULT_GROUP, task);
+    }
+
+    /**
+     * @return future which completes with the result of the task once it is started and done; this future is returned
+     * immediately, regardless of available permits; group is only relevant if this queue is fair
+     * @throws NullPointerException if group or task is null
+     */
+    public <T> CompletableFuture<T> submit(Object group, Supplier<CompletableFuture<T>> task) {
+        Null.check(group, task).ifAny("Group and task cannot be null");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> startTask(task, result);
+        synchronized (lock) {
+            addPendingTask(fair ? group : DEFAULT_GROUP, start);
+        }
+        startPendingTasks();
+        return result;
+    }
+
+    /**
+     * @return amount of tasks which are waiting for a permit
+     */
+    public int getPendingTaskCount() {
+        synchronized (lock) {
+            return pendingTaskCount;
+        }
+    }
+
+    // CONSTRUCTORS
+
+    public AdmissionQueue(int permits) {
+        this(permits, false);
+    }
+
+    public AdmissionQueue(int permits, boolean fair) {
+        if (permits < 1)
+            throw new IllegalArgumentException("Permit count can only be positive, not: " + permits);
+
+        this.availablePermits = permits;
+        this.fair = fair;
+        this.pendingTasks = new HashMap<>();
+        this.groupTurns = new ArrayDeque<>();
+    }
+
+    // PRIVATE
+
+    private final boolean fair;
+    private final Map<Object, Queue<Runnable>> pendingTasks;
+    private final Queue<Object> groupTurns;
+    private int pendingTaskCount;
+    private int availablePermits;
+    private boolean starting;
+
+    private final Object lock = new Object();
+
+    private void addPendingTask(Object group, Runnable start) {
+        Queue<Runnable> groupTasks = pendingTasks.get(group);
+        if (groupTasks == null) {
+            groupTasks = new ArrayDeque<>();
+            pendingTasks.put(group, groupTasks);
+            groupTurns.add(group);
+        }
+        groupTasks.add(start);
+        pendingTaskCount++;
+    }
+
+    /**
+     * @return next task of the group whose turn it is; the group goes to the back of the line if it has more tasks
+     */
+    private Runnable pollPendingTask() {
+        Object group = groupTurns.poll();
+        Queue<Runnable> groupTasks = pendingTasks.get(group);
+        Runnable next = groupTasks.poll();
+        if (groupTasks.isEmpty())
+            pendingTasks.remove(group);
+        else
+            groupTurns.add(group);
+
+        pendingTaskCount--;
+        return next;
+    }
+
+    private <T> void startTask(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        CompletableFuture<T> taskFuture;
+        try {
+            taskFuture = task.get();
+        } catch (Throwable e) {
+            taskFuture = Futures.failedFuture(e);
+        }
+
+        if (taskFuture == null)
+            taskFuture = Futures.failedFuture(new NullPointerException("Task returned null instead of a future"));
+
+        taskFuture.whenComplete((value, ex) -> {
+            releasePermit();
+            if (ex == null)
+                result.complete(value);
+            else
+                result.completeExceptionally(ex);
+        });
+    }
+
+    private void releasePermit() {
+        synchronized (lock) {
+            availablePermits++;
+        }
+        startPendingTasks();
+    }
+
+    /**
+     * Only one thread starts tasks at a time; tasks which complete immediately release their permits into the same
+     * loop instead of recursing into it
+     */
+    private void startPendingTasks() {
+        synchronized (lock) {
+            if (starting)
+                return;
+
+            starting = true;
+        }
+
+        while (true) {
+            Runnable next;
+            synchronized (lock) {
+                if (availablePermits == 0 || pendingTaskCount == 0) {
+                    starting = false;
+                    return;
+                }
+                availablePermits--;
+                next = pollPendingTask();
+            }
+            next.run();
+        }
+    }
+
+    private static final Object DEFAULT_GROUP = new Object();
+
+}
@@ -0,0 +1,71 @@
+package eu.goodlike.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * <pre>
+ * Creates executors for blocking tasks
+ *
+ * Virtual threads are only available on Java 21 and later, while this application is built for Java 8, so they are
+ * looked up at runtime; on older runtimes platform threads are used instead
+ * </pre>
+ */
+public final class TaskExecutors {
+
+    /**
+     * @return executor which runs every task on a new virtual thread if requested and supported by the runtime,
+     * fixed thread pool of given size otherwise
+     * @throws IllegalArgumentException if pool size is not positive
+     */
+    public static ExecutorService newInstance(boolean virtualThreadsEnabled, int poolSize) {
+        if (poolSize < 1)
+            throw new IllegalArgumentException("Pool size can only be positive, not: " + poolSize);
+
+        if (virtualThreadsEnabled) {
+            Optional<ExecutorService> virtualThreadExecutor = newVirtualThreadExecutor();
+            if (virtualThreadExecutor.isPresent())
+                return virtualThreadExecutor.get();
+        }
+        return Executors.newFixedThreadPool(poolSize);
+    }
+
+    /**
+     * @return true if the runtime can create virtual threads, false otherwise
+     */
+    public static boolean areVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_EXECUTOR_FACTORY.isPresent();
+    }
+
+    // PRIVATE
+
+    private TaskExecutors() {
+        throw new AssertionError("Do not instantiate, use static methods!");
+    }
+
+    private static Optional<ExecutorService> newVirtualThreadExecutor() {
+        if (!VIRTUAL_THREAD_EXECUTOR_FACTORY.isPresent())
+            return Optional.empty();
+
+        try {
+            return Optional.of((ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.get().invoke(null));
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<Method> findVirtualThreadExecutorFactory() {
+        try {
+            return Optional.of(Executors.class.getMethod(VIRTUAL_THREAD_EXECUTOR_FACTORY_NAME));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static final String VIRTUAL_THREAD_EXECUTOR_FACTORY_NAME = "newVirtualThreadPerTaskExecutor";
+    private static final Optional<Method> VIRTUAL_THREAD_EXECUTOR_FACTORY = findVirtualThreadExecutorFactory();
+
+}
@@ -13,6 +13,12 @@ public final class TwitchDefaults {
     public static final String OAUTH_HEADER_NAME = "Authorization";
     public static final String OAUTH_HEADER_VALUE_PREFIX = "OAuth ";
 
+    public static final String RANGE_HEADER_NAME = "Range";
+    public static final String RANGE_HEADER_VALUE_FORMAT = "bytes={}-{}";
+    public static final String ACCEPT_RANGES_HEADER_NAME = "Accept-Ranges";
+    public static final String ACCEPT_RANGES_BYTES_VALUE = "bytes";
+    public static final String CONTENT_LENGTH_HEADER_NAME = "Content-Length";
+
     public static final String START_OFFSET_PARAM = "start_offset";
     public static final String END_OFFSET_PARAM = "end_offset";
 
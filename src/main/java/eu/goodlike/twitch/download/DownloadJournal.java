@@ -0,0 +1,160 @@
+package eu.goodlike.twitch.download;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <pre>
+ * Keeps track of the parts which were completely downloaded into a folder, so that an interrupted download can be
+ * resumed without downloading those parts again
+ *
+ * Every completed part is recorded as a single line "size name", which is flushed immediately; a part is only
+ * considered complete if a file with the recorded size still exists
+ * </pre>
+ */
+public final class DownloadJournal implements AutoCloseable {
+
+    /**
+     * @return true if given file was recorded as complete and its size on disk matches the recorded one
+     * @throws NullPointerException if file is null
+     */
+    public boolean isComplete(Path file) {
+        Null.check(file).ifAny("File cannot be null");
+
+        Long recordedSize;
+        synchronized (lock) {
+            recordedSize = completedFiles.get(getName(file));
+        }
+        if (recordedSize == null)
+            return false;
+
+        try {
+            return Files.isRegularFile(file) && Files.size(file) == recordedSize;
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't determine size of file at: " + file);
+            return false;
+        }
+    }
+
+    /**
+     * Records given file as complete, using its current size; failures are logged to debug
+     * @throws NullPointerException if file is null
+     */
+    public void markComplete(Path file) {
+        Null.check(file).ifAny("File cannot be null");
+
+        long size;
+        try {
+            size = Files.size(file);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't determine size of file at: " + file);
+            return;
+        }
+
+        String name = getName(file);
+        synchronized (lock) {
+            completedFiles.put(name, size);
+            try {
+                writer.write(size + " " + name);
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                debugLogger.logMessage("Couldn't record completed file in journal at: " + journalPath);
+            }
+        }
+    }
+
+    /**
+     * Closes and deletes the journal; intended to be used when every part was downloaded successfully
+     */
+    public void delete() {
+        close();
+        try {
+            Files.deleteIfExists(journalPath);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't delete journal at: " + journalPath);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                debugLogger.logMessage("Couldn't close journal at: " + journalPath);
+            }
+        }
+    }
+
+    // CONSTRUCTORS
+
+    /**
+     * @return journal at given path, containing all the records that were already in it, Optional::empty if it cannot
+     * be read or written into
+     * @throws NullPointerException if journal path or logger is null
+     */
+    public static Optional<DownloadJournal> open(Path journalPath, CustomizedLogger debugLogger) {
+        Null.check(journalPath, debugLogger).ifAny("Journal path and logger cannot be null");
+
+        Map<String, Long> completedFiles = new HashMap<>();
+        try {
+            if (Files.exists(journalPath))
+                readRecords(Files.readAllLines(journalPath, StandardCharsets.UTF_8), completedFiles);
+
+            BufferedWriter writer = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            return Optional.of(new DownloadJournal(journalPath, completedFiles, writer, debugLogger));
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't open journal at: " + journalPath);
+            return Optional.empty();
+        }
+    }
+
+    private DownloadJournal(Path journalPath, Map<String, Long> completedFiles, BufferedWriter writer,
+                            CustomizedLogger debugLogger) {
+        this.journalPath = journalPath;
+        this.completedFiles = completedFiles;
+        this.writer = writer;
+        this.debugLogger = debugLogger;
+    }
+
+    // PRIVATE
+
+    private final Path journalPath;
+    private final Map<String, Long> completedFiles;
+    private final BufferedWriter writer;
+    private final CustomizedLogger debugLogger;
+
+    private final Object lock = new Object();
+
+    private static String getName(Path file) {
+        return file.getFileName().toString();
+    }
+
+    private static void readRecords(List<String> lines, Map<String, Long> completedFiles) {
+        for (String line : lines) {
+            int separator = line.indexOf(' ');
+            if (separator < 1)
+                continue;
+
+            try {
+                completedFiles.put(line.substring(separator + 1), Long.parseLong(line.substring(0, separator)));
+            } catch (NumberFormatException e) {
+                // a record can only be broken if the application was killed while writing it; such part is incomplete
+            }
+        }
+    }
+
+}
@@ -2,10 +2,12 @@ package eu.goodlike.twitch.download;
 
 import com.google.common.collect.ImmutableList;
 import eu.goodlike.cmd.CommandLineRunner;
-import eu.goodlike.functional.Futures;
 import eu.goodlike.io.FileUtils;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.CompletableFutureErrorHandler;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
+import eu.goodlike.twitch.download.progress.VodProgress;
 import eu.goodlike.twitch.download.configurations.policy.FfmpegPolicy;
 import eu.goodlike.twitch.download.configurations.policy.OutputPolicy;
 import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
@@ -13,19 +15,33 @@ import eu.goodlike.twitch.download.http.filename.FilenameResolver;
 import eu.goodlike.twitch.m3u8.TwitchM3U8Writer;
 import eu.goodlike.twitch.m3u8.TwitchM3U8WriterFactory;
 import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.SimpleStreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.vod.SegmentCache;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.BiConsumer;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
+ * <pre>
  * Handles download of files using ffmpeg
+ *
+ * Normally ffmpeg is given a playlist through its input and downloads the parts itself; the playlist is only written
+ * into a file if it should be kept after the download; if piping is enabled by ffmpeg policy, the parts are downloaded
+ * by this application instead and written into the input of ffmpeg in order
+ *
+ * Parts which are found in the segment cache are given to ffmpeg as local files, so it only downloads the parts which
+ * are not cached; parts downloaded by ffmpeg are not added to the cache, only piped parts are
+ * </pre>
  */
 public final class FfmpegDownloader {
 
@@ -46,6 +62,12 @@ public final class FfmpegDownloader {
         }
         String outputName = outputNameOptional.get();
 
+        if (ffmpegPolicy.isPipeEnabled())
+            return downloadThroughPipe(mediaPlaylist, vodId, outputName);
+
+        if (playlistPolicy.isCleanupPlaylistEnabled())
+            return downloadWithPipedPlaylist(mediaPlaylist, vodId, outputName);
+
         String inputName = getInputName(outputName);
         Optional<Path> pathOptional = FileUtils.getPath(inputName)
                 .map(Path::normalize);
@@ -56,36 +78,35 @@ public final class FfmpegDownloader {
         }
         Path path = pathOptional.get();
 
-        TwitchM3U8Writer twitchM3U8Writer = twitchM3U8WriterFactory.newInstance(mediaPlaylist);
+        TwitchM3U8Writer twitchM3U8Writer = twitchM3U8WriterFactory.newInstance(useCachedSegments(mediaPlaylist));
         Optional<File> fileOptional = twitchM3U8Writer.writeMediaPlaylist(path);
         if (!fileOptional.isPresent()) {
             debugLogger.logMessage("Could not create playlist file from stream at: " + path);
             return CompletableFuture.completedFuture(null);
         }
-        CompletableFuture<File> fileFuture = Futures.fromOptional(fileOptional, () -> null);
 
         List<String> commandLineArguments = getFfmpegArguments(ffmpegPolicy.getFfmpegOptions(), path.toString(), outputName);
-        Optional<Process> processOptional = commandLineRunner.execute(commandLineArguments);
-        if (!processOptional.isPresent())
-            debugLogger.logMessage("Couldn't execute process: " + commandLineArguments.stream().collect(Collectors.joining(" ")));
-        else
-            fileFuture = fileFuture.whenComplete(awaitExecution(processOptional.get()));
-
-        if (playlistPolicy.isCleanupPlaylistEnabled())
-            fileFuture = fileFuture.whenComplete(deletePlaylistFile(path));
-
-        return fileFuture;
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        return commandLineRunner.execute(commandLineArguments, process -> {},
+                line -> recordProgress(line, progress))
+                .whenComplete(errorHandler.logOnError("Couldn't execute process: " +
+                        commandLineArguments.stream().collect(Collectors.joining(" "))))
+                .whenComplete((any, ex) -> progress.finish());
     }
 
     // CONSTRUCTORS
 
     public FfmpegDownloader(CommandLineRunner commandLineRunner, FfmpegPolicy ffmpegPolicy, OutputPolicy outputPolicy,
                             PlaylistPolicy playlistPolicy, FilenameResolver filenameResolver, CustomizedLogger debugLogger,
-                            TwitchM3U8WriterFactory twitchM3U8WriterFactory) {
+                            TwitchM3U8WriterFactory twitchM3U8WriterFactory, CompletableFutureErrorHandler errorHandler,
+                            OrderedPartWriter orderedPartWriter, SegmentCache segmentCache,
+                            ProgressTracker progressTracker) {
 
         Null.check(commandLineRunner, ffmpegPolicy, outputPolicy, playlistPolicy, filenameResolver, debugLogger,
-                twitchM3U8WriterFactory).ifAny("Command line runned, ffmpeg policy, output policy, " +
-                "playlist policy, filename resolver, logger and twitch writer factory cannot be null");
+                twitchM3U8WriterFactory, errorHandler, orderedPartWriter, segmentCache, progressTracker)
+                .ifAny("Command line runned, ffmpeg policy, output policy, playlist policy, filename resolver, " +
+                        "logger, twitch writer factory, error handler, ordered part writer, segment cache and " +
+                        "progress tracker cannot be null");
 
         this.commandLineRunner = commandLineRunner;
         this.ffmpegPolicy = ffmpegPolicy;
@@ -94,6 +115,10 @@ public final class FfmpegDownloader {
         this.filenameResolver = filenameResolver;
         this.debugLogger = debugLogger;
         this.twitchM3U8WriterFactory = twitchM3U8WriterFactory;
+        this.errorHandler = errorHandler;
+        this.orderedPartWriter = orderedPartWriter;
+        this.segmentCache = segmentCache;
+        this.progressTracker = progressTracker;
     }
 
     // PRIVATE
@@ -105,6 +130,94 @@ public final class FfmpegDownloader {
     private final FilenameResolver filenameResolver;
     private final CustomizedLogger debugLogger;
     private final TwitchM3U8WriterFactory twitchM3U8WriterFactory;
+    private final CompletableFutureErrorHandler errorHandler;
+    private final OrderedPartWriter orderedPartWriter;
+    private final SegmentCache segmentCache;
+    private final ProgressTracker progressTracker;
+
+    private CompletableFuture<?> downloadThroughPipe(MediaPlaylist mediaPlaylist, int vodId, String outputName) {
+        List<String> commandLineArguments = getFfmpegPipeArguments(ffmpegPolicy.getFfmpegOptions(), outputName);
+        String commandString = commandLineArguments.stream().collect(Collectors.joining(" "));
+
+        // the input of the process is closed once all parts are written, or writing fails, so the process ends after that;
+        // parts are written by a thread of the runner, since ffmpeg reads them at its own pace
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        return commandLineRunner.execute(commandLineArguments,
+                process -> commandLineRunner.writeInput(
+                        () -> orderedPartWriter.write(mediaPlaylist.getStreamParts(), process.getOutputStream(), progress))
+                        .whenComplete(errorHandler.logOnError("Couldn't pipe parts into process: " + commandString)),
+                line -> recordProgress(line, progress))
+                .whenComplete(errorHandler.logOnError("Couldn't execute process: " + commandString))
+                .whenComplete((any, ex) -> progress.finish());
+    }
+
+    private CompletableFuture<?> downloadWithPipedPlaylist(MediaPlaylist mediaPlaylist, int vodId, String outputName) {
+        List<String> commandLineArguments = getFfmpegPlaylistPipeArguments(ffmpegPolicy.getFfmpegOptions(), outputName);
+        String commandString = commandLineArguments.stream().collect(Collectors.joining(" "));
+        TwitchM3U8Writer twitchM3U8Writer = twitchM3U8WriterFactory.newInstance(useCachedSegments(mediaPlaylist));
+
+        // the playlist is written by a thread of the runner, since ffmpeg reads it at its own pace
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        return commandLineRunner.execute(commandLineArguments,
+                process -> commandLineRunner.writeInput(() -> writePlaylist(twitchM3U8Writer, process))
+                        .whenComplete(errorHandler.logOnError("Couldn't pipe playlist into process: " + commandString)),
+                line -> recordProgress(line, progress))
+                .whenComplete(errorHandler.logOnError("Couldn't execute process: " + commandString))
+                .whenComplete((any, ex) -> progress.finish());
+    }
+
+    /**
+     * @return media playlist in which every part found in the segment cache points to its cached file instead; the
+     * same playlist if the cache is disabled or has none of the parts
+     */
+    private MediaPlaylist useCachedSegments(MediaPlaylist mediaPlaylist) {
+        if (!segmentCache.isEnabled())
+            return mediaPlaylist;
+
+        List<StreamPart> parts = mediaPlaylist.getStreamParts();
+        List<StreamPart> localParts = new ArrayList<>(parts.size());
+        int cachedParts = 0;
+        for (StreamPart part : parts) {
+            Optional<Path> cachedSegment = part.getLocationUrl().flatMap(segmentCache::find);
+            if (!cachedSegment.isPresent()) {
+                localParts.add(part);
+                continue;
+            }
+
+            localParts.add(new SimpleStreamPart(part.getDuration(), cachedSegment.get().toString(), null, null));
+            cachedParts++;
+        }
+
+        if (cachedParts == 0)
+            return mediaPlaylist;
+
+        debugLogger.logMessage("Using " + cachedParts + " of " + parts.size() + " parts from the segment cache");
+        return new MediaPlaylist(localParts);
+    }
+
+    private void writePlaylist(TwitchM3U8Writer twitchM3U8Writer, Process process) {
+        try {
+            twitchM3U8Writer.writeMediaPlaylist(process);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * ffmpeg reports its progress in lines like "frame=  100 fps=0.0 q=-1.0 size=  1024kB time=00:00:04.00 ...
+     * speed=8.00x"; other lines are ignored
+     */
+    private void recordProgress(String line, VodProgress progress) {
+        Matcher time = PROGRESS_TIME.matcher(line);
+        Matcher speed = PROGRESS_SPEED.matcher(line);
+        if (!time.find() || !speed.find())
+            return;
+
+        double processedSeconds = Integer.parseInt(time.group(1)) * 3600
+                + Integer.parseInt(time.group(2)) * 60
+                + Double.parseDouble(time.group(3));
+        progress.processed(processedSeconds, Double.parseDouble(speed.group(1)));
+    }
 
     private String getInputName(String outputName) {
         return com.google.common.io.Files.getNameWithoutExtension(outputName) + " playlist.m3u8";
@@ -120,31 +233,35 @@ public final class FfmpegDownloader {
                 .build();
     }
 
-    private String inQuotes(String string) {
-        return "\"" + string + "\"";
+    private List<String> getFfmpegPlaylistPipeArguments(List<String> ffmpegOptions, String outputFileLocation) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        return builder.add("ffmpeg")
+                .addAll(PLAYLIST_PIPE_INPUT_ARGS)
+                .addAll(ffmpegOptions)
+                .add(inQuotes(outputFileLocation))
+                .build();
     }
 
-    private BiConsumer<File, Throwable> awaitExecution(Process process) {
-        return (any, ex) -> {
-            try {
-                process.waitFor();
-            } catch (InterruptedException e) {
-                debugLogger.logMessage("Unexpected interruption while waiting for a process to end");
-            }
-        };
+    private List<String> getFfmpegPipeArguments(List<String> ffmpegOptions, String outputFileLocation) {
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        return builder.add("ffmpeg")
+                .addAll(PIPE_INPUT_ARGS)
+                .addAll(ffmpegOptions)
+                .add(inQuotes(outputFileLocation))
+                .build();
     }
 
-    private BiConsumer<File, Throwable> deletePlaylistFile(Path path) {
-        return (any, ex) -> {
-            try {
-                Files.delete(path);
-            } catch (IOException e) {
-                debugLogger.logMessage("Couldn't delete playlist file at: " + path);
-            }
-        };
+    private String inQuotes(String string) {
+        return "\"" + string + "\"";
     }
 
     private static final List<String> ENSURE_HTTP_ALLOWED_ARGS = ImmutableList.of("-protocol_whitelist", "file,tcp,http");
     private static final String INPUT_ARG = "-i";
+    private static final List<String> PIPE_INPUT_ARGS = ImmutableList.of("-f", "mpegts", INPUT_ARG, "pipe:0");
+    private static final List<String> PLAYLIST_PIPE_INPUT_ARGS =
+            ImmutableList.of("-protocol_whitelist", "pipe,file,tcp,http", "-f", "hls", INPUT_ARG, "pipe:0");
+
+    private static final Pattern PROGRESS_TIME = Pattern.compile("time=\\s*(\\d+):(\\d{2}):(\\d{2}(?:\\.\\d+)?)");
+    private static final Pattern PROGRESS_SPEED = Pattern.compile("speed=\\s*(\\d+(?:\\.\\d+)?)x");
 
 }
@@ -1,13 +1,19 @@
 package eu.goodlike.twitch.download;
 
+import com.google.common.base.Strings;
 import eu.goodlike.io.FileUtils;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.neat.Null;
+import eu.goodlike.str.Str;
 import eu.goodlike.twitch.CompletableFutureErrorHandler;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
+import eu.goodlike.twitch.download.progress.VodProgress;
 import eu.goodlike.twitch.download.configurations.policy.OutputPolicy;
 import eu.goodlike.twitch.download.http.filename.FilenameResolver;
+import eu.goodlike.twitch.m3u8.media.AppendableStreamPart;
 import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
 import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.playlist.MediaPlaylistFollower;
 import eu.goodlike.twitch.vod.VideoDownloader;
 import okhttp3.HttpUrl;
 
@@ -16,63 +22,110 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
+ * <pre>
  * Handles manual download of files
+ *
+ * Every part is downloaded into a file named after its location; if several parts of a playlist are ranges of the
+ * same location (i.e. because combining was limited in size or duration), their files are also named after their
+ * ranges, padded so that they sort in order; when following a playlist, files of such parts are always named after
+ * their ranges, since later updates may add other ranges of the same location
+ * </pre>
  */
 public final class ManualDownloader {
 
     /**
      * @return CompletableFuture which will complete when the VoD is downloaded; this CompletableFuture
-     * will wait until all parts are done downloading
+     * will wait until all parts are done downloading; if resume is enabled by output policy, an existing folder is
+     * reused and only the parts which were not recorded as complete in its journal are downloaded
      * @throws NullPointerException if media playlist is null
      */
     public CompletableFuture<?> download(MediaPlaylist mediaPlaylist, int vodId) {
         Null.check(mediaPlaylist).ifAny("Media playlist cannot be null");
 
-        String outputFolderFormat = outputPolicy.getOutputFolderFormat();
-        Optional<String> outputName = filenameResolver.resolveOutputName(outputFolderFormat, vodId)
-                .map(FileUtils::findAvailableName);
-        if (!outputName.isPresent()) {
-            debugLogger.logMessage("Cannot resolve name for output folder: " + outputFolderFormat);
+        Optional<Path> pathOptional = createOutputFolder(vodId);
+        if (!pathOptional.isPresent())
             return CompletableFuture.completedFuture(null);
-        }
 
-        Optional<Path> pathOptional = outputName.flatMap(FileUtils::getPath);
-        if (!pathOptional.isPresent()) {
-            outputName
-                    .ifPresent(name -> debugLogger.logMessage("Output folder is not a valid path: " + name));
+        Path path = pathOptional.get();
+        Optional<DownloadJournal> journalOptional = openJournal(path);
+        if (!journalOptional.isPresent())
+            return CompletableFuture.completedFuture(null);
+
+        DownloadJournal journal = journalOptional.get();
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        Predicate<String> isSharedLocation = findSharedLocations(mediaPlaylist)::contains;
+        return downloadFilesInto(path, mediaPlaylist, journal, progress, isSharedLocation)
+                .whenComplete((allPartsQueued, ex) -> finishJournal(journal, ex == null && allPartsQueued))
+                .whenComplete((any, ex) -> progress.finish());
+    }
+
+    /**
+     * Downloads the parts of the media playlist like download does, and then keeps downloading the new parts found
+     * by the follower into the same folder, until the followed playlist ends; since later parts may be other ranges of
+     * the same location, files of ranged parts are always named after their ranges
+     * @return CompletableFuture which will complete when the followed playlist has ended and all of its parts are
+     * downloaded; the journal is kept if the playlist could not be followed until its end, so the download can be
+     * resumed later
+     * @throws NullPointerException if media playlist or follower is null
+     */
+    public CompletableFuture<?> follow(MediaPlaylist mediaPlaylist, int vodId, MediaPlaylistFollower follower) {
+        Null.check(mediaPlaylist, follower).ifAny("Media playlist and follower cannot be null");
+
+        Optional<Path> pathOptional = createOutputFolder(vodId);
+        if (!pathOptional.isPresent())
             return CompletableFuture.completedFuture(null);
-        }
 
         Path path = pathOptional.get();
-        try {
-            Files.createDirectory(path);
-        } catch (IOException e) {
-            debugLogger.logMessage("Cannot create directory at: " + path);
+        Optional<DownloadJournal> journalOptional = openJournal(path);
+        if (!journalOptional.isPresent())
             return CompletableFuture.completedFuture(null);
-        }
 
-        return downloadFilesInto(path, mediaPlaylist);
+        DownloadJournal journal = journalOptional.get();
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        AtomicBoolean allPartsQueued = new AtomicBoolean(true);
+        // a location may get more ranges in later updates, so ranges are always named, or their files would collide
+        Predicate<String> isSharedLocation = location -> true;
+        CompletableFuture<?> firstParts = downloadFilesInto(path, mediaPlaylist, journal, progress, isSharedLocation)
+                .thenAccept(queued -> allPartsQueued.compareAndSet(true, queued));
+        Function<MediaPlaylist, CompletableFuture<?>> newPartsHandler = parts -> {
+            progress.partsAdded(parts.getStreamParts().size(), parts.getTotalDuration().doubleValue());
+            return downloadFilesInto(path, parts, journal, progress, isSharedLocation)
+                    .thenAccept(queued -> allPartsQueued.compareAndSet(true, queued));
+        };
+        CompletableFuture<?> newParts = follower.followNewParts(vodId, newPartsHandler)
+                .whenComplete(errorHandler.logOnError("Could not follow media playlist until its end for VoD: " + vodId));
+
+        return CompletableFuture.allOf(firstParts, newParts)
+                .whenComplete((any, ex) -> finishJournal(journal, ex == null && allPartsQueued.get()))
+                .whenComplete((any, ex) -> progress.finish());
     }
 
     // CONSTRUCTORS
 
     public ManualDownloader(VideoDownloader videoDownloader, OutputPolicy outputPolicy,
                             FilenameResolver filenameResolver, CustomizedLogger debugLogger,
-                            CompletableFutureErrorHandler errorHandler) {
+                            CompletableFutureErrorHandler errorHandler, ProgressTracker progressTracker) {
 
-        Null.check(videoDownloader, outputPolicy, filenameResolver, debugLogger, errorHandler)
-                .ifAny("Video downloader, output policy, filename resolver, logger and error handler cannot be null");
+        Null.check(videoDownloader, outputPolicy, filenameResolver, debugLogger, errorHandler, progressTracker)
+                .ifAny("Video downloader, output policy, filename resolver, logger, error handler and progress " +
+                        "tracker cannot be null");
 
         this.videoDownloader = videoDownloader;
         this.outputPolicy = outputPolicy;
         this.filenameResolver = filenameResolver;
         this.debugLogger = debugLogger;
         this.errorHandler = errorHandler;
+        this.progressTracker = progressTracker;
     }
 
     // PRIVATE
@@ -82,23 +135,134 @@ public final class ManualDownloader {
     private final FilenameResolver filenameResolver;
     private final CustomizedLogger debugLogger;
     private final CompletableFutureErrorHandler errorHandler;
+    private final ProgressTracker progressTracker;
+
+    private Optional<Path> createOutputFolder(int vodId) {
+        String outputFolderFormat = outputPolicy.getOutputFolderFormat();
+        Optional<String> outputName = filenameResolver.resolveOutputName(outputFolderFormat, vodId);
+        if (!outputPolicy.isResumeEnabled())
+            outputName = outputName.map(FileUtils::findAvailableName);
+
+        if (!outputName.isPresent()) {
+            debugLogger.logMessage("Cannot resolve name for output folder: " + outputFolderFormat);
+            return Optional.empty();
+        }
 
-    private CompletableFuture<?> downloadFilesInto(Path folder, MediaPlaylist mediaPlaylist) {
+        Optional<Path> pathOptional = outputName.flatMap(FileUtils::getPath);
+        if (!pathOptional.isPresent()) {
+            outputName
+                    .ifPresent(name -> debugLogger.logMessage("Output folder is not a valid path: " + name));
+            return Optional.empty();
+        }
+
+        Path path = pathOptional.get();
+        try {
+            if (outputPolicy.isResumeEnabled())
+                Files.createDirectories(path);
+            else
+                Files.createDirectory(path);
+        } catch (IOException e) {
+            debugLogger.logMessage("Cannot create directory at: " + path);
+            return Optional.empty();
+        }
+        return pathOptional;
+    }
+
+    private Optional<DownloadJournal> openJournal(Path folder) {
+        Path journalPath = folder.resolveSibling(folder.getFileName() + JOURNAL_EXTENSION);
+        return DownloadJournal.open(journalPath, debugLogger);
+    }
+
+    /**
+     * @return CompletableFuture which will complete when all queued parts are downloaded, with true if every part of
+     * the playlist was queued, false if some parts had to be skipped
+     */
+    private CompletableFuture<Boolean> downloadFilesInto(Path folder, MediaPlaylist mediaPlaylist,
+                                                         DownloadJournal journal, VodProgress progress,
+                                                         Predicate<String> isSharedLocation) {
         List<CompletableFuture<File>> processes = new ArrayList<>();
+        boolean allPartsQueued = true;
         for (StreamPart part : mediaPlaylist.getStreamParts()) {
             Optional<HttpUrl> locationUrlOptional = part.getLocationUrl();
             if (!locationUrlOptional.isPresent()) {
                 debugLogger.logMessage("Stream segment is not a valid url: " + part.getFullLocation());
+                allPartsQueued = false;
                 continue;
             }
             HttpUrl locationUrl = locationUrlOptional.get();
-            CompletableFuture<File> fileFuture = videoDownloader.download(folder.resolve(part.getLocation()), locationUrl)
-                    .whenComplete(errorHandler.logOnError("Could not download file from: " + locationUrl));
+
+            Path file = folder.resolve(getFileName(part, isSharedLocation));
+            if (journal.isComplete(file)) {
+                debugLogger.logMessage("Skipping already downloaded file: " + file);
+                progress.partSkipped();
+                continue;
+            }
+
+            try {
+                if (Files.deleteIfExists(file))
+                    debugLogger.logMessage("Removed incomplete file: " + file);
+            } catch (IOException e) {
+                debugLogger.logMessage("Cannot remove incomplete file at: " + file);
+                allPartsQueued = false;
+                continue;
+            }
+
+            CompletableFuture<File> fileFuture = videoDownloader.download(file, part)
+                    .whenComplete(errorHandler.logOnError("Could not download file from: " + locationUrl))
+                    .thenApply(downloadedFile -> {
+                        journal.markComplete(file);
+                        progress.partDone(downloadedFile.length());
+                        return downloadedFile;
+                    });
 
             processes.add(fileFuture);
         }
         CompletableFuture<?>[] fileFutures = processes.toArray(new CompletableFuture[processes.size()]);
-        return CompletableFuture.allOf(fileFutures);
+        boolean everyPartQueued = allPartsQueued;
+        return CompletableFuture.allOf(fileFutures)
+                .thenApply(any -> everyPartQueued);
+    }
+
+    /**
+     * @return locations which are used by more than one part of given playlist
+     */
+    private static Set<String> findSharedLocations(MediaPlaylist mediaPlaylist) {
+        Set<String> locations = new HashSet<>();
+        Set<String> sharedLocations = new HashSet<>();
+        for (StreamPart part : mediaPlaylist.getStreamParts())
+            if (!locations.add(part.getLocation()))
+                sharedLocations.add(part.getLocation());
+
+        return sharedLocations;
     }
 
+    private static String getFileName(StreamPart part, Predicate<String> isSharedLocation) {
+        String location = part.getLocation();
+        if (!(part instanceof AppendableStreamPart) || !isSharedLocation.test(location))
+            return location;
+
+        AppendableStreamPart appendablePart = (AppendableStreamPart) part;
+        String range = Str.format(RANGE_SUFFIX_FORMAT, padOffset(appendablePart.getStartOffset()),
+                padOffset(appendablePart.getEndOffset()));
+        int extensionStart = location.lastIndexOf('.');
+        return extensionStart < 0
+                ? location + range
+                : location.substring(0, extensionStart) + range + location.substring(extensionStart);
+    }
+
+    private static String padOffset(long offset) {
+        return Strings.padStart(String.valueOf(offset), OFFSET_DIGITS, '0');
+    }
+
+    private void finishJournal(DownloadJournal journal, boolean journalCanBeDeleted) {
+        if (journalCanBeDeleted)
+            journal.delete();
+        else
+            journal.close();
+    }
+
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String RANGE_SUFFIX_FORMAT = "_{}-{}";
+    private static final int OFFSET_DIGITS = 10;
+
 }
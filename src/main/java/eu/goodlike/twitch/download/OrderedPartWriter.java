@@ -0,0 +1,123 @@
+package eu.goodlike.twitch.download;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.CompletableFutureErrorHandler;
+import eu.goodlike.twitch.download.progress.VodProgress;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.vod.VideoDownloader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <pre>
+ * Downloads stream parts concurrently and writes them into a stream in playlist order
+ *
+ * Only a limited window of parts is downloaded ahead of the part which is being written; every downloaded part is kept
+ * in memory until it is written, so the window bounds memory usage; the next part is only requested once a part is
+ * written, so a slow consumer slows down the downloads as well
+ *
+ * Writing blocks whenever the consumer (i.e. a process) is slow, so it happens on the thread which calls write, which
+ * should be dedicated to it; download threads only ever complete the downloads
+ *
+ * Parts which fail to download are skipped, like they would be in any other download mode; failure to write into the
+ * stream stops everything
+ * </pre>
+ */
+public final class OrderedPartWriter {
+
+    /**
+     * Writes all parts into the output stream, which is closed afterwards; every written part is recorded as done in
+     * given progress; the calling thread waits for every part in order, so it should not be a thread which completes
+     * downloads or reads the output of the consumer (see CommandLineRunner::writeInput)
+     * @throws NullPointerException if parts, output stream or progress is null
+     * @throws CompletionException if writing into or closing the output stream fails
+     */
+    public void write(List<StreamPart> parts, OutputStream outputStream, VodProgress progress) {
+        Null.checkList(parts).ifAny("Parts cannot be or contain null");
+        Null.check(outputStream, progress).ifAny("Output stream and progress cannot be null");
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<byte[]>[] downloads = new CompletableFuture[parts.size()];
+        for (int i = 0; i < Math.min(windowSize, parts.size()); i++)
+            downloads[i] = startDownload(parts.get(i));
+
+        try {
+            for (int current = 0; current < parts.size(); current++) {
+                // failed downloads complete with null, so this never throws
+                byte[] bytes = downloads[current].join();
+                downloads[current] = null;
+                writePart(parts.get(current), bytes, outputStream, progress);
+
+                int next = current + windowSize;
+                if (next < parts.size())
+                    downloads[next] = startDownload(parts.get(next));
+            }
+        } catch (RuntimeException e) {
+            closeStream(outputStream);
+            throw e;
+        }
+
+        // closing may still write (i.e. the end of a remuxed file), so its failure fails the whole write
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // CONSTRUCTORS
+
+    public OrderedPartWriter(VideoDownloader videoDownloader, int windowSize, CustomizedLogger debugLogger,
+                             CompletableFutureErrorHandler errorHandler) {
+        Null.check(videoDownloader, debugLogger, errorHandler)
+                .ifAny("Video downloader, logger and error handler cannot be null");
+        if (windowSize < 1)
+            throw new IllegalArgumentException("Window size can only be positive, not: " + windowSize);
+
+        this.videoDownloader = videoDownloader;
+        this.windowSize = windowSize;
+        this.debugLogger = debugLogger;
+        this.errorHandler = errorHandler;
+    }
+
+    // PRIVATE
+
+    private final VideoDownloader videoDownloader;
+    private final int windowSize;
+    private final CustomizedLogger debugLogger;
+    private final CompletableFutureErrorHandler errorHandler;
+
+    private CompletableFuture<byte[]> startDownload(StreamPart part) {
+        return videoDownloader.download(part)
+                .whenComplete(errorHandler.logOnError("Could not download file from: " + part.getFullLocation()))
+                .exceptionally(e -> null);
+    }
+
+    private void writePart(StreamPart part, byte[] bytes, OutputStream outputStream, VodProgress progress) {
+        if (bytes == null) {
+            debugLogger.logMessage("Skipping missing part: " + part.getFullLocation());
+            return;
+        }
+
+        try {
+            outputStream.write(bytes);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        progress.partDone(bytes.length);
+    }
+
+    private void closeStream(OutputStream outputStream) {
+        try {
+            outputStream.close();
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't close stream after writing parts failed");
+        }
+    }
+
+}
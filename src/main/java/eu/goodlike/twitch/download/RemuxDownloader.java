@@ -0,0 +1,127 @@
+package eu.goodlike.twitch.download;
+
+import eu.goodlike.concurrent.TaskExecutors;
+import eu.goodlike.io.FileUtils;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.CompletableFutureErrorHandler;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
+import eu.goodlike.twitch.download.progress.VodProgress;
+import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import eu.goodlike.twitch.download.configurations.policy.OutputPolicy;
+import eu.goodlike.twitch.download.http.filename.FilenameResolver;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.remux.Mp4RemuxingOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * <pre>
+ * Handles download of files into a single mp4 file, without using ffmpeg
+ *
+ * The parts are downloaded concurrently and written in order into a remuxer, which copies the streams into fragmented
+ * mp4 as they arrive; this is only equivalent to ffmpeg when ffmpeg would only copy the streams as well
+ *
+ * Remuxing and writing happen on threads of this downloader, one for every VoD which can be active at the same time,
+ * so the threads which complete downloads are never held up by them; if remuxing fails, the partial file is deleted
+ * </pre>
+ */
+public final class RemuxDownloader implements AutoCloseable {
+
+    /**
+     * @return CompletableFuture which will complete when the VoD is downloaded; this CompletableFuture
+     * will wait until all parts are written and the output file is closed
+     * @throws NullPointerException if media playlist is null
+     */
+    public CompletableFuture<?> download(MediaPlaylist mediaPlaylist, int vodId) {
+        Null.check(mediaPlaylist).ifAny("Media playlist cannot be null");
+
+        String outputFileFormat = outputPolicy.getOutputFormat();
+        Optional<String> outputName = filenameResolver.resolveOutputName(outputFileFormat, vodId)
+                .map(FileUtils::findAvailableName);
+        if (!outputName.isPresent()) {
+            debugLogger.logMessage("Cannot resolve name for output file: " + outputFileFormat);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Optional<Path> pathOptional = outputName.flatMap(FileUtils::getPath);
+        if (!pathOptional.isPresent()) {
+            outputName
+                    .ifPresent(name -> debugLogger.logMessage("Output file is not a valid path: " + name));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Path path = pathOptional.get();
+        FileChannel fileChannel;
+        try {
+            fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            debugLogger.logMessage("Cannot create file at: " + path);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        OutputStream remuxingStream = new Mp4RemuxingOutputStream(fileChannel, outputPolicy.getWriteBufferSize());
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        return CompletableFuture.runAsync(
+                () -> orderedPartWriter.write(mediaPlaylist.getStreamParts(), remuxingStream, progress), writerExecutor)
+                .whenComplete(errorHandler.logOnError("Couldn't remux parts into: " + path))
+                .whenComplete((any, ex) -> {
+                    if (ex != null)
+                        deleteFile(path);
+                })
+                .whenComplete((any, ex) -> progress.finish());
+    }
+
+    @Override
+    public void close() throws Exception {
+        writerExecutor.shutdown();
+    }
+
+    // CONSTRUCTORS
+
+    public RemuxDownloader(OrderedPartWriter orderedPartWriter, ConcurrencyPolicy concurrencyPolicy,
+                           OutputPolicy outputPolicy, FilenameResolver filenameResolver, CustomizedLogger debugLogger,
+                           CompletableFutureErrorHandler errorHandler, ProgressTracker progressTracker) {
+
+        Null.check(orderedPartWriter, concurrencyPolicy, outputPolicy, filenameResolver, debugLogger, errorHandler,
+                progressTracker).ifAny("Ordered part writer, concurrency policy, output policy, filename resolver, " +
+                "logger, error handler and progress tracker cannot be null");
+
+        this.orderedPartWriter = orderedPartWriter;
+        this.outputPolicy = outputPolicy;
+        this.filenameResolver = filenameResolver;
+        this.debugLogger = debugLogger;
+        this.errorHandler = errorHandler;
+        this.progressTracker = progressTracker;
+        this.writerExecutor = TaskExecutors.newInstance(concurrencyPolicy.isVirtualThreadsEnabled(),
+                concurrencyPolicy.getMaxActiveVods());
+    }
+
+    // PRIVATE
+
+    private final OrderedPartWriter orderedPartWriter;
+    private final OutputPolicy outputPolicy;
+    private final FilenameResolver filenameResolver;
+    private final CustomizedLogger debugLogger;
+    private final CompletableFutureErrorHandler errorHandler;
+    private final ProgressTracker progressTracker;
+    private final ExecutorService writerExecutor;
+
+    private void deleteFile(Path path) {
+        try {
+            if (Files.deleteIfExists(path))
+                debugLogger.logMessage("Removed incomplete file: " + path);
+        } catch (IOException e) {
+            debugLogger.logMessage("Cannot remove incomplete file at: " + path);
+        }
+    }
+
+}
@@ -0,0 +1,214 @@
+package eu.goodlike.twitch.download;
+
+import eu.goodlike.concurrent.TaskExecutors;
+import eu.goodlike.io.FileUtils;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.CompletableFutureErrorHandler;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
+import eu.goodlike.twitch.download.progress.VodProgress;
+import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import eu.goodlike.twitch.download.configurations.policy.OutputPolicy;
+import eu.goodlike.twitch.download.http.filename.FilenameResolver;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.vod.VideoDownloader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+/**
+ * <pre>
+ * Handles manual download of files into a single output file
+ *
+ * Every part is written directly into its position in the output file, which is computed from the sizes of the parts
+ * before it; these sizes are known either from the playlist, or as soon as the response for that part arrives, so the
+ * parts are still downloaded concurrently; a part which arrives before its position is known is written by a thread
+ * of this downloader once it is, rather than by whichever thread happened to resolve its position
+ *
+ * If the sizes of all parts are known from the playlist, the whole file is filled with zeroes before any part is
+ * written into it, so that its space is actually allocated (merely extending the file would leave it sparse on most
+ * file systems) and running out of space is found out right away
+ *
+ * A part which cannot be downloaded does not stop the parts after it: if its size was not known yet, it takes up no
+ * space in the file, otherwise its bytes are left empty; either way, the gap is logged
+ * </pre>
+ */
+public final class SingleFileDownloader implements AutoCloseable {
+
+    /**
+     * @return CompletableFuture which will complete when the VoD is downloaded; this CompletableFuture
+     * will wait until the output file is preallocated, all parts are done downloading and the output file is
+     * truncated to its final size
+     * @throws NullPointerException if media playlist is null
+     */
+    public CompletableFuture<?> download(MediaPlaylist mediaPlaylist, int vodId) {
+        Null.check(mediaPlaylist).ifAny("Media playlist cannot be null");
+
+        String outputFileFormat = outputPolicy.getOutputSingleFileFormat();
+        Optional<String> outputName = filenameResolver.resolveOutputName(outputFileFormat, vodId)
+                .map(FileUtils::findAvailableName);
+        if (!outputName.isPresent()) {
+            debugLogger.logMessage("Cannot resolve name for output file: " + outputFileFormat);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Optional<Path> pathOptional = outputName.flatMap(FileUtils::getPath);
+        if (!pathOptional.isPresent()) {
+            outputName
+                    .ifPresent(name -> debugLogger.logMessage("Output file is not a valid path: " + name));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Path path = pathOptional.get();
+        // the channel is also read from, since freshly downloaded parts are copied from it into the segment cache
+        FileChannel fileChannel;
+        try {
+            fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            debugLogger.logMessage("Cannot create file at: " + path);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<?> preallocation = preallocate(fileChannel, path, mediaPlaylist);
+        VodProgress progress = progressTracker.startVod(vodId, mediaPlaylist);
+        return downloadFilesInto(fileChannel, path, mediaPlaylist, preallocation, progress)
+                .whenComplete((any, ex) -> progress.finish());
+    }
+
+    @Override
+    public void close() throws Exception {
+        writerExecutor.shutdown();
+    }
+
+    // CONSTRUCTORS
+
+    public SingleFileDownloader(VideoDownloader videoDownloader, ConcurrencyPolicy concurrencyPolicy,
+                                OutputPolicy outputPolicy, FilenameResolver filenameResolver,
+                                CustomizedLogger debugLogger, CompletableFutureErrorHandler errorHandler,
+                                ProgressTracker progressTracker) {
+
+        Null.check(videoDownloader, concurrencyPolicy, outputPolicy, filenameResolver, debugLogger, errorHandler,
+                progressTracker).ifAny("Video downloader, concurrency policy, output policy, filename resolver, " +
+                "logger, error handler and progress tracker cannot be null");
+
+        this.videoDownloader = videoDownloader;
+        this.outputPolicy = outputPolicy;
+        this.filenameResolver = filenameResolver;
+        this.debugLogger = debugLogger;
+        this.errorHandler = errorHandler;
+        this.progressTracker = progressTracker;
+        // at most this many bodies can be waiting for their positions, since that is how many downloads can run
+        this.writerExecutor = TaskExecutors.newInstance(concurrencyPolicy.isVirtualThreadsEnabled(),
+                concurrencyPolicy.getMaxDownloads());
+    }
+
+    // PRIVATE
+
+    private final VideoDownloader videoDownloader;
+    private final OutputPolicy outputPolicy;
+    private final FilenameResolver filenameResolver;
+    private final CustomizedLogger debugLogger;
+    private final CompletableFutureErrorHandler errorHandler;
+    private final ProgressTracker progressTracker;
+    private final ExecutorService writerExecutor;
+
+    /**
+     * @return CompletableFuture which will complete once the file is filled with zeroes up to its final size, if that
+     * size is known from the playlist; it never completes exceptionally, since failing to preallocate only means the
+     * parts have to allocate the space themselves
+     */
+    private CompletableFuture<?> preallocate(FileChannel fileChannel, Path path, MediaPlaylist mediaPlaylist) {
+        long totalSize = 0;
+        for (StreamPart part : mediaPlaylist.getStreamParts()) {
+            OptionalLong size = part.getByteSize();
+            if (!size.isPresent())
+                return CompletableFuture.completedFuture(null);
+
+            totalSize += size.getAsLong();
+        }
+
+        if (totalSize == 0)
+            return CompletableFuture.completedFuture(null);
+
+        long fileSize = totalSize;
+        return CompletableFuture.runAsync(() -> fillWithZeroes(fileChannel, path, fileSize), writerExecutor);
+    }
+
+    private void fillWithZeroes(FileChannel fileChannel, Path path, long size) {
+        ByteBuffer zeroes = ByteBuffer.allocateDirect(PREALLOCATION_BUFFER_SIZE);
+        long written = 0;
+        try {
+            while (written < size) {
+                zeroes.clear();
+                zeroes.limit((int) Math.min(zeroes.capacity(), size - written));
+                while (zeroes.hasRemaining())
+                    written += fileChannel.write(zeroes, written);
+            }
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't preallocate " + size + " bytes for file at: " + path);
+        }
+    }
+
+    private CompletableFuture<?> downloadFilesInto(FileChannel fileChannel, Path path, MediaPlaylist mediaPlaylist,
+                                                   CompletableFuture<?> preallocation, VodProgress progress) {
+        List<CompletableFuture<Long>> processes = new ArrayList<>();
+        // preallocation writes over the whole file, so no part can be written before it is done
+        CompletableFuture<Long> nextPosition = preallocation.thenApply(any -> 0L);
+        for (StreamPart part : mediaPlaylist.getStreamParts()) {
+            CompletableFuture<Long> position = nextPosition;
+            CompletableFuture<Long> size = new CompletableFuture<>();
+            part.getByteSize().ifPresent(size::complete);
+            nextPosition = position.thenCombine(size, Long::sum);
+
+            LongFunction<CompletableFuture<Long>> positionResolver = knownSize -> {
+                size.complete(knownSize);
+                return position.isDone()
+                        ? position
+                        : position.thenApplyAsync(Function.identity(), writerExecutor);
+            };
+            CompletableFuture<Long> partFuture = videoDownloader.download(fileChannel, part, positionResolver)
+                    .whenComplete(errorHandler.logOnError("Could not download file from: " + part.getFullLocation()))
+                    .whenComplete((written, ex) -> {
+                        if (ex == null)
+                            progress.partDone(written);
+                        else if (size.complete(0L))
+                            debugLogger.logMessage("Part is missing from file at " + path + ": " + part.getFullLocation());
+                        else
+                            debugLogger.logMessage("Part is left empty in file at " + path + ": " + part.getFullLocation());
+                    });
+
+            processes.add(partFuture);
+        }
+
+        CompletableFuture<Long> finalSize = nextPosition;
+        CompletableFuture<?>[] partFutures = processes.toArray(new CompletableFuture[processes.size()]);
+        return CompletableFuture.allOf(partFutures)
+                .whenComplete((any, ex) -> finish(fileChannel, path, finalSize, ex != null));
+    }
+
+    private void finish(FileChannel fileChannel, Path path, CompletableFuture<Long> finalSize, boolean partsFailed) {
+        try (FileChannel channel = fileChannel) {
+            channel.truncate(finalSize.join());
+            if (partsFailed)
+                debugLogger.logMessage("Some parts are missing, file is incomplete: " + path);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't finish writing file at: " + path);
+        }
+    }
+
+    private static final int PREALLOCATION_BUFFER_SIZE = 1024 * 1024;
+
+}
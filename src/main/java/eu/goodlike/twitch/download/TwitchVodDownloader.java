@@ -1,8 +1,8 @@
 package eu.goodlike.twitch.download;
 
 import eu.goodlike.cmd.CommandLineRunner;
+import eu.goodlike.concurrent.TaskExecutors;
 import eu.goodlike.io.log.CustomizedLogger;
-import eu.goodlike.libraries.okhttp.HttpClients;
 import eu.goodlike.twitch.CompletableFutureErrorHandler;
 import eu.goodlike.twitch.download.configurations.Policies;
 import eu.goodlike.twitch.download.configurations.options.CommandLineParser;
@@ -11,21 +11,33 @@ import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
 import eu.goodlike.twitch.download.configurations.policy.*;
 import eu.goodlike.twitch.download.configurations.settings.SettingsParser;
 import eu.goodlike.twitch.download.configurations.settings.SettingsProvider;
+import eu.goodlike.twitch.download.http.HttpConnectionManager;
+import eu.goodlike.twitch.download.http.RequestRetrier;
 import eu.goodlike.twitch.download.http.TwitchRequestMaker;
 import eu.goodlike.twitch.download.http.filename.FilenameResolver;
+import eu.goodlike.twitch.download.progress.ProgressReporter;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
 import eu.goodlike.twitch.m3u8.TwitchM3U8ParserFactory;
 import eu.goodlike.twitch.m3u8.TwitchM3U8WriterFactory;
 import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.playlist.MediaPlaylistFollower;
 import eu.goodlike.twitch.playlist.TwitchMasterPlaylistFetcher;
 import eu.goodlike.twitch.playlist.TwitchMediaPlaylistFetcher;
+import eu.goodlike.twitch.stream.StreamDataCache;
 import eu.goodlike.twitch.stream.StreamDataFetcher;
+import eu.goodlike.twitch.token.TokenCache;
 import eu.goodlike.twitch.token.TokenFetcher;
+import eu.goodlike.twitch.vod.BandwidthLimitWatcher;
+import eu.goodlike.twitch.vod.BandwidthLimiter;
+import eu.goodlike.twitch.vod.ResponseBodyWriter;
+import eu.goodlike.twitch.vod.SegmentCache;
+import eu.goodlike.twitch.vod.TransferBufferPool;
 import eu.goodlike.twitch.vod.VideoDownloader;
-import okhttp3.OkHttpClient;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static eu.goodlike.twitch.download.configurations.settings.DefaultSettings.DEFAULT_PROPERTIES_FILE_PATH;
 
@@ -46,6 +58,7 @@ public final class TwitchVodDownloader {
 
     private static void launchApplication(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
         Policies policies = Policies.from(settingsProvider, optionsProvider);
+        CachePolicy cachePolicy = policies.getCachePolicy();
         ConcurrencyPolicy concurrencyPolicy = policies.getConcurrencyPolicy();
         FfmpegPolicy ffmpegPolicy = policies.getFfmpegPolicy();
         HttpRequestPolicy httpRequestPolicy = policies.getHttpRequestPolicy();
@@ -57,46 +70,97 @@ public final class TwitchVodDownloader {
         CustomizedLogger debugLogger = logPolicy.getDebugLogger();
         CustomizedLogger processLogger = logPolicy.getProcessLogger();
 
-        OkHttpClient okHttpClient = HttpClients.newInstance();
+        if (concurrencyPolicy.isVirtualThreadsEnabled() && !TaskExecutors.areVirtualThreadsSupported())
+            debugLogger.logMessage("Virtual threads are not supported by this Java version, using thread pools instead");
+
+        HttpConnectionManager connectionManager = HttpConnectionManager.newInstance(concurrencyPolicy, debugLogger);
         CompletableFutureErrorHandler errorHandler = new CompletableFutureErrorHandler(debugLogger);
 
-        TwitchRequestMaker twitchRequestMaker = new TwitchRequestMaker(httpRequestPolicy, okHttpClient);
+        RequestRetrier requestRetrier = new RequestRetrier(httpRequestPolicy.getMaxRetries(), debugLogger);
+        TwitchRequestMaker twitchRequestMaker = new TwitchRequestMaker(httpRequestPolicy, connectionManager, requestRetrier);
         TwitchM3U8ParserFactory twitchM3U8ParserFactory = new TwitchM3U8ParserFactory(debugLogger, playlistPolicy);
         TwitchM3U8WriterFactory twitchM3U8WriterFactory = new TwitchM3U8WriterFactory(debugLogger);
 
         TokenFetcher tokenFetcher = new TokenFetcher(twitchRequestMaker, debugLogger);
+        TokenCache tokenCache = new TokenCache(tokenFetcher, debugLogger);
         StreamDataFetcher streamDataFetcher = new StreamDataFetcher(twitchRequestMaker, debugLogger);
-        FilenameResolver filenameResolver = new FilenameResolver(streamDataFetcher, debugLogger, playlistPolicy);
+        StreamDataCache streamDataCache = new StreamDataCache(streamDataFetcher,
+                cachePolicy.getMetadataCacheDirectory(), cachePolicy.getMetadataCacheTtl(), debugLogger);
+        FilenameResolver filenameResolver = new FilenameResolver(streamDataCache, debugLogger, playlistPolicy,
+                outputPolicy);
 
-        TwitchMasterPlaylistFetcher twitchMasterPlaylistFetcher = new TwitchMasterPlaylistFetcher(tokenFetcher,
+        TwitchMasterPlaylistFetcher twitchMasterPlaylistFetcher = new TwitchMasterPlaylistFetcher(tokenCache,
                 twitchRequestMaker, twitchM3U8ParserFactory, debugLogger, errorHandler);
         TwitchMediaPlaylistFetcher twitchMediaPlaylistFetcher = new TwitchMediaPlaylistFetcher(twitchRequestMaker,
                 twitchM3U8ParserFactory, debugLogger, errorHandler, playlistPolicy);
-
-        VideoDownloader videoDownloader = new VideoDownloader(concurrencyPolicy, twitchRequestMaker, errorHandler, debugLogger);
+        MediaPlaylistFollower mediaPlaylistFollower = new MediaPlaylistFollower(twitchMasterPlaylistFetcher,
+                twitchMediaPlaylistFetcher, debugLogger);
+
+        TransferBufferPool transferBufferPool = new TransferBufferPool(outputPolicy.getWriteBufferSize(), concurrencyPolicy.getMaxDownloads());
+        BandwidthLimiter bandwidthLimiter = new BandwidthLimiter(concurrencyPolicy.getBandwidthLimit().orElse(0));
+        Optional<BandwidthLimitWatcher> bandwidthLimitWatcher = concurrencyPolicy.getBandwidthLimitFile()
+                .map(file -> new BandwidthLimitWatcher(file, bandwidthLimiter, debugLogger));
+        bandwidthLimitWatcher.ifPresent(BandwidthLimitWatcher::start);
+        ProgressTracker progressTracker = new ProgressTracker();
+        ProgressReporter progressReporter = new ProgressReporter(progressTracker, logPolicy.isProgressLineEnabled(),
+                logPolicy.getProgressStatusFile(), debugLogger);
+        progressReporter.start();
+        ResponseBodyWriter responseBodyWriter = new ResponseBodyWriter(transferBufferPool, bandwidthLimiter, concurrencyPolicy.getMaxDiskWrites(), progressTracker);
+        SegmentCache segmentCache = cachePolicy.getSegmentCacheDirectory()
+                .map(directory -> new SegmentCache(directory, cachePolicy.getSegmentCacheSize(), debugLogger))
+                .orElseGet(SegmentCache::disabled);
+        VideoDownloader videoDownloader = new VideoDownloader(concurrencyPolicy, httpRequestPolicy, twitchRequestMaker, responseBodyWriter, segmentCache, errorHandler, debugLogger);
         CommandLineRunner commandLineRunner = new CommandLineRunner(concurrencyPolicy, debugLogger, processLogger);
 
-        FfmpegDownloader ffmpegDownloader = new FfmpegDownloader(commandLineRunner, ffmpegPolicy, outputPolicy, playlistPolicy, filenameResolver, debugLogger, twitchM3U8WriterFactory);
-        ManualDownloader manualDownloader = new ManualDownloader(videoDownloader, outputPolicy, filenameResolver, debugLogger, errorHandler);
-
-        List<CompletableFuture<?>> downloadFutures = new ArrayList<>();
-        for (int vodId : inputPolicy.getVodIds()) {
-            CompletableFuture<MediaPlaylist> mediaPlaylist = twitchMasterPlaylistFetcher.fetchMasterPlaylistForVodId(vodId)
-                    .thenCompose(twitchMediaPlaylistFetcher::fetchMediaPlaylist);
-
-            CompletableFuture<?> downloadFuture = ffmpegPolicy.isFfmpegEnabled()
-                    ? mediaPlaylist
-                    .thenCompose(media -> ffmpegDownloader.download(media, vodId))
-                    : mediaPlaylist
-                    .thenCompose(media -> manualDownloader.download(media, vodId));
-
-            downloadFutures.add(downloadFuture);
-        }
-
-        CompletableFuture<?>[] futures = downloadFutures.toArray(new CompletableFuture[downloadFutures.size()]);
-        CompletableFuture.allOf(futures)
-                .whenComplete((any, ex) -> HttpClients.close(okHttpClient))
+        OrderedPartWriter orderedPartWriter = new OrderedPartWriter(videoDownloader, concurrencyPolicy.getPipeWindowSize(), debugLogger, errorHandler);
+
+        FfmpegDownloader ffmpegDownloader = new FfmpegDownloader(commandLineRunner, ffmpegPolicy, outputPolicy, playlistPolicy, filenameResolver, debugLogger, twitchM3U8WriterFactory, errorHandler, orderedPartWriter, segmentCache, progressTracker);
+        RemuxDownloader remuxDownloader = new RemuxDownloader(orderedPartWriter, concurrencyPolicy, outputPolicy, filenameResolver, debugLogger, errorHandler, progressTracker);
+        ManualDownloader manualDownloader = new ManualDownloader(videoDownloader, outputPolicy, filenameResolver, debugLogger, errorHandler, progressTracker);
+        SingleFileDownloader singleFileDownloader = new SingleFileDownloader(videoDownloader, concurrencyPolicy, outputPolicy, filenameResolver, debugLogger, errorHandler, progressTracker);
+
+        boolean ffmpegDownloadsParts = ffmpegPolicy.isFfmpegEnabled() && !ffmpegPolicy.isPipeEnabled()
+                && !playlistPolicy.isFollowEnabled() && !(ffmpegPolicy.isBuiltInRemuxEnabled() && outputPolicy.isMp4Output());
+        if (ffmpegDownloadsParts && cachePolicy.getSegmentCacheDirectory().isPresent())
+            debugLogger.logMessage("ffmpeg downloads parts which are not cached by itself, so they are not added to the " +
+                    "segment cache; add -fp to add them");
+
+        if (playlistPolicy.isFollowEnabled() && (ffmpegPolicy.isFfmpegEnabled() || outputPolicy.isSingleFileEnabled()))
+            debugLogger.logMessage("VoDs are followed, so their parts will be downloaded into folders instead");
+
+        BiFunction<MediaPlaylist, Integer, CompletableFuture<?>> vodDownloader = playlistPolicy.isFollowEnabled()
+                ? (mediaPlaylist, vodId) -> manualDownloader.follow(mediaPlaylist, vodId, mediaPlaylistFollower)
+                : ffmpegPolicy.isFfmpegEnabled()
+                ? ffmpegPolicy.isBuiltInRemuxEnabled() && outputPolicy.isMp4Output()
+                ? remuxDownloader::download
+                : ffmpegDownloader::download
+                : outputPolicy.isSingleFileEnabled()
+                ? singleFileDownloader::download
+                : manualDownloader::download;
+
+        Function<Integer, CompletableFuture<MediaPlaylist>> mediaPlaylistFetcher = playlistPolicy.isFollowEnabled()
+                ? vodId -> twitchMasterPlaylistFetcher.fetchMasterPlaylistForVodId(vodId)
+                        .thenCompose(masterPlaylist -> mediaPlaylistFollower.fetchMediaPlaylist(masterPlaylist, vodId))
+                : vodId -> twitchMasterPlaylistFetcher.fetchMasterPlaylistForVodId(vodId)
+                        .thenCompose(twitchMediaPlaylistFetcher::fetchMediaPlaylist);
+        // stream data is fetched alongside the token and playlists, so the output name does not wait for another request
+        Function<Integer, CompletableFuture<MediaPlaylist>> playlistFetcher = vodId -> {
+            filenameResolver.prefetchStreamData(vodId);
+            return mediaPlaylistFetcher.apply(vodId);
+        };
+
+        VodJobScheduler vodJobScheduler = new VodJobScheduler(concurrencyPolicy, playlistFetcher, vodDownloader,
+                debugLogger);
+
+        vodJobScheduler.run(inputPolicy.getVodIds())
+                .whenComplete((any, ex) -> close(progressReporter))
+                .whenComplete((any, ex) -> connectionManager.close())
+                .whenComplete((any, ex) -> close(mediaPlaylistFollower))
+                .whenComplete((any, ex) -> close(requestRetrier))
+                .whenComplete((any, ex) -> bandwidthLimitWatcher.ifPresent(TwitchVodDownloader::close))
                 .whenComplete((any, ex) -> close(commandLineRunner))
+                .whenComplete((any, ex) -> close(remuxDownloader))
+                .whenComplete((any, ex) -> close(singleFileDownloader))
                 .whenComplete((any, ex) -> close(errorHandler));
     }
 
@@ -108,6 +172,54 @@ public final class TwitchVodDownloader {
         }
     }
 
+    private static void close(RemuxDownloader remuxDownloader) {
+        try {
+            remuxDownloader.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing RemuxDownloader", e);
+        }
+    }
+
+    private static void close(SingleFileDownloader singleFileDownloader) {
+        try {
+            singleFileDownloader.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing SingleFileDownloader", e);
+        }
+    }
+
+    private static void close(MediaPlaylistFollower mediaPlaylistFollower) {
+        try {
+            mediaPlaylistFollower.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing MediaPlaylistFollower", e);
+        }
+    }
+
+    private static void close(RequestRetrier requestRetrier) {
+        try {
+            requestRetrier.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing RequestRetrier", e);
+        }
+    }
+
+    private static void close(BandwidthLimitWatcher bandwidthLimitWatcher) {
+        try {
+            bandwidthLimitWatcher.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing BandwidthLimitWatcher", e);
+        }
+    }
+
+    private static void close(ProgressReporter progressReporter) {
+        try {
+            progressReporter.close();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected failure while closing ProgressReporter", e);
+        }
+    }
+
     private static void close(CompletableFutureErrorHandler errorHandler) {
         try {
             errorHandler.close();
@@ -0,0 +1,184 @@
+package eu.goodlike.twitch.download;
+
+import eu.goodlike.functional.Futures;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import eu.goodlike.twitch.download.configurations.policy.SchedulingMode;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * Downloads VoDs, a limited amount at a time
+ *
+ * Every VoD first has its playlist fetched, then gets downloaded; playlists are fetched ahead for as many VoDs as can
+ * be downloading at the same time, so the next VoD can start as soon as a download finishes, and requests for
+ * metadata are spread out over the whole run instead of being made all at once
+ *
+ * Out of the VoDs whose playlists are known, the next one to start is chosen by the scheduling mode
+ * </pre>
+ */
+public final class VodJobScheduler {
+
+    /**
+     * @return CompletableFuture which will complete when every VoD is either downloaded or has failed; failures are
+     * logged by the playlist fetcher and the downloader themselves, so this future never fails
+     * @throws NullPointerException if vodIds is or contains null
+     */
+    public CompletableFuture<?> run(Collection<Integer> vodIds) {
+        Null.checkCollection(vodIds).ifAny("VoD ids cannot be or contain null");
+
+        Run run = new Run(vodIds);
+        run.schedule();
+        return run.done;
+    }
+
+    // CONSTRUCTORS
+
+    public VodJobScheduler(ConcurrencyPolicy concurrencyPolicy,
+                           Function<Integer, CompletableFuture<MediaPlaylist>> playlistFetcher,
+                           BiFunction<MediaPlaylist, Integer, CompletableFuture<?>> vodDownloader,
+                           CustomizedLogger debugLogger) {
+        Null.check(concurrencyPolicy, playlistFetcher, vodDownloader, debugLogger)
+                .ifAny("Concurrency policy, playlist fetcher, VoD downloader and logger cannot be null");
+
+        this.maxActiveVods = concurrencyPolicy.getMaxActiveVods();
+        this.nextVodOrder = concurrencyPolicy.getSchedulingMode() == SchedulingMode.SHORTEST_FIRST
+                ? SHORTEST_FIRST
+                : INPUT_ORDER;
+        this.playlistFetcher = playlistFetcher;
+        this.vodDownloader = vodDownloader;
+        this.debugLogger = debugLogger;
+    }
+
+    // PRIVATE
+
+    private final int maxActiveVods;
+    private final Comparator<ReadyVod> nextVodOrder;
+    private final Function<Integer, CompletableFuture<MediaPlaylist>> playlistFetcher;
+    private final BiFunction<MediaPlaylist, Integer, CompletableFuture<?>> vodDownloader;
+    private final CustomizedLogger debugLogger;
+
+    private static final Comparator<ReadyVod> INPUT_ORDER = Comparator.comparingInt(vod -> vod.index);
+    private static final Comparator<ReadyVod> SHORTEST_FIRST = Comparator.<ReadyVod, BigDecimal>comparing(
+            vod -> vod.mediaPlaylist.getTotalDuration())
+            .thenComparing(INPUT_ORDER);
+
+    /**
+     * State of a single run; actions are decided while holding the lock, but performed outside of it, since fetches
+     * and downloads may complete immediately and schedule further actions
+     */
+    private final class Run {
+        private void schedule() {
+            List<Runnable> actions = new ArrayList<>();
+            synchronized (lock) {
+                while (activeCount < maxActiveVods && !readyVods.isEmpty()) {
+                    ReadyVod next = readyVods.stream().min(nextVodOrder).get();
+                    readyVods.remove(next);
+                    activeCount++;
+                    actions.add(() -> startDownload(next));
+                }
+
+                while (!pendingVodIds.isEmpty() && fetchingCount + readyVods.size() < maxActiveVods) {
+                    int vodId = pendingVodIds.poll();
+                    int index = nextIndex++;
+                    fetchingCount++;
+                    actions.add(() -> startFetch(vodId, index));
+                }
+            }
+            actions.forEach(Runnable::run);
+        }
+
+        private void startFetch(int vodId, int index) {
+            start(() -> playlistFetcher.apply(vodId))
+                    .whenComplete((mediaPlaylist, e) -> {
+                        synchronized (lock) {
+                            fetchingCount--;
+                            if (e == null)
+                                readyVods.add(new ReadyVod(vodId, index, mediaPlaylist));
+                            else
+                                remainingCount--;
+                        }
+                        finishIfDone();
+                        schedule();
+                    });
+        }
+
+        private void startDownload(ReadyVod vod) {
+            debugLogger.logMessage("Starting download of VoD with id: " + vod.vodId);
+            start(() -> vodDownloader.apply(vod.mediaPlaylist, vod.vodId))
+                    .whenComplete((any, e) -> {
+                        synchronized (lock) {
+                            activeCount--;
+                            remainingCount--;
+                        }
+                        finishIfDone();
+                        schedule();
+                    });
+        }
+
+        private <T> CompletableFuture<T> start(Supplier<CompletableFuture<T>> stage) {
+            try {
+                CompletableFuture<T> future = stage.get();
+                return future == null
+                        ? Futures.failedFuture(new NullPointerException("Stage returned null instead of a future"))
+                        : future;
+            } catch (Throwable e) {
+                return Futures.failedFuture(e);
+            }
+        }
+
+        private void finishIfDone() {
+            boolean finished;
+            synchronized (lock) {
+                finished = remainingCount == 0;
+            }
+            if (finished)
+                done.complete(null);
+        }
+
+        private Run(Collection<Integer> vodIds) {
+            this.pendingVodIds = new ArrayDeque<>(vodIds);
+            this.readyVods = new ArrayList<>();
+            this.remainingCount = vodIds.size();
+            this.done = new CompletableFuture<>();
+            if (remainingCount == 0)
+                done.complete(null);
+        }
+
+        private final Queue<Integer> pendingVodIds;
+        private final List<ReadyVod> readyVods;
+        private final CompletableFuture<Void> done;
+        private int remainingCount;
+        private int fetchingCount;
+        private int activeCount;
+        private int nextIndex;
+
+        private final Object lock = new Object();
+    }
+
+    private static final class ReadyVod {
+        private ReadyVod(int vodId, int index, MediaPlaylist mediaPlaylist) {
+            this.vodId = vodId;
+            this.index = index;
+            this.mediaPlaylist = mediaPlaylist;
+        }
+
+        private final int vodId;
+        private final int index;
+        private final MediaPlaylist mediaPlaylist;
+    }
+
+}
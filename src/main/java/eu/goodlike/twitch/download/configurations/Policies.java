@@ -10,6 +10,10 @@ import eu.goodlike.twitch.download.configurations.settings.SettingsProvider;
  */
 public final class Policies {
 
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
     public ConcurrencyPolicy getConcurrencyPolicy() {
         return concurrencyPolicy;
     }
@@ -43,9 +47,10 @@ public final class Policies {
     public static Policies from(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
         LogPolicy logPolicy = LogPolicy.from(optionsProvider);
         return new Policies(
-                ConcurrencyPolicy.from(optionsProvider),
+                CachePolicy.from(optionsProvider),
+                ConcurrencyPolicy.from(settingsProvider, optionsProvider),
                 FfmpegPolicy.from(settingsProvider, optionsProvider),
-                HttpRequestPolicy.from(settingsProvider),
+                HttpRequestPolicy.from(settingsProvider, optionsProvider),
                 InputPolicy.from(optionsProvider, logPolicy),
                 logPolicy,
                 OutputPolicy.from(settingsProvider, optionsProvider),
@@ -53,12 +58,14 @@ public final class Policies {
         );
     }
 
-    public Policies(ConcurrencyPolicy concurrencyPolicy, FfmpegPolicy ffmpegPolicy, HttpRequestPolicy httpRequestPolicy,
-                    InputPolicy inputPolicy, LogPolicy logPolicy, OutputPolicy outputPolicy, PlaylistPolicy playlistPolicy) {
+    public Policies(CachePolicy cachePolicy, ConcurrencyPolicy concurrencyPolicy, FfmpegPolicy ffmpegPolicy,
+                    HttpRequestPolicy httpRequestPolicy, InputPolicy inputPolicy, LogPolicy logPolicy,
+                    OutputPolicy outputPolicy, PlaylistPolicy playlistPolicy) {
 
-        Null.check(concurrencyPolicy, ffmpegPolicy, httpRequestPolicy, inputPolicy, logPolicy, outputPolicy, playlistPolicy)
+        Null.check(cachePolicy, concurrencyPolicy, ffmpegPolicy, httpRequestPolicy, inputPolicy, logPolicy, outputPolicy, playlistPolicy)
                 .ifAny("Policies cannot be null");
 
+        this.cachePolicy = cachePolicy;
         this.concurrencyPolicy = concurrencyPolicy;
         this.ffmpegPolicy = ffmpegPolicy;
         this.httpRequestPolicy = httpRequestPolicy;
@@ -70,6 +77,7 @@ public final class Policies {
 
     // PRIVATE
 
+    private final CachePolicy cachePolicy;
     private final ConcurrencyPolicy concurrencyPolicy;
     private final FfmpegPolicy ffmpegPolicy;
     private final HttpRequestPolicy httpRequestPolicy;
@@ -3,18 +3,44 @@ package eu.goodlike.twitch.download.configurations.options;
 public final class CommandLineKeys {
 
     public static final String DOWNLOAD_KEY = "DL";
+    public static final String EXTERNAL_FFMPEG_KEY = "EF";
+    public static final String FFMPEG_PIPE_KEY = "FP";
     public static final String FFMPEG_REPLACE_KEY = "FR";
+    public static final String FOLLOW_KEY = "FW";
     public static final String HIDE_DEBUG_KEY = "HD";
     public static final String HIDE_PROCESS_OUTPUT_KEY = "HPO";
     public static final String NO_PLAYLIST_CLEAN_KEY = "NPC";
     public static final String PLAYLIST_OPTIMIZATION_KEY = "PO";
+    public static final String PROGRESS_KEY = "PG";
+    public static final String RESUME_KEY = "R";
+    public static final String SINGLE_FILE_KEY = "SF";
     public static final String SKIP_MISSING_QUALITY_KEY = "SMQ";
+    public static final String VALIDATE_SEGMENTS_KEY = "VS";
+    public static final String VIRTUAL_THREADS_KEY = "VT";
 
+    public static final String BANDWIDTH_KEY = "BYTES_PER_SECOND";
+    public static final String BANDWIDTH_FILE_KEY = "LIMIT_FILE";
+    public static final String CACHE_DIRECTORY_KEY = "CACHE_DIR";
+    public static final String CACHE_SIZE_KEY = "MB";
+    public static final String COMBINED_DURATION_KEY = "SECONDS";
+    public static final String COMBINED_SIZE_KEY = "BYTES";
     public static final String FFMPEG_OPTIONS_KEY = "OPTIONS";
+    public static final String DISK_WRITE_MAX_KEY = "WRITES";
     public static final String LOG_FILE_KEY = "FILE";
+    public static final String METADATA_CACHE_KEY = "METADATA_DIR";
+    public static final String METADATA_CACHE_TTL_KEY = "HOURS";
+    public static final String METADATA_MAX_KEY = "REQUESTS";
     public static final String OUTPUT_KEY = "FORMAT";
+    public static final String PARSER_ENGINE_KEY = "ENGINE";
+    public static final String PROCESS_MAX_KEY = "PROCESSES";
+    public static final String PROGRESS_STATUS_KEY = "STATUS_FILE";
     public static final String QUALITY_KEY = "QUALITY";
+    public static final String RANGED_FETCH_KEY = "RANGES";
+    public static final String RETRIES_KEY = "RETRIES";
+    public static final String SCHEDULING_KEY = "MODE";
     public static final String THREAD_MAX_KEY = "N";
+    public static final String VOD_MAX_KEY = "VODS";
+    public static final String WRITE_BUFFER_KEY = "KB";
 
     public static final String VOD_ID_KEY = "vodId";
 
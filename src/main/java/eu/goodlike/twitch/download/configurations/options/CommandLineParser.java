@@ -44,10 +44,22 @@ public final class CommandLineParser {
                 .dest(DOWNLOAD_KEY)
                 .action(Arguments.storeTrue())
                 .help(DOWNLOAD_EXPLANATION);
+        argumentParser.addArgument("-ef", "--external_ffmpeg")
+                .dest(EXTERNAL_FFMPEG_KEY)
+                .action(Arguments.storeTrue())
+                .help(EXTERNAL_FFMPEG_EXPLANATION);
+        argumentParser.addArgument("-fp", "--ffmpeg_pipe")
+                .dest(FFMPEG_PIPE_KEY)
+                .action(Arguments.storeTrue())
+                .help(FFMPEG_PIPE_EXPLANATION);
         argumentParser.addArgument("-fr", "-ffmpeg_replace")
                 .dest(FFMPEG_REPLACE_KEY)
                 .action(Arguments.storeTrue())
                 .help(CUSTOM_FFMPEG_MODE_EXPLANATION);
+        argumentParser.addArgument("-fw", "--follow")
+                .dest(FOLLOW_KEY)
+                .action(Arguments.storeTrue())
+                .help(FOLLOW_EXPLANATION);
         argumentParser.addArgument("-hd", "--hide_debug")
                 .dest(HIDE_DEBUG_KEY)
                 .action(Arguments.storeTrue())
@@ -60,31 +72,119 @@ public final class CommandLineParser {
                 .dest(NO_PLAYLIST_CLEAN_KEY)
                 .action(Arguments.storeTrue())
                 .help(PLAYLIST_CLEAN_EXPLANATION);
+        argumentParser.addArgument("-pg", "--progress")
+                .dest(PROGRESS_KEY)
+                .action(Arguments.storeTrue())
+                .help(PROGRESS_EXPLANATION);
         argumentParser.addArgument("-po", "--playlist_optimization")
                 .dest(PLAYLIST_OPTIMIZATION_KEY)
                 .action(Arguments.storeTrue())
                 .help(PLAYLIST_OPTIMIZATION_EXPLANATION);
+        argumentParser.addArgument("-r", "--resume")
+                .dest(RESUME_KEY)
+                .action(Arguments.storeTrue())
+                .help(RESUME_EXPLANATION);
+        argumentParser.addArgument("-sf", "--single_file")
+                .dest(SINGLE_FILE_KEY)
+                .action(Arguments.storeTrue())
+                .help(SINGLE_FILE_EXPLANATION);
         argumentParser.addArgument("-smq", "--skip_missing_quality")
                 .dest(SKIP_MISSING_QUALITY_KEY)
                 .action(Arguments.storeTrue())
                 .help(DEFAULT_TO_BEST_EXPLANATION);
+        argumentParser.addArgument("-vs", "--validate_segments")
+                .dest(VALIDATE_SEGMENTS_KEY)
+                .action(Arguments.storeTrue())
+                .help(VALIDATE_SEGMENTS_EXPLANATION);
+        argumentParser.addArgument("-vt", "--virtual_threads")
+                .dest(VIRTUAL_THREADS_KEY)
+                .action(Arguments.storeTrue())
+                .help(VIRTUAL_THREADS_EXPLANATION);
 
+        argumentParser.addArgument("-bw", "--bandwidth")
+                .dest(BANDWIDTH_KEY)
+                .type(Long.class)
+                .help(BANDWIDTH_EXPLANATION);
+        argumentParser.addArgument("-bwf", "--bandwidth_file")
+                .dest(BANDWIDTH_FILE_KEY)
+                .help(BANDWIDTH_FILE_EXPLANATION);
+        argumentParser.addArgument("-dwm", "--disk_writes_max")
+                .dest(DISK_WRITE_MAX_KEY)
+                .type(Integer.class)
+                .help(DISK_WRITE_MAX_EXPLANATION);
         argumentParser.addArgument("-fo", "--ffmpeg_options")
                 .dest(FFMPEG_OPTIONS_KEY)
                 .help(CUSTOM_FFMPEG_EXPLANATION);
         argumentParser.addArgument("-l", "--log_file")
                 .dest(LOG_FILE_KEY)
                 .help(LOG_FILE_EXPLANATION);
+        argumentParser.addArgument("-mc", "--metadata_cache")
+                .dest(METADATA_CACHE_KEY)
+                .help(METADATA_CACHE_EXPLANATION);
+        argumentParser.addArgument("-mct", "--metadata_cache_ttl")
+                .dest(METADATA_CACHE_TTL_KEY)
+                .type(Integer.class)
+                .help(METADATA_CACHE_TTL_EXPLANATION);
+        argumentParser.addArgument("-mm", "--metadata_max")
+                .dest(METADATA_MAX_KEY)
+                .type(Integer.class)
+                .help(METADATA_MAX_EXPLANATION);
         argumentParser.addArgument("-o", "--output")
                 .dest(OUTPUT_KEY)
                 .help(CUSTOM_FILE_FORMAT_EXPLANATION);
+        argumentParser.addArgument("-pod", "--playlist_optimization_duration")
+                .dest(COMBINED_DURATION_KEY)
+                .type(Integer.class)
+                .help(COMBINED_DURATION_EXPLANATION);
+        argumentParser.addArgument("-pos", "--playlist_optimization_size")
+                .dest(COMBINED_SIZE_KEY)
+                .type(Long.class)
+                .help(COMBINED_SIZE_EXPLANATION);
+        argumentParser.addArgument("-pe", "--parser_engine")
+                .dest(PARSER_ENGINE_KEY)
+                .choices("streaming", "scanner")
+                .help(PARSER_ENGINE_EXPLANATION);
+        argumentParser.addArgument("-pm", "--processes_max")
+                .dest(PROCESS_MAX_KEY)
+                .type(Integer.class)
+                .help(PROCESS_MAX_EXPLANATION);
+        argumentParser.addArgument("-ps", "--progress_status")
+                .dest(PROGRESS_STATUS_KEY)
+                .help(PROGRESS_STATUS_EXPLANATION);
         argumentParser.addArgument("-q", "--quality")
                 .dest(QUALITY_KEY)
                 .help(CUSTOM_QUALITY_EXPLANATION);
+        argumentParser.addArgument("-rf", "--ranged_fetch")
+                .dest(RANGED_FETCH_KEY)
+                .type(Integer.class)
+                .help(RANGED_FETCH_EXPLANATION);
+        argumentParser.addArgument("-rt", "--retries")
+                .dest(RETRIES_KEY)
+                .type(Integer.class)
+                .help(RETRIES_EXPLANATION);
+        argumentParser.addArgument("-sc", "--segment_cache")
+                .dest(CACHE_DIRECTORY_KEY)
+                .help(SEGMENT_CACHE_EXPLANATION);
+        argumentParser.addArgument("-scs", "--segment_cache_size")
+                .dest(CACHE_SIZE_KEY)
+                .type(Integer.class)
+                .help(SEGMENT_CACHE_SIZE_EXPLANATION);
+        argumentParser.addArgument("-sm", "--scheduling_mode")
+                .dest(SCHEDULING_KEY)
+                .choices("fifo", "shortest", "fair")
+                .help(SCHEDULING_EXPLANATION);
         argumentParser.addArgument("-tm", "--threads_max")
                 .dest(THREAD_MAX_KEY)
                 .type(Integer.class)
                 .help(MAX_THREAD_EXPLANATION);
+        argumentParser.addArgument("-vm", "--vods_max")
+                .dest(VOD_MAX_KEY)
+                .type(Integer.class)
+                .help(VOD_MAX_EXPLANATION);
+        argumentParser.addArgument("-wb", "--write_buffer")
+                .dest(WRITE_BUFFER_KEY)
+                .type(Integer.class)
+                .help(WRITE_BUFFER_EXPLANATION);
 
         argumentParser.addArgument("vodId").nargs("+")
                 .dest(VOD_ID_KEY)
@@ -5,8 +5,23 @@ import eu.goodlike.misc.SpecialUtils;
 public final class DefaultOptions {
 
     public static final int DEFAULT_MINIMUM_CORES_ACCEPTED_VALUE = 4;
-    public static final int DEFAULT_MAX_NUMBER_OF_THREADS =
+    public static final int DEFAULT_MAX_DOWNLOADS =
             SpecialUtils.getCoreCountWithMin(DEFAULT_MINIMUM_CORES_ACCEPTED_VALUE);
+    public static final int DEFAULT_MAX_METADATA_REQUESTS = Math.max(2, SpecialUtils.getCoreCountWithMin(1) / 2);
+    public static final int DEFAULT_MAX_PROCESSES = Math.max(2, SpecialUtils.getCoreCountWithMin(1) / 2);
+    public static final int DEFAULT_MAX_DISK_WRITES = SpecialUtils.getCoreCountWithMin(2);
+
+    public static final int DEFAULT_RANGED_FETCH_PARTS = 1;
+
+    public static final int DEFAULT_MAX_ACTIVE_VODS = 2;
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    public static final int DEFAULT_WRITE_BUFFER_SIZE_KB = 64;
+
+    public static final int DEFAULT_SEGMENT_CACHE_SIZE_MB = 10 * 1024;
+
+    public static final int DEFAULT_METADATA_CACHE_TTL_HOURS = 24;
 
     public static final String DEFAULT_QUALITY_LEVEL = "source";
     public static final String DEFAULT_QUALITY_LEVEL_FALLBACK = "1080p";
@@ -13,6 +13,25 @@ public final class Explanations {
                     "twitch VoDs anymore. Essentially it combines parts into bigger ones which should be" +
                     "theoretically somewhat more efficient, but not worth turning it off manually.";
 
+    public static final String COMBINED_SIZE_EXPLANATION =
+            "max size of a combined part in bytes" + System.lineSeparator() +
+                    "When playlist optimization is enabled, parts are combined for as long as they follow " +
+                    "each other. Use this option to stop combining once a part would become larger than " +
+                    "BYTES, so that bigger VoDs still result in multiple requests which can be done in " +
+                    "parallel. Invalid values (BYTES <= 0) will be ignored.";
+
+    public static final String COMBINED_DURATION_EXPLANATION =
+            "max duration of a combined part in seconds" + System.lineSeparator() +
+                    "When playlist optimization is enabled, parts are combined for as long as they follow " +
+                    "each other. Use this option to stop combining once a part would become longer than " +
+                    "SECONDS. Invalid values (SECONDS <= 0) will be ignored.";
+
+    public static final String PARSER_ENGINE_EXPLANATION =
+            "engine which parses playlists" + System.lineSeparator() +
+                    "streaming (default) reads playlists straight from the response. scanner reads them " +
+                    "line by line and resolves every link as an url; it is slower, but kept in case the " +
+                    "streaming engine has trouble with some playlist. Both give the same results.";
+
     public static final String DOWNLOAD_EXPLANATION =
             "don't use ffmpeg, download parts instead" + System.lineSeparator() +
                     "If you wish to keep the parts separate, or use your own method to combine them, use " +
@@ -20,10 +39,45 @@ public final class Explanations {
                     "chronological order) and will be downloaded into a separate folder, which will use " +
                     "the output filename structure, minus extension, for the name.";
 
+    public static final String EXTERNAL_FFMPEG_EXPLANATION =
+            "always use ffmpeg to combine parts" + System.lineSeparator() +
+                    "When the output is .mp4 and ffmpeg options only copy the streams (like the default " +
+                    "options), the parts are downloaded concurrently and remuxed into mp4 by this " +
+                    "application, without starting ffmpeg. Use this option to start ffmpeg anyway. " +
+                    "Ignored when -dl is used.";
+
+    public static final String FFMPEG_PIPE_EXPLANATION =
+            "download parts for ffmpeg and pipe them into it" + System.lineSeparator() +
+                    "Normally, ffmpeg downloads the parts itself, one after another. Use this option to " +
+                    "download the parts concurrently instead (limited by -tm, -rt and -bw like any other " +
+                    "download) and write them into ffmpeg in order. A few parts per thread are kept in " +
+                    "memory while waiting for their turn. Ignored when -dl is used.";
+
+    public static final String FOLLOW_EXPLANATION =
+            "keep downloading VoDs which are still being broadcast" + System.lineSeparator() +
+                    "Normally, only the parts which exist when the VoD is requested are downloaded. Use " +
+                    "this option to keep requesting the playlist (every few seconds, as the playlist " +
+                    "suggests) and download new parts as they appear, until the broadcast ends. Parts are " +
+                    "downloaded into a folder, like with -dl, which IGNORES ffmpeg options and -sf.";
+
+    public static final String RESUME_EXPLANATION =
+            "resume interrupted part downloads" + System.lineSeparator() +
+                    "When downloading parts (-dl), a journal of completed parts is kept next to the folder " +
+                    "until every part is downloaded. Normally, a new folder is created for every run. Use " +
+                    "this option to reuse the existing folder instead, skipping the parts recorded in its " +
+                    "journal, and downloading missing or incomplete parts again.";
+
+    public static final String SINGLE_FILE_EXPLANATION =
+            "download parts into a single file" + System.lineSeparator() +
+                    "When downloading parts (-dl), each part normally becomes a separate file. Use this " +
+                    "option to write all parts directly into a single .ts file instead, which uses the " +
+                    "output filename structure, with the extension replaced. The parts are still " +
+                    "downloaded concurrently, and no further combining is needed. This option IGNORES -r.";
+
     public static final String PLAYLIST_CLEAN_EXPLANATION =
             "keep playlists after combining" + System.lineSeparator() +
-                    "Normally, the playlist file will be created for use with ffmpeg. If you wish to keep " +
-                    "this file (i.e. debug purposes), use this option.";
+                    "Normally, the playlist is passed straight into ffmpeg without creating a file. If you " +
+                    "wish to keep the playlist in a file (i.e. debug purposes), use this option.";
 
     public static final String PROCESS_OUTPUT_EXPLANATION =
             "hide ffmpeg output" + System.lineSeparator() +
@@ -38,10 +92,127 @@ public final class Explanations {
                     "line, such as http requests that are made. Use this option to hide it.";
 
     public static final String MAX_THREAD_EXPLANATION =
+            "max number of concurrent part downloads" + System.lineSeparator() +
+                    "Parts of all VoDs are downloaded in parallel, by default limited by amount of " +
+                    "cores in the system (at least 4). Overrides downloads_max setting. Invalid values " +
+                    "(N <= 0) will be ignored.";
+
+    public static final String METADATA_MAX_EXPLANATION =
+            "max number of concurrent twitch API requests" + System.lineSeparator() +
+                    "Limits requests for tokens, VoD data and master playlists, by default to half the " +
+                    "amount of cores in the system (at least 2). Overrides metadata_max setting. Invalid " +
+                    "values (REQUESTS <= 0) will be ignored.";
+
+    public static final String PROCESS_MAX_EXPLANATION =
             "max number of concurrent ffmpeg instances" + System.lineSeparator() +
-                    "Multiple VoDs will be downloaded in parallel, by default limited by amount of " +
-                    "cores in the system. Use this option to limit or unlock amount of threads created. " +
-                    "Invalid values (N <= 0) will be ignored.";
+                    "ffmpeg can use several cores by itself, so by default this is half the amount of " +
+                    "cores in the system (at least 2). Overrides processes_max setting. Invalid values " +
+                    "(PROCESSES <= 0) will be ignored.";
+
+    public static final String DISK_WRITE_MAX_EXPLANATION =
+            "max number of concurrent disk writes" + System.lineSeparator() +
+                    "Downloads which have data ready keep buffering until it is their turn to write it (at " +
+                    "most a second once the buffer is full), so many downloads do not fight over a slow " +
+                    "disk. By default limited by amount of cores in the system (at " +
+                    "least 2). Overrides disk_writes_max setting. Invalid values (WRITES <= 0) will be " +
+                    "ignored.";
+
+    public static final String RANGED_FETCH_EXPLANATION =
+            "split large parts into RANGES concurrent requests" + System.lineSeparator() +
+                    "When downloading parts manually, each part is normally fetched with a single request. " +
+                    "Use this option to split every large enough part into up to RANGES byte ranges, which " +
+                    "are downloaded concurrently and written into the same file. Every range counts towards " +
+                    "the concurrency limit set by -tm. Invalid values (RANGES <= 1) will be ignored.";
+
+    public static final String BANDWIDTH_EXPLANATION =
+            "limit downloads to BYTES_PER_SECOND" + System.lineSeparator() +
+                    "All parts downloaded by this application share this limit, no matter how many are " +
+                    "downloaded at the same time, so -tm can stay high without saturating the connection. " +
+                    "Does not apply to ffmpeg, which downloads parts by itself. Invalid values " +
+                    "(BYTES_PER_SECOND <= 0) will be ignored.";
+
+    public static final String BANDWIDTH_FILE_EXPLANATION =
+            "read download limit from LIMIT_FILE while running" + System.lineSeparator() +
+                    "The file should contain a single number, the limit in bytes per second. It is checked " +
+                    "every second, so the limit can be changed while downloading by editing the file; " +
+                    "values <= 0 remove the limit. Overrides -bw once the file can be read.";
+
+    public static final String SEGMENT_CACHE_EXPLANATION =
+            "keep downloaded parts in CACHE_DIR" + System.lineSeparator() +
+                    "Every part downloaded by this application is also stored in CACHE_DIR, and parts " +
+                    "found there are not downloaded again, even by later runs or other VoDs using the same " +
+                    "parts. Several runs can share the directory at the same time. ffmpeg is given cached " +
+                    "parts as local files, but parts it downloads itself are only cached if -fp is used as well.";
+
+    public static final String SEGMENT_CACHE_SIZE_EXPLANATION =
+            "max size of the part cache in megabytes" + System.lineSeparator() +
+                    "When the cache (-sc) grows larger than this, parts which were used least recently are " +
+                    "deleted. Default is 10240. Invalid values (MB < 1) will " +
+                    "be ignored.";
+
+    public static final String METADATA_CACHE_EXPLANATION =
+            "keep VoD data in METADATA_DIR" + System.lineSeparator() +
+                    "VoD data used to resolve output names is stored in METADATA_DIR, and data found there is " +
+                    "not requested again until it expires (-mct), even by later runs or with a different -o. " +
+                    "VoDs which are deleted or only available to subscribers are remembered for up to an hour. " +
+                    "Several runs can share the directory at the same time.";
+
+    public static final String METADATA_CACHE_TTL_EXPLANATION =
+            "hours for which VoD data is kept" + System.lineSeparator() +
+                    "VoD data older than this is requested again, both from memory and from the cache (-mc). " +
+                    "Default is 24. Invalid values (HOURS < 1) will be ignored.";
+
+    public static final String SCHEDULING_EXPLANATION =
+            "order in which VoDs are downloaded" + System.lineSeparator() +
+                    "fifo (default) starts VoDs in input order. shortest starts the shortest VoD out of " +
+                    "those whose playlists are already known. fair starts VoDs in input order, but lets " +
+                    "all active VoDs (-vm) take turns downloading parts, so they progress evenly.";
+
+    public static final String VOD_MAX_EXPLANATION =
+            "max number of VoDs downloading at the same time" + System.lineSeparator() +
+                    "Only VODS VoDs are downloaded at the same time (2 by default); while they download, " +
+                    "playlists of up to VODS following VoDs are fetched ahead of time. All VoDs still " +
+                    "share -tm. Invalid values (VODS < 1) will be ignored.";
+
+    public static final String RETRIES_EXPLANATION =
+            "retry failed requests up to RETRIES times" + System.lineSeparator() +
+                    "Requests which fail because of timeouts, dropped connections or server errors are " +
+                    "repeated after an increasing delay; missing or forbidden resources are not. If a host " +
+                    "keeps failing, requests to it are paused for a while. Use 0 to disable retries. " +
+                    "Invalid values (RETRIES < 0) will be ignored.";
+
+    public static final String VALIDATE_SEGMENTS_EXPLANATION =
+            "validate parts while downloading them" + System.lineSeparator() +
+                    "Use this option to check every part downloaded by this application while it is being " +
+                    "written: MPEG-TS packets must be intact and in order, and the size must match the " +
+                    "response. Corrupt parts are downloaded again right away, up to -rt times. Parts split " +
+                    "by -rf are only checked for size. Has no effect on parts downloaded by ffmpeg itself.";
+
+    public static final String VIRTUAL_THREADS_EXPLANATION =
+            "run blocking work on virtual threads" + System.lineSeparator() +
+                    "Downloads, metadata requests and ffmpeg output are normally handled by thread pools " +
+                    "sized by -mm, -tm and -pm. Use this option to run them on virtual threads instead, which makes " +
+                    "blocking almost free, so -tm can be raised to thousands. Requires Java 21 or later; " +
+                    "older versions ignore this option.";
+
+    public static final String WRITE_BUFFER_EXPLANATION =
+            "size of download buffers in kilobytes" + System.lineSeparator() +
+                    "Downloaded parts are written into files through reusable buffers, one per concurrent " +
+                    "download. Use this option to change their size (64KB by default). Larger buffers mean " +
+                    "fewer writes, but more memory. Invalid values (KB <= 0) will be ignored.";
+
+    public static final String PROGRESS_EXPLANATION =
+            "show a progress line" + System.lineSeparator() +
+                    "Use this option to show a line which is refreshed every second, with downloaded parts " +
+                    "and bytes, current and average speed, ffmpeg speed and ETA of active VoDs. 'disk' shows " +
+                    "how much of the download time was spent writing into files; if it is high, the disk is " +
+                    "slower than the network. Works best with -hd.";
+
+    public static final String PROGRESS_STATUS_EXPLANATION =
+            "write progress into STATUS_FILE" + System.lineSeparator() +
+                    "Same values as -pg, but written as JSON into STATUS_FILE every second, including " +
+                    "progress of every active VoD. The file is replaced as a whole, so it can be read at " +
+                    "any time.";
 
     public static final String LOG_FILE_EXPLANATION =
             "file to log everything into" + System.lineSeparator() +
@@ -6,10 +6,17 @@ import net.sourceforge.argparse4j.inf.Namespace;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 
 import static eu.goodlike.twitch.download.configurations.options.CommandLineKeys.*;
-import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_MAX_NUMBER_OF_THREADS;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_MAX_ACTIVE_VODS;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_MAX_RETRIES;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_METADATA_CACHE_TTL_HOURS;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_SEGMENT_CACHE_SIZE_MB;
 import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_QUALITY_LEVEL;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_RANGED_FETCH_PARTS;
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.DEFAULT_WRITE_BUFFER_SIZE_KB;
 
 /**
  * Parses given namespace into options
@@ -26,6 +33,16 @@ public final class OptionsParser implements OptionsProvider {
         return !arguments.getBoolean(FFMPEG_REPLACE_KEY);
     }
 
+    @Override
+    public boolean isFfmpegPipeEnabled() {
+        return arguments.getBoolean(FFMPEG_PIPE_KEY);
+    }
+
+    @Override
+    public boolean isExternalFfmpegForced() {
+        return arguments.getBoolean(EXTERNAL_FFMPEG_KEY);
+    }
+
     @Override
     public boolean isDebugOutputEnabled() {
         return !arguments.getBoolean(HIDE_DEBUG_KEY);
@@ -46,11 +63,57 @@ public final class OptionsParser implements OptionsProvider {
         return arguments.getBoolean(PLAYLIST_OPTIMIZATION_KEY);
     }
 
+    @Override
+    public OptionalLong getMaxCombinedPartSize() {
+        Long size = arguments.get(COMBINED_SIZE_KEY);
+        return size == null || size <= 0
+                ? OptionalLong.empty()
+                : OptionalLong.of(size);
+    }
+
+    @Override
+    public OptionalInt getMaxCombinedPartDuration() {
+        Integer duration = arguments.getInt(COMBINED_DURATION_KEY);
+        return duration == null || duration <= 0
+                ? OptionalInt.empty()
+                : OptionalInt.of(duration);
+    }
+
+    @Override
+    public boolean isFollowEnabled() {
+        return arguments.getBoolean(FOLLOW_KEY);
+    }
+
     @Override
     public boolean isDefaultToSourceEnabled() {
         return !arguments.getBoolean(SKIP_MISSING_QUALITY_KEY);
     }
 
+    @Override
+    public boolean isResumeEnabled() {
+        return arguments.getBoolean(RESUME_KEY);
+    }
+
+    @Override
+    public boolean isSingleFileEnabled() {
+        return arguments.getBoolean(SINGLE_FILE_KEY);
+    }
+
+    @Override
+    public boolean isSegmentValidationEnabled() {
+        return arguments.getBoolean(VALIDATE_SEGMENTS_KEY);
+    }
+
+    @Override
+    public boolean isVirtualThreadsEnabled() {
+        return arguments.getBoolean(VIRTUAL_THREADS_KEY);
+    }
+
+    @Override
+    public boolean isProgressLineEnabled() {
+        return arguments.getBoolean(PROGRESS_KEY);
+    }
+
     @Override
     public Optional<String> getAdditionalFfmpegOptions() {
         return Optional.ofNullable(arguments.getString(FFMPEG_OPTIONS_KEY))
@@ -63,6 +126,12 @@ public final class OptionsParser implements OptionsProvider {
                 .filter(str -> !str.isEmpty());
     }
 
+    @Override
+    public Optional<String> getProgressStatusFileLocation() {
+        return Optional.ofNullable(arguments.getString(PROGRESS_STATUS_KEY))
+                .filter(str -> !str.isEmpty());
+    }
+
     @Override
     public Optional<String> getOutputFormatOverride() {
         return Optional.ofNullable(arguments.getString(OUTPUT_KEY))
@@ -78,10 +147,101 @@ public final class OptionsParser implements OptionsProvider {
     }
 
     @Override
-    public int getMaxConcurrentThreads() {
-        return Optional.ofNullable(arguments.getInt(THREAD_MAX_KEY))
-                .filter(threads -> threads > 0)
-                .orElse(DEFAULT_MAX_NUMBER_OF_THREADS);
+    public OptionalInt getMaxMetadataRequestsOverride() {
+        return getPositiveInt(METADATA_MAX_KEY);
+    }
+
+    @Override
+    public OptionalInt getMaxDownloadsOverride() {
+        return getPositiveInt(THREAD_MAX_KEY);
+    }
+
+    @Override
+    public OptionalInt getMaxProcessesOverride() {
+        return getPositiveInt(PROCESS_MAX_KEY);
+    }
+
+    @Override
+    public OptionalInt getMaxDiskWritesOverride() {
+        return getPositiveInt(DISK_WRITE_MAX_KEY);
+    }
+
+    @Override
+    public int getRangedFetchParts() {
+        return Optional.ofNullable(arguments.getInt(RANGED_FETCH_KEY))
+                .filter(ranges -> ranges > 1)
+                .orElse(DEFAULT_RANGED_FETCH_PARTS);
+    }
+
+    @Override
+    public OptionalLong getBandwidthLimit() {
+        Long limit = arguments.get(BANDWIDTH_KEY);
+        return limit == null || limit <= 0
+                ? OptionalLong.empty()
+                : OptionalLong.of(limit);
+    }
+
+    @Override
+    public Optional<String> getBandwidthLimitFileLocation() {
+        return Optional.ofNullable(arguments.getString(BANDWIDTH_FILE_KEY))
+                .filter(str -> !str.isEmpty());
+    }
+
+    @Override
+    public int getMaxActiveVods() {
+        return Optional.ofNullable(arguments.getInt(VOD_MAX_KEY))
+                .filter(vods -> vods > 0)
+                .orElse(DEFAULT_MAX_ACTIVE_VODS);
+    }
+
+    @Override
+    public Optional<String> getSchedulingMode() {
+        return Optional.ofNullable(arguments.getString(SCHEDULING_KEY));
+    }
+
+    @Override
+    public Optional<String> getParserEngine() {
+        return Optional.ofNullable(arguments.getString(PARSER_ENGINE_KEY));
+    }
+
+    @Override
+    public int getMaxRetries() {
+        return Optional.ofNullable(arguments.getInt(RETRIES_KEY))
+                .filter(retries -> retries >= 0)
+                .orElse(DEFAULT_MAX_RETRIES);
+    }
+
+    @Override
+    public int getWriteBufferSize() {
+        return Optional.ofNullable(arguments.getInt(WRITE_BUFFER_KEY))
+                .filter(size -> size > 0)
+                .orElse(DEFAULT_WRITE_BUFFER_SIZE_KB);
+    }
+
+    @Override
+    public Optional<String> getSegmentCacheLocation() {
+        return Optional.ofNullable(arguments.getString(CACHE_DIRECTORY_KEY))
+                .filter(str -> !str.isEmpty());
+    }
+
+    @Override
+    public int getSegmentCacheSize() {
+        return Optional.ofNullable(arguments.getInt(CACHE_SIZE_KEY))
+                .filter(size -> size > 0)
+                .orElse(DEFAULT_SEGMENT_CACHE_SIZE_MB);
+    }
+
+    @Override
+    public Optional<String> getMetadataCacheLocation() {
+        return Optional.ofNullable(arguments.getString(METADATA_CACHE_KEY))
+                .filter(str -> !str.isEmpty());
+    }
+
+    @Override
+    public int getMetadataCacheTtl() {
+        return Optional.ofNullable(arguments.getInt(METADATA_CACHE_TTL_KEY))
+                .filter(hours -> hours > 0)
+                .orElse(DEFAULT_METADATA_CACHE_TTL_HOURS);
     }
 
     @Override
@@ -107,4 +267,11 @@ public final class OptionsParser implements OptionsProvider {
 
     private final Namespace arguments;
 
+    private OptionalInt getPositiveInt(String key) {
+        Integer value = arguments.getInt(key);
+        return value == null || value <= 0
+                ? OptionalInt.empty()
+                : OptionalInt.of(value);
+    }
+
 }
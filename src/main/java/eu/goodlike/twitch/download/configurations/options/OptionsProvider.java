@@ -2,6 +2,8 @@ package eu.goodlike.twitch.download.configurations.options;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
 
 /**
  * <pre>
@@ -22,6 +24,18 @@ public interface OptionsProvider {
      */
     boolean isFfmpegAppendEnabled();
 
+    /**
+     * @return true if parts should be downloaded by this application and piped into ffmpeg, false if ffmpeg should
+     * download them itself
+     */
+    boolean isFfmpegPipeEnabled();
+
+    /**
+     * @return true if ffmpeg should be used even when the streams are only copied, false if this application can
+     * remux them itself instead
+     */
+    boolean isExternalFfmpegForced();
+
     /**
      * @return true if debug output should be logged to console, false otherwise
      */
@@ -42,11 +56,52 @@ public interface OptionsProvider {
      */
     boolean isPlaylistOptimizationEnabled();
 
+    /**
+     * @return max size in bytes of a combined playlist part, OptionalLong::empty if none was given
+     */
+    OptionalLong getMaxCombinedPartSize();
+
+    /**
+     * @return max duration in seconds of a combined playlist part, OptionalInt::empty if none was given
+     */
+    OptionalInt getMaxCombinedPartDuration();
+
+    /**
+     * @return true if playlists of VoDs which are still being broadcast should be followed until they end, false if
+     * only the parts which exist at the start should be downloaded
+     */
+    boolean isFollowEnabled();
+
     /**
      * @return true if missing qualities should default to source, false if they should just be skipped instead
      */
     boolean isDefaultToSourceEnabled();
 
+    /**
+     * @return true if interrupted part downloads should be resumed, false if they should be started anew
+     */
+    boolean isResumeEnabled();
+
+    /**
+     * @return true if parts should be downloaded into a single file, false if each part should be a separate file
+     */
+    boolean isSingleFileEnabled();
+
+    /**
+     * @return true if downloaded segments should be validated while they are written, false otherwise
+     */
+    boolean isSegmentValidationEnabled();
+
+    /**
+     * @return true if blocking work should run on virtual threads, false if thread pools should be used
+     */
+    boolean isVirtualThreadsEnabled();
+
+    /**
+     * @return true if a progress line should be shown on the console, false otherwise
+     */
+    boolean isProgressLineEnabled();
+
     /**
      * @return additional ffmpeg options, Optional::empty if none were given
      */
@@ -57,6 +112,11 @@ public interface OptionsProvider {
      */
     Optional<String> getLogFileLocation();
 
+    /**
+     * @return location of file to write progress status into, Optional::empty if none was given
+     */
+    Optional<String> getProgressStatusFileLocation();
+
     /**
      * @return custom output file format, Optional::empty if none was given
      */
@@ -68,9 +128,84 @@ public interface OptionsProvider {
     String getQualityLevel();
 
     /**
-     * @return max concurrent ffmpeg/download executions, using default value if necessary
+     * @return max concurrent twitch API requests, OptionalInt::empty if none was given
+     */
+    OptionalInt getMaxMetadataRequestsOverride();
+
+    /**
+     * @return max concurrent part downloads, OptionalInt::empty if none was given
+     */
+    OptionalInt getMaxDownloadsOverride();
+
+    /**
+     * @return max concurrent ffmpeg processes, OptionalInt::empty if none was given
+     */
+    OptionalInt getMaxProcessesOverride();
+
+    /**
+     * @return max concurrent disk writes, OptionalInt::empty if none was given
+     */
+    OptionalInt getMaxDiskWritesOverride();
+
+    /**
+     * @return max amount of bytes per second to download, OptionalLong::empty if downloads should not be limited
+     */
+    OptionalLong getBandwidthLimit();
+
+    /**
+     * @return location of file to read bandwidth limit from while running, Optional::empty if none was given
+     */
+    Optional<String> getBandwidthLimitFileLocation();
+
+    /**
+     * @return max number of VoDs downloading at the same time, using default value if necessary
+     */
+    int getMaxActiveVods();
+
+    /**
+     * @return name of the scheduling mode for VoDs, Optional::empty if none was given
+     */
+    Optional<String> getSchedulingMode();
+
+    /**
+     * @return name of the engine which parses playlists, Optional::empty if none was given
+     */
+    Optional<String> getParserEngine();
+
+    /**
+     * @return max number of times a failed http request should be retried, using default value if necessary
+     */
+    int getMaxRetries();
+
+    /**
+     * @return amount of byte ranges a single part can be split into when downloading, using default value if necessary
+     */
+    int getRangedFetchParts();
+
+    /**
+     * @return size of download buffers in kilobytes, using default value if necessary
+     */
+    int getWriteBufferSize();
+
+    /**
+     * @return location of the segment cache directory, Optional::empty if none was given
+     */
+    Optional<String> getSegmentCacheLocation();
+
+    /**
+     * @return max size of the segment cache in megabytes, using default value if necessary
+     */
+    int getSegmentCacheSize();
+
+    /**
+     * @return location of the metadata cache directory, Optional::empty if none was given
+     */
+    Optional<String> getMetadataCacheLocation();
+
+    /**
+     * @return hours for which metadata is cached, using default value if necessary
      */
-    int getMaxConcurrentThreads();
+    int getMetadataCacheTtl();
 
     /**
      * @return VoD ids to download, including links, files or ids themselves
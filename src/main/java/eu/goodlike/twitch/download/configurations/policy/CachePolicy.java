@@ -0,0 +1,79 @@
+package eu.goodlike.twitch.download.configurations.policy;
+
+import eu.goodlike.io.FileUtils;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Defines configurations for local caches
+ */
+public final class CachePolicy {
+
+    /**
+     * @return directory of the segment cache, Optional::empty if segments should not be cached
+     */
+    public Optional<Path> getSegmentCacheDirectory() {
+        return segmentCacheDirectory;
+    }
+
+    /**
+     * @return max amount of bytes the segment cache can take up
+     */
+    public long getSegmentCacheSize() {
+        return segmentCacheSize;
+    }
+
+    /**
+     * @return directory of the metadata cache, Optional::empty if metadata should only be cached in memory
+     */
+    public Optional<Path> getMetadataCacheDirectory() {
+        return metadataCacheDirectory;
+    }
+
+    /**
+     * @return amount of milliseconds for which metadata is cached
+     */
+    public long getMetadataCacheTtl() {
+        return metadataCacheTtl;
+    }
+
+    // CONSTRUCTORS
+
+    public static CachePolicy from(OptionsProvider optionsProvider) {
+        Null.check(optionsProvider).ifAny("Options provider cannot be null");
+        return new CachePolicy(optionsProvider.getSegmentCacheLocation().flatMap(FileUtils::getPath),
+                optionsProvider.getSegmentCacheSize() * 1024L * 1024L,
+                optionsProvider.getMetadataCacheLocation().flatMap(FileUtils::getPath),
+                TimeUnit.HOURS.toMillis(optionsProvider.getMetadataCacheTtl()));
+    }
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public CachePolicy(Optional<Path> segmentCacheDirectory, long segmentCacheSize,
+                       Optional<Path> metadataCacheDirectory, long metadataCacheTtl) {
+        Null.check(segmentCacheDirectory, metadataCacheDirectory)
+                .ifAny("Segment cache directory and metadata cache directory Optionals cannot be null");
+        if (segmentCacheSize < 1)
+            throw new IllegalArgumentException("Segment cache size can only be positive, not: " + segmentCacheSize);
+        if (metadataCacheTtl < 1)
+            throw new IllegalArgumentException("Metadata cache TTL can only be positive, not: " + metadataCacheTtl);
+
+        this.segmentCacheDirectory = segmentCacheDirectory;
+        this.segmentCacheSize = segmentCacheSize;
+        this.metadataCacheDirectory = metadataCacheDirectory;
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    // PRIVATE
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> segmentCacheDirectory;
+    private final long segmentCacheSize;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> metadataCacheDirectory;
+    private final long metadataCacheTtl;
+
+}
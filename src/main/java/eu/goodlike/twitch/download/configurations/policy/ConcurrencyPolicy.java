@@ -1,7 +1,16 @@
 package eu.goodlike.twitch.download.configurations.policy;
 
+import eu.goodlike.io.FileUtils;
 import eu.goodlike.neat.Null;
 import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
+import eu.goodlike.twitch.download.configurations.settings.SettingsProvider;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.*;
 
 /**
  * Defines configurations for concurrent execution
@@ -9,28 +18,176 @@ import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
 public final class ConcurrencyPolicy {
 
     /**
-     * @return number of concurrent ffmpeg executions/downloads
+     * @return max number of concurrent twitch API requests (tokens, metadata, master playlists)
+     */
+    public int getMaxMetadataRequests() {
+        return maxMetadataRequests;
+    }
+
+    /**
+     * @return max number of concurrent part/playlist downloads from the CDN
+     */
+    public int getMaxDownloads() {
+        return maxDownloads;
+    }
+
+    /**
+     * @return max number of concurrent ffmpeg processes
+     */
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    /**
+     * @return max number of downloads which can be writing into files at the same time
      */
-    public int getMaxConcurrentThreads() {
-        return maxConcurrentThreads;
+    public int getMaxDiskWrites() {
+        return maxDiskWrites;
+    }
+
+    /**
+     * @return max number of parts which can be downloaded ahead of the part which is being piped into a process
+     */
+    public int getPipeWindowSize() {
+        return maxDownloads * PIPE_WINDOW_PARTS_PER_DOWNLOAD;
+    }
+
+    /**
+     * @return max number of byte ranges a single part can be split into when downloading; 1 means parts are never split
+     */
+    public int getRangedFetchParts() {
+        return rangedFetchParts;
+    }
+
+    /**
+     * @return true if blocking work (downloads, metadata requests, process output) should run on virtual threads
+     * when the runtime supports them, false if thread pools sized by the budget of each stage should be used
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return virtualThreadsEnabled;
+    }
+
+    /**
+     * @return max amount of bytes per second all downloads can transfer together, OptionalLong::empty if unlimited
+     */
+    public OptionalLong getBandwidthLimit() {
+        return bandwidthLimit;
+    }
+
+    /**
+     * @return file which the bandwidth limit should be read from while running, Optional::empty if none
+     */
+    public Optional<Path> getBandwidthLimitFile() {
+        return bandwidthLimitFile;
+    }
+
+    /**
+     * @return max number of VoDs which can be downloading at the same time; playlists of as many following VoDs are
+     * fetched ahead of time
+     */
+    public int getMaxActiveVods() {
+        return maxActiveVods;
+    }
+
+    /**
+     * @return order in which VoDs are started, and how their parts share concurrent downloads
+     */
+    public SchedulingMode getSchedulingMode() {
+        return schedulingMode;
     }
 
     // CONSTRUCTORS
 
-    public static ConcurrencyPolicy from(OptionsProvider optionsProvider) {
-        Null.check(optionsProvider).ifAny("Options provider cannot be null");
-        return new ConcurrencyPolicy(optionsProvider.getMaxConcurrentThreads());
+    public static ConcurrencyPolicy from(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
+        Null.check(settingsProvider, optionsProvider).ifAny("Settings and options providers cannot be null");
+        return new ConcurrencyPolicy(
+                getBudget(optionsProvider.getMaxMetadataRequestsOverride(),
+                        settingsProvider.getMaxMetadataRequestsSetting(), DEFAULT_MAX_METADATA_REQUESTS),
+                getBudget(optionsProvider.getMaxDownloadsOverride(),
+                        settingsProvider.getMaxDownloadsSetting(), DEFAULT_MAX_DOWNLOADS),
+                getBudget(optionsProvider.getMaxProcessesOverride(),
+                        settingsProvider.getMaxProcessesSetting(), DEFAULT_MAX_PROCESSES),
+                getBudget(optionsProvider.getMaxDiskWritesOverride(),
+                        settingsProvider.getMaxDiskWritesSetting(), DEFAULT_MAX_DISK_WRITES),
+                optionsProvider.getRangedFetchParts(),
+                optionsProvider.isVirtualThreadsEnabled(), optionsProvider.getBandwidthLimit(),
+                optionsProvider.getBandwidthLimitFileLocation().flatMap(FileUtils::getPath),
+                optionsProvider.getMaxActiveVods(),
+                optionsProvider.getSchedulingMode().flatMap(SchedulingMode::fromOptionName).orElse(SchedulingMode.FIFO));
     }
 
-    public ConcurrencyPolicy(int maxConcurrentThreads) {
-        if (maxConcurrentThreads < 1)
-            throw new IllegalArgumentException("Thread count can only be positive, not: " + maxConcurrentThreads);
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public ConcurrencyPolicy(int maxMetadataRequests, int maxDownloads, int maxProcesses, int maxDiskWrites,
+                             int rangedFetchParts, boolean virtualThreadsEnabled,
+                             OptionalLong bandwidthLimit, Optional<Path> bandwidthLimitFile, int maxActiveVods,
+                             SchedulingMode schedulingMode) {
+        Null.check(bandwidthLimit, bandwidthLimitFile, schedulingMode)
+                .ifAny("Bandwidth limit Optionals and scheduling mode cannot be null");
+        if (maxMetadataRequests < 1)
+            throw new IllegalArgumentException("Metadata request count can only be positive, not: " + maxMetadataRequests);
 
-        this.maxConcurrentThreads = maxConcurrentThreads;
+        if (maxDownloads < 1)
+            throw new IllegalArgumentException("Download count can only be positive, not: " + maxDownloads);
+
+        if (maxProcesses < 1)
+            throw new IllegalArgumentException("Process count can only be positive, not: " + maxProcesses);
+
+        if (maxDiskWrites < 1)
+            throw new IllegalArgumentException("Disk write count can only be positive, not: " + maxDiskWrites);
+
+        if (rangedFetchParts < 1)
+            throw new IllegalArgumentException("Range count can only be positive, not: " + rangedFetchParts);
+
+        if (maxActiveVods < 1)
+            throw new IllegalArgumentException("Active VoD count can only be positive, not: " + maxActiveVods);
+
+        this.maxMetadataRequests = maxMetadataRequests;
+        this.maxDownloads = maxDownloads;
+        this.maxProcesses = maxProcesses;
+        this.maxDiskWrites = maxDiskWrites;
+        this.rangedFetchParts = rangedFetchParts;
+        this.virtualThreadsEnabled = virtualThreadsEnabled;
+        this.bandwidthLimit = bandwidthLimit;
+        this.bandwidthLimitFile = bandwidthLimitFile;
+        this.maxActiveVods = maxActiveVods;
+        this.schedulingMode = schedulingMode;
     }
 
     // PRIVATE
 
-    private final int maxConcurrentThreads;
+    private final int maxMetadataRequests;
+    private final int maxDownloads;
+    private final int maxProcesses;
+    private final int maxDiskWrites;
+    private final int rangedFetchParts;
+    private final boolean virtualThreadsEnabled;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final OptionalLong bandwidthLimit;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> bandwidthLimitFile;
+    private final int maxActiveVods;
+    private final SchedulingMode schedulingMode;
+
+    private static final int PIPE_WINDOW_PARTS_PER_DOWNLOAD = 2;
+
+    /**
+     * Command line option takes precedence over the setting; invalid values (non-numeric or not positive) are ignored
+     */
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private static int getBudget(OptionalInt override, Optional<String> setting, int defaultBudget) {
+        if (override.isPresent())
+            return override.getAsInt();
+
+        return setting.flatMap(ConcurrencyPolicy::parseBudget).orElse(defaultBudget);
+    }
+
+    private static Optional<Integer> parseBudget(String budget) {
+        try {
+            return Optional.of(Integer.parseInt(budget.trim()))
+                    .filter(value -> value > 0);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
 
 }
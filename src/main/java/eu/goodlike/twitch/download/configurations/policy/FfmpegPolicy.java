@@ -28,6 +28,22 @@ public final class FfmpegPolicy {
         return ffmpegOptions;
     }
 
+    /**
+     * @return true if parts should be downloaded by this application and piped into ffmpeg, false if ffmpeg should
+     * download them itself using a playlist file
+     */
+    public boolean isPipeEnabled() {
+        return pipeEnabled;
+    }
+
+    /**
+     * @return true if ffmpeg options only copy the streams without changing them, and ffmpeg was not explicitly
+     * requested, which means the parts can be remuxed by this application without ffmpeg, false otherwise
+     */
+    public boolean isBuiltInRemuxEnabled() {
+        return builtInRemuxEnabled;
+    }
+
     // CONSTRUCTORS
 
     public static FfmpegPolicy from(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
@@ -44,24 +60,62 @@ public final class FfmpegPolicy {
         if (optionsProvider.isFfmpegAppendEnabled() || options.isEmpty())
             options.addAll(parseOptions(settingsProvider.getFfmpegOptionsSetting()));
 
-        return new FfmpegPolicy(true, options);
+        boolean builtInRemuxEnabled = !optionsProvider.isExternalFfmpegForced() && isStreamCopyOnly(options);
+        return new FfmpegPolicy(true, options, optionsProvider.isFfmpegPipeEnabled(), builtInRemuxEnabled);
     }
 
     public static FfmpegPolicy ffmpegDisabled() {
-        return new FfmpegPolicy(false, Collections.emptyList());
+        return new FfmpegPolicy(false, Collections.emptyList(), false, false);
     }
 
-    public FfmpegPolicy(boolean ffmpegEnabled, List<String> ffmpegOptions) {
+    public FfmpegPolicy(boolean ffmpegEnabled, List<String> ffmpegOptions, boolean pipeEnabled,
+                        boolean builtInRemuxEnabled) {
         Null.checkList(ffmpegOptions).ifAny("Ffmpeg options cannot be or contain null");
 
         this.ffmpegEnabled = ffmpegEnabled;
         this.ffmpegOptions = ImmutableList.copyOf(ffmpegOptions);
+        this.pipeEnabled = pipeEnabled;
+        this.builtInRemuxEnabled = builtInRemuxEnabled;
     }
 
     // PRIVATE
 
     private final boolean ffmpegEnabled;
     private final List<String> ffmpegOptions;
+    private final boolean pipeEnabled;
+    private final boolean builtInRemuxEnabled;
+
+    /**
+     * @return true if given options consist only of stream copy flags and ADTS to ASC conversion, and copy both audio
+     * and video; any other option (i.e. trimming, filters, encoders) requires ffmpeg
+     */
+    private static boolean isStreamCopyOnly(List<String> options) {
+        if (options.size() % 2 != 0)
+            return false;
+
+        boolean videoCopied = false;
+        boolean audioCopied = false;
+        for (int i = 0; i < options.size(); i += 2) {
+            String option = options.get(i);
+            String value = options.get(i + 1);
+            if (option.equals(AUDIO_BITSTREAM_FILTER_OPTION) && value.equals(ADTS_TO_ASC_FILTER))
+                continue;
+
+            if (!value.equals(COPY_CODEC))
+                return false;
+
+            if (ANY_COPY_OPTIONS.contains(option)) {
+                videoCopied = true;
+                audioCopied = true;
+            } else if (VIDEO_COPY_OPTIONS.contains(option))
+                videoCopied = true;
+            else if (AUDIO_COPY_OPTIONS.contains(option))
+                audioCopied = true;
+            else
+                return false;
+        }
+        return videoCopied && audioCopied;
+    }
 
     private static List<String> parseOptions(String optionString) {
         optionString = optionString.trim();
@@ -91,4 +145,11 @@ public final class FfmpegPolicy {
         return listBuilder.build();
     }
 
+    private static final String AUDIO_BITSTREAM_FILTER_OPTION = "-bsf:a";
+    private static final String ADTS_TO_ASC_FILTER = "aac_adtstoasc";
+    private static final String COPY_CODEC = "copy";
+    private static final List<String> ANY_COPY_OPTIONS = ImmutableList.of("-c", "-codec");
+    private static final List<String> VIDEO_COPY_OPTIONS = ImmutableList.of("-c:v", "-codec:v", "-vcodec");
+    private static final List<String> AUDIO_COPY_OPTIONS = ImmutableList.of("-c:a", "-codec:a", "-acodec");
+
 }
@@ -1,6 +1,7 @@
 package eu.goodlike.twitch.download.configurations.policy;
 
 import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
 import eu.goodlike.twitch.download.configurations.settings.SettingsProvider;
 
 import java.util.Optional;
@@ -24,19 +25,39 @@ public final class HttpRequestPolicy {
         return oauth;
     }
 
+    /**
+     * @return max number of times a request which failed in a retryable way should be repeated
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @return true if downloaded segments should be validated while they are written, and downloaded again if they
+     * turn out to be corrupt, false otherwise
+     */
+    public boolean isSegmentValidationEnabled() {
+        return segmentValidationEnabled;
+    }
+
     // CONSTRUCTORS
 
-    public static HttpRequestPolicy from(SettingsProvider settingsProvider) {
-        Null.check(settingsProvider).ifAny("Settings cannot be null");
-        return new HttpRequestPolicy(settingsProvider.getClientIdSetting(), settingsProvider.getOauthSetting());
+    public static HttpRequestPolicy from(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
+        Null.check(settingsProvider, optionsProvider).ifAny("Settings and options cannot be null");
+        return new HttpRequestPolicy(settingsProvider.getClientIdSetting(), settingsProvider.getOauthSetting(),
+                optionsProvider.getMaxRetries(), optionsProvider.isSegmentValidationEnabled());
     }
 
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-    public HttpRequestPolicy(String clientId, Optional<String> oauth) {
+    public HttpRequestPolicy(String clientId, Optional<String> oauth, int maxRetries, boolean segmentValidationEnabled) {
         Null.check(clientId, oauth).ifAny("Cliend id and oauth Optional cannot be null");
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("Retry count cannot be negative: " + maxRetries);
 
         this.clientId = clientId;
         this.oauth = oauth;
+        this.maxRetries = maxRetries;
+        this.segmentValidationEnabled = segmentValidationEnabled;
     }
 
     // PRIVATE
@@ -44,5 +65,7 @@ public final class HttpRequestPolicy {
     private final String clientId;
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     private final Optional<String> oauth;
+    private final int maxRetries;
+    private final boolean segmentValidationEnabled;
 
 }
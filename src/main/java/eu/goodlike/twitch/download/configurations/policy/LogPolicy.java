@@ -1,10 +1,12 @@
 package eu.goodlike.twitch.download.configurations.policy;
 
+import eu.goodlike.io.FileUtils;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.io.log.CustomizedLoggers;
 import eu.goodlike.neat.Null;
 import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +32,20 @@ public final class LogPolicy {
         return processLogger;
     }
 
+    /**
+     * @return true if a progress line should be shown on the console, false otherwise
+     */
+    public boolean isProgressLineEnabled() {
+        return progressLineEnabled;
+    }
+
+    /**
+     * @return file which progress status should be written into, Optional::empty if none
+     */
+    public Optional<Path> getProgressStatusFile() {
+        return progressStatusFile;
+    }
+
     // CONSTRUCTORS
 
     public static LogPolicy from(OptionsProvider optionsProvider) {
@@ -48,19 +64,29 @@ public final class LogPolicy {
 
         fileLogger.ifPresent(debugLoggers::add);
         fileLogger.ifPresent(processLoggers::add);
-        return new LogPolicy(CustomizedLoggers.combine(debugLoggers), CustomizedLoggers.combine(processLoggers));
+        return new LogPolicy(CustomizedLoggers.combine(debugLoggers), CustomizedLoggers.combine(processLoggers),
+                optionsProvider.isProgressLineEnabled(),
+                optionsProvider.getProgressStatusFileLocation().flatMap(FileUtils::getPath));
     }
 
-    public LogPolicy(CustomizedLogger debugLogger, CustomizedLogger processLogger) {
-        Null.check(debugLogger, processLogger).ifAny("Loggers cannot be null");
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public LogPolicy(CustomizedLogger debugLogger, CustomizedLogger processLogger, boolean progressLineEnabled,
+                     Optional<Path> progressStatusFile) {
+        Null.check(debugLogger, processLogger, progressStatusFile)
+                .ifAny("Loggers and progress status file Optional cannot be null");
 
         this.debugLogger = debugLogger;
         this.processLogger = processLogger;
+        this.progressLineEnabled = progressLineEnabled;
+        this.progressStatusFile = progressStatusFile;
     }
 
     // PRIVATE
 
     private final CustomizedLogger debugLogger;
     private final CustomizedLogger processLogger;
+    private final boolean progressLineEnabled;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> progressStatusFile;
 
 }
@@ -17,6 +17,13 @@ public final class OutputPolicy {
         return outputFormat;
     }
 
+    /**
+     * @return true if output format produces .mp4 files, false otherwise
+     */
+    public boolean isMp4Output() {
+        return Files.getFileExtension(outputFormat).equalsIgnoreCase(MP4_EXTENSION);
+    }
+
     /**
      * @return output format to be used for output folder (when ffmpeg is off)
      */
@@ -24,21 +31,64 @@ public final class OutputPolicy {
         return Files.getNameWithoutExtension(outputFormat);
     }
 
+    /**
+     * @return output format to be used for single output file (when ffmpeg is off)
+     */
+    public String getOutputSingleFileFormat() {
+        return Files.getNameWithoutExtension(outputFormat) + SINGLE_FILE_EXTENSION;
+    }
+
+    /**
+     * @return true if parts should be downloaded into a single output file (when ffmpeg is off), false if they should
+     * be downloaded into an output folder instead
+     */
+    public boolean isSingleFileEnabled() {
+        return singleFileEnabled;
+    }
+
+    /**
+     * @return true if existing output folder should be reused to resume the download (when ffmpeg is off), false if
+     * a new folder should be created instead
+     */
+    public boolean isResumeEnabled() {
+        return resumeEnabled;
+    }
+
+    /**
+     * @return size in bytes of buffers used to write downloaded parts into files
+     */
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
     // CONSTRUCTORS
 
     public static OutputPolicy from(SettingsProvider settingsProvider, OptionsProvider optionsProvider) {
         Null.check(settingsProvider, optionsProvider).ifAny("Settings and options providers cannot be null");
-        return new OutputPolicy(optionsProvider.getOutputFormatOverride().orElse(settingsProvider.getOutputFormatSetting()));
+        return new OutputPolicy(optionsProvider.getOutputFormatOverride().orElse(settingsProvider.getOutputFormatSetting()),
+                optionsProvider.isSingleFileEnabled(), optionsProvider.isResumeEnabled(),
+                optionsProvider.getWriteBufferSize() * 1024);
     }
 
-    public OutputPolicy(String outputFormat) {
+    public OutputPolicy(String outputFormat, boolean singleFileEnabled, boolean resumeEnabled, int writeBufferSize) {
         Null.check(outputFormat).ifAny("Output format cannot be null");
+        if (writeBufferSize < 1)
+            throw new IllegalArgumentException("Write buffer size can only be positive, not: " + writeBufferSize);
 
         this.outputFormat = outputFormat;
+        this.singleFileEnabled = singleFileEnabled;
+        this.resumeEnabled = resumeEnabled;
+        this.writeBufferSize = writeBufferSize;
     }
 
     // PRIVATE
 
     private final String outputFormat;
+    private final boolean singleFileEnabled;
+    private final boolean resumeEnabled;
+    private final int writeBufferSize;
+
+    private static final String SINGLE_FILE_EXTENSION = ".ts";
+    private static final String MP4_EXTENSION = "mp4";
 
 }
@@ -0,0 +1,48 @@
+package eu.goodlike.twitch.download.configurations.policy;
+
+import java.util.Optional;
+
+/**
+ * Defines which parser reads M3U8 playlists; all of them produce the same playlists
+ */
+public enum ParserEngine {
+
+    /**
+     * Reads bytes straight from the response, parsing durations and offsets in place
+     */
+    STREAMING("streaming"),
+
+    /**
+     * Reads lines with a Scanner and resolves every segment link as an http url
+     */
+    SCANNER("scanner");
+
+    /**
+     * @return name of this engine, as used in options
+     */
+    public String getOptionName() {
+        return optionName;
+    }
+
+    /**
+     * @return engine with given option name, Optional::empty if there is no such engine
+     */
+    public static Optional<ParserEngine> fromOptionName(String optionName) {
+        for (ParserEngine engine : values())
+            if (engine.optionName.equalsIgnoreCase(optionName))
+                return Optional.of(engine);
+
+        return Optional.empty();
+    }
+
+    // CONSTRUCTORS
+
+    ParserEngine(String optionName) {
+        this.optionName = optionName;
+    }
+
+    // PRIVATE
+
+    private final String optionName;
+
+}
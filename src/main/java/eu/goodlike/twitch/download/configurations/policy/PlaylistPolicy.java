@@ -3,6 +3,9 @@ package eu.goodlike.twitch.download.configurations.policy;
 import eu.goodlike.neat.Null;
 import eu.goodlike.twitch.download.configurations.options.OptionsProvider;
 
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
 /**
  * Defines configurations for playlist management
  */
@@ -22,6 +25,20 @@ public final class PlaylistPolicy {
         return combinePlaylistPartsEnabled;
     }
 
+    /**
+     * @return max size in bytes of a part combined by playlist optimization, OptionalLong::empty if unlimited
+     */
+    public OptionalLong getMaxCombinedPartSize() {
+        return maxCombinedPartSize;
+    }
+
+    /**
+     * @return max duration in seconds of a part combined by playlist optimization, OptionalInt::empty if unlimited
+     */
+    public OptionalInt getMaxCombinedPartDuration() {
+        return maxCombinedPartDuration;
+    }
+
     /**
      * @return true if playlist should be deleted afterwards, false otherwise
      */
@@ -36,6 +53,20 @@ public final class PlaylistPolicy {
         return qualityLevel;
     }
 
+    /**
+     * @return parser engine which should be used to read playlists
+     */
+    public ParserEngine getParserEngine() {
+        return parserEngine;
+    }
+
+    /**
+     * @return true if playlists should be followed until they end, false if they should only be fetched once
+     */
+    public boolean isFollowEnabled() {
+        return followEnabled;
+    }
+
     // CONSTRUCTORS
 
     public static PlaylistPolicy from(OptionsProvider optionsProvider) {
@@ -43,26 +74,44 @@ public final class PlaylistPolicy {
         return new PlaylistPolicy(
                 optionsProvider.isDefaultToSourceEnabled(),
                 optionsProvider.isPlaylistOptimizationEnabled(),
+                optionsProvider.getMaxCombinedPartSize(),
+                optionsProvider.getMaxCombinedPartDuration(),
                 optionsProvider.isPlaylistCleanEnabled(),
-                optionsProvider.getQualityLevel()
+                optionsProvider.getQualityLevel(),
+                optionsProvider.getParserEngine().flatMap(ParserEngine::fromOptionName).orElse(ParserEngine.STREAMING),
+                optionsProvider.isFollowEnabled()
         );
     }
 
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     public PlaylistPolicy(boolean defaultToSourceEnabled, boolean combinePlaylistPartsEnabled,
-                          boolean cleanupPlaylistEnabled, String qualityLevel) {
-        Null.check(qualityLevel).ifAny("Quality level cannot be null");
+                          OptionalLong maxCombinedPartSize, OptionalInt maxCombinedPartDuration,
+                          boolean cleanupPlaylistEnabled, String qualityLevel, ParserEngine parserEngine,
+                          boolean followEnabled) {
+        Null.check(maxCombinedPartSize, maxCombinedPartDuration, qualityLevel, parserEngine)
+                .ifAny("Max combined part size and duration Optionals, quality level and parser engine cannot be null");
 
         this.defaultToSourceEnabled = defaultToSourceEnabled;
         this.combinePlaylistPartsEnabled = combinePlaylistPartsEnabled;
+        this.maxCombinedPartSize = maxCombinedPartSize;
+        this.maxCombinedPartDuration = maxCombinedPartDuration;
         this.cleanupPlaylistEnabled = cleanupPlaylistEnabled;
         this.qualityLevel = qualityLevel;
+        this.parserEngine = parserEngine;
+        this.followEnabled = followEnabled;
     }
 
     // PRIVATE
 
     private final boolean defaultToSourceEnabled;
     private final boolean combinePlaylistPartsEnabled;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final OptionalLong maxCombinedPartSize;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final OptionalInt maxCombinedPartDuration;
     private final boolean cleanupPlaylistEnabled;
     private final String qualityLevel;
+    private final ParserEngine parserEngine;
+    private final boolean followEnabled;
 
 }
@@ -0,0 +1,54 @@
+package eu.goodlike.twitch.download.configurations.policy;
+
+import java.util.Optional;
+
+/**
+ * Defines the order in which VoDs are downloaded, and how their parts share concurrent downloads
+ */
+public enum SchedulingMode {
+
+    /**
+     * VoDs start in input order; parts are downloaded in the order they are requested, so earlier VoDs finish first
+     */
+    FIFO("fifo"),
+
+    /**
+     * Out of the VoDs whose playlists are already known, the shortest one starts first; parts are downloaded in the
+     * order they are requested
+     */
+    SHORTEST_FIRST("shortest"),
+
+    /**
+     * VoDs start in input order; every active VoD takes turns downloading its parts, so they progress evenly
+     */
+    FAIR_SHARE("fair");
+
+    /**
+     * @return name of this mode, as used in options
+     */
+    public String getOptionName() {
+        return optionName;
+    }
+
+    /**
+     * @return mode with given option name, Optional::empty if there is no such mode
+     */
+    public static Optional<SchedulingMode> fromOptionName(String optionName) {
+        for (SchedulingMode mode : values())
+            if (mode.optionName.equalsIgnoreCase(optionName))
+                return Optional.of(mode);
+
+        return Optional.empty();
+    }
+
+    // CONSTRUCTORS
+
+    SchedulingMode(String optionName) {
+        this.optionName = optionName;
+    }
+
+    // PRIVATE
+
+    private final String optionName;
+
+}
@@ -46,6 +46,26 @@ public final class SettingsParser implements SettingsProvider {
         return Optionals.firstNotEmpty(getValue(OAUTH_KEY), DEFAULT_SETTINGS_PROVIDER.getOauthSetting());
     }
 
+    @Override
+    public Optional<String> getMaxMetadataRequestsSetting() {
+        return getValue(METADATA_MAX_KEY);
+    }
+
+    @Override
+    public Optional<String> getMaxDownloadsSetting() {
+        return getValue(DOWNLOADS_MAX_KEY);
+    }
+
+    @Override
+    public Optional<String> getMaxProcessesSetting() {
+        return getValue(PROCESSES_MAX_KEY);
+    }
+
+    @Override
+    public Optional<String> getMaxDiskWritesSetting() {
+        return getValue(DISK_WRITES_MAX_KEY);
+    }
+
     // CONSTRUCTORS
 
     /**
@@ -96,6 +116,10 @@ public final class SettingsParser implements SettingsProvider {
     private static final String OUTPUT_FORMAT_KEY = "output_format";
     private static final String CLIENT_ID_KEY = "client_id";
     private static final String OAUTH_KEY = "oauth";
+    private static final String METADATA_MAX_KEY = "metadata_max";
+    private static final String DOWNLOADS_MAX_KEY = "downloads_max";
+    private static final String PROCESSES_MAX_KEY = "processes_max";
+    private static final String DISK_WRITES_MAX_KEY = "disk_writes_max";
 
     private static final SettingsProvider DEFAULT_SETTINGS_PROVIDER = new DefaultSettingsProvider();
 
@@ -124,6 +148,26 @@ public final class SettingsParser implements SettingsProvider {
         public Optional<String> getOauthSetting() {
             return Optional.empty();
         }
+
+        @Override
+        public Optional<String> getMaxMetadataRequestsSetting() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getMaxDownloadsSetting() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getMaxProcessesSetting() {
+            return Optional.empty();
+        }
+
+        @Override
+        public Optional<String> getMaxDiskWritesSetting() {
+            return Optional.empty();
+        }
     }
 
 }
@@ -37,4 +37,26 @@ public interface SettingsProvider {
      */
     Optional<String> getOauthSetting();
 
+    /**
+     * @return max concurrent twitch API requests setting as found on the properties file, Optional::empty if none was
+     * found
+     */
+    Optional<String> getMaxMetadataRequestsSetting();
+
+    /**
+     * @return max concurrent part downloads setting as found on the properties file, Optional::empty if none was found
+     */
+    Optional<String> getMaxDownloadsSetting();
+
+    /**
+     * @return max concurrent ffmpeg processes setting as found on the properties file, Optional::empty if none was
+     * found
+     */
+    Optional<String> getMaxProcessesSetting();
+
+    /**
+     * @return max concurrent disk writes setting as found on the properties file, Optional::empty if none was found
+     */
+    Optional<String> getMaxDiskWritesSetting();
+
 }
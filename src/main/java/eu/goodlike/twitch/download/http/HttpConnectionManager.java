@@ -0,0 +1,119 @@
+package eu.goodlike.twitch.download.http;
+
+import com.google.common.collect.ImmutableSet;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.libraries.okhttp.HttpClients;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * <pre>
+ * Manages http clients and their connections
+ *
+ * Requests to twitch API hosts and to CDN hosts use separate clients, so their connection pools and dispatcher limits
+ * do not affect each other; the CDN client is sized for the amount of concurrent downloads
+ * </pre>
+ */
+public final class HttpConnectionManager implements AutoCloseable {
+
+    /**
+     * @return client which should be used to make requests to given url
+     * @throws NullPointerException if url is null
+     */
+    public OkHttpClient getClient(HttpUrl url) {
+        Null.check(url).ifAny("Url cannot be null");
+        return API_HOSTS.contains(url.host()) ? apiClient : cdnClient;
+    }
+
+    /**
+     * <pre>
+     * Opens connections to the host of given url in the background, so that they are already in the pool by the time
+     * downloads start; the url is requested using HEAD, and failures are ignored
+     *
+     * Only as many connections are opened as there can be concurrent downloads, up to a limit
+     * </pre>
+     * @throws NullPointerException if url is null
+     */
+    public void prewarm(HttpUrl url) {
+        Null.check(url).ifAny("Url cannot be null");
+
+        OkHttpClient client = getClient(url);
+        Request request = new Request.Builder()
+                .url(url)
+                .head()
+                .build();
+        for (int i = 0; i < prewarmedConnections; i++)
+            client.newCall(request).enqueue(PREWARM_CALLBACK);
+
+        debugLogger.logMessage("Opening " + prewarmedConnections + " connections to: " + url.host());
+    }
+
+    @Override
+    public void close() {
+        HttpClients.close(apiClient);
+        HttpClients.close(cdnClient);
+        leakDetector.close();
+    }
+
+    // CONSTRUCTORS
+
+    public static HttpConnectionManager newInstance(ConcurrencyPolicy concurrencyPolicy, CustomizedLogger debugLogger) {
+        Null.check(concurrencyPolicy, debugLogger).ifAny("Concurrency policy and logger cannot be null");
+
+        ResponseLeakDetector leakDetector = new ResponseLeakDetector(debugLogger);
+        return new HttpConnectionManager(
+                TwitchHttpClients.newApiInstance(concurrencyPolicy, leakDetector),
+                TwitchHttpClients.newCdnInstance(concurrencyPolicy, leakDetector),
+                leakDetector,
+                Math.min(concurrencyPolicy.getMaxDownloads(), MAX_PREWARMED_CONNECTIONS),
+                debugLogger);
+    }
+
+    public HttpConnectionManager(OkHttpClient apiClient, OkHttpClient cdnClient, ResponseLeakDetector leakDetector,
+                                 int prewarmedConnections, CustomizedLogger debugLogger) {
+        Null.check(apiClient, cdnClient, leakDetector, debugLogger)
+                .ifAny("Http clients, leak detector and logger cannot be null");
+        if (prewarmedConnections < 0)
+            throw new IllegalArgumentException("Prewarmed connection count cannot be negative: " + prewarmedConnections);
+
+        this.apiClient = apiClient;
+        this.cdnClient = cdnClient;
+        this.leakDetector = leakDetector;
+        this.prewarmedConnections = prewarmedConnections;
+        this.debugLogger = debugLogger;
+    }
+
+    // PRIVATE
+
+    private final OkHttpClient apiClient;
+    private final OkHttpClient cdnClient;
+    private final ResponseLeakDetector leakDetector;
+    private final int prewarmedConnections;
+    private final CustomizedLogger debugLogger;
+
+    private static final Set<String> API_HOSTS = ImmutableSet.of(
+            "api.twitch.tv", "gql.twitch.tv", "usher.twitch.tv", "usher.ttvnw.net");
+
+    private static final int MAX_PREWARMED_CONNECTIONS = 8;
+
+    private static final Callback PREWARM_CALLBACK = new Callback() {
+        @Override
+        public void onFailure(Call call, IOException e) {
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            response.close();
+        }
+    };
+
+}
@@ -0,0 +1,37 @@
+package eu.goodlike.twitch.download.http;
+
+import java.util.OptionalInt;
+
+/**
+ * Signals that a http request completed, but its response cannot be used
+ */
+final class HttpException extends RuntimeException {
+
+    /**
+     * @return response code of the unusable response, Optional::empty if the failure was not caused by response code
+     */
+    public OptionalInt getResponseCode() {
+        return responseCode < 0
+                ? OptionalInt.empty()
+                : OptionalInt.of(responseCode);
+    }
+
+    // CONSTRUCTORS
+
+    public HttpException(String message) {
+        this(message, NO_RESPONSE_CODE);
+    }
+
+    public HttpException(String message, int responseCode) {
+        super(message);
+
+        this.responseCode = responseCode;
+    }
+
+    // PRIVATE
+
+    private final int responseCode;
+
+    private static final int NO_RESPONSE_CODE = -1;
+
+}
@@ -0,0 +1,247 @@
+package eu.goodlike.twitch.download.http;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import okhttp3.HttpUrl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * <pre>
+ * Repeats failed http requests
+ *
+ * Only failures which can be expected to go away are retried: IO errors (timeouts, resets, etc.), server errors (5xx)
+ * and throttling (408, 429); other failures, like missing (404) or forbidden (403) resources, fail immediately
+ *
+ * Every retry is delayed using exponential backoff with jitter; besides that, every host has a circuit breaker, which
+ * opens after consecutive failures for that host, delaying further requests to it until the host has cooled down; once
+ * it has, a single request is let through to probe it, and the circuit closes again if that request succeeds; only
+ * requests which were actually made count towards max retries, so requests waiting for the circuit are not failed
+ * without ever being sent
+ * </pre>
+ */
+public final class RequestRetrier implements AutoCloseable {
+
+    /**
+     * @return result of the request, which is repeated for as long as it fails in a retryable way, up to max retries
+     * @throws NullPointerException if httpUrl or request is null
+     */
+    public <T> CompletableFuture<T> withRetries(HttpUrl httpUrl, Supplier<CompletableFuture<T>> request) {
+        Null.check(httpUrl, request).ifAny("Http url and request cannot be null");
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attempt(httpUrl, request, 0, result);
+        return result;
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdown();
+    }
+
+    // CONSTRUCTORS
+
+    public RequestRetrier(int maxRetries, CustomizedLogger debugLogger) {
+        Null.check(debugLogger).ifAny("Logger cannot be null");
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("Retry count cannot be negative: " + maxRetries);
+
+        this.maxRetries = maxRetries;
+        this.debugLogger = debugLogger;
+
+        this.circuitBreakers = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "http-retry-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // PRIVATE
+
+    private final int maxRetries;
+    private final CustomizedLogger debugLogger;
+
+    private final Map<String, CircuitBreaker> circuitBreakers;
+    private final ScheduledExecutorService scheduler;
+
+    private <T> void attempt(HttpUrl httpUrl, Supplier<CompletableFuture<T>> request, int attempt,
+                             CompletableFuture<T> result) {
+        CircuitBreaker circuitBreaker = circuitBreakers.computeIfAbsent(httpUrl.host(), any -> new CircuitBreaker());
+        long coolDownNanos = circuitBreaker.tryAcquire(System.nanoTime());
+        if (coolDownNanos > 0) {
+            waitForCircuit(httpUrl, request, attempt, result, coolDownNanos);
+            return;
+        }
+
+        CompletableFuture<T> requestFuture;
+        try {
+            requestFuture = request.get();
+        } catch (RuntimeException e) {
+            circuitBreaker.release();
+            result.completeExceptionally(e);
+            return;
+        }
+
+        requestFuture.whenComplete((value, throwable) -> {
+            if (throwable == null) {
+                circuitBreaker.onResponse();
+                result.complete(value);
+                return;
+            }
+
+            Throwable cause = unwrap(throwable);
+            if (!isRetryable(cause)) {
+                circuitBreaker.onResponse();
+                result.completeExceptionally(throwable);
+                return;
+            }
+
+            circuitBreaker.onRetryableFailure(System.nanoTime());
+            retryOrFail(httpUrl, request, attempt, result, throwable);
+        });
+    }
+
+    /**
+     * Makes the same attempt again once the circuit may let it through; waiting for the circuit does not count as an
+     * attempt, since no request was made; the wait is still bounded, because every probe which fails uses up an attempt
+     * of the request which made it
+     */
+    private <T> void waitForCircuit(HttpUrl httpUrl, Supplier<CompletableFuture<T>> request, int attempt,
+                                    CompletableFuture<T> result, long delayNanos) {
+        if (delayNanos > BASE_BACKOFF_NANOS)
+            debugLogger.logMessage("Waiting " + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms for host to cool " +
+                    "down: " + httpUrl);
+
+        try {
+            scheduler.schedule(() -> attempt(httpUrl, request, attempt, result), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(new IOException("Circuit is open for host: " + httpUrl.host(), e));
+        }
+    }
+
+    private <T> void retryOrFail(HttpUrl httpUrl, Supplier<CompletableFuture<T>> request, int attempt,
+                                 CompletableFuture<T> result, Throwable failure) {
+        if (attempt >= maxRetries) {
+            result.completeExceptionally(failure);
+            return;
+        }
+
+        long delayNanos = getBackoffNanos(attempt);
+        debugLogger.logMessage("Retrying request in " + TimeUnit.NANOSECONDS.toMillis(delayNanos) + "ms (" +
+                (attempt + 1) + "/" + maxRetries + "), because " + unwrap(failure).getMessage() + ": " + httpUrl);
+
+        try {
+            scheduler.schedule(() -> attempt(httpUrl, request, attempt + 1, result), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RuntimeException e) {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * @return exponential delay for given attempt, with half of it randomized, so that failures which happened at the
+     * same time do not retry at the same time
+     */
+    private long getBackoffNanos(int attempt) {
+        long delay = Math.min(MAX_BACKOFF_NANOS, BASE_BACKOFF_NANOS << Math.min(attempt, MAX_BACKOFF_SHIFT));
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private boolean isRetryable(Throwable throwable) {
+        if (throwable instanceof IOException)
+            return true;
+
+        if (!(throwable instanceof HttpException))
+            return false;
+
+        OptionalInt responseCode = ((HttpException) throwable).getResponseCode();
+        if (!responseCode.isPresent())
+            return false;
+
+        int code = responseCode.getAsInt();
+        return code >= 500 || code == HTTP_REQUEST_TIMEOUT || code == HTTP_TOO_MANY_REQUESTS;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while (throwable.getCause() != null)
+            throwable = throwable.getCause();
+
+        return throwable;
+    }
+
+    private static final int HTTP_REQUEST_TIMEOUT = 408;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    private static final long BASE_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_COOL_DOWN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Tracks consecutive retryable failures of a single host
+     */
+    private static final class CircuitBreaker {
+
+        /**
+         * @return 0 if a request can be made right now, otherwise time in nanos until the host cools down
+         */
+        public synchronized long tryAcquire(long now) {
+            if (!open)
+                return 0;
+
+            long remaining = openUntil - now;
+            if (remaining > 0)
+                return remaining;
+
+            if (probing)
+                return BASE_BACKOFF_NANOS;
+
+            probing = true;
+            return 0;
+        }
+
+        /**
+         * Lets the next request probe the host, if this request was probing it, but never got to make a request
+         */
+        public synchronized void release() {
+            probing = false;
+        }
+
+        /**
+         * Host responded, even if the response was not successful, so it is not down
+         */
+        public synchronized void onResponse() {
+            consecutiveFailures = 0;
+            open = false;
+            probing = false;
+        }
+
+        public synchronized void onRetryableFailure(long now) {
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= CIRCUIT_FAILURE_THRESHOLD) {
+                open = true;
+                probing = false;
+                openUntil = now + CIRCUIT_COOL_DOWN_NANOS;
+            }
+        }
+
+        private int consecutiveFailures;
+        private boolean open;
+        private boolean probing;
+        private long openUntil;
+
+    }
+
+}
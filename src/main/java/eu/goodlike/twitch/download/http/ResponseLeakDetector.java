@@ -0,0 +1,124 @@
+package eu.goodlike.twitch.download.http;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <pre>
+ * Interceptor which keeps track of response bodies, and reports the ones which are never closed
+ *
+ * An unclosed body keeps its connection out of the pool until it is garbage collected; bodies which were garbage
+ * collected without being closed are reported whenever a new response arrives, and bodies which are still open are
+ * reported when this detector is closed
+ * </pre>
+ */
+public final class ResponseLeakDetector implements Interceptor, AutoCloseable {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        reportCollectedLeaks();
+
+        Response response = chain.proceed(chain.request());
+        ResponseBody body = response.body();
+        if (body == null)
+            return response;
+
+        String url = chain.request().url().toString();
+        TrackedBody trackedBody = new TrackedBody(body);
+        trackedBody.reference = new BodyReference(trackedBody, url, referenceQueue);
+        openBodies.put(trackedBody.reference, url);
+        return response.newBuilder()
+                .body(trackedBody)
+                .build();
+    }
+
+    @Override
+    public void close() {
+        reportCollectedLeaks();
+        openBodies.values()
+                .forEach(url -> debugLogger.logMessage("Response body was never closed: " + url));
+        openBodies.clear();
+    }
+
+    // CONSTRUCTORS
+
+    public ResponseLeakDetector(CustomizedLogger debugLogger) {
+        Null.check(debugLogger).ifAny("Logger cannot be null");
+
+        this.debugLogger = debugLogger;
+        this.referenceQueue = new ReferenceQueue<>();
+        this.openBodies = new ConcurrentHashMap<>();
+    }
+
+    // PRIVATE
+
+    private final CustomizedLogger debugLogger;
+    private final ReferenceQueue<TrackedBody> referenceQueue;
+    private final Map<BodyReference, String> openBodies;
+
+    private void reportCollectedLeaks() {
+        BodyReference reference;
+        while ((reference = (BodyReference) referenceQueue.poll()) != null)
+            if (openBodies.remove(reference) != null)
+                debugLogger.logMessage("Response body was garbage collected without being closed: " + reference.url);
+    }
+
+    private static final class BodyReference extends WeakReference<TrackedBody> {
+        private BodyReference(TrackedBody body, String url, ReferenceQueue<TrackedBody> referenceQueue) {
+            super(body, referenceQueue);
+            this.url = url;
+        }
+
+        private final String url;
+    }
+
+    /**
+     * Response body which stops being tracked once its source is closed; closing the body itself closes the source
+     */
+    private final class TrackedBody extends ResponseBody {
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public synchronized BufferedSource source() {
+            if (source == null)
+                source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public void close() throws IOException {
+                        openBodies.remove(reference);
+                        super.close();
+                    }
+                });
+            return source;
+        }
+
+        private TrackedBody(ResponseBody body) {
+            this.body = body;
+        }
+
+        private final ResponseBody body;
+        private BodyReference reference;
+        private BufferedSource source;
+    }
+
+}
@@ -0,0 +1,92 @@
+package eu.goodlike.twitch.download.http;
+
+import eu.goodlike.concurrent.TaskExecutors;
+import eu.goodlike.libraries.okhttp.HttpClients;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates http clients configured by the concurrency policy
+ */
+public final class TwitchHttpClients {
+
+    /**
+     * <pre>
+     * Creates a client for twitch API requests (tokens, metadata, master playlists); these are few and small, so only
+     * a few connections are kept alive; the dispatcher limits match the metadata request budget, even on virtual
+     * threads, since nothing else enforces that budget
+     *
+     * The returned client should be closed using HttpClients::close
+     * </pre>
+     * @return http client for API requests, limited by the metadata request budget of given concurrency policy
+     * @throws NullPointerException if concurrency policy or interceptor is null
+     */
+    public static OkHttpClient newApiInstance(ConcurrencyPolicy concurrencyPolicy, Interceptor interceptor) {
+        Null.check(concurrencyPolicy, interceptor).ifAny("Concurrency policy and interceptor cannot be null");
+
+        int maxRequests = concurrencyPolicy.getMaxMetadataRequests();
+        return newInstance(concurrencyPolicy, maxRequests, Math.min(maxRequests, MAX_IDLE_API_CONNECTIONS), interceptor);
+    }
+
+    /**
+     * <pre>
+     * Creates a client for CDN requests (media playlists, parts); every concurrent download can keep its connection
+     * alive between parts, so connections are not re-established for every part
+     *
+     * The dispatcher limits match the download budget of the concurrency policy instead of the OkHttp defaults (5
+     * requests per host), which would otherwise silently cap concurrent downloads; when calls run on virtual threads,
+     * the limits are lifted instead, since waiting calls cost next to nothing and downloads are already bounded by the
+     * admission queue of VideoDownloader
+     *
+     * The returned client should be closed using HttpClients::close
+     * </pre>
+     * @return http client for CDN requests, limited by the download budget of given concurrency policy, unless it
+     * runs calls on virtual threads
+     * @throws NullPointerException if concurrency policy or interceptor is null
+     */
+    public static OkHttpClient newCdnInstance(ConcurrencyPolicy concurrencyPolicy, Interceptor interceptor) {
+        Null.check(concurrencyPolicy, interceptor).ifAny("Concurrency policy and interceptor cannot be null");
+
+        int maxDownloads = concurrencyPolicy.getMaxDownloads();
+        int maxRequests = usesVirtualThreads(concurrencyPolicy) ? Integer.MAX_VALUE : maxDownloads;
+        return newInstance(concurrencyPolicy, maxRequests, maxDownloads, interceptor);
+    }
+
+    // PRIVATE
+
+    private TwitchHttpClients() {
+        throw new AssertionError("Do not instantiate, use static methods!");
+    }
+
+    /**
+     * When virtual threads are enabled, calls are dispatched onto virtual threads
+     */
+    private static OkHttpClient newInstance(ConcurrencyPolicy concurrencyPolicy, int maxRequests,
+                                            int maxIdleConnections, Interceptor interceptor) {
+        Dispatcher dispatcher = usesVirtualThreads(concurrencyPolicy)
+                ? new Dispatcher(TaskExecutors.newInstance(true, maxRequests))
+                : new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        return HttpClients.newInstance().newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                .addInterceptor(interceptor)
+                .build();
+    }
+
+    private static boolean usesVirtualThreads(ConcurrencyPolicy concurrencyPolicy) {
+        return concurrencyPolicy.isVirtualThreadsEnabled() && TaskExecutors.areVirtualThreadsSupported();
+    }
+
+    private static final int MAX_IDLE_API_CONNECTIONS = 4;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+}
@@ -1,22 +1,28 @@
 package eu.goodlike.twitch.download.http;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import eu.goodlike.libraries.okhttp.JacksonCallback;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.goodlike.libraries.okhttp.ResponseCallback;
 import eu.goodlike.neat.Null;
+import eu.goodlike.str.Str;
 import eu.goodlike.twitch.download.configurations.policy.HttpRequestPolicy;
 import okhttp3.HttpUrl;
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
 import java.io.IOException;
+import java.util.OptionalInt;
 import java.util.concurrent.CompletableFuture;
 
 import static eu.goodlike.twitch.TwitchDefaults.*;
 
 /**
+ * <pre>
  * Makes HTTP request to twitch
+ *
+ * Requests which fail in a retryable way are repeated by the request retrier; every request uses the client which the
+ * connection manager chooses for its host
+ * </pre>
  */
 public final class TwitchRequestMaker {
 
@@ -26,41 +32,110 @@ public final class TwitchRequestMaker {
      */
     public CompletableFuture<Response> makeRawRequest(HttpUrl httpUrl) {
         Null.check(httpUrl).ifAny("Http url cannot be null");
-        return ResponseCallback.asFuture(client.newCall(buildRequest(httpUrl)))
-                .whenComplete(this::throwOnFailedRequest);
+        return requestRetrier.withRetries(httpUrl, () -> ResponseCallback.asFuture(connectionManager.getClient(httpUrl).newCall(buildRequest(httpUrl)))
+                .whenComplete(this::throwOnFailedRequest));
     }
 
     /**
-     * @return result of parsing JSON from given httpUrl as given class
+     * @return result of making http request for given byte range (inclusive) of the resource at httpUrl; the response
+     * is only considered successful if the server actually returned partial content
+     * @throws NullPointerException if httpUrl is null
+     * @throws IllegalArgumentException if range is negative or empty
+     */
+    public CompletableFuture<Response> makeRawRequest(HttpUrl httpUrl, long rangeStart, long rangeEnd) {
+        Null.check(httpUrl).ifAny("Http url cannot be null");
+        if (rangeStart < 0 || rangeEnd < rangeStart)
+            throw new IllegalArgumentException("Invalid byte range: " + rangeStart + "-" + rangeEnd);
+
+        Request request = buildRequest(httpUrl).newBuilder()
+                .addHeader(RANGE_HEADER_NAME, Str.format(RANGE_HEADER_VALUE_FORMAT, rangeStart, rangeEnd))
+                .build();
+        return requestRetrier.withRetries(httpUrl, () -> ResponseCallback.asFuture(connectionManager.getClient(httpUrl).newCall(request))
+                .whenComplete(this::throwOnFailedRequest)
+                .whenComplete(this::throwOnIgnoredRange));
+    }
+
+    /**
+     * @return result of making http HEAD request to given httpUrl; the body of this response is always empty
+     * @throws NullPointerException if httpUrl is null
+     */
+    public CompletableFuture<Response> makeHeadRequest(HttpUrl httpUrl) {
+        Null.check(httpUrl).ifAny("Http url cannot be null");
+        Request request = buildRequest(httpUrl).newBuilder()
+                .head()
+                .build();
+        return requestRetrier.withRetries(httpUrl, () -> ResponseCallback.asFuture(connectionManager.getClient(httpUrl).newCall(request))
+                .whenComplete(this::throwOnFailedRequest));
+    }
+
+    /**
+     * @return result of parsing JSON from given httpUrl as given class; unsuccessful responses fail with their
+     * response code, the same way as raw requests do
      * @throws NullPointerException if httpUrl or clazz is null
      */
     public <T> CompletableFuture<T> makeRequest(HttpUrl httpUrl, Class<T> clazz) {
         Null.check(httpUrl, clazz).ifAny("Http url and class cannot be null");
-        return JacksonCallback.asFuture(client.newCall(buildRequest(httpUrl)), clazz);
+        return makeJsonRequest(httpUrl, body -> objectMapper.readValue(body, clazz));
     }
 
     /**
-     * @return result of parsing JSON from given httpUrl as given type
+     * @return result of parsing JSON from given httpUrl as given type; unsuccessful responses fail with their
+     * response code, the same way as raw requests do
      * @throws NullPointerException if httpUrl or type is null
      */
     public <T> CompletableFuture<T> makeRequest(HttpUrl httpUrl, TypeReference<T> type) {
         Null.check(httpUrl, type).ifAny("Http url and type cannot be null");
-        return JacksonCallback.asFuture(client.newCall(buildRequest(httpUrl)), type);
+        return makeJsonRequest(httpUrl, body -> objectMapper.readValue(body, type));
+    }
+
+    /**
+     * Opens connections to the host of given url in the background, so that later requests to it can reuse them
+     * @throws NullPointerException if httpUrl is null
+     */
+    public void prewarmConnections(HttpUrl httpUrl) {
+        connectionManager.prewarm(httpUrl);
+    }
+
+    /**
+     * @return true if the failure of a request made by this class was caused by a rejected authorization (401 or 403),
+     * i.e. because an access token has expired
+     */
+    public static boolean isAuthFailure(Throwable throwable) {
+        OptionalInt responseCode = getResponseCode(throwable);
+        return responseCode.isPresent()
+                && (responseCode.getAsInt() == HTTP_UNAUTHORIZED || responseCode.getAsInt() == HTTP_FORBIDDEN);
+    }
+
+    /**
+     * @return true if the failure of a request made by this class was caused by the resource being missing or
+     * forbidden (403, 404 or 410), i.e. because a VoD was deleted or is only available to subscribers
+     */
+    public static boolean isUnavailable(Throwable throwable) {
+        OptionalInt responseCode = getResponseCode(throwable);
+        return responseCode.isPresent()
+                && (responseCode.getAsInt() == HTTP_FORBIDDEN || responseCode.getAsInt() == HTTP_NOT_FOUND
+                || responseCode.getAsInt() == HTTP_GONE);
     }
 
     // CONSTRUCTORS
 
-    public TwitchRequestMaker(HttpRequestPolicy httpRequestPolicy, OkHttpClient client) {
-        Null.check(httpRequestPolicy, client).ifAny("Http request policy and http client cannot be null");
+    public TwitchRequestMaker(HttpRequestPolicy httpRequestPolicy, HttpConnectionManager connectionManager,
+                              RequestRetrier requestRetrier) {
+        Null.check(httpRequestPolicy, connectionManager, requestRetrier)
+                .ifAny("Http request policy, connection manager and request retrier cannot be null");
 
         this.httpRequestPolicy = httpRequestPolicy;
-        this.client = client;
+        this.connectionManager = connectionManager;
+        this.requestRetrier = requestRetrier;
+        this.objectMapper = new ObjectMapper();
     }
 
     // PRIVATE
 
     private final HttpRequestPolicy httpRequestPolicy;
-    private final OkHttpClient client;
+    private final HttpConnectionManager connectionManager;
+    private final RequestRetrier requestRetrier;
+    private final ObjectMapper objectMapper;
 
     private Request buildRequest(HttpUrl httpUrl) {
         Request.Builder builder = new Request.Builder()
@@ -74,6 +149,20 @@ public final class TwitchRequestMaker {
         return builder.build();
     }
 
+    private <T> CompletableFuture<T> makeJsonRequest(HttpUrl httpUrl, JsonParser<T> jsonParser) {
+        return requestRetrier.withRetries(httpUrl, () -> ResponseCallback.asFuture(connectionManager.getClient(httpUrl).newCall(buildRequest(httpUrl)))
+                .whenComplete(this::throwOnFailedRequest)
+                .thenApply(response -> parseJson(response, jsonParser)));
+    }
+
+    private <T> T parseJson(Response response, JsonParser<T> jsonParser) {
+        try (Response jsonResponse = response) {
+            return jsonParser.parse(jsonResponse.body().string());
+        } catch (IOException e) {
+            throw new HttpException("Cannot parse JSON from http response: " + e.getMessage());
+        }
+    }
+
     private void throwOnFailedRequest(Response response, Throwable throwable) {
         if (throwable != null)
             return;
@@ -82,21 +171,44 @@ public final class TwitchRequestMaker {
             throw new NullPointerException("Http response was null");
 
         if (!response.isSuccessful())
-            throw new HttpException("Http request failed, reason: " + getFailureReason(response));
+            throw new HttpException("Http request failed, reason: " + getFailureReason(response), response.code());
+    }
+
+    private void throwOnIgnoredRange(Response response, Throwable throwable) {
+        if (throwable != null)
+            return;
+
+        if (response.code() != HTTP_PARTIAL_CONTENT) {
+            response.close();
+            throw new HttpException("Http request ignored requested range, response code: " + response.code());
+        }
     }
 
     private String getFailureReason(Response failedResponse) {
         try {
             return failedResponse.body().string();
         } catch (IOException e) {
-            throw new HttpException("Cannot read body of failed http request");
+            throw new HttpException("Cannot read body of failed http request", failedResponse.code());
         }
     }
 
-    private static final class HttpException extends RuntimeException {
-        public HttpException(String message) {
-            super(message);
-        }
+    private static OptionalInt getResponseCode(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause())
+            if (cause instanceof HttpException)
+                return ((HttpException) cause).getResponseCode();
+
+        return OptionalInt.empty();
     }
 
+    @FunctionalInterface
+    private interface JsonParser<T> {
+        T parse(String json) throws IOException;
+    }
+
+    private static final int HTTP_PARTIAL_CONTENT = 206;
+    private static final int HTTP_UNAUTHORIZED = 401;
+    private static final int HTTP_FORBIDDEN = 403;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int HTTP_GONE = 410;
+
 }
@@ -4,13 +4,19 @@ import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.neat.Null;
 import eu.goodlike.str.format.Traversable;
 import eu.goodlike.str.format.TraversableFormatter;
+import eu.goodlike.twitch.download.configurations.policy.OutputPolicy;
 import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
-import eu.goodlike.twitch.stream.StreamDataFetcher;
+import eu.goodlike.twitch.stream.StreamDataCache;
 
 import java.util.Optional;
 
 /**
+ * <pre>
  * Resolves the output filename from twitch stream data
+ *
+ * The output format is analysed once, so that stream data can be fetched ahead of time (i.e. together with the access
+ * token), and only if the output format uses any of it
+ * </pre>
  */
 public final class FilenameResolver {
 
@@ -18,31 +24,51 @@ public final class FilenameResolver {
      * @return output name, which is the result of formatting outputFormat with vodId data, if needed
      */
     public Optional<String> resolveOutputName(String outputFormat, int vodId) {
-        Traversable lazyJsonTraversable = LazyJsonTraversable.from(() -> streamDataFetcher.fetchStreamDataForVodId(vodId), debugLogger);
+        Traversable lazyJsonTraversable = LazyJsonTraversable.from(() -> streamDataCache.getStreamData(vodId), debugLogger);
         Traversable lazyJsonTraversableOverride = new LazyJsonTraversableOverride(playlistPolicy, lazyJsonTraversable);
         TraversableFormatter traversableFormatter = new TraversableFormatter(lazyJsonTraversable, lazyJsonTraversableOverride);
         return traversableFormatter.format(outputFormat)
-                .map(this::replaceForbiddenCharacters);
+                .map(FilenameResolver::replaceForbiddenCharacters);
+    }
+
+    /**
+     * Starts fetching stream data of given VoD id if the output format uses any of it, so that it is ready by the time
+     * the output name is resolved; failures are left for resolveOutputName to handle
+     */
+    public void prefetchStreamData(int vodId) {
+        if (outputFormatFields.isStreamDataNeeded())
+            streamDataCache.getStreamData(vodId);
     }
 
     // CONSTRUCTORS
 
-    public FilenameResolver(StreamDataFetcher streamDataFetcher, CustomizedLogger debugLogger, PlaylistPolicy playlistPolicy) {
-        Null.check(streamDataFetcher,debugLogger, playlistPolicy)
-                .ifAny("Stream data fetcher, debug logger and playlist policy cannot be null");
+    public FilenameResolver(StreamDataCache streamDataCache, CustomizedLogger debugLogger, PlaylistPolicy playlistPolicy,
+                            OutputPolicy outputPolicy) {
+        Null.check(streamDataCache, debugLogger, playlistPolicy, outputPolicy)
+                .ifAny("Stream data cache, debug logger, playlist policy and output policy cannot be null");
 
-        this.streamDataFetcher = streamDataFetcher;
+        this.streamDataCache = streamDataCache;
         this.debugLogger = debugLogger;
         this.playlistPolicy = playlistPolicy;
+        this.outputFormatFields = OutputFormatFields.from(outputPolicy.getOutputFormat());
+
+        if (outputFormatFields.isStreamDataNeeded())
+            debugLogger.logMessage("Output format uses stream data fields: " + outputFormatFields.getFields());
+        else
+            debugLogger.logMessage("Output format uses no stream data, it will not be fetched");
     }
 
     // PRIVATE
 
-    private final StreamDataFetcher streamDataFetcher;
+    private final StreamDataCache streamDataCache;
     private final CustomizedLogger debugLogger;
     private final PlaylistPolicy playlistPolicy;
+    private final OutputFormatFields outputFormatFields;
 
-    private String replaceForbiddenCharacters(String string) {
+    /**
+     * Package-private so that it can be benchmarked on its own
+     */
+    static String replaceForbiddenCharacters(String string) {
         StringBuilder builder = new StringBuilder(string.length());
         for (char c : string.toCharArray())
             if (isAllowedChar(c))
@@ -53,7 +79,7 @@ public final class FilenameResolver {
         return builder.toString();
     }
 
-    private boolean isAllowedChar(char c) {
+    private static boolean isAllowedChar(char c) {
         return (c >= 'A' && c <= 'Z')
                 || (c >= 'a' && c <= 'z')
                 || (c >= '0' && c <= '9')
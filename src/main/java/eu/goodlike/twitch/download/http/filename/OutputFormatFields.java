@@ -0,0 +1,66 @@
+package eu.goodlike.twitch.download.http.filename;
+
+import com.google.common.collect.ImmutableList;
+import eu.goodlike.neat.Null;
+
+import java.util.List;
+
+/**
+ * <pre>
+ * Fields of stream data which are used by an output format
+ *
+ * Every field is written in brackets, i.e. "(&lt;recorded_at&gt;) &lt;channel:name&gt; &lt;title&gt;.mp4" uses
+ * fields "recorded_at", "channel:name" and "title"; an output format without any fields does not need stream data
+ * </pre>
+ */
+public final class OutputFormatFields {
+
+    /**
+     * @return fields used by the output format, in the order they appear in it
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * @return true if the output format uses any fields, meaning stream data must be fetched to resolve it, false
+     * otherwise
+     */
+    public boolean isStreamDataNeeded() {
+        return !fields.isEmpty();
+    }
+
+    // CONSTRUCTORS
+
+    public static OutputFormatFields from(String outputFormat) {
+        Null.check(outputFormat).ifAny("Output format cannot be null");
+
+        ImmutableList.Builder<String> fields = ImmutableList.builder();
+        int fieldStart = outputFormat.indexOf(FIELD_START);
+        while (fieldStart >= 0) {
+            int fieldEnd = outputFormat.indexOf(FIELD_END, fieldStart + 1);
+            if (fieldEnd < 0)
+                break;
+
+            String field = outputFormat.substring(fieldStart + 1, fieldEnd);
+            if (!field.isEmpty())
+                fields.add(field);
+
+            fieldStart = outputFormat.indexOf(FIELD_START, fieldEnd + 1);
+        }
+        return new OutputFormatFields(fields.build());
+    }
+
+    public OutputFormatFields(List<String> fields) {
+        Null.checkList(fields).ifAny("Fields cannot be null");
+        this.fields = ImmutableList.copyOf(fields);
+    }
+
+    // PRIVATE
+
+    private final List<String> fields;
+
+    private static final char FIELD_START = '<';
+    private static final char FIELD_END = '>';
+
+}
@@ -0,0 +1,287 @@
+package eu.goodlike.twitch.download.progress;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * Periodically reports the progress counted by a progress tracker
+ *
+ * The report can be rendered as a single console line, which is refreshed in place, and/or written into a status
+ * file as JSON; the status file is replaced atomically, so a reader never sees a partially written report
+ *
+ * Reports include downloaded bytes, downloaded and total parts, current (since last report) and average download
+ * speed, ETA, ffmpeg processing speed, and the share of time downloads spent writing into files rather than reading
+ * from the network - if it is high, the disk is the bottleneck, not the CDN
+ * </pre>
+ */
+public final class ProgressReporter implements AutoCloseable {
+
+    /**
+     * Starts reporting in the background until closed; does nothing if neither console line nor status file is enabled
+     */
+    public void start() {
+        if (!consoleLineEnabled && !statusFile.isPresent())
+            return;
+
+        scheduler.scheduleWithFixedDelay(this::report, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops reporting; a final report is made, so the status file and console line show the end result
+     */
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdown();
+        scheduler.awaitTermination(REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        if (!consoleLineEnabled && !statusFile.isPresent())
+            return;
+
+        report();
+        if (consoleLineEnabled)
+            console.println();
+    }
+
+    // CONSTRUCTORS
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public ProgressReporter(ProgressTracker progressTracker, boolean consoleLineEnabled, Optional<Path> statusFile,
+                            CustomizedLogger debugLogger) {
+        Null.check(progressTracker, statusFile, debugLogger)
+                .ifAny("Progress tracker, status file Optional and logger cannot be null");
+
+        this.progressTracker = progressTracker;
+        this.consoleLineEnabled = consoleLineEnabled;
+        this.statusFile = statusFile;
+        this.debugLogger = debugLogger;
+        this.console = System.err;
+        this.objectMapper = new ObjectMapper();
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.lastNanos = progressTracker.getStartNanos();
+    }
+
+    // PRIVATE
+
+    private final ProgressTracker progressTracker;
+    private final boolean consoleLineEnabled;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> statusFile;
+    private final CustomizedLogger debugLogger;
+    private final PrintStream console;
+    private final ObjectMapper objectMapper;
+
+    private final ScheduledExecutorService scheduler;
+
+    private long lastNanos;
+    private long lastBytes;
+    private long lastReadNanos;
+    private long lastWriteNanos;
+    private int lastLineLength;
+    private boolean statusFileFailed;
+
+    /**
+     * Only ever called by one thread at a time: the scheduler, or the closing thread after the scheduler is done
+     */
+    private synchronized void report() {
+        long now = System.nanoTime();
+        long bytes = progressTracker.getDownloadedBytes();
+        long readNanos = progressTracker.getReadNanos();
+        long writeNanos = progressTracker.getWriteNanos();
+
+        double intervalSeconds = Math.max(now - lastNanos, 1) / 1e9;
+        double elapsedSeconds = Math.max(now - progressTracker.getStartNanos(), 1) / 1e9;
+        double currentSpeed = (bytes - lastBytes) / intervalSeconds;
+        double averageSpeed = bytes / elapsedSeconds;
+
+        long intervalReadNanos = readNanos - lastReadNanos;
+        long intervalWriteNanos = writeNanos - lastWriteNanos;
+        double diskShare = intervalReadNanos + intervalWriteNanos > 0
+                ? (double) intervalWriteNanos / (intervalReadNanos + intervalWriteNanos)
+                : 0;
+
+        lastNanos = now;
+        lastBytes = bytes;
+        lastReadNanos = readNanos;
+        lastWriteNanos = writeNanos;
+
+        List<VodProgress> vods = progressTracker.getActiveVods();
+        vods.sort((first, second) -> Integer.compare(first.getVodId(), second.getVodId()));
+
+        Report report = new Report(now, bytes, currentSpeed, averageSpeed, diskShare, vods);
+        if (consoleLineEnabled)
+            printLine(report);
+
+        statusFile.ifPresent(file -> writeStatus(file, report, elapsedSeconds));
+    }
+
+    private void printLine(Report report) {
+        StringBuilder line = new StringBuilder();
+        line.append(report.vods.size()).append(report.vods.size() == 1 ? " VoD" : " VoDs")
+                .append(" (").append(progressTracker.getFinishedVodCount()).append(" done)")
+                .append(" | ").append(report.doneParts).append('/').append(report.totalParts).append(" parts")
+                .append(" | ").append(formatBytes(report.bytes))
+                .append(" | ").append(formatBytes((long) report.currentSpeed)).append("/s")
+                .append(" (avg ").append(formatBytes((long) report.averageSpeed)).append("/s)")
+                .append(" | disk ").append(Math.round(report.diskShare * 100)).append('%');
+
+        report.processingSpeed
+                .ifPresent(speed -> line.append(" | ffmpeg ").append(String.format("%.1fx", speed)));
+        report.etaSeconds
+                .ifPresent(eta -> line.append(" | ETA ").append(formatDuration(eta)));
+
+        int length = line.length();
+        for (int i = length; i < lastLineLength; i++)
+            line.append(' ');
+        lastLineLength = length;
+
+        console.print('\r');
+        console.print(line);
+        console.flush();
+    }
+
+    private void writeStatus(Path file, Report report, double elapsedSeconds) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("timestamp", System.currentTimeMillis());
+        status.put("elapsedSeconds", Math.round(elapsedSeconds));
+        status.put("downloadedBytes", report.bytes);
+        status.put("bytesPerSecond", Math.round(report.currentSpeed));
+        status.put("averageBytesPerSecond", Math.round(report.averageSpeed));
+        status.put("diskWriteShare", report.diskShare);
+        status.put("finishedVods", progressTracker.getFinishedVodCount());
+        status.put("doneParts", report.doneParts);
+        status.put("totalParts", report.totalParts);
+        report.processingSpeed.ifPresent(speed -> status.put("processingSpeed", speed));
+        report.etaSeconds.ifPresent(eta -> status.put("etaSeconds", Math.round(eta)));
+
+        List<Map<String, Object>> vodStatuses = new ArrayList<>();
+        for (VodProgress vod : report.vods) {
+            Map<String, Object> vodStatus = new LinkedHashMap<>();
+            vodStatus.put("vodId", vod.getVodId());
+            vodStatus.put("downloadedBytes", vod.getDownloadedBytes());
+            vodStatus.put("doneParts", vod.getDoneParts());
+            vodStatus.put("totalParts", vod.getTotalParts());
+            vodStatus.put("processedSeconds", vod.getProcessedSeconds());
+            vodStatus.put("completion", vod.getCompletion());
+            vod.getProcessingSpeed().ifPresent(speed -> vodStatus.put("processingSpeed", speed));
+            vod.getEtaSeconds(report.nanos).ifPresent(eta -> vodStatus.put("etaSeconds", Math.round(eta)));
+            vodStatuses.add(vodStatus);
+        }
+        status.put("vods", vodStatuses);
+
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            objectMapper.writeValue(temporaryFile.toFile(), status);
+            try {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            statusFileFailed = false;
+        } catch (IOException e) {
+            if (!statusFileFailed)
+                debugLogger.logMessage("Cannot write progress status into: " + file);
+            statusFileFailed = true;
+        }
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+
+        double value = bytes;
+        int unit = -1;
+        while (value >= 1024 && unit < BYTE_UNITS.length - 1) {
+            value /= 1024;
+            unit++;
+        }
+        return String.format("%.1f %s", value, BYTE_UNITS[unit]);
+    }
+
+    private static String formatDuration(double seconds) {
+        long total = Math.round(seconds);
+        long hours = total / 3600;
+        long minutes = total / 60 % 60;
+        return hours > 0
+                ? String.format("%d:%02d:%02d", hours, minutes, total % 60)
+                : String.format("%d:%02d", minutes, total % 60);
+    }
+
+    private static final long REPORT_INTERVAL_SECONDS = 1;
+    private static final String[] BYTE_UNITS = {"KB", "MB", "GB", "TB"};
+
+    /**
+     * Values which are shared by the console line and the status file
+     */
+    private static final class Report {
+        private Report(long nanos, long bytes, double currentSpeed, double averageSpeed, double diskShare,
+                       List<VodProgress> vods) {
+            this.nanos = nanos;
+            this.bytes = bytes;
+            this.currentSpeed = currentSpeed;
+            this.averageSpeed = averageSpeed;
+            this.diskShare = diskShare;
+            this.vods = vods;
+
+            long doneParts = 0;
+            long totalParts = 0;
+            double speedSum = 0;
+            int speedCount = 0;
+            OptionalDouble etaSeconds = OptionalDouble.empty();
+            for (VodProgress vod : vods) {
+                doneParts += vod.getDoneParts();
+                totalParts += vod.getTotalParts();
+
+                OptionalDouble speed = vod.getProcessingSpeed();
+                if (speed.isPresent()) {
+                    speedSum += speed.getAsDouble();
+                    speedCount++;
+                }
+
+                OptionalDouble eta = vod.getEtaSeconds(nanos);
+                if (eta.isPresent() && (!etaSeconds.isPresent() || eta.getAsDouble() > etaSeconds.getAsDouble()))
+                    etaSeconds = eta;
+            }
+            this.doneParts = doneParts;
+            this.totalParts = totalParts;
+            this.processingSpeed = speedCount > 0
+                    ? OptionalDouble.of(speedSum / speedCount)
+                    : OptionalDouble.empty();
+            this.etaSeconds = etaSeconds;
+        }
+
+        private final long nanos;
+        private final long bytes;
+        private final double currentSpeed;
+        private final double averageSpeed;
+        private final double diskShare;
+        private final List<VodProgress> vods;
+        private final long doneParts;
+        private final long totalParts;
+        private final OptionalDouble processingSpeed;
+        private final OptionalDouble etaSeconds;
+    }
+
+}
@@ -0,0 +1,104 @@
+package eu.goodlike.twitch.download.progress;
+
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <pre>
+ * Counts the progress of all downloads
+ *
+ * Counters are LongAdders, so the threads doing the work only pay for an uncontended addition; they are only summed
+ * up when a report is made
+ *
+ * Time spent reading from the network and time spent writing into files (including waiting for a turn to write) are
+ * counted separately, so a slow CDN can be told apart from a slow disk
+ * </pre>
+ */
+public final class ProgressTracker {
+
+    /**
+     * Starts tracking the progress of a VoD; the progress should be finished once the VoD is done
+     * @return progress of the VoD, which can be updated by the downloader
+     * @throws NullPointerException if media playlist is null
+     */
+    public VodProgress startVod(int vodId, MediaPlaylist mediaPlaylist) {
+        Null.check(mediaPlaylist).ifAny("Media playlist cannot be null");
+
+        VodProgress progress = new VodProgress(vodId, mediaPlaylist.getStreamParts().size(),
+                mediaPlaylist.getTotalDuration().doubleValue(), this::finishVod);
+        activeVods.put(progress, Boolean.TRUE);
+        return progress;
+    }
+
+    /**
+     * Records bytes which were read from the network, and how long it took to read them
+     */
+    public void recordRead(long bytes, long nanos) {
+        downloadedBytes.add(bytes);
+        readNanos.add(nanos);
+    }
+
+    /**
+     * Records how long it took to write a chunk into a file, including the wait for a turn to write
+     */
+    public void recordWrite(long nanos) {
+        writeNanos.add(nanos);
+    }
+
+    // CONSTRUCTORS
+
+    public ProgressTracker() {
+        this.activeVods = new ConcurrentHashMap<>();
+        this.finishedVods = new AtomicInteger();
+        this.downloadedBytes = new LongAdder();
+        this.readNanos = new LongAdder();
+        this.writeNanos = new LongAdder();
+        this.startNanos = System.nanoTime();
+    }
+
+    // PRIVATE
+
+    private final Map<VodProgress, Boolean> activeVods;
+    private final AtomicInteger finishedVods;
+    private final LongAdder downloadedBytes;
+    private final LongAdder readNanos;
+    private final LongAdder writeNanos;
+    private final long startNanos;
+
+    private void finishVod(VodProgress progress) {
+        if (activeVods.remove(progress) != null)
+            finishedVods.incrementAndGet();
+    }
+
+    List<VodProgress> getActiveVods() {
+        return new ArrayList<>(activeVods.keySet());
+    }
+
+    int getFinishedVodCount() {
+        return finishedVods.get();
+    }
+
+    long getDownloadedBytes() {
+        return downloadedBytes.sum();
+    }
+
+    long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    long getWriteNanos() {
+        return writeNanos.sum();
+    }
+
+    long getStartNanos() {
+        return startNanos;
+    }
+
+}
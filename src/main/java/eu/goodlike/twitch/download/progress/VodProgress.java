@@ -0,0 +1,148 @@
+package eu.goodlike.twitch.download.progress;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <pre>
+ * Progress of a single VoD
+ *
+ * Parts are counted as they are downloaded; when ffmpeg processes the VoD, the duration it has processed and its
+ * speed are recorded as well, since ffmpeg may be downloading the parts by itself
+ * </pre>
+ */
+public final class VodProgress {
+
+    /**
+     * Records a part which was downloaded
+     */
+    public void partDone(long bytes) {
+        doneParts.increment();
+        downloadedBytes.add(bytes);
+    }
+
+    /**
+     * Records parts which were added to the VoD after tracking started (i.e. because the VoD is still being broadcast)
+     */
+    public void partsAdded(int parts, double seconds) {
+        addedParts.add(parts);
+        addedSeconds.add(seconds);
+    }
+
+    /**
+     * Records a part which did not need to be downloaded (i.e. it was already downloaded by a previous run)
+     */
+    public void partSkipped() {
+        skippedParts.increment();
+    }
+
+    /**
+     * Records progress reported by ffmpeg
+     * @param processedSeconds duration of the VoD processed so far
+     * @param speed processing speed, relative to playback speed (i.e. 2.0 means twice as fast as playback)
+     */
+    public void processed(double processedSeconds, double speed) {
+        this.processedSeconds = processedSeconds;
+        this.processingSpeed = speed;
+    }
+
+    /**
+     * Stops tracking this VoD; calling this more than once has no effect
+     */
+    public void finish() {
+        onFinish.accept(this);
+    }
+
+    /**
+     * @return id of the VoD
+     */
+    public int getVodId() {
+        return vodId;
+    }
+
+    // CONSTRUCTORS
+
+    VodProgress(int vodId, int totalParts, double totalSeconds, Consumer<VodProgress> onFinish) {
+        this.vodId = vodId;
+        this.totalParts = totalParts;
+        this.totalSeconds = totalSeconds;
+        this.onFinish = onFinish;
+        this.doneParts = new LongAdder();
+        this.skippedParts = new LongAdder();
+        this.downloadedBytes = new LongAdder();
+        this.addedParts = new LongAdder();
+        this.addedSeconds = new DoubleAdder();
+        this.startNanos = System.nanoTime();
+    }
+
+    // PRIVATE
+
+    private final int vodId;
+    private final int totalParts;
+    private final double totalSeconds;
+    private final Consumer<VodProgress> onFinish;
+    private final LongAdder doneParts;
+    private final LongAdder skippedParts;
+    private final LongAdder downloadedBytes;
+    private final LongAdder addedParts;
+    private final DoubleAdder addedSeconds;
+    private final long startNanos;
+    private volatile double processedSeconds;
+    private volatile double processingSpeed;
+
+    long getDoneParts() {
+        return doneParts.sum();
+    }
+
+    /**
+     * @return amount of parts which need to be downloaded; skipped parts are not counted
+     */
+    long getTotalParts() {
+        return totalParts + addedParts.sum() - skippedParts.sum();
+    }
+
+    long getDownloadedBytes() {
+        return downloadedBytes.sum();
+    }
+
+    double getProcessedSeconds() {
+        return processedSeconds;
+    }
+
+    /**
+     * @return latest speed reported by ffmpeg, OptionalDouble::empty if ffmpeg has not reported any
+     */
+    OptionalDouble getProcessingSpeed() {
+        double speed = processingSpeed;
+        return speed > 0
+                ? OptionalDouble.of(speed)
+                : OptionalDouble.empty();
+    }
+
+    /**
+     * @return fraction of the VoD which is done, from 0 to 1; the larger of downloaded parts and processed duration
+     */
+    double getCompletion() {
+        long total = getTotalParts();
+        double partCompletion = total > 0 ? (double) getDoneParts() / total : 0;
+        double seconds = totalSeconds + addedSeconds.sum();
+        double processedCompletion = seconds > 0 ? processedSeconds / seconds : 0;
+        return Math.min(1, Math.max(partCompletion, processedCompletion));
+    }
+
+    /**
+     * @return estimated seconds until the VoD is done, assuming it keeps going at the same pace as it did so far,
+     * OptionalDouble::empty if nothing is done yet
+     */
+    OptionalDouble getEtaSeconds(long nowNanos) {
+        double completion = getCompletion();
+        if (completion <= 0)
+            return OptionalDouble.empty();
+
+        double elapsedSeconds = (nowNanos - startNanos) / 1e9;
+        return OptionalDouble.of(elapsedSeconds * (1 - completion) / completion);
+    }
+
+}
@@ -13,6 +13,7 @@ public final class M3U8Defaults {
     public static final String M3U8_MASTER_MEDIA_NAME_ATTRIBUTE = "NAME=";
 
     public static final String M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX = "#EXT-X-TARGETDURATION:";
+    public static final String M3U8_MEDIA_SEQUENCE_TAG_PREFIX = "#EXT-X-MEDIA-SEQUENCE:";
     public static final String M3U8_MEDIA_PREFIX = "#EXTINF:";
     public static final String TWITCH_M3U8_MEDIA_TAG_FORMAT = M3U8_MEDIA_PREFIX + "{},{}";
     public static final String M3U8_MEDIA_END_OF_FILE = "#EXT-X-ENDLIST";
@@ -0,0 +1,216 @@
+package eu.goodlike.twitch.m3u8;
+
+import com.google.common.collect.ImmutableMap;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.str.Str;
+import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
+import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
+import eu.goodlike.twitch.m3u8.media.AppendableStreamPart;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylistUpdate;
+import eu.goodlike.twitch.m3u8.media.SimpleStreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPartCoalescer;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static eu.goodlike.twitch.m3u8.M3U8Defaults.*;
+
+/**
+ * <pre>
+ * A simple M3U8 parser, which reads playlists line by line using a Scanner
+ *
+ * Every segment link is resolved as an http url to read its offsets; this is slower than StreamingM3U8Parser, but is
+ * kept as a fallback
+ * </pre>
+ */
+public final class ScannerM3U8Parser implements TwitchM3U8Parser {
+
+    @Override
+    public Optional<MasterPlaylist> parseMasterPlaylist() {
+        String line = scanner.nextLine();
+        if (!M3U8_FILE_START.equals(line))
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found: " + line);
+
+        Map<String, String> builder = new HashMap<>();
+        while (scanner.hasNextLine()) {
+            line = skipUntil(nextLine -> nextLine.startsWith(M3U8_MASTER_MEDIA_TAG_PREFIX));
+            if (line != null) {
+                int nameTagIndex = line.indexOf(M3U8_MASTER_MEDIA_NAME_ATTRIBUTE);
+                if (nameTagIndex < 0)
+                    return logFailure("Invalid m3u8 media tag: no NAME attribute found");
+
+                int nameStartIndex = line.indexOf('"', nameTagIndex) + 1;
+                if (nameStartIndex < 0)
+                    return logFailure("Invalid m3u8 media tag: NAME attribute value incorrectly specified");
+
+                int nameEndIndex = line.indexOf('"', nameStartIndex);
+                if (nameEndIndex < 0)
+                    return logFailure("Invalid m3u8 media tag: NAME attribute value incorrectly specified");
+
+                String name = line.substring(nameStartIndex, nameEndIndex).toLowerCase();
+
+                line = skipUntil(nextLine -> !nextLine.startsWith(M3U8_TAG_START));
+                if (line == null)
+                    return logFailure("Missing link for stream source with specified name: " + name);
+
+                builder.putIfAbsent(name, line);
+            }
+        }
+        return Optional.of(new MasterPlaylist(ImmutableMap.copyOf(builder)));
+    }
+
+    @Override
+    public Optional<MediaPlaylist> parseMediaPlaylist() {
+        return parseMediaPlaylistUpdate(0).map(MediaPlaylistUpdate::getNewParts);
+    }
+
+    @Override
+    public Optional<MediaPlaylistUpdate> parseMediaPlaylistUpdate(long knownMediaSequence) {
+        if (knownMediaSequence < 0)
+            throw new IllegalArgumentException("Media sequence cannot be negative: " + knownMediaSequence);
+
+        String line = scanner.nextLine();
+        if (!M3U8_FILE_START.equals(line))
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found: " + line);
+
+        StreamPartCoalescer coalescer = StreamPartCoalescer.from(playlistPolicy);
+        long mediaSequence = 0;
+        boolean segmentFound = false;
+        OptionalInt targetDuration = OptionalInt.empty();
+        boolean ended = false;
+        while (scanner.hasNextLine()) {
+            line = scanner.nextLine();
+            if (line.startsWith(M3U8_MEDIA_PREFIX)) {
+                segmentFound = true;
+                if (mediaSequence++ < knownMediaSequence) {
+                    if (skipUntil(nextLine -> !nextLine.startsWith(M3U8_TAG_START)) == null)
+                        return logFailure("Missing link for known stream segment: " + (mediaSequence - 1));
+
+                    continue;
+                }
+
+                line = line.substring(M3U8_MEDIA_PREFIX.length());
+                List<String> parts = Str.splitIncludingEmptyAffixes(line, ",");
+                if (parts.size() != 2)
+                    return logFailure("Invalid m3u8 segment tag: "  + M3U8_MEDIA_PREFIX +
+                            " should have one and only one ',' to separate duration and (optional) name");
+
+                String durationString = parts.get(0);
+                String name = parts.get(1);
+
+                BigDecimal duration;
+                try {
+                    duration = new BigDecimal(durationString);
+                } catch (NumberFormatException e) {
+                    return logFailure("Invalid m3u8 segment tag: could not parse duration into BigDecimal: " + durationString);
+                }
+
+                line = skipUntil(nextLine -> !nextLine.startsWith(M3U8_TAG_START));
+                if (line == null)
+                    return logFailure("Missing link for stream segment with (optional) name: " + name);
+
+                MediaPartLinkResolver resolver = MediaPartLinkResolver.forPathWithoutPrefix(line);
+                if (resolver == null)
+                    return logFailure("Could not parse link for stream segment as an http element: " + line);
+
+                String location = resolver.getLocation();
+                if (location == null)
+                    return logFailure("Location could not be parsed from stream segment link: " + line);
+
+                StreamPart part;
+                Integer startOffset = resolver.getStartOffset();
+                if (startOffset == null)
+                    part = new SimpleStreamPart(duration, location, name, null);
+                else {
+                    Integer endOffset = resolver.getEndOffset();
+                    if (endOffset == null)
+                        return logFailure("End offset could not be parsed from stream segment link: " + line);
+
+                    part = new AppendableStreamPart(duration, location, startOffset, endOffset, name, null);
+                }
+
+                coalescer.add(part);
+            }
+            else if (line.startsWith(M3U8_MEDIA_SEQUENCE_TAG_PREFIX)) {
+                long number;
+                try {
+                    number = Long.parseLong(line.substring(M3U8_MEDIA_SEQUENCE_TAG_PREFIX.length()));
+                } catch (NumberFormatException e) {
+                    return logFailure("Invalid m3u8 media sequence tag: " + line);
+                }
+                if (number < 0)
+                    return logFailure("Invalid m3u8 media sequence tag: " + line);
+
+                if (!segmentFound) {
+                    if (knownMediaSequence > 0 && number > knownMediaSequence)
+                        debugLogger.logMessage("Segments were removed from media playlist before they could be " +
+                                "read: " + (number - knownMediaSequence));
+
+                    mediaSequence = number;
+                }
+            }
+            else if (line.startsWith(M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX)) {
+                int seconds;
+                try {
+                    seconds = Integer.parseInt(line.substring(M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX.length()));
+                } catch (NumberFormatException e) {
+                    return logFailure("Invalid m3u8 target duration tag: " + line);
+                }
+                if (seconds < 0)
+                    return logFailure("Invalid m3u8 target duration tag: " + line);
+
+                targetDuration = OptionalInt.of(seconds);
+            }
+            else if (M3U8_MEDIA_END_OF_FILE.equals(line))
+                ended = true;
+        }
+
+        MediaPlaylist newParts = new MediaPlaylist(coalescer.getStreamParts());
+        return Optional.of(new MediaPlaylistUpdate(newParts, Math.max(mediaSequence, knownMediaSequence),
+                targetDuration, ended));
+    }
+
+    @Override
+    public void close() throws Exception {
+        scanner.close();
+    }
+
+    // CONSTRUCTORS
+
+    public ScannerM3U8Parser(Scanner scanner, CustomizedLogger debugLogger, PlaylistPolicy playlistPolicy) {
+        Null.check(scanner, debugLogger, playlistPolicy)
+                .ifAny("Scanner, logger and playlist policy cannot be null");
+
+        this.scanner = scanner;
+        this.debugLogger = debugLogger;
+        this.playlistPolicy = playlistPolicy;
+    }
+
+    // PRIVATE
+
+    private final Scanner scanner;
+    private final CustomizedLogger debugLogger;
+    private final PlaylistPolicy playlistPolicy;
+
+    private String skipUntil(Predicate<String> stopCondition) {
+        String line;
+        do {
+            if (!scanner.hasNextLine())
+                return null;
+
+            line = scanner.nextLine();
+        } while (!stopCondition.test(line));
+
+        return line;
+    }
+
+    private <T> Optional<T> logFailure(String message) {
+        debugLogger.logMessage(message);
+        return Optional.empty();
+    }
+
+}
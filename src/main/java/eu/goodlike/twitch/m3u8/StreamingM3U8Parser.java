@@ -0,0 +1,528 @@
+package eu.goodlike.twitch.m3u8;
+
+import com.google.common.collect.ImmutableMap;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
+import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
+import eu.goodlike.twitch.m3u8.media.AppendableStreamPart;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylistUpdate;
+import eu.goodlike.twitch.m3u8.media.SimpleStreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
+import eu.goodlike.twitch.m3u8.media.StreamPartCoalescer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+
+import static eu.goodlike.twitch.TwitchDefaults.END_OFFSET_PARAM;
+import static eu.goodlike.twitch.TwitchDefaults.START_OFFSET_PARAM;
+import static eu.goodlike.twitch.m3u8.M3U8Defaults.*;
+
+/**
+ * <pre>
+ * M3U8 parser which reads bytes straight from the input stream, without a Scanner or regular expressions
+ *
+ * Lines are only turned into Strings when their contents are needed; durations and offsets are parsed in place, and
+ * the location of a segment is taken straight from its link; equal consecutive durations share the same BigDecimal
+ *
+ * Links which need an http url to be resolved correctly (absolute, nested or percent-encoded links, unusual offsets)
+ * are still resolved by MediaPartLinkResolver, so the resulting playlists are the same as those of ScannerM3U8Parser
+ *
+ * When only an update of the playlist is needed, known segments are skipped by looking at the start of their lines,
+ * without parsing them
+ *
+ * Lines can end with \n, \r\n or \r; text is decoded as UTF-8
+ * </pre>
+ */
+public final class StreamingM3U8Parser implements TwitchM3U8Parser {
+
+    @Override
+    public Optional<MasterPlaylist> parseMasterPlaylist() {
+        try {
+            return readMasterPlaylist();
+        } catch (IOException e) {
+            return logFailure("Could not read master playlist: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Optional<MediaPlaylist> parseMediaPlaylist() {
+        return parseMediaPlaylistUpdate(0).map(MediaPlaylistUpdate::getNewParts);
+    }
+
+    @Override
+    public Optional<MediaPlaylistUpdate> parseMediaPlaylistUpdate(long knownMediaSequence) {
+        if (knownMediaSequence < 0)
+            throw new IllegalArgumentException("Media sequence cannot be negative: " + knownMediaSequence);
+
+        try {
+            return readMediaPlaylistUpdate(knownMediaSequence);
+        } catch (IOException e) {
+            return logFailure("Could not read media playlist: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        inputStream.close();
+    }
+
+    // CONSTRUCTORS
+
+    public StreamingM3U8Parser(InputStream inputStream, CustomizedLogger debugLogger, PlaylistPolicy playlistPolicy) {
+        Null.check(inputStream, debugLogger, playlistPolicy)
+                .ifAny("Input stream, logger and playlist policy cannot be null");
+
+        this.inputStream = inputStream;
+        this.debugLogger = debugLogger;
+        this.playlistPolicy = playlistPolicy;
+
+        this.buffer = new byte[INITIAL_BUFFER_SIZE];
+    }
+
+    // PRIVATE
+
+    private final InputStream inputStream;
+    private final CustomizedLogger debugLogger;
+    private final PlaylistPolicy playlistPolicy;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    private int lineStart;
+    private int lineEnd;
+
+    private String linkLocation;
+    private int linkStartOffset;
+    private int linkEndOffset;
+
+    private BigDecimal lastDuration;
+    private long lastUnscaledDuration;
+    private int lastDurationScale;
+
+    private Optional<MasterPlaylist> readMasterPlaylist() throws IOException {
+        if (!nextLine())
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found nothing");
+
+        if (!regionEquals(lineStart, lineEnd, FILE_START))
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found: " + toString(lineStart, lineEnd));
+
+        Map<String, String> builder = new HashMap<>();
+        while (skipUntilLineStartsWith(MASTER_MEDIA_TAG_PREFIX)) {
+            String line = toString(lineStart, lineEnd);
+            int nameTagIndex = line.indexOf(M3U8_MASTER_MEDIA_NAME_ATTRIBUTE);
+            if (nameTagIndex < 0)
+                return logFailure("Invalid m3u8 media tag: no NAME attribute found");
+
+            int nameStartIndex = line.indexOf('"', nameTagIndex) + 1;
+            int nameEndIndex = line.indexOf('"', nameStartIndex);
+            if (nameEndIndex < 0)
+                return logFailure("Invalid m3u8 media tag: NAME attribute value incorrectly specified");
+
+            String name = line.substring(nameStartIndex, nameEndIndex).toLowerCase();
+            if (!skipUntilLink())
+                return logFailure("Missing link for stream source with specified name: " + name);
+
+            builder.putIfAbsent(name, toString(lineStart, lineEnd));
+        }
+        return Optional.of(new MasterPlaylist(ImmutableMap.copyOf(builder)));
+    }
+
+    private Optional<MediaPlaylistUpdate> readMediaPlaylistUpdate(long knownMediaSequence) throws IOException {
+        if (!nextLine())
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found nothing");
+
+        if (!regionEquals(lineStart, lineEnd, FILE_START))
+            return logFailure("Invalid file start, expected: " + M3U8_FILE_START + ", found: " + toString(lineStart, lineEnd));
+
+        StreamPartCoalescer coalescer = StreamPartCoalescer.from(playlistPolicy);
+        long mediaSequence = 0;
+        boolean segmentFound = false;
+        OptionalInt targetDuration = OptionalInt.empty();
+        boolean ended = false;
+        while (nextLine()) {
+            if (lineStartsWith(MEDIA_PREFIX)) {
+                segmentFound = true;
+                if (mediaSequence++ < knownMediaSequence) {
+                    // known segments are skipped without parsing their tags or links
+                    if (!skipUntilLink())
+                        return logFailure("Missing link for known stream segment: " + (mediaSequence - 1));
+
+                    continue;
+                }
+
+                StreamPart part = readStreamPart();
+                if (part == null)
+                    return Optional.empty();
+
+                coalescer.add(part);
+            }
+            else if (lineStartsWith(MEDIA_SEQUENCE_TAG_PREFIX)) {
+                long number = parseTagNumber(lineStart + MEDIA_SEQUENCE_TAG_PREFIX.length, lineEnd);
+                if (number < 0)
+                    return logFailure("Invalid m3u8 media sequence tag: " + toString(lineStart, lineEnd));
+
+                // the tag only applies if it comes before the first segment
+                if (!segmentFound) {
+                    if (knownMediaSequence > 0 && number > knownMediaSequence)
+                        debugLogger.logMessage("Segments were removed from media playlist before they could be " +
+                                "read: " + (number - knownMediaSequence));
+
+                    mediaSequence = number;
+                }
+            }
+            else if (lineStartsWith(TARGET_DURATION_TAG_PREFIX)) {
+                long seconds = parseTagNumber(lineStart + TARGET_DURATION_TAG_PREFIX.length, lineEnd);
+                if (seconds < 0 || seconds > Integer.MAX_VALUE)
+                    return logFailure("Invalid m3u8 target duration tag: " + toString(lineStart, lineEnd));
+
+                targetDuration = OptionalInt.of((int) seconds);
+            }
+            else if (regionEquals(lineStart, lineEnd, END_OF_FILE))
+                ended = true;
+        }
+
+        MediaPlaylist newParts = new MediaPlaylist(coalescer.getStreamParts());
+        return Optional.of(new MediaPlaylistUpdate(newParts, Math.max(mediaSequence, knownMediaSequence),
+                targetDuration, ended));
+    }
+
+    /**
+     * Reads the segment whose #EXTINF tag is the current line, up to and including its link
+     * @return segment which was read, null if it is invalid
+     */
+    private StreamPart readStreamPart() throws IOException {
+        int durationStart = lineStart + MEDIA_PREFIX.length;
+        int comma = indexOf(',', durationStart, lineEnd);
+        if (comma < 0 || indexOf(',', comma + 1, lineEnd) >= 0)
+            return logPartFailure("Invalid m3u8 segment tag: "  + M3U8_MEDIA_PREFIX +
+                    " should have one and only one ',' to separate duration and (optional) name");
+
+        BigDecimal duration = parseDuration(durationStart, comma);
+        if (duration == null)
+            return logPartFailure("Invalid m3u8 segment tag: could not parse duration into BigDecimal: " +
+                    toString(durationStart, comma));
+
+        String name = comma + 1 == lineEnd ? "" : toString(comma + 1, lineEnd);
+        if (!skipUntilLink())
+            return logPartFailure("Missing link for stream segment with (optional) name: " + name);
+
+        if (!readLinkInPlace()) {
+            String line = toString(lineStart, lineEnd);
+            MediaPartLinkResolver resolver = MediaPartLinkResolver.forPathWithoutPrefix(line);
+            if (resolver == null)
+                return logPartFailure("Could not parse link for stream segment as an http element: " + line);
+
+            linkLocation = resolver.getLocation();
+            if (linkLocation == null)
+                return logPartFailure("Location could not be parsed from stream segment link: " + line);
+
+            Integer startOffset = resolver.getStartOffset();
+            Integer endOffset = resolver.getEndOffset();
+            linkStartOffset = startOffset == null ? MISSING : startOffset;
+            linkEndOffset = endOffset == null ? MISSING : endOffset;
+        }
+
+        if (linkStartOffset == MISSING)
+            return new SimpleStreamPart(duration, linkLocation, name, null);
+
+        if (linkEndOffset == MISSING)
+            return logPartFailure("End offset could not be parsed from stream segment link: " +
+                    toString(lineStart, lineEnd));
+
+        return new AppendableStreamPart(duration, linkLocation, linkStartOffset, linkEndOffset, name, null);
+    }
+
+    /**
+     * Moves to the next line, reading more input if needed
+     * @return true if there was a next line, false if the input has ended
+     */
+    private boolean nextLine() throws IOException {
+        int searched = 0;
+        while (true) {
+            for (int i = position + searched; i < limit; i++) {
+                byte b = buffer[i];
+                // a trailing '\r' may be followed by '\n' which has not been read yet
+                if (b == '\n' || (b == '\r' && (i + 1 < limit || endOfInput))) {
+                    lineStart = position;
+                    lineEnd = i;
+                    position = b == '\r' && i + 1 < limit && buffer[i + 1] == '\n' ? i + 2 : i + 1;
+                    return true;
+                }
+            }
+
+            if (endOfInput) {
+                if (position == limit)
+                    return false;
+
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+
+            searched = Math.max(0, limit - position - 1);
+            fill();
+        }
+    }
+
+    private void fill() throws IOException {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+        if (limit == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+        int read = inputStream.read(buffer, limit, buffer.length - limit);
+        if (read < 0)
+            endOfInput = true;
+        else
+            limit += read;
+    }
+
+    private boolean skipUntilLineStartsWith(byte[] prefix) throws IOException {
+        while (nextLine())
+            if (lineStartsWith(prefix))
+                return true;
+
+        return false;
+    }
+
+    private boolean skipUntilLink() throws IOException {
+        while (nextLine())
+            if (lineStart == lineEnd || buffer[lineStart] != TAG_START)
+                return true;
+
+        return false;
+    }
+
+    private boolean lineStartsWith(byte[] prefix) {
+        if (lineEnd - lineStart < prefix.length)
+            return false;
+
+        for (int i = 0; i < prefix.length; i++)
+            if (buffer[lineStart + i] != prefix[i])
+                return false;
+
+        return true;
+    }
+
+    private int indexOf(char c, int from, int to) {
+        for (int i = from; i < to; i++)
+            if (buffer[i] == c)
+                return i;
+
+        return -1;
+    }
+
+    private boolean regionEquals(int from, int to, byte[] bytes) {
+        if (to - from != bytes.length)
+            return false;
+
+        for (int i = 0; i < bytes.length; i++)
+            if (buffer[from + i] != bytes[i])
+                return false;
+
+        return true;
+    }
+
+    private String toString(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return duration parsed from given region, null if it is not a valid BigDecimal
+     */
+    private BigDecimal parseDuration(int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer[i] == '-' || buffer[i] == '+'))
+            negative = buffer[i++] == '-';
+
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean pointFound = false;
+        for (; i < to; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                if (++digits > MAX_LONG_DIGITS)
+                    return parseDurationSlowly(from, to);
+
+                unscaled = unscaled * 10 + (b - '0');
+                if (pointFound)
+                    scale++;
+            }
+            else if (b == '.' && !pointFound)
+                pointFound = true;
+            else
+                return parseDurationSlowly(from, to);
+        }
+        if (digits == 0)
+            return parseDurationSlowly(from, to);
+
+        if (negative)
+            unscaled = -unscaled;
+
+        if (lastDuration == null || unscaled != lastUnscaledDuration || scale != lastDurationScale) {
+            lastDuration = BigDecimal.valueOf(unscaled, scale);
+            lastUnscaledDuration = unscaled;
+            lastDurationScale = scale;
+        }
+        return lastDuration;
+    }
+
+    private BigDecimal parseDurationSlowly(int from, int to) {
+        try {
+            return new BigDecimal(toString(from, to));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads location and offsets of the current line, if it is a plain relative link, i.e. "name.ts" with an optional
+     * query of plain parameters
+     * @return true if the link was read, false if it needs to be resolved as an http url instead
+     */
+    private boolean readLinkInPlace() {
+        int queryStart = lineEnd;
+        for (int i = lineStart; i < lineEnd; i++) {
+            byte b = buffer[i];
+            if (queryStart == lineEnd && b == '?')
+                queryStart = i;
+            else if (!isPlainChar(b) && (queryStart == lineEnd || (b != '=' && b != '&')))
+                return false;
+        }
+
+        int locationLength = queryStart - lineStart;
+        if (locationLength == 0 || isDotSegment(lineStart, queryStart))
+            return false;
+
+        boolean startOffsetFound = false;
+        boolean endOffsetFound = false;
+        int startOffset = MISSING;
+        int endOffset = MISSING;
+        for (int parameter = queryStart + 1; parameter < lineEnd; ) {
+            int parameterEnd = indexOf('&', parameter, lineEnd);
+            if (parameterEnd < 0)
+                parameterEnd = lineEnd;
+
+            int equals = indexOf('=', parameter, parameterEnd);
+            int nameEnd = equals < 0 ? parameterEnd : equals;
+            if (!startOffsetFound && regionEquals(parameter, nameEnd, START_OFFSET)) {
+                startOffsetFound = true;
+                startOffset = equals < 0 ? MISSING : parseOffset(equals + 1, parameterEnd);
+            }
+            else if (!endOffsetFound && regionEquals(parameter, nameEnd, END_OFFSET)) {
+                endOffsetFound = true;
+                endOffset = equals < 0 ? MISSING : parseOffset(equals + 1, parameterEnd);
+            }
+            if (startOffset == UNKNOWN || endOffset == UNKNOWN)
+                return false;
+
+            parameter = parameterEnd + 1;
+        }
+
+        linkLocation = toString(lineStart, queryStart);
+        linkStartOffset = startOffset;
+        linkEndOffset = endOffset;
+        return true;
+    }
+
+    /**
+     * @return number parsed from given region, -1 if it is anything other than a plain non-negative number which
+     * surely fits into a long
+     */
+    private long parseTagNumber(int from, int to) {
+        if (from == to || to - from > MAX_LONG_DIGITS)
+            return -1;
+
+        long number = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9')
+                return -1;
+
+            number = number * 10 + (b - '0');
+        }
+        return number;
+    }
+
+    /**
+     * @return offset parsed from given region, MISSING if it is empty, UNKNOWN if it is anything other than a plain
+     * non-negative number which surely fits into an int
+     */
+    private int parseOffset(int from, int to) {
+        if (from == to)
+            return MISSING;
+
+        if (to - from > MAX_INT_DIGITS)
+            return UNKNOWN;
+
+        int offset = 0;
+        for (int i = from; i < to; i++) {
+            byte b = buffer[i];
+            if (b < '0' || b > '9')
+                return UNKNOWN;
+
+            offset = offset * 10 + (b - '0');
+        }
+        return offset;
+    }
+
+    private boolean isDotSegment(int from, int to) {
+        return (to - from == 1 && buffer[from] == '.')
+                || (to - from == 2 && buffer[from] == '.' && buffer[from + 1] == '.');
+    }
+
+    /**
+     * @return true if the character means the same thing in any part of an http url, and is never escaped
+     */
+    private static boolean isPlainChar(byte b) {
+        return (b >= 'A' && b <= 'Z')
+                || (b >= 'a' && b <= 'z')
+                || (b >= '0' && b <= '9')
+                || b == '-' || b == '_' || b == '.' || b == '~';
+    }
+
+    private <T> Optional<T> logFailure(String message) {
+        debugLogger.logMessage(message);
+        return Optional.empty();
+    }
+
+    private StreamPart logPartFailure(String message) {
+        debugLogger.logMessage(message);
+        return null;
+    }
+
+    private static final int INITIAL_BUFFER_SIZE = 8192;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final int MAX_INT_DIGITS = 9;
+
+    private static final int MISSING = -1;
+    private static final int UNKNOWN = -2;
+
+    private static final byte TAG_START = (byte) M3U8_TAG_START.charAt(0);
+    private static final byte[] FILE_START = M3U8_FILE_START.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MASTER_MEDIA_TAG_PREFIX = M3U8_MASTER_MEDIA_TAG_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEDIA_PREFIX = M3U8_MEDIA_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEDIA_SEQUENCE_TAG_PREFIX = M3U8_MEDIA_SEQUENCE_TAG_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TARGET_DURATION_TAG_PREFIX = M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_OF_FILE = M3U8_MEDIA_END_OF_FILE.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] START_OFFSET = START_OFFSET_PARAM.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_OFFSET = END_OFFSET_PARAM.getBytes(StandardCharsets.US_ASCII);
+
+}
@@ -7,18 +7,22 @@ import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
 import java.io.InputStream;
 import java.util.Scanner;
 
+import static eu.goodlike.twitch.download.configurations.policy.ParserEngine.SCANNER;
+
 /**
  * TwitchM3U8Parser factory, which eliminates the need to pass logger/policy when constructing a new instance
  */
 public final class TwitchM3U8ParserFactory {
 
     /**
-     * @return TwitchM3U8Parser for given input stream
+     * @return TwitchM3U8Parser for given input stream, using the parser engine from playlist policy
      * @throws NullPointerException if input stream is null
      */
     public TwitchM3U8Parser newInstance(InputStream inputStream) {
         Null.check(inputStream).ifAny("Input stream cannot be null");
-        return new TwitchM3U8Parser(new Scanner(inputStream), debugLogger, playlistPolicy);
+        return playlistPolicy.getParserEngine() == SCANNER
+                ? new ScannerM3U8Parser(new Scanner(inputStream), debugLogger, playlistPolicy)
+                : new StreamingM3U8Parser(inputStream, debugLogger, playlistPolicy);
     }
 
     // CONSTRUCTORS
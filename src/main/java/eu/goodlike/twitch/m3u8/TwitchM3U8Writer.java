@@ -1,12 +1,17 @@
 package eu.goodlike.twitch.m3u8;
 
-import eu.goodlike.io.FileAppender;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.neat.Null;
 import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
-import eu.goodlike.twitch.m3u8.media.StreamPart;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
@@ -17,6 +22,10 @@ import static eu.goodlike.twitch.m3u8.M3U8Defaults.*;
  * A simple M3U8 writer, which supports writing media playlists for twitch streams
  *
  * Media playlist is a list of fragments that combined together make the stream VoD
+ *
+ * The playlist is rendered in a single pass, in chunks of a fixed size, straight from the media playlist, so writing
+ * even a very large playlist creates very few objects; it can be written into a file, any Appendable, a channel, or
+ * the input of a process
  * </pre>
  */
 public final class TwitchM3U8Writer {
@@ -28,27 +37,72 @@ public final class TwitchM3U8Writer {
     public Optional<File> writeMediaPlaylist(Path path) {
         Null.check(path).ifAny("Path cannot be null");
 
-        Optional<FileAppender> fileAppenderOptional = FileAppender.ofFile(path);
-        if (!fileAppenderOptional.isPresent())
+        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8)) {
+            writeMediaPlaylist(writer);
+        } catch (IOException e) {
             return logFailure("Cannot write media playlist to file at: " + path);
-
-        try (FileAppender fileAppender = fileAppenderOptional.get()) {
-            fileAppender.appendLine(M3U8_FILE_START);
-            fileAppender.appendLine("");
-            fileAppender.appendLine(M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX + mediaPlaylist.getTargetDuration());
-            fileAppender.appendLine("");
-            for (StreamPart part : mediaPlaylist.getStreamParts())
-                fileAppender.appendLine(part.getMediaPlaylistString());
-
-            fileAppender.appendLine("");
-            fileAppender.appendLine(M3U8_MEDIA_END_OF_FILE);
-            fileAppender.appendLine("");
         } catch (Exception e) {
             return logFailure("Unexpected exception while writing media playlist file at: " + path);
         }
         return Optional.of(path.toFile());
     }
 
+    /**
+     * Writes the playlist into the appendable; if it is a Writer, it is not flushed
+     * @throws NullPointerException if appendable is null
+     * @throws IOException if appending fails
+     */
+    public void writeMediaPlaylist(Appendable appendable) throws IOException {
+        Null.check(appendable).ifAny("Appendable cannot be null");
+
+        ChunkedAppender chunkedAppender = new ChunkedAppender(appendable);
+        StringBuilder chunk = chunkedAppender.getChunk();
+        chunk.append(M3U8_FILE_START).append(LINE_SEPARATOR)
+                .append(LINE_SEPARATOR)
+                .append(M3U8_MEDIA_TARGET_DURATION_TAG_PREFIX).append(mediaPlaylist.getTargetDuration())
+                .append(LINE_SEPARATOR)
+                .append(LINE_SEPARATOR);
+
+        int partCount = mediaPlaylist.getStreamParts().size();
+        for (int i = 0; i < partCount; i++) {
+            mediaPlaylist.appendMediaPlaylistString(i, chunk);
+            chunk.append(LINE_SEPARATOR);
+            chunkedAppender.flushIfFull();
+        }
+
+        chunk.append(LINE_SEPARATOR)
+                .append(M3U8_MEDIA_END_OF_FILE).append(LINE_SEPARATOR)
+                .append(LINE_SEPARATOR);
+        chunkedAppender.flush();
+    }
+
+    /**
+     * Writes the playlist into the channel as UTF-8; the channel is not closed
+     * @throws NullPointerException if channel is null
+     * @throws IOException if writing fails
+     */
+    public void writeMediaPlaylist(WritableByteChannel channel) throws IOException {
+        Null.check(channel).ifAny("Channel cannot be null");
+
+        Writer writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), CHUNK_SIZE);
+        writeMediaPlaylist(writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the playlist into the input of the process as UTF-8; the input is closed afterwards, even if writing
+     * fails, so the process can see where the playlist ends
+     * @throws NullPointerException if process is null
+     * @throws IOException if writing fails
+     */
+    public void writeMediaPlaylist(Process process) throws IOException {
+        Null.check(process).ifAny("Process cannot be null");
+
+        try (Writer writer = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8)) {
+            writeMediaPlaylist(writer);
+        }
+    }
+
     // CONSTRUCTORS
 
     public TwitchM3U8Writer(MediaPlaylist mediaPlaylist, CustomizedLogger debugLogger) {
@@ -68,4 +122,50 @@ public final class TwitchM3U8Writer {
         return Optional.empty();
     }
 
+    private static final int CHUNK_SIZE = 8192;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * Collects rendered text into a chunk, which is passed to the appendable once it is full; Writers are given the
+     * characters directly, so no String is created for them
+     */
+    private static final class ChunkedAppender {
+        private StringBuilder getChunk() {
+            return chunk;
+        }
+
+        private void flushIfFull() throws IOException {
+            if (chunk.length() >= CHUNK_SIZE)
+                flush();
+        }
+
+        private void flush() throws IOException {
+            int length = chunk.length();
+            if (appendable instanceof Writer) {
+                if (chars == null || chars.length < length)
+                    chars = new char[length];
+
+                chunk.getChars(0, length, chars, 0);
+                ((Writer) appendable).write(chars, 0, length);
+            }
+            else
+                appendable.append(chunk);
+
+            chunk.setLength(0);
+        }
+
+        // CONSTRUCTORS
+
+        private ChunkedAppender(Appendable appendable) {
+            this.appendable = appendable;
+            this.chunk = new StringBuilder(CHUNK_SIZE * 2);
+        }
+
+        // PRIVATE
+
+        private final Appendable appendable;
+        private final StringBuilder chunk;
+        private char[] chars;
+    }
+
 }
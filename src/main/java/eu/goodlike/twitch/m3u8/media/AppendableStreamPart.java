@@ -11,6 +11,7 @@ import okhttp3.HttpUrl;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static eu.goodlike.twitch.TwitchDefaults.END_OFFSET_PARAM;
 import static eu.goodlike.twitch.TwitchDefaults.START_OFFSET_PARAM;
@@ -89,6 +90,42 @@ public final class AppendableStreamPart implements StreamPart {
         return HttpUrls.parse(getFullLocation());
     }
 
+    @Override
+    public OptionalLong getByteSize() {
+        return OptionalLong.of(endOffset - startOffset + 1L);
+    }
+
+    @Override
+    public Optional<HttpUrl> getRangeLocationUrl(long rangeStart, long rangeEnd) {
+        if (rangeStart < 0 || rangeEnd < rangeStart || rangeEnd > endOffset - startOffset)
+            throw new IllegalArgumentException("Invalid byte range: " + rangeStart + "-" + rangeEnd);
+
+        return HttpUrls.parse(Str.format(FULL_LOCATION_FORMAT,
+                locationPrefix, location, startOffset + rangeStart, startOffset + rangeEnd));
+    }
+
+    /**
+     * @return offset of the first byte of this part in the file at its location
+     */
+    public int getStartOffset() {
+        return startOffset;
+    }
+
+    /**
+     * @return offset of the last byte of this part in the file at its location
+     */
+    public int getEndOffset() {
+        return endOffset;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getLocationPrefix() {
+        return locationPrefix;
+    }
+
     // CONSTRUCTORS
 
     public AppendableStreamPart(BigDecimal duration, String location, int startOffset, int endOffset, String name, String locationPrefix) {
@@ -1,18 +1,35 @@
 package eu.goodlike.twitch.m3u8.media;
 
-import com.google.common.collect.ImmutableList;
-import eu.goodlike.functional.ImmutableCollectors;
 import eu.goodlike.neat.Null;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
 
+import static eu.goodlike.twitch.TwitchDefaults.END_OFFSET_PARAM;
+import static eu.goodlike.twitch.TwitchDefaults.START_OFFSET_PARAM;
+import static eu.goodlike.twitch.m3u8.M3U8Defaults.M3U8_MEDIA_PREFIX;
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.ZERO;
 
 /**
+ * <pre>
  * Contains stream VoD fragments
+ *
+ * Parts are not kept as separate objects; instead, they are stored in columns: equal locations share the same String,
+ * durations are fixed-point longs, offsets are ints, names are only stored if any part has one, and the location
+ * prefix is stored once for the whole playlist; parts are created when they are requested from getStreamParts, so
+ * they should not be held on to longer than needed
+ *
+ * Durations are stored with the largest scale used by any part (at most 9 decimal places, larger scales are rounded);
+ * durations of created parts always have this scale
+ * </pre>
  */
 public final class MediaPlaylist {
 
@@ -24,14 +41,44 @@ public final class MediaPlaylist {
     }
 
     /**
-     * @return this media playlist with all of its stream parts having given location prefix
+     * Appends the same String as StreamPart::getMediaPlaylistString of the part at given index would return, without
+     * creating the part or any other objects along the way
+     * @throws NullPointerException if builder is null
+     * @throws IndexOutOfBoundsException if there is no part at given index
+     */
+    public void appendMediaPlaylistString(int index, StringBuilder builder) {
+        Null.check(builder).ifAny("Builder cannot be null");
+        if (index < 0 || index >= locations.length)
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + locations.length);
+
+        if (otherParts != null && otherParts[index] != null) {
+            builder.append(otherParts[index].getMediaPlaylistString());
+            return;
+        }
+
+        builder.append(M3U8_MEDIA_PREFIX);
+        appendDuration(durations[index], builder);
+        builder.append(',');
+        if (names != null)
+            builder.append(names[index]);
+
+        builder.append(LINE_SEPARATOR)
+                .append(locationPrefixes == null ? locationPrefix : locationPrefixes[index])
+                .append(locations[index]);
+
+        if (startOffsets != null && startOffsets[index] != NOT_APPENDABLE)
+            builder.append('?').append(START_OFFSET_PARAM).append('=').append(startOffsets[index])
+                    .append('&').append(END_OFFSET_PARAM).append('=').append(endOffsets[index]);
+    }
+
+    /**
+     * @return this media playlist with all of its stream parts having given location prefix; all parts are shared
+     * with this playlist, so this takes constant time and memory
      * @throws NullPointerException if location prefix is null
      */
     public MediaPlaylist prependLocationPrefix(String locationPrefix) {
         Null.check(locationPrefix).ifAny("Location prefix cannot be null");
-        return new MediaPlaylist(streamParts.stream()
-                .map(part -> part.setLocationPrefix(locationPrefix))
-                .collect(ImmutableCollectors.toList()));
+        return new MediaPlaylist(this, locationPrefix);
     }
 
     /**
@@ -39,23 +86,223 @@ public final class MediaPlaylist {
      * there are no parts
      */
     public BigInteger getTargetDuration() {
-        return streamParts.stream()
-                .map(StreamPart::getDuration)
-                .max(BigDecimal::compareTo)
-                .map(BigDecimal::toBigInteger)
-                .map(big -> big.add(ONE))
-                .orElse(ZERO);
+        return targetDuration;
+    }
+
+    /**
+     * @return sum of durations of all parts of this media playlist
+     */
+    public BigDecimal getTotalDuration() {
+        return totalDuration;
     }
 
     // CONSTRUCTORS
 
     public MediaPlaylist(List<StreamPart> streamParts) {
         Null.checkList(streamParts).ifAny("Stream sources cannot be null");
-        this.streamParts = ImmutableList.copyOf(streamParts);
+
+        int size = streamParts.size();
+        this.locations = new String[size];
+        this.durations = new long[size];
+        this.durationScale = getDurationScale(streamParts);
+
+        Map<String, String> sharedLocations = new HashMap<>();
+        String sharedPrefix = null;
+        String[] prefixes = null;
+        String[] names = null;
+        int[] startOffsets = null;
+        int[] endOffsets = null;
+        StreamPart[] otherParts = null;
+
+        long totalUnscaledDuration = 0;
+        long maxUnscaledDuration = -1;
+        for (int i = 0; i < size; i++) {
+            StreamPart part = streamParts.get(i);
+            long duration = part.getDuration()
+                    .setScale(durationScale, RoundingMode.HALF_UP)
+                    .unscaledValue()
+                    .longValueExact();
+            durations[i] = duration;
+            totalUnscaledDuration += duration;
+            maxUnscaledDuration = Math.max(maxUnscaledDuration, duration);
+
+            String name;
+            String prefix;
+            if (part instanceof AppendableStreamPart) {
+                AppendableStreamPart appendablePart = (AppendableStreamPart) part;
+                if (startOffsets == null) {
+                    startOffsets = newArray(size, NOT_APPENDABLE);
+                    endOffsets = new int[size];
+                }
+                startOffsets[i] = appendablePart.getStartOffset();
+                endOffsets[i] = appendablePart.getEndOffset();
+                name = appendablePart.getName();
+                prefix = appendablePart.getLocationPrefix();
+            }
+            else if (part instanceof SimpleStreamPart) {
+                SimpleStreamPart simplePart = (SimpleStreamPart) part;
+                name = simplePart.getName();
+                prefix = simplePart.getLocationPrefix();
+            }
+            else {
+                if (otherParts == null)
+                    otherParts = new StreamPart[size];
+                otherParts[i] = part;
+                continue;
+            }
+
+            locations[i] = sharedLocations.computeIfAbsent(part.getLocation(), location -> location);
+
+            if (!name.isEmpty() && names == null)
+                names = newArray(size, "");
+            if (names != null)
+                names[i] = name;
+
+            if (sharedPrefix == null)
+                sharedPrefix = prefix;
+            else if (prefixes == null && !sharedPrefix.equals(prefix))
+                prefixes = newArray(i, sharedPrefix, size);
+            if (prefixes != null)
+                prefixes[i] = prefix;
+        }
+
+        this.locationPrefix = sharedPrefix == null ? "" : sharedPrefix;
+        this.locationPrefixes = prefixes;
+        this.names = names;
+        this.startOffsets = startOffsets;
+        this.endOffsets = endOffsets;
+        this.otherParts = otherParts;
+
+        this.targetDuration = maxUnscaledDuration < 0
+                ? ZERO
+                : BigDecimal.valueOf(maxUnscaledDuration, durationScale).toBigInteger().add(ONE);
+        this.totalDuration = BigDecimal.valueOf(totalUnscaledDuration, durationScale);
+        this.streamParts = new StreamPartList();
+    }
+
+    private MediaPlaylist(MediaPlaylist mediaPlaylist, String locationPrefix) {
+        this.locations = mediaPlaylist.locations;
+        this.durations = mediaPlaylist.durations;
+        this.durationScale = mediaPlaylist.durationScale;
+        this.locationPrefix = locationPrefix;
+        this.locationPrefixes = null;
+        this.names = mediaPlaylist.names;
+        this.startOffsets = mediaPlaylist.startOffsets;
+        this.endOffsets = mediaPlaylist.endOffsets;
+        this.otherParts = mediaPlaylist.otherParts == null ? null : withPrefix(mediaPlaylist.otherParts, locationPrefix);
+
+        this.targetDuration = mediaPlaylist.targetDuration;
+        this.totalDuration = mediaPlaylist.totalDuration;
+        this.streamParts = new StreamPartList();
     }
 
     // PRIVATE
 
+    private final String[] locations;
+    private final long[] durations;
+    private final int durationScale;
+
+    private final String locationPrefix;
+    private final String[] locationPrefixes;
+    private final String[] names;
+    private final int[] startOffsets;
+    private final int[] endOffsets;
+    private final StreamPart[] otherParts;
+
+    private final BigInteger targetDuration;
+    private final BigDecimal totalDuration;
     private final List<StreamPart> streamParts;
 
+    private StreamPart getStreamPart(int index) {
+        if (otherParts != null && otherParts[index] != null)
+            return otherParts[index];
+
+        BigDecimal duration = BigDecimal.valueOf(durations[index], durationScale);
+        String name = names == null ? "" : names[index];
+        String prefix = locationPrefixes == null ? locationPrefix : locationPrefixes[index];
+        return startOffsets != null && startOffsets[index] != NOT_APPENDABLE
+                ? new AppendableStreamPart(duration, locations[index], startOffsets[index], endOffsets[index], name, prefix)
+                : new SimpleStreamPart(duration, locations[index], name, prefix);
+    }
+
+    /**
+     * Appends the duration the same way BigDecimal::toString would
+     */
+    private void appendDuration(long unscaledDuration, StringBuilder builder) {
+        // such small values are written in scientific notation by BigDecimal
+        if (durationScale > 6 && unscaledDuration < POWERS_OF_TEN[durationScale - 6]) {
+            builder.append(BigDecimal.valueOf(unscaledDuration, durationScale));
+            return;
+        }
+
+        long unit = POWERS_OF_TEN[durationScale];
+        builder.append(unscaledDuration / unit);
+        if (durationScale == 0)
+            return;
+
+        builder.append('.');
+        long fraction = unscaledDuration % unit;
+        for (long digit = unit / 10; digit > 1 && fraction < digit; digit /= 10)
+            builder.append('0');
+
+        builder.append(fraction);
+    }
+
+    private static int getDurationScale(List<StreamPart> streamParts) {
+        int scale = 0;
+        for (StreamPart part : streamParts)
+            scale = Math.max(scale, part.getDuration().scale());
+
+        return Math.min(scale, MAX_DURATION_SCALE);
+    }
+
+    private static int[] newArray(int size, int value) {
+        int[] array = new int[size];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    private static String[] newArray(int size, String value) {
+        return newArray(size, value, size);
+    }
+
+    private static String[] newArray(int filled, String value, int size) {
+        String[] array = new String[size];
+        Arrays.fill(array, 0, filled, value);
+        return array;
+    }
+
+    private static StreamPart[] withPrefix(StreamPart[] parts, String locationPrefix) {
+        StreamPart[] prefixedParts = new StreamPart[parts.length];
+        for (int i = 0; i < parts.length; i++)
+            if (parts[i] != null)
+                prefixedParts[i] = parts[i].setLocationPrefix(locationPrefix);
+
+        return prefixedParts;
+    }
+
+    private static final int MAX_DURATION_SCALE = 9;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000,
+            100_000_000, 1_000_000_000};
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int NOT_APPENDABLE = -1;
+
+    /**
+     * Read-only view of the parts; every part is created when it is requested
+     */
+    private final class StreamPartList extends AbstractList<StreamPart> implements RandomAccess {
+        @Override
+        public StreamPart get(int index) {
+            if (index < 0 || index >= locations.length)
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + locations.length);
+
+            return getStreamPart(index);
+        }
+
+        @Override
+        public int size() {
+            return locations.length;
+        }
+    }
+
 }
@@ -0,0 +1,80 @@
+package eu.goodlike.twitch.m3u8.media;
+
+import eu.goodlike.neat.Null;
+
+import java.util.OptionalInt;
+
+/**
+ * <pre>
+ * Contains the part of a media playlist which was not known yet, and the state of the whole playlist
+ *
+ * Segments are identified by their media sequence number; the first segment of a playlist has the number given by its
+ * #EXT-X-MEDIA-SEQUENCE tag (0 if there is none), and every following segment has the next number
+ * </pre>
+ */
+public final class MediaPlaylistUpdate {
+
+    /**
+     * @return media playlist of segments which were not known yet; it is empty if there were no such segments
+     */
+    public MediaPlaylist getNewParts() {
+        return newParts;
+    }
+
+    /**
+     * @return media sequence number of the segment which will come after the last segment of the playlist
+     */
+    public long getNextMediaSequence() {
+        return nextMediaSequence;
+    }
+
+    /**
+     * @return target duration in seconds given by the #EXT-X-TARGETDURATION tag, OptionalInt::empty if the playlist
+     * has no such tag
+     */
+    public OptionalInt getTargetDuration() {
+        return targetDuration;
+    }
+
+    /**
+     * @return true if the playlist has the #EXT-X-ENDLIST tag, meaning no more segments will be added to it, false
+     * otherwise
+     */
+    public boolean isEnded() {
+        return ended;
+    }
+
+    /**
+     * @return this update with all of its new parts having given location prefix
+     * @throws NullPointerException if location prefix is null
+     */
+    public MediaPlaylistUpdate prependLocationPrefix(String locationPrefix) {
+        Null.check(locationPrefix).ifAny("Location prefix cannot be null");
+        return new MediaPlaylistUpdate(newParts.prependLocationPrefix(locationPrefix), nextMediaSequence,
+                targetDuration, ended);
+    }
+
+    // CONSTRUCTORS
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public MediaPlaylistUpdate(MediaPlaylist newParts, long nextMediaSequence, OptionalInt targetDuration,
+                               boolean ended) {
+        Null.check(newParts, targetDuration).ifAny("New parts and target duration Optional cannot be null");
+        if (nextMediaSequence < 0)
+            throw new IllegalArgumentException("Media sequence cannot be negative: " + nextMediaSequence);
+
+        this.newParts = newParts;
+        this.nextMediaSequence = nextMediaSequence;
+        this.targetDuration = targetDuration;
+        this.ended = ended;
+    }
+
+    // PRIVATE
+
+    private final MediaPlaylist newParts;
+    private final long nextMediaSequence;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final OptionalInt targetDuration;
+    private final boolean ended;
+
+}
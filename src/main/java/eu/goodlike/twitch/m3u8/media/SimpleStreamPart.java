@@ -11,6 +11,7 @@ import okhttp3.HttpUrl;
 import java.math.BigDecimal;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static eu.goodlike.twitch.m3u8.M3U8Defaults.TWITCH_M3U8_MEDIA_TAG_FORMAT;
 
@@ -63,6 +64,27 @@ public final class SimpleStreamPart implements StreamPart {
         return HttpUrls.parse(getFullLocation());
     }
 
+    @Override
+    public OptionalLong getByteSize() {
+        return OptionalLong.empty();
+    }
+
+    @Override
+    public Optional<HttpUrl> getRangeLocationUrl(long rangeStart, long rangeEnd) {
+        if (rangeStart < 0 || rangeEnd < rangeStart)
+            throw new IllegalArgumentException("Invalid byte range: " + rangeStart + "-" + rangeEnd);
+
+        return Optional.empty();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getLocationPrefix() {
+        return locationPrefix;
+    }
+
     // CONSTRUCTORS
 
     public SimpleStreamPart(BigDecimal duration, String location, String name, String locationPrefix) {
@@ -4,6 +4,7 @@ import okhttp3.HttpUrl;
 
 import java.math.BigDecimal;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 /**
  * Represents one part of a stream VoD
@@ -59,4 +60,17 @@ public interface StreamPart {
      */
     Optional<HttpUrl> getLocationUrl();
 
+    /**
+     * @return size of this stream part in bytes, if it can be determined from its location alone, OptionalLong::empty
+     * otherwise
+     */
+    OptionalLong getByteSize();
+
+    /**
+     * @return HttpUrl which points to given byte range (inclusive, relative to the start of this stream part) of this
+     * stream segment, Optional::empty if ranges cannot be expressed by the location of this stream part
+     * @throws IllegalArgumentException if the range is invalid or exceeds the size of this stream part
+     */
+    Optional<HttpUrl> getRangeLocationUrl(long rangeStart, long rangeEnd);
+
 }
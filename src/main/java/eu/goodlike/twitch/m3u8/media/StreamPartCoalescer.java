@@ -0,0 +1,153 @@
+package eu.goodlike.twitch.m3u8.media;
+
+import com.google.common.collect.ImmutableList;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <pre>
+ * Combines runs of consecutive appendable stream parts into bigger parts in a single pass
+ *
+ * Unlike repeated StreamPart::appendTo, no intermediate parts are created; a run is only turned into a part when it
+ * ends, either because the next part does not follow it, or because combining would exceed the size or duration limit
+ *
+ * This class is not thread safe; it is intended to be used by a single parser
+ * </pre>
+ */
+public final class StreamPartCoalescer {
+
+    /**
+     * Adds the part to the end of the playlist, combining it with the previous parts if possible
+     * @throws NullPointerException if part is null
+     */
+    public void add(StreamPart part) {
+        Null.check(part).ifAny("Stream part cannot be null");
+
+        if (!(part instanceof AppendableStreamPart)) {
+            finishRun();
+            builder.add(part);
+            return;
+        }
+
+        AppendableStreamPart appendablePart = (AppendableStreamPart) part;
+        if (!canExtendRun(appendablePart)) {
+            finishRun();
+            startRun(appendablePart);
+            return;
+        }
+
+        runEndOffset = appendablePart.getEndOffset();
+        runDuration = runDuration.add(appendablePart.getDuration());
+        addName(appendablePart.getName());
+    }
+
+    /**
+     * @return all parts added so far, with runs combined
+     */
+    public List<StreamPart> getStreamParts() {
+        finishRun();
+        return builder.build();
+    }
+
+    // CONSTRUCTORS
+
+    /**
+     * @return coalescer which combines parts as configured by the playlist policy
+     * @throws NullPointerException if playlist policy is null
+     */
+    public static StreamPartCoalescer from(PlaylistPolicy playlistPolicy) {
+        Null.check(playlistPolicy).ifAny("Playlist policy cannot be null");
+        if (!playlistPolicy.isCombinePlaylistPartsEnabled())
+            return combiningDisabled();
+
+        long maxCombinedSize = playlistPolicy.getMaxCombinedPartSize().orElse(Long.MAX_VALUE);
+        int maxCombinedDuration = playlistPolicy.getMaxCombinedPartDuration().orElse(Integer.MAX_VALUE);
+        return new StreamPartCoalescer(maxCombinedSize, BigDecimal.valueOf(maxCombinedDuration));
+    }
+
+    /**
+     * @return coalescer which never combines any parts
+     */
+    public static StreamPartCoalescer combiningDisabled() {
+        return new StreamPartCoalescer(false, Long.MAX_VALUE, BigDecimal.ZERO);
+    }
+
+    public StreamPartCoalescer(long maxCombinedSize, BigDecimal maxCombinedDuration) {
+        this(true, maxCombinedSize, maxCombinedDuration);
+    }
+
+    private StreamPartCoalescer(boolean combiningEnabled, long maxCombinedSize, BigDecimal maxCombinedDuration) {
+        Null.check(maxCombinedDuration).ifAny("Max combined duration cannot be null");
+        if (maxCombinedSize < 1)
+            throw new IllegalArgumentException("Max combined size must be positive, not: " + maxCombinedSize);
+
+        this.combiningEnabled = combiningEnabled;
+        this.maxCombinedSize = maxCombinedSize;
+        this.maxCombinedDuration = maxCombinedDuration;
+
+        this.builder = ImmutableList.builder();
+        this.runNames = new HashSet<>();
+        this.runName = new StringBuilder();
+    }
+
+    // PRIVATE
+
+    private final boolean combiningEnabled;
+    private final long maxCombinedSize;
+    private final BigDecimal maxCombinedDuration;
+
+    private final ImmutableList.Builder<StreamPart> builder;
+    private final Set<String> runNames;
+    private final StringBuilder runName;
+
+    private AppendableStreamPart runStart;
+    private int runEndOffset;
+    private BigDecimal runDuration;
+
+    private boolean canExtendRun(AppendableStreamPart part) {
+        return combiningEnabled
+                && runStart != null
+                && runStart.getLocation().equals(part.getLocation())
+                && part.getStartOffset() == runEndOffset + 1
+                && part.getEndOffset() - runStart.getStartOffset() + 1L <= maxCombinedSize
+                && runDuration.add(part.getDuration()).compareTo(maxCombinedDuration) <= 0;
+    }
+
+    private void startRun(AppendableStreamPart part) {
+        runStart = part;
+        runEndOffset = part.getEndOffset();
+        runDuration = part.getDuration();
+        addName(part.getName());
+    }
+
+    private void addName(String name) {
+        if (name.isEmpty() || !runNames.add(name))
+            return;
+
+        if (runName.length() > 0)
+            runName.append(' ');
+
+        runName.append(name);
+    }
+
+    private void finishRun() {
+        if (runStart == null)
+            return;
+
+        builder.add(runEndOffset == runStart.getEndOffset()
+                ? runStart
+                : new AppendableStreamPart(runDuration, runStart.getLocation(), runStart.getStartOffset(), runEndOffset,
+                        runName.toString(), runStart.getLocationPrefix()));
+
+        runStart = null;
+        runDuration = null;
+        runNames.clear();
+        runName.setLength(0);
+    }
+
+}
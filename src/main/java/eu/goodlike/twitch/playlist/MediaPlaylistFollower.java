@@ -0,0 +1,260 @@
+package eu.goodlike.twitch.playlist;
+
+import eu.goodlike.functional.Futures;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.http.TwitchRequestMaker;
+import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylistUpdate;
+import okhttp3.HttpUrl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ * Follows media playlists of VoDs which are still being broadcast
+ *
+ * The playlist is requested again every target duration, or every half of it if the last request found no new
+ * segments, as the HLS specification suggests; segments which are already known are skipped by the parser, so only
+ * the new ones are parsed and passed on; following ends once the playlist has the #EXT-X-ENDLIST tag
+ *
+ * If the playlist is rejected because its access has expired, the master playlist is fetched again (with a token which
+ * is refreshed if needed), and the playlist is followed at the url it gives instead
+ *
+ * If the playlist cannot be fetched several times in a row, or does not change for a long time, the broadcast is
+ * assumed to be gone, and following fails
+ * </pre>
+ */
+public final class MediaPlaylistFollower implements AutoCloseable {
+
+    /**
+     * Fetches the media playlist for selected quality and remembers where it ends, so that it can be followed by
+     * followNewParts afterwards
+     * @return media playlist for selected quality; in case of failure, it will be logged to debug
+     * @throws NullPointerException if master playlist is null
+     */
+    public CompletableFuture<MediaPlaylist> fetchMediaPlaylist(MasterPlaylist masterPlaylist, int vodId) {
+        Null.check(masterPlaylist).ifAny("Master playlist cannot be null");
+
+        return mediaPlaylistFetcher.findPlaylistUrl(masterPlaylist)
+                .thenCompose(url -> {
+                    debugLogger.logMessage("Requesting media playlist to follow at: " + url);
+                    return mediaPlaylistFetcher.fetchMediaPlaylistUpdate(url, 0)
+                            .thenApply(update -> {
+                                followedPlaylists.put(vodId, new FollowedPlaylist(vodId, url, update));
+                                return update.getNewParts();
+                            });
+                });
+    }
+
+    /**
+     * Keeps requesting the media playlist fetched by fetchMediaPlaylist for given VoD until it ends; every time new
+     * segments are found, they are passed to the handler as a media playlist of their own
+     * @return CompletableFuture which completes once the playlist has ended and every CompletableFuture returned by
+     * the handler has completed; it fails if the playlist could not be followed until its end, or the handler failed
+     * @throws NullPointerException if handler is null
+     */
+    public CompletableFuture<?> followNewParts(int vodId,
+                                               Function<MediaPlaylist, CompletableFuture<?>> newPartsHandler) {
+        Null.check(newPartsHandler).ifAny("Handler cannot be null");
+
+        FollowedPlaylist followedPlaylist = followedPlaylists.remove(vodId);
+        if (followedPlaylist == null)
+            return Futures.failedFuture(new IllegalStateException("Media playlist was not fetched for VoD: " + vodId));
+
+        return followedPlaylist.follow(newPartsHandler);
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdown();
+    }
+
+    // CONSTRUCTORS
+
+    public MediaPlaylistFollower(TwitchMasterPlaylistFetcher masterPlaylistFetcher,
+                                 TwitchMediaPlaylistFetcher mediaPlaylistFetcher, CustomizedLogger debugLogger) {
+        Null.check(masterPlaylistFetcher, mediaPlaylistFetcher, debugLogger)
+                .ifAny("Master playlist fetcher, media playlist fetcher and logger cannot be null");
+
+        this.masterPlaylistFetcher = masterPlaylistFetcher;
+        this.mediaPlaylistFetcher = mediaPlaylistFetcher;
+        this.debugLogger = debugLogger;
+
+        this.followedPlaylists = new ConcurrentHashMap<>();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "playlist-follow-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // PRIVATE
+
+    private final TwitchMasterPlaylistFetcher masterPlaylistFetcher;
+    private final TwitchMediaPlaylistFetcher mediaPlaylistFetcher;
+    private final CustomizedLogger debugLogger;
+
+    private final Map<Integer, FollowedPlaylist> followedPlaylists;
+    private final ScheduledExecutorService scheduler;
+
+    private static final int DEFAULT_TARGET_DURATION_SECONDS = 10;
+    private static final int MAX_FAILED_POLLS = 5;
+    private static final long MAX_UNCHANGED_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    /**
+     * State of a single followed playlist; polls never overlap, since the next one is only scheduled once the previous
+     * one is done, so the state needs no locking
+     */
+    private final class FollowedPlaylist {
+        private CompletableFuture<?> follow(Function<MediaPlaylist, CompletableFuture<?>> newPartsHandler) {
+            this.newPartsHandler = newPartsHandler;
+            if (ended)
+                finish();
+            else
+                schedulePoll(0);
+
+            return done;
+        }
+
+        private void schedulePoll(long delayMillis) {
+            try {
+                scheduler.schedule(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private void poll() {
+            mediaPlaylistFetcher.fetchMediaPlaylistUpdate(url, nextMediaSequence)
+                    .whenComplete((update, e) -> {
+                        if (e == null)
+                            onUpdate(update);
+                        else if (++failedPolls >= MAX_FAILED_POLLS)
+                            fail(e);
+                        else if (TwitchRequestMaker.isAuthFailure(e))
+                            renewUrl();
+                        else
+                            schedulePoll(getPollDelayMillis(false));
+                    });
+        }
+
+        private void renewUrl() {
+            debugLogger.logMessage("Media playlist was rejected, fetching its url again for VoD: " + vodId);
+            masterPlaylistFetcher.fetchMasterPlaylistForVodId(vodId)
+                    .thenCompose(mediaPlaylistFetcher::findPlaylistUrl)
+                    .whenComplete((renewedUrl, e) -> {
+                        if (e == null) {
+                            url = renewedUrl;
+                            poll();
+                        }
+                        else if (++failedPolls < MAX_FAILED_POLLS)
+                            schedulePoll(getPollDelayMillis(false));
+                        else
+                            fail(e);
+                    });
+        }
+
+        private void onUpdate(MediaPlaylistUpdate update) {
+            failedPolls = 0;
+            boolean changed = update.getNextMediaSequence() > nextMediaSequence;
+            readUpdate(update);
+
+            MediaPlaylist newParts = update.getNewParts();
+            if (!newParts.getStreamParts().isEmpty()) {
+                debugLogger.logMessage("Found " + newParts.getStreamParts().size() + " new parts for VoD: " + vodId);
+                handle(newParts);
+            }
+
+            if (ended) {
+                debugLogger.logMessage("Media playlist has ended for VoD: " + vodId);
+                finish();
+                return;
+            }
+
+            long now = System.nanoTime();
+            if (changed)
+                lastChangeNanos = now;
+            else if (now - lastChangeNanos > MAX_UNCHANGED_NANOS) {
+                fail(new TimeoutException("Media playlist has not changed for " +
+                        TimeUnit.NANOSECONDS.toMinutes(MAX_UNCHANGED_NANOS) + " minutes, but has not ended"));
+                return;
+            }
+
+            schedulePoll(getPollDelayMillis(changed));
+        }
+
+        private void readUpdate(MediaPlaylistUpdate update) {
+            nextMediaSequence = update.getNextMediaSequence();
+            targetDurationSeconds = Math.max(1, update.getTargetDuration().orElse(DEFAULT_TARGET_DURATION_SECONDS));
+            ended = update.isEnded();
+        }
+
+        private void handle(MediaPlaylist newParts) {
+            CompletableFuture<?> handled;
+            try {
+                handled = newPartsHandler.apply(newParts);
+            } catch (RuntimeException e) {
+                handled = Futures.failedFuture(e);
+            }
+            handledParts.add(handled == null ? CompletableFuture.completedFuture(null) : handled);
+        }
+
+        private void finish() {
+            allHandled().whenComplete((any, e) -> {
+                if (e == null)
+                    done.complete(null);
+                else
+                    done.completeExceptionally(e);
+            });
+        }
+
+        /**
+         * Fails only once the parts which were already passed on are handled, so they are not abandoned halfway
+         */
+        private void fail(Throwable failure) {
+            allHandled().whenComplete((any, e) -> done.completeExceptionally(failure));
+        }
+
+        private CompletableFuture<Void> allHandled() {
+            return CompletableFuture.allOf(handledParts.toArray(new CompletableFuture[handledParts.size()]));
+        }
+
+        private long getPollDelayMillis(boolean changed) {
+            long delayMillis = TimeUnit.SECONDS.toMillis(targetDurationSeconds);
+            return changed ? delayMillis : delayMillis / 2;
+        }
+
+        private FollowedPlaylist(int vodId, HttpUrl url, MediaPlaylistUpdate firstUpdate) {
+            this.vodId = vodId;
+            this.url = url;
+            this.handledParts = new ArrayList<>();
+            this.done = new CompletableFuture<>();
+            this.lastChangeNanos = System.nanoTime();
+            readUpdate(firstUpdate);
+        }
+
+        private final int vodId;
+        private final List<CompletableFuture<?>> handledParts;
+        private final CompletableFuture<Void> done;
+
+        private Function<MediaPlaylist, CompletableFuture<?>> newPartsHandler;
+        private HttpUrl url;
+        private long nextMediaSequence;
+        private int targetDurationSeconds;
+        private boolean ended;
+        private int failedPolls;
+        private long lastChangeNanos;
+    }
+
+}
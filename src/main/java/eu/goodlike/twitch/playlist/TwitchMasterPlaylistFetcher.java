@@ -10,7 +10,7 @@ import eu.goodlike.twitch.m3u8.TwitchM3U8Parser;
 import eu.goodlike.twitch.m3u8.TwitchM3U8ParserFactory;
 import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
 import eu.goodlike.twitch.token.Token;
-import eu.goodlike.twitch.token.TokenFetcher;
+import eu.goodlike.twitch.token.TokenCache;
 import okhttp3.HttpUrl;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
@@ -19,9 +19,15 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
+ * <pre>
  * Fetches master playlist for given VoD id
+ *
+ * Tokens are taken from the token cache, so fetching the playlist again reuses the token until it is about to expire;
+ * if the token is rejected anyway, it is invalidated and the playlist is fetched once more with a new token
+ * </pre>
  */
 public final class TwitchMasterPlaylistFetcher {
 
@@ -29,17 +35,15 @@ public final class TwitchMasterPlaylistFetcher {
      * @return master playlist for given VoD id; in case of failure, it will be logged to debug
      */
     public CompletableFuture<MasterPlaylist> fetchMasterPlaylistForVodId(int vodId) {
-        return tokenFetcher.generateNewToken(vodId)
-                .whenComplete(errorHandler.logOnError("Failed to generate token for VoD with id: " + vodId))
-                .thenCompose(token -> getPlaylistWithToken(token, vodId));
+        return fetchMasterPlaylist(vodId, true);
     }
 
     // CONSTRUCTORS
 
-    public TwitchMasterPlaylistFetcher(TokenFetcher tokenFetcher, TwitchRequestMaker twitchRequestMaker,
+    public TwitchMasterPlaylistFetcher(TokenCache tokenCache, TwitchRequestMaker twitchRequestMaker,
                                        TwitchM3U8ParserFactory twitchM3U8ParserFactory, CustomizedLogger debugLogger,
                                        CompletableFutureErrorHandler errorHandler) {
-        this.tokenFetcher = tokenFetcher;
+        this.tokenCache = tokenCache;
         this.twitchRequestMaker = twitchRequestMaker;
         this.twitchM3U8ParserFactory = twitchM3U8ParserFactory;
         this.debugLogger = debugLogger;
@@ -48,18 +52,39 @@ public final class TwitchMasterPlaylistFetcher {
 
     // PRIVATE
 
-    private final TokenFetcher tokenFetcher;
+    private final TokenCache tokenCache;
     private final TwitchRequestMaker twitchRequestMaker;
     private final TwitchM3U8ParserFactory twitchM3U8ParserFactory;
     private final CustomizedLogger debugLogger;
     private final CompletableFutureErrorHandler errorHandler;
 
-    private CompletableFuture<MasterPlaylist> getPlaylistWithToken(Token token, int vodId) {
+    private CompletableFuture<MasterPlaylist> fetchMasterPlaylist(int vodId, boolean retryOnAuthFailure) {
+        return tokenCache.getToken(vodId)
+                .whenComplete(errorHandler.logOnError("Failed to generate token for VoD with id: " + vodId))
+                .thenCompose(token -> getPlaylistWithToken(token, vodId, retryOnAuthFailure));
+    }
+
+    private CompletableFuture<MasterPlaylist> getPlaylistWithToken(Token token, int vodId, boolean retryOnAuthFailure) {
         HttpUrl playlistUrl = getUrlForVodId(token, vodId);
         debugLogger.logMessage("Requesting master playlist at: " + playlistUrl);
 
-        return twitchRequestMaker.makeRawRequest(playlistUrl)
-                .whenComplete(errorHandler.logOnError("Failed to generate token for VoD with id: " + vodId))
+        CompletableFuture<Response> request = twitchRequestMaker.makeRawRequest(playlistUrl);
+        return request
+                .handle((any, e) -> {
+                    if (e == null || !retryOnAuthFailure || !TwitchRequestMaker.isAuthFailure(e))
+                        return getPlaylistFromResponse(request, vodId, playlistUrl);
+
+                    debugLogger.logMessage("Token was rejected, requesting a new one for VoD with id: " + vodId);
+                    tokenCache.invalidate(vodId, token);
+                    return fetchMasterPlaylist(vodId, false);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<MasterPlaylist> getPlaylistFromResponse(CompletableFuture<Response> request, int vodId,
+                                                                      HttpUrl playlistUrl) {
+        return request
+                .whenComplete(errorHandler.logOnError("Failed to retrieve master playlist for VoD with id: " + vodId))
                 .thenApply(Response::body)
                 .thenApply(ResponseBody::byteStream)
                 .thenCompose(this::getPlaylistFromRemoteInputStream)
@@ -11,6 +11,7 @@ import eu.goodlike.twitch.m3u8.TwitchM3U8Parser;
 import eu.goodlike.twitch.m3u8.TwitchM3U8ParserFactory;
 import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
 import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylistUpdate;
 import okhttp3.HttpUrl;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
@@ -21,6 +22,8 @@ import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import static eu.goodlike.twitch.download.configurations.options.DefaultOptions.*;
 
@@ -33,24 +36,7 @@ public final class TwitchMediaPlaylistFetcher {
      * @return media playlist for selected quality; in case of failure, it will be logged to debug
      */
     public CompletableFuture<MediaPlaylist> fetchMediaPlaylist(MasterPlaylist masterPlaylist) {
-        String qualityLevel = playlistPolicy.getQualityLevel();
-        Optional<String> playlistLink = Optionals.firstNotEmpty(
-                masterPlaylist.getStreamPlaylistUrlForQuality(qualityLevel),
-                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL).filter(source -> playlistPolicy.isDefaultToSourceEnabled()),
-                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL_FALLBACK).filter(source -> playlistPolicy.isDefaultToSourceEnabled()),
-                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL_FALLBACK_2).filter(source -> playlistPolicy.isDefaultToSourceEnabled())
-        );
-        return Futures.fromOptional(playlistLink,
-                () -> new NoSuchElementException("Could not find requested quality VoD"))
-                .whenComplete(errorHandler.logOnError(
-                        "Could not find requested quality VoD (or source/1080p, if enabled): " + qualityLevel))
-
-                .thenApply(HttpUrls::parse)
-                .thenCompose(httpUrl -> Futures.fromOptional(httpUrl,
-                        () -> new IllegalArgumentException("Could not parse media playlist url: " + playlistLink)))
-                .whenComplete(errorHandler.logOnError(
-                        "Media playlist url for VoD seems to be invalid: " + playlistLink))
-
+        return findPlaylistUrl(masterPlaylist)
                 .thenCompose(this::getPlaylistFromUrl);
     }
 
@@ -75,6 +61,43 @@ public final class TwitchMediaPlaylistFetcher {
     private final CompletableFutureErrorHandler errorHandler;
     private final PlaylistPolicy playlistPolicy;
 
+    /**
+     * @return url of media playlist for selected quality; in case of failure, it will be logged to debug
+     */
+    CompletableFuture<HttpUrl> findPlaylistUrl(MasterPlaylist masterPlaylist) {
+        String qualityLevel = playlistPolicy.getQualityLevel();
+        Optional<String> playlistLink = Optionals.firstNotEmpty(
+                masterPlaylist.getStreamPlaylistUrlForQuality(qualityLevel),
+                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL).filter(source -> playlistPolicy.isDefaultToSourceEnabled()),
+                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL_FALLBACK).filter(source -> playlistPolicy.isDefaultToSourceEnabled()),
+                masterPlaylist.getStreamPlaylistUrlForQuality(DEFAULT_QUALITY_LEVEL_FALLBACK_2).filter(source -> playlistPolicy.isDefaultToSourceEnabled())
+        );
+        return Futures.fromOptional(playlistLink,
+                () -> new NoSuchElementException("Could not find requested quality VoD"))
+                .whenComplete(errorHandler.logOnError(
+                        "Could not find requested quality VoD (or source/1080p, if enabled): " + qualityLevel))
+
+                .thenApply(HttpUrls::parse)
+                .thenCompose(httpUrl -> Futures.fromOptional(httpUrl,
+                        () -> new IllegalArgumentException("Could not parse media playlist url: " + playlistLink)))
+                .whenComplete(errorHandler.logOnError(
+                        "Media playlist url for VoD seems to be invalid: " + playlistLink));
+    }
+
+    /**
+     * @return update of media playlist at given url, with segments before knownMediaSequence skipped; in case of
+     * failure, it will be logged to debug
+     */
+    CompletableFuture<MediaPlaylistUpdate> fetchMediaPlaylistUpdate(HttpUrl url, long knownMediaSequence) {
+        return Futures.fromOptional(findPrefix(url),
+                () -> new IllegalArgumentException("Url does not specify path to playlist: " + url))
+                .whenComplete(errorHandler.logOnError(
+                        "Media playlist url has no path to playlist file: " + url))
+                .thenCompose(prefix -> getFromUrl(url, prefix,
+                        parser -> parser.parseMediaPlaylistUpdate(knownMediaSequence),
+                        MediaPlaylistUpdate::prependLocationPrefix));
+    }
+
     private CompletableFuture<MediaPlaylist> getPlaylistFromUrl(HttpUrl url) {
         debugLogger.logMessage("Requesting media playlist at: " + url);
 
@@ -82,27 +105,37 @@ public final class TwitchMediaPlaylistFetcher {
                 () -> new IllegalArgumentException("Url does not specify path to playlist: " + url))
                 .whenComplete(errorHandler.logOnError(
                         "Media playlist url has no path to playlist file: " + url))
-                .thenCompose(prefix -> getPlaylistFromUrl(url, prefix));
+                .thenCompose(prefix -> {
+                    // parts are usually on the same host as the playlist, so their connections can be opened in
+                    // the meantime
+                    twitchRequestMaker.prewarmConnections(url);
+                    return getFromUrl(url, prefix, TwitchM3U8Parser::parseMediaPlaylist,
+                            MediaPlaylist::prependLocationPrefix);
+                });
     }
 
-    private CompletableFuture<MediaPlaylist> getPlaylistFromUrl(HttpUrl url, String prefix) {
+    private <T> CompletableFuture<T> getFromUrl(HttpUrl url, String prefix,
+                                                Function<TwitchM3U8Parser, Optional<T>> parse,
+                                                BiFunction<T, String, T> prefixer) {
         return twitchRequestMaker.makeRawRequest(url)
                 .whenComplete(errorHandler.logOnError(
                         "Failed to retrieve media playlist at: " + url))
                 .thenApply(Response::body)
                 .thenApply(ResponseBody::byteStream)
-                .thenCompose(inputStream -> getPlaylistFromInputStream(inputStream, prefix))
+                .thenCompose(inputStream -> getFromInputStream(inputStream, prefix, parse, prefixer))
                 .whenComplete(errorHandler.logOnError("Failed to parse media playlist at: " + url));
     }
 
-    private CompletableFuture<MediaPlaylist> getPlaylistFromInputStream(InputStream inputStream, String prefix) {
-        Optional<MediaPlaylist> mediaPlaylist;
+    private <T> CompletableFuture<T> getFromInputStream(InputStream inputStream, String prefix,
+                                                        Function<TwitchM3U8Parser, Optional<T>> parse,
+                                                        BiFunction<T, String, T> prefixer) {
+        Optional<T> result;
         try (TwitchM3U8Parser parser = twitchM3U8ParserFactory.newInstance(inputStream)) {
-            mediaPlaylist = parser.parseMediaPlaylist();
+            result = parse.apply(parser);
         } catch (Exception e) {
             return Futures.failedFuture(e);
         }
-        return Futures.fromOptional(mediaPlaylist.map(playlist -> playlist.prependLocationPrefix(prefix)),
+        return Futures.fromOptional(result.map(playlist -> prefixer.apply(playlist, prefix)),
                 () -> new IOException("Could not parse the input stream"));
     }
 
@@ -0,0 +1,103 @@
+package eu.goodlike.twitch.remux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * ADTS helpers for converting AAC frames into MP4 samples
+ *
+ * Every ADTS frame starts with a header describing the stream; MP4 stores raw frames instead, and describes the
+ * stream once, using an AudioSpecificConfig
+ * </pre>
+ */
+final class Adts {
+
+    /**
+     * @return raw AAC frames contained in given ADTS data, without headers; incomplete frames are left out
+     */
+    public static List<byte[]> splitFrames(byte[] adts) {
+        List<byte[]> frames = new ArrayList<>();
+        int offset = 0;
+        while (offset + HEADER_SIZE <= adts.length) {
+            if (!isHeader(adts, offset)) {
+                offset++;
+                continue;
+            }
+
+            int frameLength = getFrameLength(adts, offset);
+            int headerLength = getHeaderLength(adts, offset);
+            if (frameLength < headerLength || offset + frameLength > adts.length)
+                break;
+
+            byte[] frame = new byte[frameLength - headerLength];
+            System.arraycopy(adts, offset + headerLength, frame, 0, frame.length);
+            frames.add(frame);
+            offset += frameLength;
+        }
+        return frames;
+    }
+
+    /**
+     * @return true if given data starts with a valid ADTS header
+     */
+    public static boolean hasHeader(byte[] adts) {
+        return adts.length >= HEADER_SIZE && isHeader(adts, 0) && getSampleRateIndex(adts) < SAMPLE_RATES.length;
+    }
+
+    /**
+     * @return AudioSpecificConfig describing the stream of the first ADTS header in given data
+     */
+    public static byte[] getAudioSpecificConfig(byte[] adts) {
+        int objectType = ((adts[2] >> 6) & 0x3) + 1;
+        int config = (objectType << 11) | (getSampleRateIndex(adts) << 7) | (getChannelCount(adts) << 3);
+        return new byte[] {(byte) (config >>> 8), (byte) config};
+    }
+
+    /**
+     * @return sample rate of the first ADTS header in given data
+     */
+    public static int getSampleRate(byte[] adts) {
+        return SAMPLE_RATES[getSampleRateIndex(adts)];
+    }
+
+    /**
+     * @return channel count of the first ADTS header in given data
+     */
+    public static int getChannelCount(byte[] adts) {
+        return ((adts[2] & 0x1) << 2) | ((adts[3] >> 6) & 0x3);
+    }
+
+    public static final int SAMPLES_PER_FRAME = 1024;
+
+    // PRIVATE
+
+    private Adts() {
+        throw new AssertionError("Do not instantiate, use static methods!");
+    }
+
+    private static boolean isHeader(byte[] adts, int offset) {
+        return (adts[offset] & 0xFF) == 0xFF && (adts[offset + 1] & 0xF0) == 0xF0;
+    }
+
+    private static int getSampleRateIndex(byte[] adts) {
+        return (adts[2] >> 2) & 0xF;
+    }
+
+    private static int getHeaderLength(byte[] adts, int offset) {
+        boolean protectionAbsent = (adts[offset + 1] & 0x1) == 1;
+        return protectionAbsent ? HEADER_SIZE : HEADER_SIZE + CRC_SIZE;
+    }
+
+    private static int getFrameLength(byte[] adts, int offset) {
+        return ((adts[offset + 3] & 0x3) << 11) | ((adts[offset + 4] & 0xFF) << 3) | ((adts[offset + 5] & 0xFF) >> 5);
+    }
+
+    private static final int HEADER_SIZE = 7;
+    private static final int CRC_SIZE = 2;
+
+    private static final int[] SAMPLE_RATES = {
+            96000, 88200, 64000, 48000, 44100, 32000, 24000, 22050, 16000, 12000, 11025, 8000, 7350
+    };
+
+}
@@ -0,0 +1,120 @@
+package eu.goodlike.twitch.remux;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * <pre>
+ * Growable big-endian byte buffer for writing MP4 boxes
+ *
+ * Boxes can be nested; the size of a box is filled in when it is ended, so it does not need to be known in advance
+ * </pre>
+ */
+final class BoxBuffer {
+
+    public BoxBuffer startBox(String type) {
+        openBoxes.push(size);
+        u32(0);
+        return fourCc(type);
+    }
+
+    public BoxBuffer startFullBox(String type, int version, int flags) {
+        startBox(type);
+        u8(version);
+        return u24(flags);
+    }
+
+    public BoxBuffer endBox() {
+        int start = openBoxes.pop();
+        setU32(start, size - start);
+        return this;
+    }
+
+    public BoxBuffer u8(int value) {
+        ensureCapacity(1);
+        data[size++] = (byte) value;
+        return this;
+    }
+
+    public BoxBuffer u16(int value) {
+        return u8(value >>> 8).u8(value);
+    }
+
+    public BoxBuffer u24(int value) {
+        return u8(value >>> 16).u16(value);
+    }
+
+    public BoxBuffer u32(long value) {
+        return u16((int) (value >>> 16)).u16((int) value);
+    }
+
+    public BoxBuffer u64(long value) {
+        return u32(value >>> 32).u32(value);
+    }
+
+    public BoxBuffer zeroes(int count) {
+        for (int i = 0; i < count; i++)
+            u8(0);
+        return this;
+    }
+
+    public BoxBuffer bytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, data, size, bytes.length);
+        size += bytes.length;
+        return this;
+    }
+
+    public BoxBuffer fourCc(String type) {
+        return bytes(type.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Overwrites 4 bytes at given position, which must already be written
+     */
+    public void setU32(int position, long value) {
+        data[position] = (byte) (value >>> 24);
+        data[position + 1] = (byte) (value >>> 16);
+        data[position + 2] = (byte) (value >>> 8);
+        data[position + 3] = (byte) value;
+    }
+
+    /**
+     * @return amount of bytes written so far
+     */
+    public int size() {
+        return size;
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (!openBoxes.isEmpty())
+            throw new IllegalStateException("Cannot write buffer with unfinished boxes");
+
+        outputStream.write(data, 0, size);
+    }
+
+    // CONSTRUCTORS
+
+    public BoxBuffer() {
+        this.data = new byte[INITIAL_CAPACITY];
+        this.openBoxes = new ArrayDeque<>();
+    }
+
+    // PRIVATE
+
+    private byte[] data;
+    private int size;
+    private final Deque<Integer> openBoxes;
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + extra));
+    }
+
+    private static final int INITIAL_CAPACITY = 4096;
+
+}
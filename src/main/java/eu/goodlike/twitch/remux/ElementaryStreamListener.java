@@ -0,0 +1,22 @@
+package eu.goodlike.twitch.remux;
+
+import java.io.IOException;
+
+/**
+ * Receives elementary stream data demuxed from MPEG-TS
+ */
+interface ElementaryStreamListener {
+
+    /**
+     * Called for every H.264 access unit, in decoding order; timestamps are in 90kHz units and already unwrapped, so
+     * they never decrease because of 33-bit overflow
+     */
+    void onVideo(long pts, long dts, byte[] annexB) throws IOException;
+
+    /**
+     * Called for every PES packet of ADTS framed AAC audio; the timestamp is in 90kHz units, already unwrapped, and
+     * belongs to the first frame in the packet
+     */
+    void onAudio(long pts, byte[] adts) throws IOException;
+
+}
@@ -0,0 +1,657 @@
+package eu.goodlike.twitch.remux;
+
+import eu.goodlike.neat.Null;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <pre>
+ * Writes H.264 video and AAC audio into fragmented MP4, without re-encoding
+ *
+ * The initialization segment is written once the first fragment is ready, since it needs parameter sets of both
+ * streams; video before the first key frame is dropped; every key frame starts a new fragment, so fragments follow
+ * the GOP structure of the source
+ *
+ * If the source has no video at all, audio is written on its own; if video is present, but no key frame is found
+ * within a few hundred audio frames, or video only appears after audio was written on its own, the remux fails
+ * instead of silently dropping the video
+ *
+ * Timestamps are shifted so that the output starts at zero; gaps in the source (i.e. missing parts) remain as gaps;
+ * every track has an edit list which starts its presentation at its first sample, delayed by an empty edit if the
+ * other track starts earlier, so video with B-frames stays in sync with the audio
+ *
+ * Durations are not known until every sample is written, so the initialization segment is written with zeroes in
+ * their place, and the fields to fill in are returned by getHeaderUpdates once the muxer is finished; a random access
+ * index (mfra) of every fragment is written at the end, so players can seek without reading the whole file
+ * </pre>
+ */
+final class FragmentedMp4Muxer implements ElementaryStreamListener {
+
+    @Override
+    public void onVideo(long pts, long dts, byte[] annexB) throws IOException {
+        if (initWritten && videoTrackId == 0)
+            throw new IOException("Video started after the output was already written without it");
+
+        videoSeen = true;
+        List<byte[]> nalUnits = H264.splitNalUnits(annexB);
+        boolean keyFrame = false;
+        for (byte[] nalUnit : nalUnits) {
+            int type = H264.getType(nalUnit);
+            if (type == H264.NAL_SPS && sps == null)
+                sps = nalUnit;
+            else if (type == H264.NAL_PPS && pps == null)
+                pps = nalUnit;
+            else if (type == H264.NAL_IDR_SLICE)
+                keyFrame = true;
+        }
+
+        if (!videoStarted && !keyFrame)
+            return;
+
+        videoStarted = true;
+        if (keyFrame && !pendingVideo.isEmpty())
+            flush(dts);
+
+        pendingVideo.add(new Sample(dts, pts - dts, H264.toSample(nalUnits), keyFrame));
+    }
+
+    @Override
+    public void onAudio(long pts, byte[] adts) throws IOException {
+        if (!Adts.hasHeader(adts))
+            return;
+
+        if (audioConfig == null) {
+            audioConfig = Adts.getAudioSpecificConfig(adts);
+            sampleRate = Adts.getSampleRate(adts);
+            channelCount = Adts.getChannelCount(adts);
+        }
+
+        List<byte[]> frames = Adts.splitFrames(adts);
+        for (int i = 0; i < frames.size(); i++) {
+            long framePts = pts + (long) i * Adts.SAMPLES_PER_FRAME * TIMESCALE_90KHZ / sampleRate;
+            pendingAudio.add(new Sample(framePts, 0, frames.get(i), true));
+        }
+
+        if (!videoStarted && pendingAudio.size() >= MAX_AUDIO_FRAMES_WITHOUT_VIDEO) {
+            if (videoSeen)
+                throw new IOException("No video key frame found after " + pendingAudio.size() + " audio frames");
+
+            flush(-1);
+        }
+    }
+
+    /**
+     * Writes all remaining samples and the random access index, and flushes the output
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (!pendingVideo.isEmpty() || !pendingAudio.isEmpty())
+            flush(-1);
+
+        if (videoTiming != null || audioTiming != null) {
+            writeRandomAccessIndex();
+            fillInDurations();
+        }
+        output.flush();
+    }
+
+    /**
+     * @return fields of the initialization segment which could only be filled in after every sample was written (i.e.
+     * durations), as bytes keyed by their position in the output; empty until the muxer is finished
+     */
+    public Map<Long, byte[]> getHeaderUpdates() {
+        return Collections.unmodifiableMap(headerUpdates);
+    }
+
+    // CONSTRUCTORS
+
+    public FragmentedMp4Muxer(OutputStream output) {
+        Null.check(output).ifAny("Output cannot be null");
+
+        this.output = output;
+
+        this.pendingVideo = new ArrayList<>();
+        this.pendingAudio = new ArrayList<>();
+        this.videoRandomAccess = new ArrayList<>();
+        this.audioRandomAccess = new ArrayList<>();
+        this.headerUpdates = new HashMap<>();
+    }
+
+    // PRIVATE
+
+    private final OutputStream output;
+
+    private final List<Sample> pendingVideo;
+    private final List<Sample> pendingAudio;
+    private final List<RandomAccessPoint> videoRandomAccess;
+    private final List<RandomAccessPoint> audioRandomAccess;
+    private final Map<Long, byte[]> headerUpdates;
+
+    private byte[] sps;
+    private byte[] pps;
+    private boolean videoSeen;
+    private boolean videoStarted;
+
+    private byte[] audioConfig;
+    private int sampleRate;
+    private int channelCount;
+
+    private boolean initWritten;
+    private int videoTrackId;
+    private int audioTrackId;
+    private long baseTimestamp;
+    private TrackTiming videoTiming;
+    private TrackTiming audioTiming;
+    private int movieDurationPosition;
+    private int fragmentDurationPosition;
+    private long outputPosition;
+
+    private int sequenceNumber = 1;
+    private long lastVideoDuration = DEFAULT_VIDEO_DURATION;
+    private long nextAudioDecodeTime;
+
+    /**
+     * @param nextVideoDts decode timestamp of the video sample following the pending ones, -1 if unknown
+     */
+    private void flush(long nextVideoDts) throws IOException {
+        if (!initWritten)
+            writeInit();
+
+        if (videoTrackId == 0)
+            pendingVideo.clear();
+        if (audioTrackId == 0)
+            pendingAudio.clear();
+
+        if (!pendingVideo.isEmpty() || !pendingAudio.isEmpty())
+            writeFragment(nextVideoDts);
+
+        pendingVideo.clear();
+        pendingAudio.clear();
+    }
+
+    private void writeInit() throws IOException {
+        initWritten = true;
+
+        int nextTrackId = 1;
+        if (videoStarted && sps != null && pps != null)
+            videoTrackId = nextTrackId++;
+        if (audioConfig != null)
+            audioTrackId = nextTrackId++;
+
+        if (videoTrackId == 0 && audioTrackId == 0)
+            return;
+
+        baseTimestamp = Long.MAX_VALUE;
+        if (videoTrackId != 0 && !pendingVideo.isEmpty())
+            baseTimestamp = pendingVideo.get(0).getTimestamp();
+        if (audioTrackId != 0 && !pendingAudio.isEmpty())
+            baseTimestamp = Math.min(baseTimestamp, pendingAudio.get(0).getTimestamp());
+
+        createTrackTimings();
+
+        BoxBuffer init = new BoxBuffer();
+        init.startBox("ftyp")
+                .fourCc("isom").u32(0x200)
+                .fourCc("isom").fourCc("iso6").fourCc("avc1").fourCc("mp41")
+                .endBox();
+
+        init.startBox("moov");
+        init.startFullBox("mvhd", 0, 0)
+                .u32(0).u32(0).u32(MOVIE_TIMESCALE);
+        movieDurationPosition = init.size();
+        init.u32(0)
+                .u32(0x00010000).u16(0x0100).zeroes(10);
+        writeMatrix(init);
+        init.zeroes(24).u32(nextTrackId).endBox();
+
+        if (videoTrackId != 0)
+            writeVideoTrack(init);
+        if (audioTrackId != 0)
+            writeAudioTrack(init);
+
+        init.startBox("mvex");
+        init.startFullBox("mehd", 1, 0);
+        fragmentDurationPosition = init.size();
+        init.u64(0).endBox();
+        for (int trackId = 1; trackId < nextTrackId; trackId++)
+            init.startFullBox("trex", 0, 0).u32(trackId).u32(1).u32(0).u32(0).u32(0).endBox();
+        init.endBox();
+
+        init.endBox();
+        // the initialization segment is the first thing written, so its positions are positions in the output
+        write(init);
+    }
+
+    /**
+     * Presentation starts with the earliest first sample of any track; the other track is delayed by the difference
+     */
+    private void createTrackTimings() {
+        long videoStart = videoTrackId != 0 && !pendingVideo.isEmpty()
+                ? getPresentationTime(pendingVideo.get(0))
+                : -1;
+        long audioStart = audioTrackId != 0 && !pendingAudio.isEmpty()
+                ? Math.max(pendingAudio.get(0).getTimestamp() - baseTimestamp, 0)
+                : -1;
+
+        long presentationStart = videoStart < 0 ? Math.max(audioStart, 0)
+                : audioStart < 0 ? videoStart
+                : Math.min(videoStart, audioStart);
+
+        if (videoTrackId != 0) {
+            long start = Math.max(videoStart, presentationStart);
+            long emptyDuration = toMovieTime(start - presentationStart, TIMESCALE_90KHZ);
+            videoTiming = new TrackTiming(TIMESCALE_90KHZ, emptyDuration, start);
+        }
+        // audio which only starts after the first fragment is assumed to start with the presentation
+        if (audioTrackId != 0) {
+            long start = Math.max(audioStart, presentationStart);
+            long mediaStart = pendingAudio.isEmpty()
+                    ? start * sampleRate / TIMESCALE_90KHZ
+                    : getAudioDecodeTime(pendingAudio.get(0));
+            long emptyDuration = toMovieTime(start - presentationStart, TIMESCALE_90KHZ);
+            audioTiming = new TrackTiming(sampleRate, emptyDuration, mediaStart);
+        }
+    }
+
+    private void writeVideoTrack(BoxBuffer init) {
+        int[] dimensions = H264.getDimensions(sps);
+        int width = dimensions[0];
+        int height = dimensions[1];
+
+        init.startBox("trak");
+        writeTrackHeader(init, videoTrackId, videoTiming, 0, width, height);
+        writeEditList(init, videoTiming);
+        init.startBox("mdia");
+        writeMediaHeader(init, TIMESCALE_90KHZ, "vide", "VideoHandler");
+        init.startBox("minf");
+        init.startFullBox("vmhd", 0, 1).u16(0).zeroes(6).endBox();
+        writeDataInformation(init);
+        init.startBox("stbl");
+        init.startFullBox("stsd", 0, 0).u32(1);
+        init.startBox("avc1")
+                .zeroes(6).u16(1)
+                .zeroes(16)
+                .u16(width).u16(height)
+                .u32(0x00480000).u32(0x00480000)
+                .u32(0).u16(1).zeroes(32)
+                .u16(0x0018).u16(0xFFFF);
+        init.startBox("avcC")
+                .u8(1).u8(sps[1]).u8(sps[2]).u8(sps[3])
+                .u8(0xFF)
+                .u8(0xE1).u16(sps.length).bytes(sps)
+                .u8(1).u16(pps.length).bytes(pps)
+                .endBox();
+        init.endBox();
+        init.endBox();
+        writeEmptySampleTables(init);
+        init.endBox();
+        init.endBox();
+        init.endBox();
+        init.endBox();
+    }
+
+    private void writeAudioTrack(BoxBuffer init) {
+        init.startBox("trak");
+        writeTrackHeader(init, audioTrackId, audioTiming, 0x0100, 0, 0);
+        writeEditList(init, audioTiming);
+        init.startBox("mdia");
+        writeMediaHeader(init, sampleRate, "soun", "SoundHandler");
+        init.startBox("minf");
+        init.startFullBox("smhd", 0, 0).u16(0).u16(0).endBox();
+        writeDataInformation(init);
+        init.startBox("stbl");
+        init.startFullBox("stsd", 0, 0).u32(1);
+        init.startBox("mp4a")
+                .zeroes(6).u16(1)
+                .zeroes(8)
+                .u16(channelCount).u16(16)
+                .u16(0).u16(0)
+                .u32((long) sampleRate << 16);
+
+        int decoderSpecificInfoLength = audioConfig.length;
+        int decoderConfigLength = 13 + 2 + decoderSpecificInfoLength;
+        int esDescriptorLength = 3 + 2 + decoderConfigLength + 3;
+        init.startFullBox("esds", 0, 0)
+                .u8(ES_DESCRIPTOR_TAG).u8(esDescriptorLength).u16(0).u8(0)
+                .u8(DECODER_CONFIG_DESCRIPTOR_TAG).u8(decoderConfigLength)
+                .u8(AAC_OBJECT_TYPE).u8(AUDIO_STREAM_TYPE).u24(0).u32(0).u32(0)
+                .u8(DECODER_SPECIFIC_INFO_TAG).u8(decoderSpecificInfoLength).bytes(audioConfig)
+                .u8(SL_CONFIG_DESCRIPTOR_TAG).u8(1).u8(2)
+                .endBox();
+        init.endBox();
+        init.endBox();
+        writeEmptySampleTables(init);
+        init.endBox();
+        init.endBox();
+        init.endBox();
+        init.endBox();
+    }
+
+    private void writeTrackHeader(BoxBuffer init, int trackId, TrackTiming timing, int volume, int width, int height) {
+        init.startFullBox("tkhd", 0, TRACK_ENABLED_IN_MOVIE)
+                .u32(0).u32(0).u32(trackId).u32(0);
+        timing.trackDurationPosition = init.size();
+        init.u32(0)
+                .zeroes(8)
+                .u16(0).u16(0).u16(volume).u16(0);
+        writeMatrix(init);
+        init.u32((long) width << 16).u32((long) height << 16)
+                .endBox();
+    }
+
+    /**
+     * Duration of the edit which presents the samples is filled in at the end; in fragmented files it may also stay
+     * zero, which means the edit lasts until the end of the track
+     */
+    private void writeEditList(BoxBuffer init, TrackTiming timing) {
+        init.startBox("edts");
+        init.startFullBox("elst", 0, 0).u32(timing.emptyDuration > 0 ? 2 : 1);
+        if (timing.emptyDuration > 0)
+            init.u32(timing.emptyDuration).u32(EMPTY_EDIT_MEDIA_TIME).u16(1).u16(0);
+        timing.editDurationPosition = init.size();
+        init.u32(0).u32(timing.mediaStart).u16(1).u16(0);
+        init.endBox();
+        init.endBox();
+    }
+
+    private void writeMediaHeader(BoxBuffer init, int timescale, String handlerType, String handlerName) {
+        init.startFullBox("mdhd", 0, 0)
+                .u32(0).u32(0).u32(timescale).u32(0)
+                .u16(UNDETERMINED_LANGUAGE).u16(0)
+                .endBox();
+        init.startFullBox("hdlr", 0, 0)
+                .u32(0).fourCc(handlerType).zeroes(12)
+                .fourCc(handlerName).u8(0)
+                .endBox();
+    }
+
+    private void writeDataInformation(BoxBuffer init) {
+        init.startBox("dinf");
+        init.startFullBox("dref", 0, 0).u32(1);
+        init.startFullBox("url ", 0, 1).endBox();
+        init.endBox();
+        init.endBox();
+    }
+
+    private void writeEmptySampleTables(BoxBuffer init) {
+        init.startFullBox("stts", 0, 0).u32(0).endBox();
+        init.startFullBox("stsc", 0, 0).u32(0).endBox();
+        init.startFullBox("stsz", 0, 0).u32(0).u32(0).endBox();
+        init.startFullBox("stco", 0, 0).u32(0).endBox();
+    }
+
+    private void writeMatrix(BoxBuffer buffer) {
+        buffer.u32(0x00010000).u32(0).u32(0)
+                .u32(0).u32(0x00010000).u32(0)
+                .u32(0).u32(0).u32(0x40000000);
+    }
+
+    private void writeFragment(long nextVideoDts) throws IOException {
+        long moofPosition = outputPosition;
+        BoxBuffer moof = new BoxBuffer();
+        moof.startBox("moof");
+        moof.startFullBox("mfhd", 0, 0).u32(sequenceNumber++).endBox();
+
+        int videoDataOffsetPosition = -1;
+        long videoBytes = 0;
+        if (!pendingVideo.isEmpty()) {
+            moof.startBox("traf");
+            long decodeTime = Math.max(pendingVideo.get(0).getTimestamp() - baseTimestamp, 0);
+            moof.startFullBox("tfhd", 0, DEFAULT_BASE_IS_MOOF).u32(videoTrackId).endBox();
+            moof.startFullBox("tfdt", 1, 0).u64(decodeTime).endBox();
+            moof.startFullBox("trun", 0, VIDEO_TRUN_FLAGS).u32(pendingVideo.size());
+            videoDataOffsetPosition = moof.size();
+            moof.u32(0);
+            long endTime = decodeTime;
+            for (int i = 0; i < pendingVideo.size(); i++) {
+                Sample sample = pendingVideo.get(i);
+                long duration = getVideoDuration(i, nextVideoDts);
+                endTime += duration;
+                moof.u32(duration)
+                        .u32(sample.getData().length)
+                        .u32(sample.isSync() ? SYNC_SAMPLE_FLAGS : NON_SYNC_SAMPLE_FLAGS)
+                        .u32(Math.max(sample.getCompositionOffset(), 0));
+                videoBytes += sample.getData().length;
+            }
+            moof.endBox();
+            moof.endBox();
+
+            // every fragment starts with a key frame
+            videoRandomAccess.add(new RandomAccessPoint(getPresentationTime(pendingVideo.get(0)), moofPosition, 1));
+            videoTiming.mediaEnd = endTime;
+        }
+
+        int audioDataOffsetPosition = -1;
+        long audioBytes = 0;
+        if (!pendingAudio.isEmpty()) {
+            long decodeTime = getAudioDecodeTime(pendingAudio.get(0));
+            moof.startBox("traf");
+            moof.startFullBox("tfhd", 0, DEFAULT_BASE_IS_MOOF).u32(audioTrackId).endBox();
+            moof.startFullBox("tfdt", 1, 0).u64(decodeTime).endBox();
+            moof.startFullBox("trun", 0, AUDIO_TRUN_FLAGS).u32(pendingAudio.size());
+            audioDataOffsetPosition = moof.size();
+            moof.u32(0);
+            for (Sample sample : pendingAudio) {
+                moof.u32(Adts.SAMPLES_PER_FRAME).u32(sample.getData().length);
+                audioBytes += sample.getData().length;
+            }
+            moof.endBox();
+            moof.endBox();
+            nextAudioDecodeTime = decodeTime + (long) pendingAudio.size() * Adts.SAMPLES_PER_FRAME;
+
+            audioRandomAccess.add(new RandomAccessPoint(decodeTime, moofPosition, pendingVideo.isEmpty() ? 1 : 2));
+            audioTiming.mediaEnd = nextAudioDecodeTime;
+        }
+        moof.endBox();
+
+        if (videoDataOffsetPosition >= 0)
+            moof.setU32(videoDataOffsetPosition, moof.size() + MDAT_HEADER_SIZE);
+        if (audioDataOffsetPosition >= 0)
+            moof.setU32(audioDataOffsetPosition, moof.size() + MDAT_HEADER_SIZE + videoBytes);
+
+        write(moof);
+
+        BoxBuffer mdatHeader = new BoxBuffer();
+        mdatHeader.u32(MDAT_HEADER_SIZE + videoBytes + audioBytes).fourCc("mdat");
+        write(mdatHeader);
+        for (Sample sample : pendingVideo)
+            write(sample.getData());
+        for (Sample sample : pendingAudio)
+            write(sample.getData());
+    }
+
+    /**
+     * Writes an index of the first sample of every fragment, for every track; players find it through the mfro box
+     * at the very end of the file
+     */
+    private void writeRandomAccessIndex() throws IOException {
+        BoxBuffer mfra = new BoxBuffer();
+        mfra.startBox("mfra");
+        if (videoTiming != null)
+            writeTrackRandomAccess(mfra, videoTrackId, videoRandomAccess);
+        if (audioTiming != null)
+            writeTrackRandomAccess(mfra, audioTrackId, audioRandomAccess);
+        long mfraSize = mfra.size() + MFRO_SIZE;
+        mfra.startFullBox("mfro", 0, 0).u32(mfraSize).endBox();
+        mfra.endBox();
+        write(mfra);
+    }
+
+    private void writeTrackRandomAccess(BoxBuffer mfra, int trackId, List<RandomAccessPoint> points) {
+        // every entry uses a single byte for its traf, trun and sample numbers
+        mfra.startFullBox("tfra", 1, 0).u32(trackId).u32(0).u32(points.size());
+        for (RandomAccessPoint point : points)
+            mfra.u64(point.time).u64(point.moofPosition).u8(point.trafNumber).u8(1).u8(1);
+        mfra.endBox();
+    }
+
+    private void fillInDurations() {
+        long movieDuration = 0;
+        for (TrackTiming timing : new TrackTiming[] {videoTiming, audioTiming}) {
+            if (timing == null)
+                continue;
+
+            long mediaDuration = toMovieTime(Math.max(timing.mediaEnd - timing.mediaStart, 0), timing.timescale);
+            long trackDuration = timing.emptyDuration + mediaDuration;
+            headerUpdates.put((long) timing.trackDurationPosition, toU32(trackDuration));
+            headerUpdates.put((long) timing.editDurationPosition, toU32(mediaDuration));
+            movieDuration = Math.max(movieDuration, trackDuration);
+        }
+        headerUpdates.put((long) movieDurationPosition, toU32(movieDuration));
+        headerUpdates.put((long) fragmentDurationPosition, toU64(movieDuration));
+    }
+
+    private void write(BoxBuffer buffer) throws IOException {
+        buffer.writeTo(output);
+        outputPosition += buffer.size();
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        output.write(bytes);
+        outputPosition += bytes.length;
+    }
+
+    private long getPresentationTime(Sample videoSample) {
+        long decodeTime = Math.max(videoSample.getTimestamp() - baseTimestamp, 0);
+        return decodeTime + Math.max(videoSample.getCompositionOffset(), 0);
+    }
+
+    private static long toMovieTime(long time, int timescale) {
+        return time * MOVIE_TIMESCALE / timescale;
+    }
+
+    private static byte[] toU32(long value) {
+        return new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static byte[] toU64(long value) {
+        byte[] bytes = new byte[8];
+        System.arraycopy(toU32(value >>> 32), 0, bytes, 0, 4);
+        System.arraycopy(toU32(value), 0, bytes, 4, 4);
+        return bytes;
+    }
+
+    private long getVideoDuration(int index, long nextVideoDts) {
+        long nextDts = index + 1 < pendingVideo.size()
+                ? pendingVideo.get(index + 1).getTimestamp()
+                : nextVideoDts;
+
+        long duration = nextDts - pendingVideo.get(index).getTimestamp();
+        if (nextDts < 0 || duration <= 0 || duration > MAX_VIDEO_DURATION)
+            return lastVideoDuration;
+
+        lastVideoDuration = duration;
+        return duration;
+    }
+
+    /**
+     * Rounding can make consecutive fragments overlap or leave tiny gaps between them; those are smoothed out, while
+     * real gaps are kept
+     */
+    private long getAudioDecodeTime(Sample firstSample) {
+        long decodeTime = Math.max(firstSample.getTimestamp() - baseTimestamp, 0) * sampleRate / TIMESCALE_90KHZ;
+        return Math.abs(decodeTime - nextAudioDecodeTime) < Adts.SAMPLES_PER_FRAME / 2
+                ? nextAudioDecodeTime
+                : decodeTime;
+    }
+
+    private static final int MOVIE_TIMESCALE = 1000;
+    private static final int TIMESCALE_90KHZ = 90000;
+    private static final long DEFAULT_VIDEO_DURATION = 3000;
+    private static final long MAX_VIDEO_DURATION = 10 * TIMESCALE_90KHZ;
+    private static final int MAX_AUDIO_FRAMES_WITHOUT_VIDEO = 500;
+
+    private static final int TRACK_ENABLED_IN_MOVIE = 0x3;
+    private static final int UNDETERMINED_LANGUAGE = 0x55C4;
+
+    private static final int DEFAULT_BASE_IS_MOOF = 0x020000;
+    private static final int VIDEO_TRUN_FLAGS = 0x000F01;
+    private static final int AUDIO_TRUN_FLAGS = 0x000301;
+    private static final long SYNC_SAMPLE_FLAGS = 0x02000000;
+    private static final long NON_SYNC_SAMPLE_FLAGS = 0x01010000;
+    private static final int MDAT_HEADER_SIZE = 8;
+    private static final int MFRO_SIZE = 16;
+    private static final long EMPTY_EDIT_MEDIA_TIME = 0xFFFFFFFFL;
+
+    private static final int ES_DESCRIPTOR_TAG = 0x03;
+    private static final int DECODER_CONFIG_DESCRIPTOR_TAG = 0x04;
+    private static final int DECODER_SPECIFIC_INFO_TAG = 0x05;
+    private static final int SL_CONFIG_DESCRIPTOR_TAG = 0x06;
+    private static final int AAC_OBJECT_TYPE = 0x40;
+    private static final int AUDIO_STREAM_TYPE = 0x15;
+
+    /**
+     * Single video access unit or audio frame; timestamp is decode timestamp in 90kHz units
+     */
+    private static final class Sample {
+        private long getTimestamp() {
+            return timestamp;
+        }
+
+        private long getCompositionOffset() {
+            return compositionOffset;
+        }
+
+        private byte[] getData() {
+            return data;
+        }
+
+        private boolean isSync() {
+            return sync;
+        }
+
+        private Sample(long timestamp, long compositionOffset, byte[] data, boolean sync) {
+            this.timestamp = timestamp;
+            this.compositionOffset = compositionOffset;
+            this.data = data;
+            this.sync = sync;
+        }
+
+        private final long timestamp;
+        private final long compositionOffset;
+        private final byte[] data;
+        private final boolean sync;
+    }
+
+    /**
+     * Timing of a track; empty duration is in movie timescale, media times are in the timescale of the track; positions
+     * point to the duration fields of the initialization segment, which are filled in at the end
+     */
+    private static final class TrackTiming {
+        private TrackTiming(int timescale, long emptyDuration, long mediaStart) {
+            this.timescale = timescale;
+            this.emptyDuration = emptyDuration;
+            this.mediaStart = mediaStart;
+            this.mediaEnd = mediaStart;
+        }
+
+        private final int timescale;
+        private final long emptyDuration;
+        private final long mediaStart;
+        private long mediaEnd;
+        private int trackDurationPosition;
+        private int editDurationPosition;
+    }
+
+    /**
+     * First sample of a fragment; time is in the timescale of its track
+     */
+    private static final class RandomAccessPoint {
+        private RandomAccessPoint(long time, long moofPosition, int trafNumber) {
+            this.time = time;
+            this.moofPosition = moofPosition;
+            this.trafNumber = trafNumber;
+        }
+
+        private final long time;
+        private final long moofPosition;
+        private final int trafNumber;
+    }
+
+}
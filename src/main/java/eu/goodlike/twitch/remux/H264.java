@@ -0,0 +1,238 @@
+package eu.goodlike.twitch.remux;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <pre>
+ * H.264 helpers for converting Annex B access units into MP4 samples
+ *
+ * MP4 stores NAL units prefixed with their length instead of start codes; parameter sets are stored separately in
+ * the sample description, and access unit delimiters are not needed at all
+ * </pre>
+ */
+final class H264 {
+
+    /**
+     * @return NAL units of given Annex B access unit, without start codes
+     */
+    public static List<byte[]> splitNalUnits(byte[] annexB) {
+        List<byte[]> nalUnits = new ArrayList<>();
+        int start = findStartCodeEnd(annexB, 0);
+        while (start >= 0 && start < annexB.length) {
+            int nextStartCode = findStartCode(annexB, start);
+            int end = nextStartCode < 0 ? annexB.length : nextStartCode;
+            while (end > start && annexB[end - 1] == 0)
+                end--;
+
+            if (end > start) {
+                byte[] nalUnit = new byte[end - start];
+                System.arraycopy(annexB, start, nalUnit, 0, nalUnit.length);
+                nalUnits.add(nalUnit);
+            }
+            start = nextStartCode < 0 ? -1 : findStartCodeEnd(annexB, nextStartCode);
+        }
+        return nalUnits;
+    }
+
+    /**
+     * @return type of given NAL unit
+     */
+    public static int getType(byte[] nalUnit) {
+        return nalUnit[0] & 0x1F;
+    }
+
+    /**
+     * @return given NAL units as a single sample, every unit prefixed by its 4 byte length; parameter sets and access
+     * unit delimiters are left out
+     */
+    public static byte[] toSample(List<byte[]> nalUnits) {
+        ByteArrayOutputStream sample = new ByteArrayOutputStream();
+        for (byte[] nalUnit : nalUnits) {
+            int type = getType(nalUnit);
+            if (type == NAL_SPS || type == NAL_PPS || type == NAL_ACCESS_UNIT_DELIMITER)
+                continue;
+
+            sample.write(nalUnit.length >>> 24);
+            sample.write(nalUnit.length >>> 16);
+            sample.write(nalUnit.length >>> 8);
+            sample.write(nalUnit.length);
+            sample.write(nalUnit, 0, nalUnit.length);
+        }
+        return sample.toByteArray();
+    }
+
+    /**
+     * @return width and height of the picture described by given sequence parameter set
+     */
+    public static int[] getDimensions(byte[] sps) {
+        BitReader reader = new BitReader(removeEmulationPrevention(sps));
+        reader.skipBits(8);
+        int profile = reader.readBits(8);
+        reader.skipBits(16);
+        reader.readUnsignedExpGolomb();
+
+        int chromaFormat = 1;
+        if (hasChromaFormat(profile)) {
+            chromaFormat = reader.readUnsignedExpGolomb();
+            if (chromaFormat == 3)
+                reader.skipBits(1);
+            reader.readUnsignedExpGolomb();
+            reader.readUnsignedExpGolomb();
+            reader.skipBits(1);
+            if (reader.readBits(1) == 1)
+                skipScalingLists(reader, chromaFormat == 3 ? 12 : 8);
+        }
+
+        reader.readUnsignedExpGolomb();
+        int pictureOrderCountType = reader.readUnsignedExpGolomb();
+        if (pictureOrderCountType == 0)
+            reader.readUnsignedExpGolomb();
+        else if (pictureOrderCountType == 1) {
+            reader.skipBits(1);
+            reader.readSignedExpGolomb();
+            reader.readSignedExpGolomb();
+            int cycleLength = reader.readUnsignedExpGolomb();
+            for (int i = 0; i < cycleLength; i++)
+                reader.readSignedExpGolomb();
+        }
+
+        reader.readUnsignedExpGolomb();
+        reader.skipBits(1);
+        int widthInMacroblocks = reader.readUnsignedExpGolomb() + 1;
+        int heightInMapUnits = reader.readUnsignedExpGolomb() + 1;
+        int frameMacroblocksOnly = reader.readBits(1);
+        if (frameMacroblocksOnly == 0)
+            reader.skipBits(1);
+        reader.skipBits(1);
+
+        int width = widthInMacroblocks * 16;
+        int height = (2 - frameMacroblocksOnly) * heightInMapUnits * 16;
+        if (reader.readBits(1) == 1) {
+            int cropUnitX = chromaFormat == 0 || chromaFormat == 3 ? 1 : 2;
+            int cropUnitY = (chromaFormat == 1 ? 2 : 1) * (2 - frameMacroblocksOnly);
+            width -= cropUnitX * (reader.readUnsignedExpGolomb() + reader.readUnsignedExpGolomb());
+            height -= cropUnitY * (reader.readUnsignedExpGolomb() + reader.readUnsignedExpGolomb());
+        }
+        return new int[] {width, height};
+    }
+
+    public static final int NAL_IDR_SLICE = 5;
+    public static final int NAL_SPS = 7;
+    public static final int NAL_PPS = 8;
+    public static final int NAL_ACCESS_UNIT_DELIMITER = 9;
+
+    // PRIVATE
+
+    private H264() {
+        throw new AssertionError("Do not instantiate, use static methods!");
+    }
+
+    /**
+     * @return index of the first byte of the next start code at or after from, -1 if there is none
+     */
+    private static int findStartCode(byte[] bytes, int from) {
+        for (int i = from; i + 2 < bytes.length; i++)
+            if (bytes[i] == 0 && bytes[i + 1] == 0 && bytes[i + 2] == 1)
+                return i;
+
+        return -1;
+    }
+
+    /**
+     * @return index right after the next start code at or after from, -1 if there is none
+     */
+    private static int findStartCodeEnd(byte[] bytes, int from) {
+        int startCode = findStartCode(bytes, from);
+        return startCode < 0 ? -1 : startCode + 3;
+    }
+
+    private static byte[] removeEmulationPrevention(byte[] nalUnit) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(nalUnit.length);
+        int zeroes = 0;
+        for (byte b : nalUnit) {
+            if (zeroes >= 2 && b == 3) {
+                zeroes = 0;
+                continue;
+            }
+            zeroes = b == 0 ? zeroes + 1 : 0;
+            output.write(b);
+        }
+        return output.toByteArray();
+    }
+
+    private static void skipScalingLists(BitReader reader, int count) {
+        for (int i = 0; i < count; i++) {
+            if (reader.readBits(1) == 0)
+                continue;
+
+            int size = i < 6 ? 16 : 64;
+            int lastScale = 8;
+            int nextScale = 8;
+            for (int j = 0; j < size; j++) {
+                if (nextScale != 0)
+                    nextScale = (lastScale + reader.readSignedExpGolomb() + 256) % 256;
+                lastScale = nextScale == 0 ? lastScale : nextScale;
+            }
+        }
+    }
+
+    /**
+     * @return true if sequence parameter sets of given profile contain chroma format and scaling lists
+     */
+    private static boolean hasChromaFormat(int profile) {
+        switch (profile) {
+            case 44: case 83: case 86: case 100: case 110: case 118: case 122: case 128: case 134: case 135: case 138:
+            case 139: case 244:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads bits from a byte array, most significant bit first; reading past the end yields zeroes
+     */
+    private static final class BitReader {
+        private int readBits(int count) {
+            int value = 0;
+            for (int i = 0; i < count; i++) {
+                int byteIndex = position >>> 3;
+                int bit = byteIndex < bytes.length
+                        ? (bytes[byteIndex] >> (7 - (position & 7))) & 1
+                        : 0;
+                value = (value << 1) | bit;
+                position++;
+            }
+            return value;
+        }
+
+        private void skipBits(int count) {
+            position += count;
+        }
+
+        private int readUnsignedExpGolomb() {
+            int leadingZeroes = 0;
+            while (readBits(1) == 0 && leadingZeroes < 32)
+                leadingZeroes++;
+
+            return (int) ((1L << leadingZeroes) - 1 + readBits(leadingZeroes));
+        }
+
+        private int readSignedExpGolomb() {
+            int value = readUnsignedExpGolomb();
+            return (value & 1) == 1
+                    ? (value + 1) / 2
+                    : -(value / 2);
+        }
+
+        private BitReader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private final byte[] bytes;
+        private int position;
+    }
+
+}
@@ -0,0 +1,82 @@
+package eu.goodlike.twitch.remux;
+
+import eu.goodlike.neat.Null;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * <pre>
+ * Output stream which accepts MPEG-TS and writes fragmented MP4 into the underlying file, without re-encoding
+ *
+ * Only H.264 video and AAC audio are kept; other streams (i.e. timed metadata) are dropped; closing this stream
+ * writes any remaining samples, fills in the durations at the start of the file and closes the underlying channel
+ *
+ * Not thread safe; writes must not overlap
+ * </pre>
+ */
+public final class Mp4RemuxingOutputStream extends OutputStream {
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed)
+            throw new IOException("Stream is closed");
+
+        demuxer.feed(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        try (FileChannel channel = fileChannel) {
+            demuxer.finish();
+            muxer.finish();
+            output.flush();
+            for (Map.Entry<Long, byte[]> update : muxer.getHeaderUpdates().entrySet())
+                writeFully(channel, update.getKey(), update.getValue());
+        }
+    }
+
+    // CONSTRUCTORS
+
+    /**
+     * @param bufferSize size of the buffer used for writing into the file sequentially
+     */
+    public Mp4RemuxingOutputStream(FileChannel fileChannel, int bufferSize) {
+        Null.check(fileChannel).ifAny("File channel cannot be null");
+
+        this.fileChannel = fileChannel;
+        this.output = new BufferedOutputStream(Channels.newOutputStream(fileChannel), bufferSize);
+        this.muxer = new FragmentedMp4Muxer(output);
+        this.demuxer = new TsDemuxer(muxer);
+    }
+
+    // PRIVATE
+
+    private final FileChannel fileChannel;
+    private final OutputStream output;
+    private final FragmentedMp4Muxer muxer;
+    private final TsDemuxer demuxer;
+
+    private boolean closed;
+
+    private static void writeFully(FileChannel channel, long position, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining())
+            channel.write(buffer, position + buffer.position());
+    }
+
+}
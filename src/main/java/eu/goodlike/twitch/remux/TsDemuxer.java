@@ -0,0 +1,253 @@
+package eu.goodlike.twitch.remux;
+
+import eu.goodlike.neat.Null;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * <pre>
+ * Streaming MPEG-TS demuxer, which extracts the first H.264 video and the first ADTS AAC audio stream of the first
+ * program
+ *
+ * Bytes can be fed in chunks of any size, including chunks which split packets; bytes which do not belong to any
+ * packet are skipped until the next sync byte is found
+ * </pre>
+ */
+final class TsDemuxer {
+
+    /**
+     * Feeds more bytes into the demuxer; complete PES packets are passed to the listener as soon as they end
+     * @throws IOException if the listener fails
+     */
+    public void feed(byte[] bytes, int offset, int length) throws IOException {
+        int end = offset + length;
+        int index = offset;
+        while (index < end) {
+            if (packetSize == 0 && bytes[index] != SYNC_BYTE) {
+                index++;
+                continue;
+            }
+
+            int copied = Math.min(PACKET_SIZE - packetSize, end - index);
+            System.arraycopy(bytes, index, packet, packetSize, copied);
+            packetSize += copied;
+            index += copied;
+
+            if (packetSize == PACKET_SIZE) {
+                packetSize = 0;
+                handlePacket();
+            }
+        }
+    }
+
+    /**
+     * Passes any remaining PES packets to the listener
+     * @throws IOException if the listener fails
+     */
+    public void finish() throws IOException {
+        emitVideo();
+        emitAudio();
+    }
+
+    // CONSTRUCTORS
+
+    public TsDemuxer(ElementaryStreamListener listener) {
+        Null.check(listener).ifAny("Listener cannot be null");
+
+        this.listener = listener;
+
+        this.packet = new byte[PACKET_SIZE];
+        this.videoPes = new ByteArrayOutputStream();
+        this.audioPes = new ByteArrayOutputStream();
+    }
+
+    // PRIVATE
+
+    private final ElementaryStreamListener listener;
+
+    private final byte[] packet;
+    private int packetSize;
+
+    private int pmtPid = -1;
+    private int videoPid = -1;
+    private int audioPid = -1;
+
+    private final ByteArrayOutputStream videoPes;
+    private final ByteArrayOutputStream audioPes;
+
+    private long lastTimestamp = -1;
+    private long timestampOffset;
+
+    private void handlePacket() throws IOException {
+        boolean payloadStart = (packet[1] & 0x40) != 0;
+        int pid = ((packet[1] & 0x1F) << 8) | (packet[2] & 0xFF);
+        int adaptationControl = (packet[3] >> 4) & 0x3;
+        if ((adaptationControl & 0x1) == 0)
+            return;
+
+        int payloadOffset = 4;
+        if ((adaptationControl & 0x2) != 0)
+            payloadOffset += 1 + (packet[4] & 0xFF);
+
+        if (payloadOffset >= PACKET_SIZE)
+            return;
+
+        if (pid == PAT_PID)
+            handlePat(payloadStart, payloadOffset);
+        else if (pid == pmtPid)
+            handlePmt(payloadStart, payloadOffset);
+        else if (pid == videoPid) {
+            if (payloadStart)
+                emitVideo();
+            videoPes.write(packet, payloadOffset, PACKET_SIZE - payloadOffset);
+        } else if (pid == audioPid) {
+            if (payloadStart)
+                emitAudio();
+            audioPes.write(packet, payloadOffset, PACKET_SIZE - payloadOffset);
+        }
+    }
+
+    private void handlePat(boolean payloadStart, int payloadOffset) {
+        int sectionOffset = getSectionOffset(payloadStart, payloadOffset);
+        if (sectionOffset < 0 || packet[sectionOffset] != PAT_TABLE_ID)
+            return;
+
+        int sectionEnd = getSectionEnd(sectionOffset);
+        for (int entry = sectionOffset + 8; entry + 4 <= sectionEnd; entry += 4) {
+            int programNumber = ((packet[entry] & 0xFF) << 8) | (packet[entry + 1] & 0xFF);
+            if (programNumber != 0) {
+                pmtPid = ((packet[entry + 2] & 0x1F) << 8) | (packet[entry + 3] & 0xFF);
+                return;
+            }
+        }
+    }
+
+    private void handlePmt(boolean payloadStart, int payloadOffset) {
+        int sectionOffset = getSectionOffset(payloadStart, payloadOffset);
+        if (sectionOffset < 0 || packet[sectionOffset] != PMT_TABLE_ID)
+            return;
+
+        int sectionEnd = getSectionEnd(sectionOffset);
+        int programInfoLength = ((packet[sectionOffset + 10] & 0x0F) << 8) | (packet[sectionOffset + 11] & 0xFF);
+        int entry = sectionOffset + 12 + programInfoLength;
+        while (entry + 5 <= sectionEnd) {
+            int streamType = packet[entry] & 0xFF;
+            int pid = ((packet[entry + 1] & 0x1F) << 8) | (packet[entry + 2] & 0xFF);
+            int infoLength = ((packet[entry + 3] & 0x0F) << 8) | (packet[entry + 4] & 0xFF);
+
+            if (streamType == STREAM_TYPE_H264 && videoPid < 0)
+                videoPid = pid;
+            else if (streamType == STREAM_TYPE_ADTS_AAC && audioPid < 0)
+                audioPid = pid;
+
+            entry += 5 + infoLength;
+        }
+    }
+
+    /**
+     * @return offset of the table section in the packet, -1 if this packet does not start a section
+     */
+    private int getSectionOffset(boolean payloadStart, int payloadOffset) {
+        if (!payloadStart)
+            return -1;
+
+        int sectionOffset = payloadOffset + 1 + (packet[payloadOffset] & 0xFF);
+        return sectionOffset + 12 <= PACKET_SIZE
+                ? sectionOffset
+                : -1;
+    }
+
+    /**
+     * @return end of the section data in the packet, excluding CRC
+     */
+    private int getSectionEnd(int sectionOffset) {
+        int sectionLength = ((packet[sectionOffset + 1] & 0x0F) << 8) | (packet[sectionOffset + 2] & 0xFF);
+        return Math.min(sectionOffset + 3 + sectionLength - CRC_SIZE, PACKET_SIZE);
+    }
+
+    private void emitVideo() throws IOException {
+        byte[] pes = takeBytes(videoPes);
+        if (!hasPesHeader(pes))
+            return;
+
+        int flags = (pes[7] >> 6) & 0x3;
+        if ((flags & 0x2) == 0)
+            return;
+
+        long pts = unwrap(readTimestamp(pes, 9));
+        long dts = flags == 0x3
+                ? unwrap(readTimestamp(pes, 14))
+                : pts;
+        listener.onVideo(pts, Math.min(dts, pts), getPesPayload(pes));
+    }
+
+    private void emitAudio() throws IOException {
+        byte[] pes = takeBytes(audioPes);
+        if (!hasPesHeader(pes))
+            return;
+
+        if (((pes[7] >> 6) & 0x2) == 0)
+            return;
+
+        listener.onAudio(unwrap(readTimestamp(pes, 9)), getPesPayload(pes));
+    }
+
+    private byte[] takeBytes(ByteArrayOutputStream pes) {
+        byte[] bytes = pes.toByteArray();
+        pes.reset();
+        return bytes;
+    }
+
+    private boolean hasPesHeader(byte[] pes) {
+        return pes.length >= 9 && pes[0] == 0 && pes[1] == 0 && pes[2] == 1 && pes.length >= 9 + (pes[8] & 0xFF);
+    }
+
+    private byte[] getPesPayload(byte[] pes) {
+        int start = 9 + (pes[8] & 0xFF);
+        int end = pes.length;
+        int declaredLength = ((pes[4] & 0xFF) << 8) | (pes[5] & 0xFF);
+        if (declaredLength > 0)
+            end = Math.min(end, 6 + declaredLength);
+
+        byte[] payload = new byte[Math.max(end - start, 0)];
+        System.arraycopy(pes, start, payload, 0, payload.length);
+        return payload;
+    }
+
+    private long readTimestamp(byte[] bytes, int offset) {
+        return ((long) (bytes[offset] >> 1) & 0x07) << 30
+                | (long) (bytes[offset + 1] & 0xFF) << 22
+                | (long) ((bytes[offset + 2] & 0xFF) >> 1) << 15
+                | (long) (bytes[offset + 3] & 0xFF) << 7
+                | (long) ((bytes[offset + 4] & 0xFF) >> 1);
+    }
+
+    /**
+     * Timestamps are 33-bit and wrap around roughly every 26 hours; large jumps backwards are treated as wrap around,
+     * and the timestamp is moved forward accordingly
+     */
+    private long unwrap(long timestamp) {
+        long unwrapped = timestamp + timestampOffset;
+        if (lastTimestamp >= 0 && lastTimestamp - unwrapped > TIMESTAMP_WRAP / 2) {
+            timestampOffset += TIMESTAMP_WRAP;
+            unwrapped += TIMESTAMP_WRAP;
+        }
+        lastTimestamp = Math.max(lastTimestamp, unwrapped);
+        return unwrapped;
+    }
+
+    private static final int PACKET_SIZE = 188;
+    private static final byte SYNC_BYTE = 0x47;
+    private static final int CRC_SIZE = 4;
+
+    private static final int PAT_PID = 0;
+    private static final byte PAT_TABLE_ID = 0x00;
+    private static final byte PMT_TABLE_ID = 0x02;
+
+    private static final int STREAM_TYPE_H264 = 0x1B;
+    private static final int STREAM_TYPE_ADTS_AAC = 0x0F;
+
+    private static final long TIMESTAMP_WRAP = 1L << 33;
+
+}
@@ -0,0 +1,217 @@
+package eu.goodlike.twitch.stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import eu.goodlike.functional.Futures;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.http.TwitchRequestMaker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <pre>
+ * Keeps stream data of VoDs, so that it is only requested from twitch once in a while
+ *
+ * Concurrent requests for stream data of the same VoD share a single request; the result is kept in memory until its
+ * time to live passes
+ *
+ * If a directory is given, stream data is also stored there, in a file named after the VoD id, so later runs (even
+ * with a different output format) can use it without making any requests; a file is written into a temporary file
+ * first and then moved into place, so other processes never see partial files
+ *
+ * VoDs which are unavailable (deleted or only available to subscribers) are remembered as well, for at most an hour,
+ * so they are not requested again and again; other failures are not kept
+ * </pre>
+ */
+public final class StreamDataCache {
+
+    /**
+     * @return JSON containing stream data of given VoD id, which is either cached and still alive, or newly requested
+     */
+    public CompletableFuture<JsonNode> getStreamData(int vodId) {
+        long now = System.currentTimeMillis();
+        CachedStreamData cachedStreamData = cachedData.compute(vodId, (id, cached) ->
+                cached == null || cached.isStale(now) ? new CachedStreamData() : cached);
+        // the request is made outside of compute, since it may complete (and update the cache) right away
+        if (cachedStreamData.requested.compareAndSet(false, true))
+            loadStreamData(vodId, cachedStreamData);
+
+        return cachedStreamData.data;
+    }
+
+    // CONSTRUCTORS
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    public StreamDataCache(StreamDataFetcher streamDataFetcher, Optional<Path> directory, long timeToLiveMillis,
+                           CustomizedLogger debugLogger) {
+        Null.check(streamDataFetcher, directory, debugLogger)
+                .ifAny("Stream data fetcher, directory Optional and logger cannot be null");
+        if (timeToLiveMillis < 1)
+            throw new IllegalArgumentException("Time to live can only be positive, not: " + timeToLiveMillis);
+
+        this.streamDataFetcher = streamDataFetcher;
+        this.directory = directory;
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.unavailableTimeToLiveMillis = Math.min(timeToLiveMillis, MAX_UNAVAILABLE_TIME_TO_LIVE);
+        this.debugLogger = debugLogger;
+        this.objectMapper = new ObjectMapper();
+        this.cachedData = new ConcurrentHashMap<>();
+    }
+
+    // PRIVATE
+
+    private final StreamDataFetcher streamDataFetcher;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<Path> directory;
+    private final long timeToLiveMillis;
+    private final long unavailableTimeToLiveMillis;
+    private final CustomizedLogger debugLogger;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, CachedStreamData> cachedData;
+
+    private void loadStreamData(int vodId, CachedStreamData cachedStreamData) {
+        if (directory.isPresent() && loadStored(vodId, directory.get(), cachedStreamData))
+            return;
+
+        CompletableFuture<JsonNode> request;
+        try {
+            request = streamDataFetcher.fetchStreamDataForVodId(vodId);
+        } catch (RuntimeException e) {
+            request = Futures.failedFuture(e);
+        }
+        request.whenComplete((streamData, e) -> {
+            long now = System.currentTimeMillis();
+            if (e == null) {
+                directory.ifPresent(dir -> store(dir.resolve(vodId + DATA_EXTENSION), streamData));
+                cachedStreamData.expiresAtMillis = now + timeToLiveMillis;
+                cachedStreamData.data.complete(streamData);
+            }
+            else if (TwitchRequestMaker.isUnavailable(e)) {
+                debugLogger.logMessage("Stream data is unavailable, remembering it for VoD with id: " + vodId);
+                directory.ifPresent(dir -> store(dir.resolve(vodId + UNAVAILABLE_EXTENSION), NullNode.getInstance()));
+                cachedStreamData.expiresAtMillis = now + unavailableTimeToLiveMillis;
+                cachedStreamData.data.completeExceptionally(e);
+            }
+            else {
+                cachedData.remove(vodId, cachedStreamData);
+                cachedStreamData.data.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * @return true if stored stream data (or a record of it being unavailable) which is still alive was found and
+     * given to the cached stream data, false otherwise
+     */
+    private boolean loadStored(int vodId, Path directory, CachedStreamData cachedStreamData) {
+        long now = System.currentTimeMillis();
+
+        Path dataPath = directory.resolve(vodId + DATA_EXTENSION);
+        long dataExpiresAt = getExpiry(dataPath, timeToLiveMillis);
+        if (dataExpiresAt > now) {
+            JsonNode streamData;
+            try {
+                streamData = objectMapper.readTree(dataPath.toFile());
+            } catch (IOException e) {
+                debugLogger.logMessage("Couldn't read stored stream data at: " + dataPath);
+                return false;
+            }
+            debugLogger.logMessage("Using stored stream data for VoD with id: " + vodId);
+            cachedStreamData.expiresAtMillis = dataExpiresAt;
+            cachedStreamData.data.complete(streamData);
+            return true;
+        }
+
+        long unavailableExpiresAt = getExpiry(directory.resolve(vodId + UNAVAILABLE_EXTENSION), unavailableTimeToLiveMillis);
+        if (unavailableExpiresAt > now) {
+            debugLogger.logMessage("Stream data was unavailable recently for VoD with id: " + vodId);
+            cachedStreamData.expiresAtMillis = unavailableExpiresAt;
+            cachedStreamData.data.completeExceptionally(
+                    new IllegalStateException("Stream data was unavailable recently for VoD with id: " + vodId));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return time at which the file at given path is no longer alive, 0 if it does not exist or cannot be read
+     */
+    private long getExpiry(Path path, long timeToLiveMillis) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis() + timeToLiveMillis;
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't read modification time of stored stream data at: " + path);
+            return 0;
+        }
+    }
+
+    /**
+     * Stores given JSON at given path, replacing the records of the other kind; failures are logged to debug and
+     * ignored
+     */
+    private void store(Path path, JsonNode json) {
+        Path directory = path.getParent();
+        Path temporaryPath = directory.resolve(path.getFileName() + "." + UUID.randomUUID() + TEMPORARY_EXTENSION);
+        try {
+            Files.createDirectories(directory);
+            objectMapper.writeValue(temporaryPath.toFile(), json);
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't store stream data at: " + path);
+            deleteQuietly(temporaryPath);
+            return;
+        }
+
+        String name = path.getFileName().toString();
+        if (name.endsWith(DATA_EXTENSION))
+            deleteQuietly(directory.resolve(name.replace(DATA_EXTENSION, UNAVAILABLE_EXTENSION)));
+        else
+            deleteQuietly(directory.resolve(name.replace(UNAVAILABLE_EXTENSION, DATA_EXTENSION)));
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't delete stored stream data at: " + path);
+        }
+    }
+
+    private static final String DATA_EXTENSION = ".json";
+    private static final String UNAVAILABLE_EXTENSION = ".unavailable";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final long MAX_UNAVAILABLE_TIME_TO_LIVE = TimeUnit.HOURS.toMillis(1);
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final class CachedStreamData {
+        private boolean isStale(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+
+        private CachedStreamData() {
+            this.data = new CompletableFuture<>();
+            this.requested = new AtomicBoolean();
+            this.expiresAtMillis = NEVER;
+        }
+
+        private final CompletableFuture<JsonNode> data;
+        private final AtomicBoolean requested;
+        private volatile long expiresAtMillis;
+    }
+
+}
@@ -11,7 +11,7 @@ import okhttp3.HttpUrl;
 import java.util.concurrent.CompletableFuture;
 
 /**
- * Fetches access tokens for given VoD id
+ * Fetches stream data for given VoD id
  */
 public final class StreamDataFetcher {
 
@@ -0,0 +1,136 @@
+package eu.goodlike.twitch.token;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.goodlike.functional.Futures;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <pre>
+ * Keeps access tokens of VoDs, so that a new token is only requested when the previous one is about to expire
+ *
+ * The expiry is read from the "expires" field (in epoch seconds) of the token payload; a token is refreshed once less
+ * than a minute of it remains, so it does not expire while a request is being made with it; tokens without a readable
+ * expiry are kept until they are invalidated
+ *
+ * Concurrent requests for a token of the same VoD share a single request; failed requests are not kept
+ * </pre>
+ */
+public final class TokenCache {
+
+    /**
+     * @return token for given VoD id, which is either cached and not about to expire, or newly requested
+     */
+    public CompletableFuture<Token> getToken(int vodId) {
+        long now = System.currentTimeMillis();
+        CachedToken cachedToken = cachedTokens.compute(vodId, (id, cached) ->
+                cached == null || cached.isStale(now) ? new CachedToken() : cached);
+        // the request is made outside of compute, since it may complete (and update the cache) right away
+        if (cachedToken.requested.compareAndSet(false, true))
+            requestToken(vodId, cachedToken);
+
+        return cachedToken.token;
+    }
+
+    /**
+     * Forgets the token of given VoD, if it is still the given token, so that the next call to getToken requests a
+     * new one; this should be called when the token is rejected
+     * @throws NullPointerException if token is null
+     */
+    public void invalidate(int vodId, Token token) {
+        Null.check(token).ifAny("Token cannot be null");
+        cachedTokens.computeIfPresent(vodId, (id, cached) -> cached.isFor(token) ? null : cached);
+    }
+
+    // CONSTRUCTORS
+
+    public TokenCache(TokenFetcher tokenFetcher, CustomizedLogger debugLogger) {
+        Null.check(tokenFetcher, debugLogger).ifAny("Token fetcher and logger cannot be null");
+
+        this.tokenFetcher = tokenFetcher;
+        this.debugLogger = debugLogger;
+        this.objectMapper = new ObjectMapper();
+        this.cachedTokens = new ConcurrentHashMap<>();
+    }
+
+    // PRIVATE
+
+    private final TokenFetcher tokenFetcher;
+    private final CustomizedLogger debugLogger;
+    private final ObjectMapper objectMapper;
+    private final Map<Integer, CachedToken> cachedTokens;
+
+    private void requestToken(int vodId, CachedToken cachedToken) {
+        CompletableFuture<Token> request;
+        try {
+            request = tokenFetcher.generateNewToken(vodId);
+        } catch (RuntimeException e) {
+            request = Futures.failedFuture(e);
+        }
+        request.whenComplete((token, e) -> {
+            if (e == null) {
+                cachedToken.refreshAtMillis = getRefreshTime(token, vodId);
+                cachedToken.token.complete(token);
+            }
+            else {
+                cachedTokens.remove(vodId, cachedToken);
+                cachedToken.token.completeExceptionally(e);
+            }
+        });
+    }
+
+    private long getRefreshTime(Token token, int vodId) {
+        String payload = token.getToken();
+        if (payload == null)
+            return NEVER;
+
+        JsonNode expires;
+        try {
+            expires = objectMapper.readTree(payload).path(EXPIRES_FIELD);
+        } catch (IOException e) {
+            debugLogger.logMessage("Cannot read expiry of token for VoD with id: " + vodId);
+            return NEVER;
+        }
+        if (!expires.canConvertToLong()) {
+            debugLogger.logMessage("Token has no expiry for VoD with id: " + vodId);
+            return NEVER;
+        }
+        return TimeUnit.SECONDS.toMillis(expires.asLong()) - REFRESH_AHEAD_MILLIS;
+    }
+
+    private static final String EXPIRES_FIELD = "expires";
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long NEVER = Long.MAX_VALUE;
+
+    private static final class CachedToken {
+        private boolean isStale(long nowMillis) {
+            return nowMillis >= refreshAtMillis;
+        }
+
+        /**
+         * @return true if this is the given token; a token which is still being requested is never the given one
+         */
+        private boolean isFor(Token token) {
+            return this.token.isDone() && !this.token.isCompletedExceptionally() && token.equals(this.token.join());
+        }
+
+        private CachedToken() {
+            this.token = new CompletableFuture<>();
+            this.requested = new AtomicBoolean();
+            this.refreshAtMillis = NEVER;
+        }
+
+        private final CompletableFuture<Token> token;
+        private final AtomicBoolean requested;
+        private volatile long refreshAtMillis;
+    }
+
+}
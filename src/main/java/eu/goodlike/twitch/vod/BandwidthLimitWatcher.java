@@ -0,0 +1,101 @@
+package eu.goodlike.twitch.vod;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * Keeps the limit of a bandwidth limiter in sync with a file, so that the limit can be changed while downloading
+ *
+ * The file is expected to contain a single number - the limit in bytes per second; any value below 1 removes the
+ * limit; the file is checked every second and only read after it changes
+ * </pre>
+ */
+public final class BandwidthLimitWatcher implements AutoCloseable {
+
+    /**
+     * Reads the file right away, and then keeps checking it in the background until closed
+     */
+    public void start() {
+        if (Files.notExists(limitFile))
+            debugLogger.logMessage("Bandwidth limit file does not exist yet: " + limitFile);
+
+        checkFile();
+        scheduler.scheduleWithFixedDelay(this::checkFile, CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.shutdown();
+    }
+
+    // CONSTRUCTORS
+
+    public BandwidthLimitWatcher(Path limitFile, BandwidthLimiter bandwidthLimiter, CustomizedLogger debugLogger) {
+        Null.check(limitFile, bandwidthLimiter, debugLogger)
+                .ifAny("Limit file, bandwidth limiter and logger cannot be null");
+
+        this.limitFile = limitFile;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.debugLogger = debugLogger;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bandwidth-limit-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // PRIVATE
+
+    private final Path limitFile;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final CustomizedLogger debugLogger;
+
+    private final ScheduledExecutorService scheduler;
+
+    private FileTime lastModified;
+
+    private void checkFile() {
+        FileTime modified;
+        String contents;
+        try {
+            modified = Files.getLastModifiedTime(limitFile);
+            if (modified.equals(lastModified))
+                return;
+
+            contents = new String(Files.readAllBytes(limitFile), StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            if (lastModified != null)
+                debugLogger.logMessage("Cannot read bandwidth limit from: " + limitFile);
+            lastModified = null;
+            return;
+        }
+        lastModified = modified;
+
+        long bytesPerSecond;
+        try {
+            bytesPerSecond = Long.parseLong(contents);
+        } catch (NumberFormatException e) {
+            debugLogger.logMessage("Bandwidth limit is not a number: " + contents);
+            return;
+        }
+
+        bandwidthLimiter.setBytesPerSecond(bytesPerSecond);
+        debugLogger.logMessage(bytesPerSecond > 0
+                ? "Bandwidth limited to " + bytesPerSecond + " bytes per second"
+                : "Bandwidth is no longer limited");
+    }
+
+    private static final long CHECK_INTERVAL_SECONDS = 1;
+
+}
@@ -0,0 +1,105 @@
+package eu.goodlike.twitch.vod;
+
+import java.io.InterruptedIOException;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * Token bucket which limits the amount of bytes transferred per second, shared by all transfers
+ *
+ * The bucket holds at most one second worth of bytes; a transfer which takes more bytes than are available goes into
+ * debt and waits until the debt is repaid, so transfers which follow it wait as well, and the limit holds for the sum
+ * of all transfers, regardless of how many there are
+ *
+ * The limit can be changed at any time; transfers which are already waiting are not affected, but every transfer after
+ * that is
+ * </pre>
+ */
+public final class BandwidthLimiter {
+
+    /**
+     * Blocks until given amount of bytes can be transferred without exceeding the limit; returns immediately if there
+     * is no limit
+     * @throws IllegalArgumentException if bytes is negative
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    public void acquire(int bytes) throws InterruptedIOException {
+        if (bytes < 0)
+            throw new IllegalArgumentException("Byte count cannot be negative: " + bytes);
+
+        long waitNanos = reserve(bytes);
+        if (waitNanos <= 0)
+            return;
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bandwidth");
+        }
+    }
+
+    /**
+     * @return current limit in bytes per second, OptionalLong::empty if there is no limit
+     */
+    public synchronized OptionalLong getBytesPerSecond() {
+        return bytesPerSecond <= 0
+                ? OptionalLong.empty()
+                : OptionalLong.of(bytesPerSecond);
+    }
+
+    /**
+     * Changes the limit; any value below 1 removes the limit
+     */
+    public synchronized void setBytesPerSecond(long bytesPerSecond) {
+        long now = System.nanoTime();
+        refill(now);
+
+        this.bytesPerSecond = Math.max(bytesPerSecond, 0);
+        this.availableBytes = Math.min(availableBytes, this.bytesPerSecond);
+    }
+
+    // CONSTRUCTORS
+
+    public static BandwidthLimiter unlimited() {
+        return new BandwidthLimiter(0);
+    }
+
+    public BandwidthLimiter(long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(bytesPerSecond, 0);
+        this.availableBytes = this.bytesPerSecond;
+        this.lastRefill = System.nanoTime();
+    }
+
+    // PRIVATE
+
+    private long bytesPerSecond;
+    private double availableBytes;
+    private long lastRefill;
+
+    /**
+     * @return nanos to wait before the reserved bytes can be transferred
+     */
+    private synchronized long reserve(int bytes) {
+        long now = System.nanoTime();
+        refill(now);
+        if (bytesPerSecond <= 0)
+            return 0;
+
+        availableBytes -= bytes;
+        return availableBytes >= 0
+                ? 0
+                : (long) (-availableBytes * NANOS_PER_SECOND / bytesPerSecond);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        lastRefill = now;
+        if (bytesPerSecond > 0)
+            availableBytes = Math.min(bytesPerSecond, availableBytes + (double) elapsed * bytesPerSecond / NANOS_PER_SECOND);
+    }
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+}
@@ -0,0 +1,14 @@
+package eu.goodlike.twitch.vod;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a downloaded segment turns out to be truncated or otherwise damaged; downloading it again may help
+ */
+public final class CorruptSegmentException extends IOException {
+
+    public CorruptSegmentException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,185 @@
+package eu.goodlike.twitch.vod;
+
+import eu.goodlike.neat.Null;
+import eu.goodlike.twitch.download.progress.ProgressTracker;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <pre>
+ * Writes response bodies into file channels, using pooled buffers, so that no memory is allocated per download;
+ * reading is throttled by the bandwidth limiter, and every chunk is passed through the validator as it is read
+ *
+ * Time spent reading (including bandwidth limiting) and writing (including waiting for a turn) is recorded by the
+ * progress tracker
+ *
+ * Only a limited amount of chunks are written into files at the same time, so a large amount of downloads does not
+ * turn into as many competing writes; a download which does not get a turn right away keeps reading its body into the
+ * buffer instead of waiting, and writes everything it has buffered once it gets one; it only waits once its buffer is
+ * full, and at most for a second, after which it writes without a turn, so the threads which read bodies (i.e.
+ * http client threads) are never held up by the limit for long
+ * </pre>
+ */
+public final class ResponseBodyWriter {
+
+    /**
+     * Writes the body into the channel, starting at given position; the body is always closed afterwards
+     * @return amount of bytes written
+     * @throws NullPointerException if body, file channel or validator is null
+     * @throws CorruptSegmentException if the validator rejects the body
+     * @throws IOException if reading the body or writing into the channel fails, or if the body contains more bytes
+     * than maxBytes
+     */
+    public long write(ResponseBody body, FileChannel fileChannel, long position, long maxBytes,
+                      SegmentValidator validator) throws IOException {
+        Null.check(body, fileChannel, validator).ifAny("Response body, file channel and validator cannot be null");
+
+        TransferBuffer buffer = bufferPool.acquire();
+        try (ResponseBody responseBody = body) {
+            BufferedSource source = responseBody.source();
+            byte[] scratch = buffer.getScratch();
+            ByteBuffer directBuffer = buffer.getDirectBuffer();
+
+            long received = 0;
+            long written = 0;
+            int read;
+            directBuffer.clear();
+            long readStart = System.nanoTime();
+            while ((read = source.read(scratch, 0, Math.min(scratch.length, directBuffer.remaining()))) != -1) {
+                received += read;
+                if (received > maxBytes)
+                    throw new IOException("Received more than the expected " + maxBytes + " bytes");
+
+                bandwidthLimiter.acquire(read);
+                validator.update(scratch, 0, read);
+                progressTracker.recordRead(read, System.nanoTime() - readStart);
+
+                directBuffer.put(scratch, 0, read);
+                boolean hasPermit = writePermits.tryAcquire();
+                if (hasPermit || !directBuffer.hasRemaining())
+                    written += writeBuffered(directBuffer, fileChannel, position + written, hasPermit);
+
+                readStart = System.nanoTime();
+            }
+            written += writeBuffered(directBuffer, fileChannel, position + written, false);
+            validator.finish(responseBody.contentLength());
+            return written;
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    /**
+     * Reads the whole body into memory; the body is always closed afterwards
+     * @return bytes of the body
+     * @throws NullPointerException if body or validator is null
+     * @throws CorruptSegmentException if the validator rejects the body
+     * @throws IOException if reading the body fails, or if the body contains more bytes than maxBytes
+     */
+    public byte[] read(ResponseBody body, long maxBytes, SegmentValidator validator) throws IOException {
+        Null.check(body, validator).ifAny("Response body and validator cannot be null");
+
+        TransferBuffer buffer = bufferPool.acquire();
+        try (ResponseBody responseBody = body) {
+            BufferedSource source = responseBody.source();
+            byte[] scratch = buffer.getScratch();
+
+            long expectedSize = responseBody.contentLength();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(expectedSize > 0 && expectedSize <= maxBytes
+                    ? (int) expectedSize
+                    : scratch.length);
+
+            int read;
+            long readStart = System.nanoTime();
+            while ((read = source.read(scratch, 0, scratch.length)) != -1) {
+                if (output.size() + read > maxBytes)
+                    throw new IOException("Received more than the expected " + maxBytes + " bytes");
+
+                bandwidthLimiter.acquire(read);
+                validator.update(scratch, 0, read);
+                long readEnd = System.nanoTime();
+                progressTracker.recordRead(read, readEnd - readStart);
+                readStart = readEnd;
+                output.write(scratch, 0, read);
+            }
+            validator.finish(expectedSize);
+            return output.toByteArray();
+        } finally {
+            bufferPool.release(buffer);
+        }
+    }
+
+    // CONSTRUCTORS
+
+    public ResponseBodyWriter(TransferBufferPool bufferPool, BandwidthLimiter bandwidthLimiter, int maxConcurrentWrites,
+                              ProgressTracker progressTracker) {
+        Null.check(bufferPool, bandwidthLimiter, progressTracker)
+                .ifAny("Buffer pool, bandwidth limiter and progress tracker cannot be null");
+        if (maxConcurrentWrites < 1)
+            throw new IllegalArgumentException("Concurrent write count can only be positive, not: " + maxConcurrentWrites);
+
+        this.bufferPool = bufferPool;
+        this.bandwidthLimiter = bandwidthLimiter;
+        this.writePermits = new Semaphore(maxConcurrentWrites);
+        this.progressTracker = progressTracker;
+    }
+
+    // PRIVATE
+
+    private final TransferBufferPool bufferPool;
+    private final BandwidthLimiter bandwidthLimiter;
+    private final Semaphore writePermits;
+    private final ProgressTracker progressTracker;
+
+    /**
+     * Writes all bytes in the buffer (which is in filling mode) into the channel and clears the buffer; if no permit
+     * is held yet, waits for one, but at most for MAX_WRITE_WAIT
+     * @return amount of bytes written
+     */
+    private long writeBuffered(ByteBuffer buffer, FileChannel fileChannel, long position, boolean hasPermit)
+            throws IOException {
+        if (buffer.position() == 0) {
+            if (hasPermit)
+                writePermits.release();
+            return 0;
+        }
+
+        long writeStart = System.nanoTime();
+        boolean permitted = hasPermit || awaitWritePermit();
+        buffer.flip();
+        try {
+            long written = 0;
+            while (buffer.hasRemaining())
+                written += fileChannel.write(buffer, position + written);
+            return written;
+        } finally {
+            buffer.clear();
+            if (permitted)
+                writePermits.release();
+            progressTracker.recordWrite(System.nanoTime() - writeStart);
+        }
+    }
+
+    /**
+     * @return true if a permit was acquired, false if none became available in time
+     */
+    private boolean awaitWritePermit() throws InterruptedIOException {
+        try {
+            return writePermits.tryAcquire(MAX_WRITE_WAIT_NANOS, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to write");
+        }
+    }
+
+    private static final long MAX_WRITE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+}
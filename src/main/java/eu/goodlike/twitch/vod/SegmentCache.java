@@ -0,0 +1,305 @@
+package eu.goodlike.twitch.vod;
+
+import com.google.common.hash.Hashing;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.neat.Null;
+import okhttp3.HttpUrl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <pre>
+ * Local cache of downloaded segments, shared by every run which uses the same directory
+ *
+ * Segments are stored in files named after the hash of their url (including byte offsets); a segment is written into
+ * a temporary file first and then moved into place, so other processes never see partial segments
+ *
+ * Every access updates the modification time of the segment; once the total size exceeds the limit, least recently
+ * used segments are deleted, while holding a lock on the directory, so only one process evicts at a time
+ * </pre>
+ */
+public final class SegmentCache {
+
+    /**
+     * @return channel for reading the cached segment of given url, Optional::empty if it is not cached or cannot be
+     * read; the caller is responsible for closing the channel
+     */
+    public Optional<FileChannel> open(HttpUrl url) {
+        Null.check(url).ifAny("Url cannot be null");
+        if (!enabled)
+            return Optional.empty();
+
+        Path path = getSegmentPath(url);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+
+        markUsed(path);
+        return Optional.of(channel);
+    }
+
+    /**
+     * Used when the segment is read by someone else (i.e. ffmpeg); it is marked as used, so it is the last to be
+     * evicted, but another process can still evict it before it is read
+     * @return absolute path of the cached segment of given url, Optional::empty if it is not cached
+     */
+    public Optional<Path> find(HttpUrl url) {
+        Null.check(url).ifAny("Url cannot be null");
+        if (!enabled)
+            return Optional.empty();
+
+        Path path = getSegmentPath(url).toAbsolutePath();
+        if (!Files.isRegularFile(path))
+            return Optional.empty();
+
+        markUsed(path);
+        return Optional.of(path);
+    }
+
+    /**
+     * @return true if segments are cached, false if this cache is disabled
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stores given bytes of the channel as the segment of given url; the channel must be readable; failures are logged
+     * to debug and ignored
+     */
+    public void store(HttpUrl url, FileChannel source, long position, long size) {
+        Null.check(url, source).ifAny("Url and source channel cannot be null");
+        if (!enabled)
+            return;
+
+        store(url, size, target -> {
+            long transferred = 0;
+            while (transferred < size) {
+                long count = source.transferTo(position + transferred, size - transferred, target);
+                if (count <= 0)
+                    throw new IOException("Source ended after " + transferred + " of " + size + " bytes");
+                transferred += count;
+            }
+        });
+    }
+
+    /**
+     * Stores contents of given file as the segment of given url; failures are logged to debug and ignored
+     */
+    public void store(HttpUrl url, Path file) {
+        Null.check(url, file).ifAny("Url and file cannot be null");
+        if (!enabled)
+            return;
+
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            store(url, source, 0, source.size());
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't cache segment from: " + file);
+        }
+    }
+
+    /**
+     * Stores given bytes as the segment of given url; failures are logged to debug and ignored
+     */
+    public void store(HttpUrl url, byte[] bytes) {
+        Null.check(url, bytes).ifAny("Url and bytes cannot be null");
+        if (!enabled)
+            return;
+
+        store(url, bytes.length, target -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining())
+                target.write(buffer);
+        });
+    }
+
+    // CONSTRUCTORS
+
+    public static SegmentCache disabled() {
+        return DISABLED;
+    }
+
+    public SegmentCache(Path directory, long maxSize, CustomizedLogger debugLogger) {
+        Null.check(directory, debugLogger).ifAny("Directory and logger cannot be null");
+        if (maxSize < 1)
+            throw new IllegalArgumentException("Cache size can only be positive, not: " + maxSize);
+
+        this.enabled = true;
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.debugLogger = debugLogger;
+        this.estimatedSize = new AtomicLong(-1);
+    }
+
+    private SegmentCache() {
+        this.enabled = false;
+        this.directory = null;
+        this.maxSize = 0;
+        this.debugLogger = null;
+        this.estimatedSize = null;
+    }
+
+    // PRIVATE
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxSize;
+    private final CustomizedLogger debugLogger;
+    private final AtomicLong estimatedSize;
+
+    private Path getSegmentPath(HttpUrl url) {
+        return directory.resolve(Hashing.sha256().hashString(url.toString(), StandardCharsets.UTF_8) + SEGMENT_EXTENSION);
+    }
+
+    private void markUsed(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't update access time of cached segment: " + path);
+        }
+    }
+
+    private void store(HttpUrl url, long size, SegmentWriter segmentWriter) {
+        Path path = getSegmentPath(url);
+        Path temporaryPath = directory.resolve(path.getFileName() + "." + UUID.randomUUID() + TEMPORARY_EXTENSION);
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel target = FileChannel.open(temporaryPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                segmentWriter.write(target);
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            // the cache must never fail a download, so unchecked failures (i.e. an unreadable source) are ignored too
+            debugLogger.logMessage("Couldn't cache segment from: " + url);
+            deleteQuietly(temporaryPath);
+            return;
+        }
+
+        if (estimatedSize.get() < 0 || estimatedSize.addAndGet(size) > maxSize)
+            evict();
+    }
+
+    /**
+     * Deletes least recently used segments until the cache fits into a fraction of its limit, leaving room for new
+     * segments before the next eviction; skipped if another process is already evicting
+     */
+    private synchronized void evict() {
+        Path lockPath = directory.resolve(LOCK_FILE_NAME);
+        try (FileChannel lockChannel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null)
+                return;
+
+            List<CachedSegment> segments = listSegments();
+            long totalSize = segments.stream().mapToLong(CachedSegment::getSize).sum();
+            if (totalSize > maxSize) {
+                long targetSize = (long) (maxSize * EVICTION_TARGET_RATIO);
+                segments.sort(Comparator.comparing(CachedSegment::getLastAccess));
+                for (CachedSegment segment : segments) {
+                    if (totalSize <= targetSize)
+                        break;
+
+                    if (deleteQuietly(segment.getPath()))
+                        totalSize -= segment.getSize();
+                }
+                debugLogger.logMessage("Segment cache evicted down to " + totalSize + " bytes");
+            }
+            estimatedSize.set(totalSize);
+        } catch (IOException | OverlappingFileLockException e) {
+            debugLogger.logMessage("Couldn't evict segments from cache at: " + directory);
+        }
+    }
+
+    /**
+     * @return segments currently in the cache; abandoned temporary files of crashed processes are deleted instead
+     */
+    private List<CachedSegment> listSegments() throws IOException {
+        List<CachedSegment> segments = new ArrayList<>();
+        long abandonedBefore = System.currentTimeMillis() - ABANDONED_TEMPORARY_FILE_AGE;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+
+                if (name.endsWith(SEGMENT_EXTENSION))
+                    segments.add(new CachedSegment(file, attributes.size(), attributes.lastModifiedTime()));
+                else if (name.endsWith(TEMPORARY_EXTENSION) && attributes.lastModifiedTime().toMillis() < abandonedBefore)
+                    deleteQuietly(file);
+            }
+        }
+        return segments;
+    }
+
+    private boolean deleteQuietly(Path path) {
+        try {
+            return Files.deleteIfExists(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static final String SEGMENT_EXTENSION = ".ts";
+    private static final String TEMPORARY_EXTENSION = ".tmp";
+    private static final String LOCK_FILE_NAME = ".lock";
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+    private static final long ABANDONED_TEMPORARY_FILE_AGE = TimeUnit.HOURS.toMillis(1);
+
+    private static final SegmentCache DISABLED = new SegmentCache();
+
+    @FunctionalInterface
+    private interface SegmentWriter {
+        void write(FileChannel target) throws IOException;
+    }
+
+    private static final class CachedSegment {
+        private Path getPath() {
+            return path;
+        }
+
+        private long getSize() {
+            return size;
+        }
+
+        private FileTime getLastAccess() {
+            return lastAccess;
+        }
+
+        private CachedSegment(Path path, long size, FileTime lastAccess) {
+            this.path = path;
+            this.size = size;
+            this.lastAccess = lastAccess;
+        }
+
+        private final Path path;
+        private final long size;
+        private final FileTime lastAccess;
+    }
+
+}
@@ -0,0 +1,144 @@
+package eu.goodlike.twitch.vod;
+
+import java.util.Arrays;
+
+/**
+ * <pre>
+ * Validates MPEG-TS segments while they are being downloaded, one chunk at a time
+ *
+ * Every 188 byte packet must start with the sync byte, must not be flagged as erroneous, and its continuity counter
+ * must follow the previous packet of the same PID; once the body ends, it must consist of whole packets and match
+ * the advertised content length
+ *
+ * Only packet headers are inspected, so the cost does not depend on the size of the payload; instances are stateful,
+ * so a new one is needed for every segment
+ * </pre>
+ */
+public final class SegmentValidator {
+
+    /**
+     * Validates the next chunk of the segment
+     * @throws CorruptSegmentException if the chunk contains an invalid packet
+     */
+    public void update(byte[] bytes, int offset, int length) throws CorruptSegmentException {
+        if (!enabled)
+            return;
+
+        int index = offset;
+        int end = offset + length;
+        while (index < end) {
+            if (packetPosition < HEADER_SIZE) {
+                header[packetPosition++] = bytes[index++] & 0xFF;
+                totalBytes++;
+                if (packetPosition == 1 && header[0] != SYNC_BYTE)
+                    throw new CorruptSegmentException("Packet at byte " + (totalBytes - 1) +
+                            " does not start with the sync byte");
+
+                if (packetPosition == HEADER_SIZE)
+                    validateHeader();
+            } else {
+                int skipped = Math.min(end - index, PACKET_SIZE - packetPosition);
+                index += skipped;
+                packetPosition += skipped;
+                totalBytes += skipped;
+            }
+
+            if (packetPosition == PACKET_SIZE)
+                packetPosition = 0;
+        }
+    }
+
+    /**
+     * Validates the end of the segment
+     * @param expectedBytes content length of the segment, negative if unknown
+     * @throws CorruptSegmentException if the segment ends in the middle of a packet, or its size is not as expected
+     */
+    public void finish(long expectedBytes) throws CorruptSegmentException {
+        if (!enabled)
+            return;
+
+        if (expectedBytes >= 0 && totalBytes != expectedBytes)
+            throw new CorruptSegmentException("Expected " + expectedBytes + " bytes, but received " + totalBytes);
+
+        if (totalBytes == 0)
+            throw new CorruptSegmentException("Segment is empty");
+
+        if (packetPosition != 0)
+            throw new CorruptSegmentException("Segment ends in the middle of a packet, after " + totalBytes + " bytes");
+    }
+
+    // CONSTRUCTORS
+
+    /**
+     * @return validator for a single MPEG-TS segment
+     */
+    public static SegmentValidator transportStream() {
+        return new SegmentValidator(true);
+    }
+
+    /**
+     * @return validator which accepts everything
+     */
+    public static SegmentValidator none() {
+        return NONE;
+    }
+
+    private SegmentValidator(boolean enabled) {
+        this.enabled = enabled;
+        this.header = new int[HEADER_SIZE];
+        this.continuityCounters = new byte[PID_COUNT];
+        Arrays.fill(continuityCounters, NO_COUNTER);
+    }
+
+    // PRIVATE
+
+    private final boolean enabled;
+    private final int[] header;
+    private final byte[] continuityCounters;
+
+    private int packetPosition;
+    private long totalBytes;
+
+    private void validateHeader() throws CorruptSegmentException {
+        if ((header[1] & 0x80) != 0)
+            throw new CorruptSegmentException("Packet at byte " + getPacketStart() + " is flagged as erroneous");
+
+        int pid = ((header[1] & 0x1F) << 8) | header[2];
+        if (pid == NULL_PID)
+            return;
+
+        int adaptationFieldControl = (header[3] >> 4) & 0x3;
+        boolean hasPayload = (adaptationFieldControl & 0x1) != 0;
+        boolean hasAdaptationField = (adaptationFieldControl & 0x2) != 0;
+        boolean discontinuity = hasAdaptationField && header[4] > 0 && (header[5] & 0x80) != 0;
+
+        int counter = header[3] & 0xF;
+        int lastCounter = continuityCounters[pid];
+        continuityCounters[pid] = (byte) counter;
+        if (lastCounter == NO_COUNTER || discontinuity)
+            return;
+
+        // packets without payload do not increment the counter; a packet with payload may be sent twice
+        int expectedCounter = hasPayload ? (lastCounter + 1) & 0xF : lastCounter;
+        if (counter != expectedCounter && !(hasPayload && counter == lastCounter))
+            throw new CorruptSegmentException("Packet at byte " + getPacketStart() + " of PID " + pid +
+                    " has continuity counter " + counter + ", expected " + expectedCounter);
+    }
+
+    /**
+     * @return position of the packet whose header is being validated, relative to the start of the segment
+     */
+    private long getPacketStart() {
+        return totalBytes - HEADER_SIZE;
+    }
+
+    private static final int PACKET_SIZE = 188;
+    private static final int HEADER_SIZE = 6;
+    private static final int SYNC_BYTE = 0x47;
+    private static final int NULL_PID = 0x1FFF;
+    private static final int PID_COUNT = 0x2000;
+    private static final byte NO_COUNTER = -1;
+
+    private static final SegmentValidator NONE = new SegmentValidator(false);
+
+}
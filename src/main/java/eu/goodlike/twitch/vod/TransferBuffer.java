@@ -0,0 +1,55 @@
+package eu.goodlike.twitch.vod;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <pre>
+ * Reusable pair of buffers used to move bytes from a response body into a file channel
+ *
+ * The response body can only be read into an array, so the bytes pass through the scratch array into the direct
+ * buffer, which can then be written into the channel without any further copies
+ *
+ * A buffer can also be created on the heap, for when no more direct memory should be used; it works the same way, but
+ * the channel has to copy its bytes into direct memory of its own
+ * </pre>
+ */
+public final class TransferBuffer {
+
+    /**
+     * @return array which response body is read into
+     */
+    public byte[] getScratch() {
+        return scratch;
+    }
+
+    /**
+     * @return buffer which is written into the file channel; it is direct, unless this buffer was created on the heap
+     */
+    public ByteBuffer getDirectBuffer() {
+        return directBuffer;
+    }
+
+    // CONSTRUCTORS
+
+    public static TransferBuffer onHeap(int size) {
+        return new TransferBuffer(size, false);
+    }
+
+    public TransferBuffer(int size) {
+        this(size, true);
+    }
+
+    private TransferBuffer(int size, boolean direct) {
+        if (size < 1)
+            throw new IllegalArgumentException("Buffer size can only be positive, not: " + size);
+
+        this.scratch = new byte[size];
+        this.directBuffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    // PRIVATE
+
+    private final byte[] scratch;
+    private final ByteBuffer directBuffer;
+
+}
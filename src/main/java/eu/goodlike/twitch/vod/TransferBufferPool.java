@@ -0,0 +1,73 @@
+package eu.goodlike.twitch.vod;
+
+import eu.goodlike.neat.Null;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <pre>
+ * Bounded pool of transfer buffers
+ *
+ * Buffers are created on demand, but at most maxPooledBuffers of them use direct memory; all of those are kept for
+ * reuse after being released, so direct memory usage is bounded; if every one of them is in use, a buffer on the heap
+ * is given out instead, which is never pooled and is left for garbage collection once released
+ *
+ * Acquiring a buffer never blocks, since buffers are acquired by the threads which read responses
+ * </pre>
+ */
+public final class TransferBufferPool {
+
+    /**
+     * @return buffer from the pool, a new direct one if the pool is empty but the limit is not reached yet, or a new
+     * one on the heap otherwise
+     */
+    public TransferBuffer acquire() {
+        TransferBuffer buffer = pooledBuffers.poll();
+        if (buffer != null)
+            return buffer;
+
+        for (int created = createdBuffers.get(); created < maxPooledBuffers; created = createdBuffers.get())
+            if (createdBuffers.compareAndSet(created, created + 1))
+                return new TransferBuffer(bufferSize);
+
+        return TransferBuffer.onHeap(bufferSize);
+    }
+
+    /**
+     * Returns the buffer to the pool, unless it was created on the heap
+     * @throws NullPointerException if buffer is null
+     */
+    public void release(TransferBuffer buffer) {
+        Null.check(buffer).ifAny("Buffer cannot be null");
+        if (!buffer.getDirectBuffer().isDirect())
+            return;
+
+        buffer.getDirectBuffer().clear();
+        pooledBuffers.offer(buffer);
+    }
+
+    // CONSTRUCTORS
+
+    public TransferBufferPool(int bufferSize, int maxPooledBuffers) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size can only be positive, not: " + bufferSize);
+
+        if (maxPooledBuffers < 1)
+            throw new IllegalArgumentException("Pooled buffer count can only be positive, not: " + maxPooledBuffers);
+
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.pooledBuffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+        this.createdBuffers = new AtomicInteger();
+    }
+
+    // PRIVATE
+
+    private final int bufferSize;
+    private final int maxPooledBuffers;
+    private final BlockingQueue<TransferBuffer> pooledBuffers;
+    private final AtomicInteger createdBuffers;
+
+}
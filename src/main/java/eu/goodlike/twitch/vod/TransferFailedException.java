@@ -0,0 +1,15 @@
+package eu.goodlike.twitch.vod;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the body of a response could not be read or written in full, i.e. because the connection was reset in
+ * the middle of the transfer; downloading it again may help
+ */
+final class TransferFailedException extends IOException {
+
+    TransferFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
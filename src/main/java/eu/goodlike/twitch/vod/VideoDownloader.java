@@ -1,75 +1,587 @@
 package eu.goodlike.twitch.vod;
 
+import com.google.common.collect.ImmutableList;
+import eu.goodlike.concurrent.AdmissionQueue;
 import eu.goodlike.functional.Futures;
 import eu.goodlike.io.log.CustomizedLogger;
 import eu.goodlike.neat.Null;
 import eu.goodlike.twitch.CompletableFutureErrorHandler;
 import eu.goodlike.twitch.download.configurations.policy.ConcurrencyPolicy;
+import eu.goodlike.twitch.download.configurations.policy.HttpRequestPolicy;
+import eu.goodlike.twitch.download.configurations.policy.SchedulingMode;
 import eu.goodlike.twitch.download.http.TwitchRequestMaker;
+import eu.goodlike.twitch.m3u8.media.StreamPart;
 import okhttp3.HttpUrl;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+import static eu.goodlike.twitch.TwitchDefaults.*;
 
 /**
+ * <pre>
  * Downloads twitch stream files, limited by concurrency policy
+ *
+ * If segment validation is enabled by http request policy, whole segments are validated while they are written, and
+ * downloaded again right away if they turn out to be corrupt; byte ranges of a segment are not validated, since they
+ * do not start at packet boundaries
+ *
+ * Getting a response is retried by the request maker; if the transfer of the body breaks off afterwards (i.e. the
+ * connection is reset), the partial file is deleted (or the range is overwritten) and the part is downloaded again,
+ * up to the same amount of times
+ *
+ * Every whole segment is looked up in the segment cache before making any requests, and stored there once it is
+ * downloaded
+ * </pre>
  */
 public final class VideoDownloader {
 
     /**
+     * The download is queued until it fits into the concurrency limit; the calling thread is never blocked
      * @return file downloaded from url, at location; on failure, error will logger to debug
      */
     public CompletableFuture<File> download(Path location, HttpUrl url) {
         Null.check(location, url).ifAny("Location and url cannot be null");
 
-        try {
-            parallelExecutionLimiter.acquire();
-        } catch (InterruptedException e) {
-            return Futures.<File>failedFuture(e)
-                    .whenComplete(errorHandler.logOnError("Unexpected interruption while waiting to download file at: " + url));
-        }
+        Optional<File> cachedFile = copyFromCache(url, location);
+        if (cachedFile.isPresent())
+            return CompletableFuture.completedFuture(cachedFile.get());
 
-        debugLogger.logMessage("Downloading file from: " + url);
-        return twitchRequestMaker.makeRawRequest(url)
-                .whenComplete(errorHandler.logOnError("Couldn't download file at: " + url))
-                .thenApply(Response::body)
-                .thenApply(ResponseBody::byteStream)
-                .thenCompose(inputStream -> writeInputStreamToFile(inputStream, location))
-                .whenComplete(errorHandler.logOnError("Couldn't write file into: " + location))
-                .whenComplete((any, e) -> parallelExecutionLimiter.release());
+        return downloadQueue.submit(getGroup(url), () -> downloadFile(location, url));
+    }
+
+    /**
+     * <pre>
+     * If ranged fetch is enabled by concurrency policy, large enough parts will be split into byte ranges, which are
+     * downloaded concurrently and written into their positions in the file; every range counts towards the concurrency
+     * limit
+     *
+     * If the size of the part cannot be determined, or the server does not support ranges, the part is downloaded
+     * using a single request instead
+     * </pre>
+     * @return file downloaded from the location of given stream part, at location; on failure, error will logged to debug
+     * @throws NullPointerException if location or part is null
+     */
+    public CompletableFuture<File> download(Path location, StreamPart part) {
+        Null.check(location, part).ifAny("Location and stream part cannot be null");
+
+        Optional<HttpUrl> urlOptional = part.getLocationUrl();
+        if (!urlOptional.isPresent())
+            return Futures.<File>failedFuture(new IllegalArgumentException("Stream segment is not a valid url: " + part.getFullLocation()))
+                    .whenComplete(errorHandler.logOnError("Couldn't download file at: " + part.getFullLocation()));
+        HttpUrl url = urlOptional.get();
+
+        int maxRangeCount = concurrencyPolicy.getRangedFetchParts();
+        if (maxRangeCount < 2)
+            return download(location, url);
+
+        Optional<File> cachedFile = copyFromCache(url, location);
+        if (cachedFile.isPresent())
+            return CompletableFuture.completedFuture(cachedFile.get());
+
+        OptionalLong size = part.getByteSize();
+        CompletableFuture<OptionalLong> sizeFuture = size.isPresent()
+                ? CompletableFuture.completedFuture(size)
+                : findRemoteSize(url);
+
+        return sizeFuture.thenCompose(knownSize -> downloadInRanges(location, part, url, knownSize, maxRangeCount));
+    }
+
+    /**
+     * <pre>
+     * Downloads given stream part into the channel, at the position resolved for it
+     *
+     * The size of the part is known either from its location, or from the response; as soon as it is known, it is
+     * passed to the position resolver, which returns the future position of this part; this allows the positions of
+     * parts which follow this one to be computed before this part is written
+     * </pre>
+     * @return amount of bytes written into the channel; on failure, error will logged to debug
+     * @throws NullPointerException if any parameter is null
+     */
+    public CompletableFuture<Long> download(FileChannel fileChannel, StreamPart part,
+                                            LongFunction<CompletableFuture<Long>> positionResolver) {
+        Null.check(fileChannel, part, positionResolver).ifAny("File channel, stream part and position resolver cannot be null");
+
+        Optional<HttpUrl> urlOptional = part.getLocationUrl();
+        if (!urlOptional.isPresent())
+            return Futures.<Long>failedFuture(new IllegalArgumentException("Stream segment is not a valid url: " + part.getFullLocation()))
+                    .whenComplete(errorHandler.logOnError("Couldn't download file at: " + part.getFullLocation()));
+        HttpUrl url = urlOptional.get();
+
+        Optional<FileChannel> cachedSegment = segmentCache.open(url);
+        if (cachedSegment.isPresent())
+            return writeCachedSegment(cachedSegment.get(), url, fileChannel, positionResolver)
+                    .whenComplete(errorHandler.logOnError("Couldn't write cached file from " + url + " into its position"));
+
+        return downloadQueue.submit(getGroup(url), () -> downloadAtResolvedPosition(fileChannel, part, url, positionResolver));
+    }
+
+    /**
+     * The download is queued until it fits into the concurrency limit; the calling thread is never blocked
+     * @return contents of given stream part, downloaded into memory; on failure, error will logged to debug
+     * @throws NullPointerException if part is null
+     */
+    public CompletableFuture<byte[]> download(StreamPart part) {
+        Null.check(part).ifAny("Stream part cannot be null");
+
+        Optional<HttpUrl> urlOptional = part.getLocationUrl();
+        if (!urlOptional.isPresent())
+            return Futures.<byte[]>failedFuture(new IllegalArgumentException("Stream segment is not a valid url: " + part.getFullLocation()))
+                    .whenComplete(errorHandler.logOnError("Couldn't download file at: " + part.getFullLocation()));
+        HttpUrl url = urlOptional.get();
+
+        Optional<byte[]> cachedBytes = readFromCache(url);
+        if (cachedBytes.isPresent())
+            return CompletableFuture.completedFuture(cachedBytes.get());
+
+        return downloadQueue.submit(getGroup(url), () -> downloadIntoMemory(part, url));
     }
 
     // CONSTRUCTORS
 
-    public VideoDownloader(ConcurrencyPolicy concurrencyPolicy, TwitchRequestMaker twitchRequestMaker,
-                           CompletableFutureErrorHandler errorHandler, CustomizedLogger debugLogger) {
-        this.parallelExecutionLimiter = new Semaphore(concurrencyPolicy.getMaxConcurrentThreads());
+    public VideoDownloader(ConcurrencyPolicy concurrencyPolicy, HttpRequestPolicy httpRequestPolicy,
+                           TwitchRequestMaker twitchRequestMaker, ResponseBodyWriter responseBodyWriter,
+                           SegmentCache segmentCache, CompletableFutureErrorHandler errorHandler,
+                           CustomizedLogger debugLogger) {
+        this.downloadQueue = new AdmissionQueue(concurrencyPolicy.getMaxDownloads(),
+                concurrencyPolicy.getSchedulingMode() == SchedulingMode.FAIR_SHARE);
+        this.concurrencyPolicy = concurrencyPolicy;
+        this.httpRequestPolicy = httpRequestPolicy;
         this.twitchRequestMaker = twitchRequestMaker;
+        this.responseBodyWriter = responseBodyWriter;
+        this.segmentCache = segmentCache;
         this.errorHandler = errorHandler;
         this.debugLogger = debugLogger;
     }
 
     // PRIVATE
 
-    private final Semaphore parallelExecutionLimiter;
+    private final AdmissionQueue downloadQueue;
+    private final ConcurrencyPolicy concurrencyPolicy;
+    private final HttpRequestPolicy httpRequestPolicy;
     private final TwitchRequestMaker twitchRequestMaker;
+    private final ResponseBodyWriter responseBodyWriter;
+    private final SegmentCache segmentCache;
     private final CompletableFutureErrorHandler errorHandler;
     private final CustomizedLogger debugLogger;
 
-    private CompletableFuture<File> writeInputStreamToFile(InputStream inputStream, Path location) {
+    private CompletableFuture<File> downloadFile(Path location, HttpUrl url) {
+        debugLogger.logMessage("Downloading file from: " + url);
+        Supplier<CompletableFuture<File>> fetch = () -> twitchRequestMaker.makeRawRequest(url)
+                .whenComplete(errorHandler.logOnError("Couldn't download file at: " + url))
+                .thenApply(Response::body)
+                .thenCompose(body -> writeBodyToFile(body, location));
+
+        return refetchIfBroken(fetch.get(), url, fetch, httpRequestPolicy.getMaxRetries())
+                .whenComplete(errorHandler.logOnError("Couldn't write file into: " + location))
+                .thenApply(file -> {
+                    segmentCache.store(url, location);
+                    return file;
+                });
+    }
+
+    private CompletableFuture<File> writeBodyToFile(ResponseBody body, Path location) {
+        FileChannel fileChannel;
         try {
-            Files.copy(inputStream, location);
+            fileChannel = FileChannel.open(location, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
         } catch (IOException e) {
+            body.close();
             return Futures.failedFuture(e);
         }
+
+        try (FileChannel channel = fileChannel) {
+            responseBodyWriter.write(body, channel, 0, Long.MAX_VALUE, newValidator());
+        } catch (CorruptSegmentException e) {
+            deleteFile(location);
+            return Futures.failedFuture(e);
+        } catch (IOException e) {
+            deleteFile(location);
+            return Futures.failedFuture(new TransferFailedException("Transfer into " + location + " broke off", e));
+        }
         return CompletableFuture.completedFuture(location.toFile());
     }
 
+    private CompletableFuture<byte[]> downloadIntoMemory(StreamPart part, HttpUrl url) {
+        debugLogger.logMessage("Downloading file from: " + url);
+        Supplier<CompletableFuture<byte[]>> fetch = () -> twitchRequestMaker.makeRawRequest(url)
+                .whenComplete(errorHandler.logOnError("Couldn't download file at: " + url))
+                .thenApply(Response::body)
+                .thenCompose(body -> readBody(body, part));
+
+        return refetchIfBroken(fetch.get(), url, fetch, httpRequestPolicy.getMaxRetries())
+                .whenComplete(errorHandler.logOnError("Couldn't read file from: " + url))
+                .thenApply(bytes -> {
+                    segmentCache.store(url, bytes);
+                    return bytes;
+                });
+    }
+
+    private CompletableFuture<byte[]> readBody(ResponseBody body, StreamPart part) {
+        long maxBytes = part.getByteSize().orElse(MAX_IN_MEMORY_SIZE);
+        byte[] bytes;
+        try {
+            bytes = responseBodyWriter.read(body, Math.min(maxBytes, MAX_IN_MEMORY_SIZE), newValidator());
+        } catch (CorruptSegmentException e) {
+            return Futures.failedFuture(e);
+        } catch (IOException e) {
+            return Futures.failedFuture(new TransferFailedException("Transfer of " + part.getFullLocation() + " broke off", e));
+        }
+
+        OptionalLong expectedSize = part.getByteSize();
+        if (expectedSize.isPresent() && bytes.length != expectedSize.getAsLong())
+            return Futures.failedFuture(new CorruptSegmentException("Expected " + expectedSize.getAsLong() + " bytes for " +
+                    part.getFullLocation() + ", but only received " + bytes.length));
+
+        return CompletableFuture.completedFuture(bytes);
+    }
+
+    private CompletableFuture<OptionalLong> findRemoteSize(HttpUrl url) {
+        return downloadQueue.submit(getGroup(url), () -> requestRemoteSize(url))
+                .exceptionally(e -> {
+                    debugLogger.logMessage("Couldn't determine size of file at: " + url);
+                    return OptionalLong.empty();
+                });
+    }
+
+    private CompletableFuture<OptionalLong> requestRemoteSize(HttpUrl url) {
+        debugLogger.logMessage("Requesting size of file at: " + url);
+        return twitchRequestMaker.makeHeadRequest(url)
+                .thenApply(this::getRangedSize);
+    }
+
+    private OptionalLong getRangedSize(Response response) {
+        try (Response headResponse = response) {
+            if (!ACCEPT_RANGES_BYTES_VALUE.equals(headResponse.header(ACCEPT_RANGES_HEADER_NAME)))
+                return OptionalLong.empty();
+
+            String contentLength = headResponse.header(CONTENT_LENGTH_HEADER_NAME);
+            return contentLength == null
+                    ? OptionalLong.empty()
+                    : OptionalLong.of(Long.parseLong(contentLength));
+        }
+    }
+
+    private CompletableFuture<File> downloadInRanges(Path location, StreamPart part, HttpUrl url, OptionalLong size,
+                                                     int maxRangeCount) {
+        List<ByteRange> ranges = size.isPresent()
+                ? ByteRange.split(size.getAsLong(), maxRangeCount)
+                : ImmutableList.of();
+
+        return ranges.size() < 2
+                ? download(location, url)
+                : downloadRanges(location, part, url, ranges);
+    }
+
+    private CompletableFuture<File> downloadRanges(Path location, StreamPart part, HttpUrl url, List<ByteRange> ranges) {
+        FileChannel fileChannel;
+        try {
+            fileChannel = FileChannel.open(location, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            return Futures.<File>failedFuture(e)
+                    .whenComplete(errorHandler.logOnError("Couldn't write file into: " + location));
+        }
+
+        List<CompletableFuture<?>> rangeFutures = new ArrayList<>();
+        for (ByteRange range : ranges)
+            rangeFutures.add(downloadQueue.submit(getGroup(url), () -> downloadRange(location, part, url, range, fileChannel)));
+
+        return CompletableFuture.allOf(rangeFutures.toArray(new CompletableFuture[rangeFutures.size()]))
+                .whenComplete((any, e) -> closeChannel(fileChannel, location))
+                .thenApply(any -> {
+                    segmentCache.store(url, location);
+                    return location.toFile();
+                });
+    }
+
+    private CompletableFuture<Long> downloadRange(Path location, StreamPart part, HttpUrl url, ByteRange range,
+                                                  FileChannel fileChannel) {
+        debugLogger.logMessage("Downloading bytes " + range + " of file from: " + url);
+        Supplier<CompletableFuture<Long>> fetch = () -> requestRange(part, url, range)
+                .whenComplete(errorHandler.logOnError("Couldn't download bytes " + range + " of file at: " + url))
+                .thenApply(Response::body)
+                .thenCompose(body -> writeRangeToChannel(body, fileChannel, range, SegmentValidator.none()));
+
+        return refetchIfBroken(fetch.get(), url, fetch, httpRequestPolicy.getMaxRetries())
+                .whenComplete(errorHandler.logOnError("Couldn't write bytes " + range + " into: " + location));
+    }
+
+    private CompletableFuture<Response> requestRange(StreamPart part, HttpUrl url, ByteRange range) {
+        return part.getRangeLocationUrl(range.getStart(), range.getEnd())
+                .map(twitchRequestMaker::makeRawRequest)
+                .orElseGet(() -> twitchRequestMaker.makeRawRequest(url, range.getStart(), range.getEnd()));
+    }
+
+    private CompletableFuture<Long> writeRangeToChannel(ResponseBody body, FileChannel fileChannel, ByteRange range,
+                                                        SegmentValidator validator) {
+        long written;
+        try {
+            written = responseBodyWriter.write(body, fileChannel, range.getStart(), range.getSize(), validator);
+        } catch (CorruptSegmentException e) {
+            return Futures.failedFuture(e);
+        } catch (IOException e) {
+            return Futures.failedFuture(new TransferFailedException("Transfer of bytes " + range + " broke off", e));
+        }
+
+        if (written != range.getSize())
+            return Futures.failedFuture(new CorruptSegmentException("Expected " + range.getSize() + " bytes for range " +
+                    range + ", but only received " + written));
+
+        return CompletableFuture.completedFuture(written);
+    }
+
+    private CompletableFuture<Long> downloadAtResolvedPosition(FileChannel fileChannel, StreamPart part, HttpUrl url,
+                                                               LongFunction<CompletableFuture<Long>> positionResolver) {
+        debugLogger.logMessage("Downloading file from: " + url);
+        return twitchRequestMaker.makeRawRequest(url)
+                .whenComplete(errorHandler.logOnError("Couldn't download file at: " + url))
+                .thenApply(Response::body)
+                .thenCompose(body -> writeBodyAtResolvedPosition(body, part, url, fileChannel, positionResolver))
+                .whenComplete(errorHandler.logOnError("Couldn't write file from " + url + " into its position"));
+    }
+
+    private CompletableFuture<Long> writeBodyAtResolvedPosition(ResponseBody body, StreamPart part, HttpUrl url,
+                                                                FileChannel fileChannel,
+                                                                LongFunction<CompletableFuture<Long>> positionResolver) {
+        long size = part.getByteSize().orElse(body.contentLength());
+        if (size < 0) {
+            body.close();
+            return Futures.failedFuture(new IOException("Size of file is unknown: " + part.getFullLocation()));
+        }
+
+        // no thread waits for the position; if it is not known yet, the resolver decides which thread writes the body
+        CompletableFuture<Long> position;
+        try {
+            position = positionResolver.apply(size);
+        } catch (RuntimeException e) {
+            body.close();
+            return Futures.failedFuture(e);
+        }
+        return position
+                .whenComplete((any, e) -> {
+                    if (e != null)
+                        body.close();
+                })
+                .thenCompose(start -> writeBodyAt(body, url, fileChannel, new ByteRange(start, start + size - 1)));
+    }
+
+    private CompletableFuture<Long> writeBodyAt(ResponseBody body, HttpUrl url, FileChannel fileChannel, ByteRange range) {
+        Supplier<CompletableFuture<Long>> refetch = () -> twitchRequestMaker.makeRawRequest(url)
+                .thenApply(Response::body)
+                .thenCompose(refetchedBody -> writeRangeToChannel(refetchedBody, fileChannel, range, newValidator()));
+
+        return refetchIfBroken(writeRangeToChannel(body, fileChannel, range, newValidator()), url, refetch,
+                httpRequestPolicy.getMaxRetries())
+                .thenApply(written -> {
+                    segmentCache.store(url, fileChannel, range.getStart(), written);
+                    return written;
+                });
+    }
+
+    private Optional<File> copyFromCache(HttpUrl url, Path location) {
+        Optional<FileChannel> cachedSegment = segmentCache.open(url);
+        if (!cachedSegment.isPresent())
+            return Optional.empty();
+
+        try (FileChannel source = cachedSegment.get();
+             FileChannel target = FileChannel.open(location, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            transfer(source, target, 0);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't copy cached file from " + url + ", downloading it instead");
+            deleteFile(location);
+            return Optional.empty();
+        }
+        debugLogger.logMessage("Using cached file for: " + url);
+        return Optional.of(location.toFile());
+    }
+
+    private Optional<byte[]> readFromCache(HttpUrl url) {
+        Optional<FileChannel> cachedSegment = segmentCache.open(url);
+        if (!cachedSegment.isPresent())
+            return Optional.empty();
+
+        try (FileChannel source = cachedSegment.get()) {
+            long size = source.size();
+            if (size > MAX_IN_MEMORY_SIZE)
+                return Optional.empty();
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining())
+                if (source.read(buffer) < 0)
+                    throw new IOException("Cached file ended early");
+
+            debugLogger.logMessage("Using cached file for: " + url);
+            return Optional.of(buffer.array());
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't read cached file from " + url + ", downloading it instead");
+            return Optional.empty();
+        }
+    }
+
+    private CompletableFuture<Long> writeCachedSegment(FileChannel source, HttpUrl url, FileChannel fileChannel,
+                                                       LongFunction<CompletableFuture<Long>> positionResolver) {
+        long size;
+        try {
+            size = source.size();
+        } catch (IOException e) {
+            closeChannel(source, url);
+            return Futures.failedFuture(e);
+        }
+
+        debugLogger.logMessage("Using cached file for: " + url);
+        return positionResolver.apply(size)
+                .thenApply(position -> {
+                    try {
+                        transfer(source, fileChannel, position);
+                        return size;
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                })
+                .whenComplete((any, e) -> closeChannel(source, url));
+    }
+
+    /**
+     * Copies the whole source channel into the target channel, starting at given position of the target; only
+     * positional writes are used, so the target can be shared by concurrent writers
+     */
+    private void transfer(FileChannel source, FileChannel target, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CACHE_COPY_BUFFER_SIZE);
+        long transferred = 0;
+        while (source.read(buffer, transferred) != -1) {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                transferred += target.write(buffer, position + transferred);
+            buffer.clear();
+        }
+    }
+
+    private SegmentValidator newValidator() {
+        return httpRequestPolicy.isSegmentValidationEnabled()
+                ? SegmentValidator.transportStream()
+                : SegmentValidator.none();
+    }
+
+    /**
+     * @return given download, or, if it fails because the segment is corrupt or its transfer broke off, the result of
+     * refetching it, at most maxRefetches times; failures to get a response are already retried by the request maker,
+     * so they are not refetched
+     */
+    private <T> CompletableFuture<T> refetchIfBroken(CompletableFuture<T> download, HttpUrl url,
+                                                     Supplier<CompletableFuture<T>> refetch, int maxRefetches) {
+        return download
+                .handle((result, e) -> {
+                    if (e == null)
+                        return CompletableFuture.completedFuture(result);
+
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    boolean broken = cause instanceof CorruptSegmentException || cause instanceof TransferFailedException;
+                    if (!broken || maxRefetches <= 0)
+                        return Futures.<T>failedFuture(cause);
+
+                    debugLogger.logMessage("Segment at " + url + " is broken (" + cause.getMessage() + "), downloading it again");
+                    return refetchIfBroken(refetch.get(), url, refetch, maxRefetches - 1);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private void deleteFile(Path location) {
+        try {
+            Files.deleteIfExists(location);
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't delete broken file at: " + location);
+        }
+    }
+
+    /**
+     * @return group of the download queue for given url; every VoD keeps its parts in its own directory, so the
+     * directory identifies the VoD
+     */
+    private static String getGroup(HttpUrl url) {
+        String path = url.encodedPath();
+        return url.host() + path.substring(0, path.lastIndexOf('/') + 1);
+    }
+
+    private void closeChannel(FileChannel fileChannel, Path location) {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't close file at: " + location);
+        }
+    }
+
+    private void closeChannel(FileChannel fileChannel, HttpUrl url) {
+        try {
+            fileChannel.close();
+        } catch (IOException e) {
+            debugLogger.logMessage("Couldn't close cached file for: " + url);
+        }
+    }
+
+    private static final long MIN_RANGE_SIZE = 1024 * 1024;
+    private static final long MAX_IN_MEMORY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int CACHE_COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Inclusive range of bytes, relative to the start of the file
+     */
+    private static final class ByteRange {
+        private long getStart() {
+            return start;
+        }
+
+        private long getEnd() {
+            return end;
+        }
+
+        private long getSize() {
+            return end - start + 1;
+        }
+
+        /**
+         * @return given size split into at most maxCount ranges of similar size, but no smaller than MIN_RANGE_SIZE
+         * (except for the last one)
+         */
+        private static List<ByteRange> split(long size, int maxCount) {
+            long count = Math.min(maxCount, size / MIN_RANGE_SIZE);
+            if (count < 2)
+                return ImmutableList.of(new ByteRange(0, size - 1));
+
+            long rangeSize = (size + count - 1) / count;
+            ImmutableList.Builder<ByteRange> builder = ImmutableList.builder();
+            for (long start = 0; start < size; start += rangeSize)
+                builder.add(new ByteRange(start, Math.min(start + rangeSize, size) - 1));
+
+            return builder.build();
+        }
+
+        private ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        private final long start;
+        private final long end;
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
 }
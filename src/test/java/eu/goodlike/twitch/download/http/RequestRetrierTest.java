@@ -0,0 +1,145 @@
+package eu.goodlike.twitch.download.http;
+
+import eu.goodlike.functional.Futures;
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.io.log.CustomizedLoggers;
+import okhttp3.HttpUrl;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestRetrierTest {
+
+    @After
+    public void tearDown() throws Exception {
+        if (requestRetrier != null)
+            requestRetrier.close();
+    }
+
+    @Test
+    public void successfulRequestIsMadeOnce() throws Exception {
+        requestRetrier = new RequestRetrier(3, NO_LOGGER);
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = requestRetrier.withRetries(HOST_URL, countCalls(calls, () -> completed("ok")))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals("ok", result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void unusableResponseIsNotRetried() throws Exception {
+        requestRetrier = new RequestRetrier(3, NO_LOGGER);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = requestRetrier.withRetries(HOST_URL,
+                countCalls(calls, () -> Futures.failedFuture(new HttpException("Not found", 404))));
+
+        assertFailsWith(HttpException.class, result);
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void retryableFailureIsRetriedUpToMaxRetries() throws Exception {
+        requestRetrier = new RequestRetrier(2, NO_LOGGER);
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<String> result = requestRetrier.withRetries(HOST_URL,
+                countCalls(calls, () -> Futures.failedFuture(new IOException("Connection reset"))));
+
+        assertFailsWith(IOException.class, result);
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void openCircuitOnlyDelaysRequestsToItsHost() throws Exception {
+        requestRetrier = new RequestRetrier(0, NO_LOGGER);
+        for (int i = 0; i < CIRCUIT_FAILURE_THRESHOLD; i++)
+            assertFailsWith(IOException.class,
+                    requestRetrier.withRetries(HOST_URL, () -> Futures.failedFuture(new IOException("Connection reset"))));
+
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> delayed = requestRetrier.withRetries(HOST_URL, countCalls(calls, () -> completed("ok")));
+        String otherHostResult = requestRetrier.withRetries(OTHER_HOST_URL, () -> completed("other"))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals("other", otherHostResult);
+        try {
+            delayed.get(1, TimeUnit.SECONDS);
+            fail("Request went through an open circuit");
+        } catch (TimeoutException expected) {
+            assertEquals(0, calls.get());
+        }
+    }
+
+    @Test
+    public void waitingForCircuitDoesNotCountAsAttempt() throws Exception {
+        requestRetrier = new RequestRetrier(1, NO_LOGGER);
+        AtomicInteger calls = new AtomicInteger();
+        // fails just enough times to open the circuit; every request has a single retry, which would not be enough
+        // if waiting for the circuit used it up
+        Supplier<CompletableFuture<String>> request = () -> calls.incrementAndGet() <= CIRCUIT_FAILURE_THRESHOLD
+                ? Futures.failedFuture(new IOException("Connection reset"))
+                : completed("ok");
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            results.add(requestRetrier.withRetries(HOST_URL, request));
+
+        for (CompletableFuture<String> result : results)
+            assertEquals("ok", result.get(CIRCUIT_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private RequestRetrier requestRetrier;
+
+    private static <T> Supplier<CompletableFuture<T>> countCalls(AtomicInteger calls,
+                                                                 Supplier<CompletableFuture<T>> request) {
+        return () -> {
+            calls.incrementAndGet();
+            return request.get();
+        };
+    }
+
+    private static CompletableFuture<String> completed(String value) {
+        return CompletableFuture.completedFuture(value);
+    }
+
+    private static void assertFailsWith(Class<? extends Throwable> expectedType, CompletableFuture<?> result)
+            throws Exception {
+        try {
+            result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            fail("Expected failure: " + expectedType.getSimpleName());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause.getCause() != null && !expectedType.isInstance(cause))
+                cause = cause.getCause();
+            assertTrue("Unexpected failure: " + e.getCause(), expectedType.isInstance(cause));
+        }
+    }
+
+    private static final CustomizedLogger NO_LOGGER = CustomizedLoggers.combine(Collections.emptyList());
+
+    private static final HttpUrl HOST_URL = HttpUrl.parse("https://vod.example.com/chunked/1.ts");
+    private static final HttpUrl OTHER_HOST_URL = HttpUrl.parse("https://other.example.com/chunked/1.ts");
+
+    // must match RequestRetrier; the circuit then stays open for 10 seconds
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long CIRCUIT_TIMEOUT_SECONDS = 30;
+
+}
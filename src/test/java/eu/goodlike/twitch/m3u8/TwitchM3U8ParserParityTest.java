@@ -0,0 +1,204 @@
+package eu.goodlike.twitch.m3u8;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.io.log.CustomizedLoggers;
+import eu.goodlike.twitch.download.configurations.policy.ParserEngine;
+import eu.goodlike.twitch.download.configurations.policy.PlaylistPolicy;
+import eu.goodlike.twitch.m3u8.master.MasterPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylist;
+import eu.goodlike.twitch.m3u8.media.MediaPlaylistUpdate;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the streaming parser reads playlists into the same objects as the scanner parser
+ */
+public class TwitchM3U8ParserParityTest {
+
+    @Test
+    public void wholePartsAreParsedTheSame() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, false, "\n"), policy(false, OptionalLong.empty(), OptionalInt.empty()));
+    }
+
+    @Test
+    public void rangedPartsAreParsedTheSame() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, true, "\n"), policy(false, OptionalLong.empty(), OptionalInt.empty()));
+    }
+
+    @Test
+    public void rangedPartsAreCombinedTheSame() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, true, "\n"), policy(true, OptionalLong.empty(), OptionalInt.empty()));
+    }
+
+    @Test
+    public void rangedPartsAreCombinedTheSameWithinSizeLimit() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, true, "\n"),
+                policy(true, OptionalLong.of(SEGMENT_SIZE * 2), OptionalInt.empty()));
+    }
+
+    @Test
+    public void rangedPartsAreCombinedTheSameWithinDurationLimit() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, true, "\n"), policy(true, OptionalLong.empty(), OptionalInt.of(25)));
+    }
+
+    @Test
+    public void windowsLineEndingsAreParsedTheSame() throws Exception {
+        assertSameMediaPlaylist(mediaPlaylist(30, true, "\r\n"), policy(true, OptionalLong.empty(), OptionalInt.empty()));
+    }
+
+    @Test
+    public void updatesAreParsedTheSame() throws Exception {
+        byte[] playlist = mediaPlaylist(30, false, "\n");
+        PlaylistPolicy scannerPolicy = policy(false, OptionalLong.empty(), OptionalInt.empty(), ParserEngine.SCANNER);
+        PlaylistPolicy streamingPolicy = policy(false, OptionalLong.empty(), OptionalInt.empty(), ParserEngine.STREAMING);
+
+        MediaPlaylistUpdate expected = parseUpdate(playlist, scannerPolicy, KNOWN_MEDIA_SEQUENCE);
+        MediaPlaylistUpdate actual = parseUpdate(playlist, streamingPolicy, KNOWN_MEDIA_SEQUENCE);
+
+        assertEquals(30 - (KNOWN_MEDIA_SEQUENCE - FIRST_MEDIA_SEQUENCE), expected.getNewParts().getStreamParts().size());
+        assertSameParts(expected.getNewParts(), actual.getNewParts());
+        assertEquals(expected.getNextMediaSequence(), actual.getNextMediaSequence());
+        assertEquals(expected.getTargetDuration(), actual.getTargetDuration());
+        assertEquals(expected.isEnded(), actual.isEnded());
+    }
+
+    @Test
+    public void masterPlaylistsAreParsedTheSame() throws Exception {
+        byte[] playlist = masterPlaylist();
+        MasterPlaylist expected = parseMaster(playlist, ParserEngine.SCANNER);
+        MasterPlaylist actual = parseMaster(playlist, ParserEngine.STREAMING);
+
+        for (String quality : QUALITIES) {
+            assertTrue("Missing quality: " + quality, expected.getStreamPlaylistUrlForQuality(quality).isPresent());
+            assertEquals(expected.getStreamPlaylistUrlForQuality(quality),
+                    actual.getStreamPlaylistUrlForQuality(quality));
+        }
+    }
+
+    private static void assertSameMediaPlaylist(byte[] playlist, PolicyFactory policyFactory) throws Exception {
+        MediaPlaylist expected = parseMedia(playlist, policyFactory.forEngine(ParserEngine.SCANNER));
+        MediaPlaylist actual = parseMedia(playlist, policyFactory.forEngine(ParserEngine.STREAMING));
+
+        assertSameParts(expected, actual);
+    }
+
+    private static void assertSameParts(MediaPlaylist expected, MediaPlaylist actual) {
+        assertEquals(expected.getStreamParts(), actual.getStreamParts());
+        assertEquals(0, expected.getTotalDuration().compareTo(actual.getTotalDuration()));
+        assertEquals(expected.getTargetDuration(), actual.getTargetDuration());
+        assertEquals(render(expected), render(actual));
+    }
+
+    private static String render(MediaPlaylist mediaPlaylist) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mediaPlaylist.getStreamParts().size(); i++)
+            mediaPlaylist.appendMediaPlaylistString(i, builder);
+
+        return builder.toString();
+    }
+
+    private static MediaPlaylist parseMedia(byte[] playlist, PlaylistPolicy playlistPolicy) throws Exception {
+        try (TwitchM3U8Parser parser = newParser(playlist, playlistPolicy)) {
+            return getParsed(parser.parseMediaPlaylist(), playlistPolicy);
+        }
+    }
+
+    private static MediaPlaylistUpdate parseUpdate(byte[] playlist, PlaylistPolicy playlistPolicy,
+                                                   long knownMediaSequence) throws Exception {
+        try (TwitchM3U8Parser parser = newParser(playlist, playlistPolicy)) {
+            return getParsed(parser.parseMediaPlaylistUpdate(knownMediaSequence), playlistPolicy);
+        }
+    }
+
+    private static MasterPlaylist parseMaster(byte[] playlist, ParserEngine parserEngine) throws Exception {
+        PlaylistPolicy playlistPolicy = policy(false, OptionalLong.empty(), OptionalInt.empty(), parserEngine);
+        try (TwitchM3U8Parser parser = newParser(playlist, playlistPolicy)) {
+            return getParsed(parser.parseMasterPlaylist(), playlistPolicy);
+        }
+    }
+
+    private static TwitchM3U8Parser newParser(byte[] playlist, PlaylistPolicy playlistPolicy) {
+        return new TwitchM3U8ParserFactory(NO_LOGGER, playlistPolicy).newInstance(new ByteArrayInputStream(playlist));
+    }
+
+    private static <T> T getParsed(Optional<T> parsed, PlaylistPolicy playlistPolicy) {
+        assertTrue("Playlist could not be parsed by " + playlistPolicy.getParserEngine(), parsed.isPresent());
+        return parsed.get();
+    }
+
+    private static PolicyFactory policy(boolean combine, OptionalLong maxSize, OptionalInt maxDuration) {
+        return engine -> policy(combine, maxSize, maxDuration, engine);
+    }
+
+    private static PlaylistPolicy policy(boolean combine, OptionalLong maxSize, OptionalInt maxDuration,
+                                         ParserEngine parserEngine) {
+        return new PlaylistPolicy(false, combine, maxSize, maxDuration, false, "source", parserEngine, false);
+    }
+
+    /**
+     * @return media playlist like the ones twitch serves; ranged playlists point into large files, a few segments per
+     * file, while whole playlists point to a separate file for every segment
+     */
+    private static byte[] mediaPlaylist(int segmentCount, boolean ranged, String lineSeparator) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("#EXTM3U").append(lineSeparator)
+                .append("#EXT-X-VERSION:3").append(lineSeparator)
+                .append("#EXT-X-TARGETDURATION:11").append(lineSeparator)
+                .append("#EXT-X-PLAYLIST-TYPE:EVENT").append(lineSeparator)
+                .append("#EXT-X-MEDIA-SEQUENCE:").append(FIRST_MEDIA_SEQUENCE).append(lineSeparator)
+                .append("#EXT-X-TWITCH-ELAPSED-SECS:0.000").append(lineSeparator);
+
+        for (int i = 0; i < segmentCount; i++) {
+            builder.append("#EXTINF:").append(i % 7 == 6 ? "9.967" : "10.000").append(",").append(lineSeparator);
+            if (ranged) {
+                int rangeIndex = i % SEGMENTS_PER_FILE;
+                builder.append("index-").append(i / SEGMENTS_PER_FILE).append("-AbCd.ts")
+                        .append("?start_offset=").append(rangeIndex * SEGMENT_SIZE)
+                        .append("&end_offset=").append((rangeIndex + 1) * SEGMENT_SIZE - 1);
+            }
+            else
+                builder.append(i).append(".ts");
+            builder.append(lineSeparator);
+        }
+        builder.append("#EXT-X-ENDLIST").append(lineSeparator);
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] masterPlaylist() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("#EXTM3U\n")
+                .append("#EXT-X-TWITCH-INFO:ORIGIN=\"s3\",B=\"false\",REGION=\"EU\",USER-IP=\"127.0.0.1\"\n");
+        for (String quality : QUALITIES)
+            builder.append("#EXT-X-MEDIA:TYPE=VIDEO,GROUP-ID=\"").append(quality).append("\",NAME=\"")
+                    .append(quality).append("\",AUTOSELECT=YES,DEFAULT=YES\n")
+                    .append("#EXT-X-STREAM-INF:PROGRAM-ID=1,BANDWIDTH=3000000,CODECS=\"avc1.4D4029,mp4a.40.2\",")
+                    .append("VIDEO=\"").append(quality).append("\"\n")
+                    .append("https://vod.example.com/v1/AUTH_system/vods_1234/streamer_123_456/")
+                    .append(quality).append("/index-dvr.m3u8\n");
+
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface PolicyFactory {
+        PlaylistPolicy forEngine(ParserEngine parserEngine);
+    }
+
+    private static final CustomizedLogger NO_LOGGER = CustomizedLoggers.combine(Collections.emptyList());
+
+    private static final int SEGMENTS_PER_FILE = 4;
+    private static final long SEGMENT_SIZE = 1_500_000;
+    private static final long FIRST_MEDIA_SEQUENCE = 100;
+    private static final long KNOWN_MEDIA_SEQUENCE = 110;
+    private static final String[] QUALITIES = {"chunked", "720p60", "480p30", "audio_only"};
+
+}
@@ -0,0 +1,227 @@
+package eu.goodlike.twitch.remux;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the boxes written for a short synthetic stream: 10 seconds of 30fps video with a keyframe every 2 seconds and
+ * B-frame reordering, and AAC audio which starts 0.1 seconds before the video
+ */
+public class FragmentedMp4MuxerTest {
+
+    @Before
+    public void setUp() throws IOException {
+        file = mux();
+    }
+
+    @Test
+    public void fileStartsWithHeaderAndEndsWithRandomAccessIndex() {
+        List<String> types = new ArrayList<>();
+        for (Box box : children(0, file.limit()))
+            types.add(box.type);
+
+        assertEquals("ftyp", types.get(0));
+        assertEquals("moov", types.get(1));
+        assertEquals("mfra", types.get(types.size() - 1));
+        // a fragment for every keyframe, each followed by its data
+        List<String> fragments = types.subList(2, types.size() - 1);
+        assertEquals(2 * KEYFRAME_COUNT, fragments.size());
+        for (int i = 0; i < fragments.size(); i += 2) {
+            assertEquals("moof", fragments.get(i));
+            assertEquals("mdat", fragments.get(i + 1));
+        }
+    }
+
+    @Test
+    public void durationsAreFilledIn() {
+        Box moov = child(0, file.limit(), "moov");
+        long movieDuration = file.getInt(fullBoxContent(child(moov, "mvhd")) + 12) & 0xFFFFFFFFL;
+        long fragmentDuration = file.getLong(fullBoxContent(child(child(moov, "mvex"), "mehd")));
+
+        assertTrue("Movie duration: " + movieDuration, Math.abs(movieDuration - 10_100) < 100);
+        assertEquals(movieDuration, fragmentDuration);
+
+        long longestTrack = 0;
+        for (Box trak : children(moov, "trak"))
+            longestTrack = Math.max(longestTrack, file.getInt(fullBoxContent(child(trak, "tkhd")) + 16) & 0xFFFFFFFFL);
+        assertEquals(movieDuration, longestTrack);
+    }
+
+    @Test
+    public void videoStartsWithEmptyEditUntilItsFirstFrame() {
+        Box moov = child(0, file.limit(), "moov");
+        List<Box> tracks = children(moov, "trak");
+        assertEquals(2, tracks.size());
+
+        int videoEdits = fullBoxContent(child(child(tracks.get(0), "edts"), "elst"));
+        assertEquals(2, file.getInt(videoEdits));
+        assertEquals(EMPTY_EDIT_MEDIA_TIME, file.getInt(videoEdits + 8));
+        // timestamps start with the audio, while the first video frame is presented after the audio lead and the
+        // reordering delay
+        long firstFrame = AUDIO_LEAD + B_FRAME_DELAY;
+        assertEquals(firstFrame * 1000 / 90_000, file.getInt(videoEdits + 4));
+        assertEquals(firstFrame, file.getInt(videoEdits + 20));
+
+        int audioEdits = fullBoxContent(child(child(tracks.get(1), "edts"), "elst"));
+        assertEquals(1, file.getInt(audioEdits));
+        assertEquals(0, file.getInt(audioEdits + 8));
+    }
+
+    @Test
+    public void randomAccessIndexPointsAtFragments() {
+        Box mfra = child(0, file.limit(), "mfra");
+        Box mfro = child(mfra, "mfro");
+        assertEquals(mfra.size, file.getInt(fullBoxContent(mfro)));
+        assertEquals(file.limit(), mfra.end());
+
+        List<Box> tfras = children(mfra, "tfra");
+        assertEquals(2, tfras.size());
+        for (Box tfra : tfras) {
+            int content = fullBoxContent(tfra);
+            int entryCount = file.getInt(content + 8);
+            assertTrue(entryCount > 0);
+            for (int i = 0; i < entryCount; i++) {
+                // version 1 entries: 64-bit time and offset, followed by single byte traf, trun and sample numbers
+                long moofPosition = file.getLong(content + 12 + i * 19 + 8);
+                assertEquals("moof", typeAt((int) moofPosition));
+            }
+        }
+    }
+
+    private ByteBuffer file;
+
+    private static ByteBuffer mux() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        FragmentedMp4Muxer muxer = new FragmentedMp4Muxer(output);
+        int audioFrame = 0;
+        for (int frame = 0; frame < FRAME_COUNT; frame++) {
+            long dts = START + frame * FRAME_DURATION;
+            long audioStart = START - AUDIO_LEAD;
+            while (audioStart + audioFrame * AUDIO_FRAME_DURATION <= dts) {
+                muxer.onAudio(audioStart + audioFrame * AUDIO_FRAME_DURATION, adtsFrame());
+                audioFrame++;
+            }
+            byte[] annexB = frame % KEYFRAME_INTERVAL == 0
+                    ? concat(SPS, PPS, new byte[] {0, 0, 0, 1, 0x65, 1, 2, 3})
+                    : new byte[] {0, 0, 0, 1, 0x41, 1, 2};
+            muxer.onVideo(dts + B_FRAME_DELAY, dts, annexB);
+        }
+        muxer.finish();
+
+        byte[] bytes = output.toByteArray();
+        for (Map.Entry<Long, byte[]> update : muxer.getHeaderUpdates().entrySet())
+            System.arraycopy(update.getValue(), 0, bytes, update.getKey().intValue(), update.getValue().length);
+
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private Box child(int start, int end, String type) {
+        for (Box box : children(start, end))
+            if (box.type.equals(type))
+                return box;
+
+        throw new AssertionError("Missing box: " + type);
+    }
+
+    private Box child(Box parent, String type) {
+        return child(parent.contentStart(), parent.end(), type);
+    }
+
+    private List<Box> children(Box parent, String type) {
+        List<Box> boxes = new ArrayList<>();
+        for (Box box : children(parent.contentStart(), parent.end()))
+            if (box.type.equals(type))
+                boxes.add(box);
+
+        return boxes;
+    }
+
+    private List<Box> children(int start, int end) {
+        List<Box> boxes = new ArrayList<>();
+        for (int position = start; position < end; ) {
+            Box box = new Box(position, file.getInt(position), typeAt(position));
+            assertTrue("Box " + box.type + " at " + position + " has invalid size " + box.size,
+                    box.size >= 8 && box.end() <= end);
+            boxes.add(box);
+            position = box.end();
+        }
+        return boxes;
+    }
+
+    private String typeAt(int position) {
+        byte[] type = new byte[4];
+        for (int i = 0; i < 4; i++)
+            type[i] = file.get(position + 4 + i);
+
+        return new String(type, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @return position of the content of a full box, after its version and flags
+     */
+    private static int fullBoxContent(Box box) {
+        return box.contentStart() + 4;
+    }
+
+    private static byte[] adtsFrame() {
+        // AAC LC, 44.1kHz, stereo, 8 byte frame with no payload beyond the header and a single zero byte
+        int length = 8;
+        return new byte[] {(byte) 0xFF, (byte) 0xF1, 0x50, (byte) 0x80, (byte) ((length >> 3) & 0xFF),
+                (byte) (((length & 7) << 5) | 0x1F), (byte) 0xFC, 0};
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        for (byte[] array : arrays)
+            output.write(array, 0, array.length);
+
+        return output.toByteArray();
+    }
+
+    private static final class Box {
+        private Box(int start, int size, String type) {
+            this.start = start;
+            this.size = size;
+            this.type = type;
+        }
+
+        private int contentStart() {
+            return start + 8;
+        }
+
+        private int end() {
+            return start + size;
+        }
+
+        private final int start;
+        private final int size;
+        private final String type;
+    }
+
+    private static final long START = 900_000;
+    private static final long FRAME_DURATION = 3000;
+    private static final long B_FRAME_DELAY = 2 * FRAME_DURATION;
+    private static final long AUDIO_LEAD = 9000;
+    private static final long AUDIO_FRAME_DURATION = 2090;
+    private static final int FRAME_COUNT = 300;
+    private static final int KEYFRAME_INTERVAL = 60;
+    private static final int KEYFRAME_COUNT = FRAME_COUNT / KEYFRAME_INTERVAL;
+    private static final int EMPTY_EDIT_MEDIA_TIME = -1;
+
+    private static final byte[] SPS = {0, 0, 0, 1, 0x67, 0x64, 0x00, 0x1f, (byte) 0xac, (byte) 0xd9, 0x40, 0x50, 0x05,
+            (byte) 0xbb, 0x01, 0x10, 0x00, 0x00, 0x03, 0x00, 0x10, 0x00, 0x00, 0x03, 0x03, (byte) 0xc0, (byte) 0xf1,
+            (byte) 0x83, 0x19, 0x60};
+    private static final byte[] PPS = {0, 0, 0, 1, 0x68, (byte) 0xeb, (byte) 0xe3, (byte) 0xcb, 0x22, (byte) 0xc0};
+
+}
@@ -0,0 +1,158 @@
+package eu.goodlike.twitch.vod;
+
+import eu.goodlike.io.log.CustomizedLogger;
+import eu.goodlike.io.log.CustomizedLoggers;
+import okhttp3.HttpUrl;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentCacheTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+    private SegmentCache segmentCache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder("cache").toPath();
+        segmentCache = new SegmentCache(directory, MAX_SIZE, NO_LOGGER);
+    }
+
+    @Test
+    public void storedBytesCanBeReadBack() throws IOException {
+        segmentCache.store(FIRST_URL, bytes(10, 1));
+
+        assertArrayEquals(bytes(10, 1), readCached(FIRST_URL));
+    }
+
+    @Test
+    public void missingSegmentIsNotCached() {
+        segmentCache.store(FIRST_URL, bytes(10, 1));
+
+        assertFalse(segmentCache.open(SECOND_URL).isPresent());
+        assertFalse(segmentCache.find(SECOND_URL).isPresent());
+    }
+
+    @Test
+    public void rangesOfTheSameFileAreSeparateSegments() throws IOException {
+        HttpUrl firstRange = HttpUrl.parse("https://vod.example.com/chunked/index-0.ts?start_offset=0&end_offset=9");
+        HttpUrl secondRange = HttpUrl.parse("https://vod.example.com/chunked/index-0.ts?start_offset=10&end_offset=19");
+        segmentCache.store(firstRange, bytes(10, 1));
+        segmentCache.store(secondRange, bytes(10, 2));
+
+        assertArrayEquals(bytes(10, 1), readCached(firstRange));
+        assertArrayEquals(bytes(10, 2), readCached(secondRange));
+    }
+
+    @Test
+    public void foundSegmentIsAnAbsolutePathToItsBytes() throws IOException {
+        segmentCache.store(FIRST_URL, bytes(10, 1));
+
+        Optional<Path> path = segmentCache.find(FIRST_URL);
+        assertTrue(path.isPresent());
+        assertTrue(path.get().isAbsolute());
+        assertArrayEquals(bytes(10, 1), Files.readAllBytes(path.get()));
+    }
+
+    @Test
+    public void storingFromChannelCopiesOnlyGivenRange() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, bytes(30, 1));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segmentCache.store(FIRST_URL, channel, 10, 5);
+        }
+
+        byte[] expected = new byte[5];
+        System.arraycopy(bytes(30, 1), 10, expected, 0, 5);
+        assertArrayEquals(expected, readCached(FIRST_URL));
+    }
+
+    @Test
+    public void storingFromUnreadableChannelIsIgnored() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes(10, 1)), 0);
+            segmentCache.store(FIRST_URL, channel, 0, 10);
+        }
+
+        assertFalse(segmentCache.open(FIRST_URL).isPresent());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertFalse("Temporary file was left behind", files.anyMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedSegmentsAreEvicted() throws IOException {
+        segmentCache.store(FIRST_URL, bytes(10, 1));
+        segmentCache.store(SECOND_URL, bytes(10, 2));
+        // the second segment is made older than the first, as if the first was used after it
+        Files.setLastModifiedTime(segmentCache.find(SECOND_URL).get(), FileTime.fromMillis(0));
+
+        segmentCache.store(THIRD_URL, bytes(10, 3));
+
+        assertTrue(segmentCache.find(FIRST_URL).isPresent());
+        assertFalse(segmentCache.find(SECOND_URL).isPresent());
+        assertTrue(segmentCache.find(THIRD_URL).isPresent());
+    }
+
+    @Test
+    public void disabledCacheStoresNothing() {
+        SegmentCache disabled = SegmentCache.disabled();
+        disabled.store(FIRST_URL, bytes(10, 1));
+
+        assertFalse(disabled.isEnabled());
+        assertFalse(disabled.open(FIRST_URL).isPresent());
+        assertFalse(disabled.find(FIRST_URL).isPresent());
+    }
+
+    private byte[] readCached(HttpUrl url) throws IOException {
+        Optional<FileChannel> cachedSegment = segmentCache.open(url);
+        assertTrue("Segment is not cached: " + url, cachedSegment.isPresent());
+        try (FileChannel channel = cachedSegment.get()) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining())
+                if (channel.read(buffer) < 0)
+                    break;
+
+            assertEquals(channel.size(), buffer.position());
+            return buffer.array();
+        }
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++)
+            bytes[i] = (byte) (seed * 31 + i);
+
+        return bytes;
+    }
+
+    private static final CustomizedLogger NO_LOGGER = CustomizedLoggers.combine(Collections.emptyList());
+    // fits two segments of 10 bytes, but not three
+    private static final long MAX_SIZE = 25;
+
+    private static final HttpUrl FIRST_URL = HttpUrl.parse("https://vod.example.com/chunked/1.ts");
+    private static final HttpUrl SECOND_URL = HttpUrl.parse("https://vod.example.com/chunked/2.ts");
+    private static final HttpUrl THIRD_URL = HttpUrl.parse("https://vod.example.com/chunked/3.ts");
+
+}